@@ -99,9 +99,9 @@ await esbuild.build({
           from: ['./run-node'],
           to: ['./bin/'],
         },
-        // We copy the protofile as it needs to be accessible for the bundle
+        // We copy the protofiles as they need to be accessible for the bundle
         {
-          from: ['./packages/jsts/src/parsers/estree.proto'],
+          from: ['./packages/jsts/src/parsers/estree.proto', './packages/bridge/src/analysis.proto'],
           to: ['./bin/'],
         },
       ],
@@ -206,9 +206,9 @@ await esbuild.build({
           from: ['./run-node'],
           to: ['./bin/'],
         },
-        // We copy the protofile as it needs to be accessible for the bundle
+        // We copy the protofiles as they need to be accessible for the bundle
         {
-          from: ['./packages/jsts/src/parsers/estree.proto'],
+          from: ['./packages/jsts/src/parsers/estree.proto', './packages/bridge/src/analysis.proto'],
           to: ['./bin/'],
         },
       ],
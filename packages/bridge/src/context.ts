@@ -3,4 +3,5 @@ export interface Context<Data extends Record<string, any>> {
   readonly url: string;
   setResponse: (value: any) => void; // todo: could we use `set response` instead?
   setResponseStatusCode: (value: number) => void;
+  setResponseContentType: (value: string) => void;
 }
@@ -0,0 +1,162 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import { type Server } from 'node:http';
+import { type Socket } from 'node:net';
+import { Context } from './context';
+
+/**
+ * Preface sent by the plugin when it opens a framed connection, see FramedTransport.java
+ */
+export const FRAMED_CONNECTION_PREFACE = Buffer.from([0x00, 0x53, 0x4a, 0x53]);
+
+const RESPONSE_HEADER_SIZE = 4 + 4 + 4 + 2;
+
+type Handler = (context: Context<any>) => Promise<unknown>;
+
+/**
+ * Lets the HTTP server accept framed connections on the same port. The first bytes received
+ * on a connection tell whether it is a framed connection or an HTTP one, the latter being
+ * handed back to the HTTP server untouched. As the preface may be split across chunks, the
+ * decision waits until it is either complete or contradicted.
+ */
+export const acceptFramedConnections = (server: Server, handler: Handler) => {
+  const httpConnectionListeners = server.listeners('connection') as Array<
+    (socket: Socket) => void
+  >;
+
+  server.removeAllListeners('connection');
+  server.on('connection', (socket: Socket) => {
+    let received = Buffer.alloc(0);
+
+    const onData = (chunk: Buffer) => {
+      received = received.length > 0 ? Buffer.concat([received, chunk]) : chunk;
+      const length = Math.min(received.length, FRAMED_CONNECTION_PREFACE.length);
+      const isPreface = received
+        .subarray(0, length)
+        .equals(FRAMED_CONNECTION_PREFACE.subarray(0, length));
+      if (isPreface && received.length < FRAMED_CONNECTION_PREFACE.length) {
+        return;
+      }
+      socket.off('data', onData);
+      if (isPreface) {
+        readFrames(socket, received.subarray(FRAMED_CONNECTION_PREFACE.length), handler);
+      } else {
+        socket.pause();
+        socket.unshift(received);
+        httpConnectionListeners.forEach(listener => listener.call(server, socket));
+        process.nextTick(() => socket.resume());
+      }
+    };
+
+    socket.on('data', onData);
+  });
+};
+
+const readFrames = (socket: Socket, initialData: Buffer, handler: Handler) => {
+  let pending = initialData;
+
+  const consumeFrames = () => {
+    while (pending.length >= 4) {
+      const frameLength = pending.readInt32BE(0);
+      if (pending.length < 4 + frameLength) {
+        return;
+      }
+      const frame = pending.subarray(4, 4 + frameLength);
+      pending = pending.subarray(4 + frameLength);
+      handleFrame(socket, frame, handler);
+    }
+  };
+
+  socket.on('data', (chunk: Buffer) => {
+    pending = pending.length > 0 ? Buffer.concat([pending, chunk]) : chunk;
+    consumeFrames();
+  });
+  // the HTTP server allows half-open connections, which would keep it from closing
+  socket.on('end', () => socket.end());
+
+  consumeFrames();
+};
+
+/**
+ * Requests are not awaited one after the other: responses are written as soon as they are
+ * ready, the request id allowing the plugin to match them with their request.
+ */
+const handleFrame = (socket: Socket, frame: Buffer, handler: Handler) => {
+  const requestId = frame.readInt32BE(0);
+  const urlLength = frame.readUInt16BE(4);
+  const url = frame.toString('utf-8', 6, 6 + urlLength);
+  const data = frame.subarray(6 + urlLength);
+
+  let handlerResponse: any;
+  let handlerResponseStatusCode = 200;
+  let handlerResponseContentType: string | undefined;
+
+  handler({
+    get data() {
+      return JSON.parse(data.toString('utf-8'));
+    },
+    url,
+    setResponse: (value: any) => {
+      handlerResponse = value;
+    },
+    setResponseStatusCode: value => {
+      handlerResponseStatusCode = value;
+    },
+    setResponseContentType: value => {
+      handlerResponseContentType = value;
+    },
+  })
+    .catch(() => {
+      handlerResponseStatusCode = 500;
+    })
+    .then(() => {
+      socket.write(
+        encodeResponse(
+          requestId,
+          handlerResponseStatusCode,
+          handlerResponseContentType,
+          handlerResponse,
+        ),
+      );
+    });
+};
+
+const encodeResponse = (
+  requestId: number,
+  statusCode: number,
+  contentType: string | undefined,
+  response: any,
+): Buffer => {
+  const body =
+    response === undefined
+      ? Buffer.alloc(0)
+      : Buffer.isBuffer(response)
+        ? response
+        : Buffer.from(String(response), 'utf-8');
+  const type = Buffer.from(contentType ?? '', 'utf-8');
+  const header = Buffer.alloc(RESPONSE_HEADER_SIZE);
+
+  header.writeInt32BE(RESPONSE_HEADER_SIZE - 4 + type.length + body.length, 0);
+  header.writeInt32BE(requestId, 4);
+  header.writeInt32BE(statusCode, 8);
+  header.writeUInt16BE(type.length, 12);
+
+  return Buffer.concat([header, type, body]);
+};
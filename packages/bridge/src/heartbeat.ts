@@ -2,12 +2,16 @@ import { type Worker } from 'node:worker_threads';
 import { createApplication } from '@arabesque/core';
 import { createListener } from '@arabesque/listener-http';
 import { createServer } from 'node:http';
+import { type EventEmitter } from 'node:events';
 
-export const createHeartBeat = (port: number, worker: Worker): (() => Promise<void>) => {
-  let isAlive: boolean = false;
+/**
+ * The heartbeat reports the bridge as alive once every analysis worker has started.
+ */
+export const createHeartBeat = (port: number, workers: Worker[]): (() => Promise<void>) => {
+  let isAlive: () => boolean = () => false;
 
   const application = createApplication(createListener(createServer()), (context, next) => {
-    if (!isAlive) {
+    if (!isAlive()) {
       context.response.statusCode = 503;
     }
 
@@ -16,13 +20,24 @@ export const createHeartBeat = (port: number, worker: Worker): (() => Promise<vo
 
   return () => {
     return application(port).then(() => {
-      worker.on('message', message => {
-        console.log(message);
-
-        isAlive = true;
-      });
+      isAlive = trackStartedWorkers(workers);
 
       console.info(`Heartbeat started, listening at port ${port}`);
     });
   };
 };
+
+/**
+ * Each worker posts a message once started: the returned function tells whether all of them did.
+ */
+export const trackStartedWorkers = (workers: EventEmitter[]): (() => boolean) => {
+  let startedWorkers = 0;
+  for (const worker of workers) {
+    worker.once('message', message => {
+      console.log(message);
+
+      startedWorkers++;
+    });
+  }
+  return () => startedWorkers === workers.length;
+};
@@ -109,6 +109,7 @@ export type InitLinterRequest = {
     globals: string[];
     baseDir: string;
     rules: RuleConfig[];
+    responseFormats?: string[];
   };
 };
 type NewTsConfigRequest = {
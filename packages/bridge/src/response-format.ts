@@ -0,0 +1,105 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import { join } from 'node:path';
+import { loadSync, type Root } from 'protobufjs';
+import { type JsTsAnalysisOutput } from '../../jsts/src/analysis/analysis';
+import { type Location } from '../../jsts/src/linter/visitors/metrics/helpers/location';
+
+/**
+ * The encoding of the analysis responses, agreed upon with the plugin when a linter is initialized.
+ * Unless the plugin offers Protobuf, responses are sent as JSON.
+ */
+export type ResponseFormat = 'json' | 'protobuf';
+
+export const PROTOBUF_CONTENT_TYPE = 'application/x-protobuf';
+
+// The plugin offers the same formats for every linter of an analysis: the format is then kept for
+// the whole bridge, rather than per linter, and renegotiated at each linter initialization.
+let responseFormat: ResponseFormat = 'json';
+let protoRoot: Root | undefined;
+
+export const negotiateResponseFormat = (offeredFormats: string[] | undefined): ResponseFormat => {
+  responseFormat = offeredFormats?.includes('protobuf') ? 'protobuf' : 'json';
+
+  return responseFormat;
+};
+
+export const getResponseFormat = (): ResponseFormat => responseFormat;
+
+export const encodeAnalysisOutput = (output: JsTsAnalysisOutput): Uint8Array => {
+  const type = lookupType('analysis.AnalysisResponse');
+
+  return type.encode(type.fromObject(toProtobufShape(output))).finish();
+};
+
+export const encodeBatchOutput = (outputs: JsTsAnalysisOutput[]): Uint8Array => {
+  const type = lookupType('analysis.AnalysisBatchResponse');
+
+  return type.encode(type.fromObject({ responses: outputs.map(toProtobufShape) })).finish();
+};
+
+/**
+ * Wraps an analysis output into a route handler result, in the negotiated format.
+ */
+export const formatAnalysisOutput = (output: JsTsAnalysisOutput) =>
+  responseFormat === 'protobuf'
+    ? { data: encodeAnalysisOutput(output), contentType: PROTOBUF_CONTENT_TYPE }
+    : { data: output };
+
+const lookupType = (name: string) => {
+  protoRoot ??= loadSync(join(__dirname, 'analysis.proto'));
+
+  return protoRoot.lookupType(name);
+};
+
+/**
+ * Reshapes an analysis output after analysis.proto, locations being flattened into integers.
+ */
+const toProtobufShape = (output: JsTsAnalysisOutput) => {
+  const { highlights, highlightedSymbols, cpdTokens, ...rest } = output;
+
+  return {
+    ...rest,
+    highlights: highlights && {
+      locations: flattenLocations(highlights.map(highlight => highlight.location)),
+      textTypes: highlights.map(highlight => highlight.textType),
+    },
+    highlightedSymbols: highlightedSymbols?.map(symbol => ({
+      declaration: flattenLocations([symbol.declaration]),
+      references: flattenLocations(symbol.references),
+    })),
+    cpdTokens: cpdTokens && {
+      locations: flattenLocations(cpdTokens.map(token => token.location)),
+      images: cpdTokens.map(token => token.image),
+    },
+  };
+};
+
+const flattenLocations = (locations: Location[]): number[] => {
+  const flattened = new Array<number>(locations.length * 4);
+  locations.forEach((location, index) => {
+    flattened[index * 4] = location.startLine;
+    flattened[index * 4 + 1] = location.startCol;
+    flattened[index * 4 + 2] = location.endLine;
+    flattened[index * 4 + 3] = location.endCol;
+  });
+
+  return flattened;
+};
@@ -5,4 +5,8 @@ export type RouteHandler<Input extends Record<string, any>, Output extends Recor
 ) => Promise<{
   data: Output;
   statusCode?: number;
+  /**
+   * When set, data is sent as is instead of being serialized to JSON
+   */
+  contentType?: string;
 }>;
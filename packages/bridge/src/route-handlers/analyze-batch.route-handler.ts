@@ -0,0 +1,58 @@
+import { RouteHandler } from '../route-handler';
+import { JsTsRequest, readFileLazily } from '../request';
+import { analyzeJSTS } from '../../../jsts/src/analysis/analyzer';
+import { JsTsAnalysisOutput } from '../../../jsts/src/analysis/analysis';
+import { encodeBatchOutput, getResponseFormat, PROTOBUF_CONTENT_TYPE } from '../response-format';
+
+export type JsTsBatchRequest = {
+  requests: JsTsRequest['data'][];
+};
+
+export type JsTsBatchOutput = {
+  responses: JsTsAnalysisOutput[];
+};
+
+/**
+ * Analyzes several files in a single round-trip. The responses are in the order of the requests,
+ * and a failing file doesn't prevent the others from being analyzed. ASTs are never serialized
+ * in a batch.
+ */
+export const analyzeBatchRouteHandler: RouteHandler<
+  JsTsBatchRequest,
+  JsTsBatchOutput | Uint8Array
+> = context => {
+  const { requests } = context.data;
+
+  return Promise.all(
+    requests.map(request =>
+      readFileLazily(request)
+        .then(input => {
+          const { ast, ...output } = analyzeJSTS(input, input.language ?? 'js');
+
+          return output;
+        })
+        .catch(error => {
+          return {
+            issues: [],
+            parsingError: {
+              code: 'PARSING' as any,
+              message: `An error happened ${(error as Error).message}`,
+            },
+          };
+        }),
+    ),
+  ).then((responses: JsTsAnalysisOutput[]) => {
+    if (getResponseFormat() === 'protobuf') {
+      return {
+        data: encodeBatchOutput(responses),
+        contentType: PROTOBUF_CONTENT_TYPE,
+      };
+    }
+
+    return {
+      data: {
+        responses,
+      },
+    };
+  });
+};
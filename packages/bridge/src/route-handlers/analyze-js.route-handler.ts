@@ -2,28 +2,23 @@ import { RouteHandler } from '../route-handler';
 import { JsTsRequest, readFileLazily } from '../request';
 import { analyzeJSTS } from '../../../jsts/src/analysis/analyzer';
 import { JsTsAnalysisOutput } from '../../../jsts/src/analysis/analysis';
+import { formatAnalysisOutput } from '../response-format';
 
 export const analyzeJsRouteHandler: RouteHandler<
   JsTsRequest['data'],
-  JsTsAnalysisOutput
+  JsTsAnalysisOutput | Uint8Array
 > = context => {
   return readFileLazily(context.data)
     .then(content => {
-      const output = analyzeJSTS(content, 'js');
-
-      return {
-        data: output,
-      };
+      return formatAnalysisOutput(analyzeJSTS(content, 'js'));
     })
     .catch(error => {
-      return {
-        data: {
-          issues: [],
-          parsingError: {
-            code: 'PARSING' as any,
-            message: `An error happened ${(error as Error).message}`,
-          },
+      return formatAnalysisOutput({
+        issues: [],
+        parsingError: {
+          code: 'PARSING' as any,
+          message: `An error happened ${(error as Error).message}`,
         },
-      };
+      });
     });
 };
@@ -1,13 +1,19 @@
 import { type RouteHandler } from '../route-handler';
 import { type InitLinterRequest } from '../request';
 import { initializeLinter } from '../../../jsts/src/linter/linters';
+import { negotiateResponseFormat, type ResponseFormat } from '../response-format';
 
-export const initLinterRouteHandler: RouteHandler<InitLinterRequest['data'], {}> = context => {
-  const { rules, environments, globals, linterId, baseDir } = context.data;
+export const initLinterRouteHandler: RouteHandler<
+  InitLinterRequest['data'],
+  { responseFormat: ResponseFormat }
+> = context => {
+  const { rules, environments, globals, linterId, baseDir, responseFormats } = context.data;
 
   return initializeLinter(rules, environments, globals, baseDir, linterId).then(() => {
     return {
-      data: {},
+      data: {
+        responseFormat: negotiateResponseFormat(responseFormats),
+      },
     };
   });
 };
@@ -22,6 +22,7 @@ import { Context } from './context';
 import { analyzeProject } from '../../jsts/src/analysis/projectAnalysis/projectAnalyzer';
 import { createProgramRouteHandler } from './route-handlers/create-program.route-handler';
 import { analyzeJsRouteHandler } from './route-handlers/analyze-js.route-handler';
+import { analyzeBatchRouteHandler } from './route-handlers/analyze-batch.route-handler';
 import { initLinterRouteHandler } from './route-handlers/init-linter.route-handler';
 import { deleteProgramRouteHandler } from './route-handlers/delete-program.route-handler';
 import { RouteHandler } from './route-handler';
@@ -62,6 +63,11 @@ export const createRouter = (): Middleware<Context<any>> => {
         break;
       }
 
+      case '/analyze-batch': {
+        routeHandler = analyzeBatchRouteHandler;
+        break;
+      }
+
       case '/init-linter': {
         routeHandler = initLinterRouteHandler;
         break;
@@ -71,7 +77,14 @@ export const createRouter = (): Middleware<Context<any>> => {
     return routeHandler
       ? routeHandler(context)
           .then(result => {
-            context.setResponse(JSON.stringify(result.data));
+            if (result.contentType) {
+              const data = result.data as Uint8Array;
+
+              context.setResponseContentType(result.contentType);
+              context.setResponse(Buffer.from(data.buffer, data.byteOffset, data.byteLength));
+            } else {
+              context.setResponse(JSON.stringify(result.data));
+            }
 
             if (result.statusCode) {
               context.setResponseStatusCode(result.statusCode);
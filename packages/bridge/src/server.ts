@@ -26,6 +26,7 @@ import { createServer } from 'node:http';
 import { Context } from './context';
 import { createRouter } from './router';
 import { createORMiddleware } from '@arabesque/logic-middlewares';
+import { acceptFramedConnections } from './framing';
 
 export function start(port: number): Promise<() => Promise<void>> {
   logMemoryConfiguration();
@@ -55,9 +56,11 @@ export function start(port: number): Promise<() => Promise<void>> {
   );
 
   const application = createApplication<number, Context<any>>((channel, handler) => {
-    const httpListener = createListener(
-      createServer(), // todo: received as argument
-    );
+    const httpServer = createServer(); // todo: received as argument
+
+    acceptFramedConnections(httpServer, handler);
+
+    const httpListener = createListener(httpServer);
 
     return httpListener(channel, context => {
       const { message, response } = context;
@@ -91,6 +94,9 @@ export function start(port: number): Promise<() => Promise<void>> {
           setResponseStatusCode: value => {
             handlerResponseStatusCode = value;
           },
+          setResponseContentType: value => {
+            response.setHeader('Content-Type', value);
+          },
         }).then(() => {
           const setResponseData = () => {
             return new Promise<void>(resolve => {
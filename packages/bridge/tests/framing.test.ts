@@ -0,0 +1,151 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import http from 'node:http';
+import net from 'node:net';
+import { AddressInfo } from 'node:net';
+import { setTimeout } from 'node:timers/promises';
+import { describe, before, after, it } from 'node:test';
+import { expect } from 'expect';
+import { acceptFramedConnections, FRAMED_CONNECTION_PREFACE } from '../src/framing.js';
+import { Context } from '../src/context.js';
+
+type FramedResponse = { requestId: number; statusCode: number; contentType: string; body: string };
+
+describe('framing', () => {
+  let server: http.Server;
+  let port: number;
+
+  before(async () => {
+    server = http.createServer((_request, response) => {
+      response.end('http');
+    });
+    acceptFramedConnections(server, async (context: Context<any>) => {
+      if (context.url === '/fail') {
+        throw new Error('failure');
+      }
+      context.setResponseContentType('application/json');
+      context.setResponse(JSON.stringify({ url: context.url, data: context.data }));
+    });
+    await new Promise<void>(resolve => server.listen(0, '127.0.0.1', resolve));
+    port = (server.address() as AddressInfo).port;
+  });
+
+  after(async () => {
+    await new Promise(resolve => server.close(resolve));
+  });
+
+  it('should handle framed requests', async () => {
+    const socket = await connect();
+    const responses = readResponses(socket, 2);
+
+    socket.write(Buffer.concat([FRAMED_CONNECTION_PREFACE, frame(1, '/a', { x: 1 })]));
+    socket.write(frame(2, '/fail', {}));
+
+    expect(sortById(await responses)).toEqual([
+      {
+        requestId: 1,
+        statusCode: 200,
+        contentType: 'application/json',
+        body: JSON.stringify({ url: '/a', data: { x: 1 } }),
+      },
+      { requestId: 2, statusCode: 500, contentType: '', body: '' },
+    ]);
+    socket.destroy();
+  });
+
+  it('should wait for the whole preface when it is split across chunks', async () => {
+    const socket = await connect();
+    const responses = readResponses(socket, 1);
+
+    socket.write(FRAMED_CONNECTION_PREFACE.subarray(0, 1));
+    await setTimeout(50);
+    socket.write(FRAMED_CONNECTION_PREFACE.subarray(1, 3));
+    await setTimeout(50);
+    const request = frame(7, '/b', [true]);
+    socket.write(Buffer.concat([FRAMED_CONNECTION_PREFACE.subarray(3), request.subarray(0, 5)]));
+    await setTimeout(50);
+    socket.write(request.subarray(5));
+
+    expect(await responses).toEqual([
+      {
+        requestId: 7,
+        statusCode: 200,
+        contentType: 'application/json',
+        body: JSON.stringify({ url: '/b', data: [true] }),
+      },
+    ]);
+    socket.destroy();
+  });
+
+  it('should hand HTTP connections back to the HTTP server', async () => {
+    const body = await new Promise<string>((resolve, reject) => {
+      http
+        .get({ host: '127.0.0.1', port, path: '/' }, response => {
+          let data = '';
+          response.on('data', chunk => (data += chunk));
+          response.on('end', () => resolve(data));
+        })
+        .on('error', reject);
+    });
+    expect(body).toEqual('http');
+  });
+
+  const connect = () =>
+    new Promise<net.Socket>(resolve => {
+      const socket = net.connect(port, '127.0.0.1', () => resolve(socket));
+      socket.setNoDelay(true);
+    });
+
+  const frame = (requestId: number, url: string, data: unknown) => {
+    const urlBytes = Buffer.from(url, 'utf-8');
+    const dataBytes = Buffer.from(JSON.stringify(data), 'utf-8');
+    const header = Buffer.alloc(4 + 4 + 2);
+    header.writeInt32BE(4 + 2 + urlBytes.length + dataBytes.length, 0);
+    header.writeInt32BE(requestId, 4);
+    header.writeUInt16BE(urlBytes.length, 8);
+    return Buffer.concat([header, urlBytes, dataBytes]);
+  };
+
+  const readResponses = (socket: net.Socket, count: number) =>
+    new Promise<FramedResponse[]>(resolve => {
+      const responses: FramedResponse[] = [];
+      let pending = Buffer.alloc(0);
+      socket.on('data', (chunk: Buffer) => {
+        pending = Buffer.concat([pending, chunk]);
+        while (pending.length >= 4 && pending.length >= 4 + pending.readInt32BE(0)) {
+          const length = pending.readInt32BE(0);
+          const typeLength = pending.readUInt16BE(12);
+          responses.push({
+            requestId: pending.readInt32BE(4),
+            statusCode: pending.readInt32BE(8),
+            contentType: pending.toString('utf-8', 14, 14 + typeLength),
+            body: pending.toString('utf-8', 14 + typeLength, 4 + length),
+          });
+          pending = pending.subarray(4 + length);
+        }
+        if (responses.length === count) {
+          resolve(responses);
+        }
+      });
+    });
+
+  const sortById = (responses: FramedResponse[]) =>
+    [...responses].sort((a, b) => a.requestId - b.requestId);
+});
@@ -0,0 +1,53 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import { EventEmitter } from 'node:events';
+import { describe, it, mock } from 'node:test';
+import { expect } from 'expect';
+import { trackStartedWorkers } from '../src/heartbeat.js';
+
+describe('heartbeat', () => {
+  it('should be alive once every worker has started', () => {
+    console.log = mock.fn();
+    const workers = [new EventEmitter(), new EventEmitter()];
+
+    const isAlive = trackStartedWorkers(workers);
+    expect(isAlive()).toBe(false);
+
+    workers[0].emit('message', 'worker 1 started');
+    expect(isAlive()).toBe(false);
+    // later messages of a started worker are not start notifications
+    workers[0].emit('message', 'worker 1 started');
+    expect(isAlive()).toBe(false);
+
+    workers[1].emit('message', 'worker 2 started');
+    expect(isAlive()).toBe(true);
+  });
+
+  it('should be alive with a single worker', () => {
+    console.log = mock.fn();
+    const worker = new EventEmitter();
+
+    const isAlive = trackStartedWorkers([worker]);
+    expect(isAlive()).toBe(false);
+
+    worker.emit('message', 'started');
+    expect(isAlive()).toBe(true);
+  });
+});
@@ -0,0 +1,147 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import path from 'node:path';
+import { describe, afterEach, it } from 'node:test';
+import { expect } from 'expect';
+import { loadSync } from 'protobufjs';
+import {
+  encodeAnalysisOutput,
+  encodeBatchOutput,
+  formatAnalysisOutput,
+  getResponseFormat,
+  negotiateResponseFormat,
+  PROTOBUF_CONTENT_TYPE,
+} from '../src/response-format.js';
+import { JsTsAnalysisOutput } from '../../jsts/src/analysis/analysis.js';
+
+const root = loadSync(path.join(import.meta.dirname, '..', 'src', 'analysis.proto'));
+
+const output: JsTsAnalysisOutput = {
+  issues: [
+    {
+      ruleId: 'S1116',
+      line: 1,
+      column: 2,
+      endLine: 1,
+      endColumn: 3,
+      message: 'Remove this empty statement.',
+      secondaryLocations: [],
+    },
+  ],
+  highlights: [
+    { location: { startLine: 1, startCol: 0, endLine: 1, endCol: 5 }, textType: 'KEYWORD' },
+    { location: { startLine: 2, startCol: 4, endLine: 3, endCol: 1 }, textType: 'COMMENT' },
+  ],
+  highlightedSymbols: [
+    {
+      declaration: { startLine: 1, startCol: 6, endLine: 1, endCol: 7 },
+      references: [{ startLine: 4, startCol: 0, endLine: 4, endCol: 1 }],
+    },
+  ],
+  cpdTokens: [
+    { location: { startLine: 1, startCol: 0, endLine: 1, endCol: 5 }, image: 'const' },
+    { location: { startLine: 1, startCol: 6, endLine: 1, endCol: 7 }, image: 'x' },
+  ],
+  ucfgPaths: ['/tmp/ucfg'],
+};
+
+describe('response format', () => {
+  afterEach(() => {
+    negotiateResponseFormat(undefined);
+  });
+
+  it('should negotiate Protobuf only when offered', () => {
+    expect(getResponseFormat()).toEqual('json');
+    expect(negotiateResponseFormat(['protobuf', 'json'])).toEqual('protobuf');
+    expect(getResponseFormat()).toEqual('protobuf');
+    expect(negotiateResponseFormat(['json'])).toEqual('json');
+    expect(getResponseFormat()).toEqual('json');
+    expect(negotiateResponseFormat(['protobuf'])).toEqual('protobuf');
+    expect(negotiateResponseFormat(undefined)).toEqual('json');
+    expect(getResponseFormat()).toEqual('json');
+  });
+
+  it('should fall back to JSON', () => {
+    negotiateResponseFormat(['xml']);
+    expect(formatAnalysisOutput(output)).toEqual({ data: output });
+  });
+
+  it('should format as Protobuf once negotiated', () => {
+    negotiateResponseFormat(['protobuf']);
+    const { data, contentType } = formatAnalysisOutput(output) as {
+      data: Uint8Array;
+      contentType: string;
+    };
+    expect(contentType).toEqual(PROTOBUF_CONTENT_TYPE);
+    expect(Buffer.from(data)).toEqual(Buffer.from(encodeAnalysisOutput(output)));
+  });
+
+  it('should encode analysis outputs with flattened locations', () => {
+    const type = root.lookupType('analysis.AnalysisResponse');
+    const decoded = type.toObject(type.decode(encodeAnalysisOutput(output)), { enums: String });
+
+    expect(decoded).toEqual({
+      issues: [
+        {
+          ruleId: 'S1116',
+          line: 1,
+          column: 2,
+          endLine: 1,
+          endColumn: 3,
+          message: 'Remove this empty statement.',
+        },
+      ],
+      highlights: {
+        locations: [1, 0, 1, 5, 2, 4, 3, 1],
+        textTypes: ['KEYWORD', 'COMMENT'],
+      },
+      highlightedSymbols: [{ declaration: [1, 6, 1, 7], references: [4, 0, 4, 1] }],
+      cpdTokens: {
+        locations: [1, 0, 1, 5, 1, 6, 1, 7],
+        images: ['const', 'x'],
+      },
+      ucfgPaths: ['/tmp/ucfg'],
+    });
+  });
+
+  it('should encode parsing errors', () => {
+    const type = root.lookupType('analysis.AnalysisResponse');
+    const failed: JsTsAnalysisOutput = {
+      issues: [],
+      parsingError: { message: 'Unexpected token', line: 3, code: 'FAILING_TYPESCRIPT' as any },
+    };
+    const decoded = type.toObject(type.decode(encodeAnalysisOutput(failed)), { enums: String });
+
+    expect(decoded).toEqual({
+      parsingError: { message: 'Unexpected token', line: 3, code: 'FAILING_TYPESCRIPT' },
+    });
+  });
+
+  it('should encode batch outputs in order', () => {
+    const type = root.lookupType('analysis.AnalysisBatchResponse');
+    const decoded = type.toObject(type.decode(encodeBatchOutput([output, { issues: [] }])), {
+      enums: String,
+    }) as any;
+
+    expect(decoded.responses).toHaveLength(2);
+    expect(decoded.responses[0].cpdTokens.images).toEqual(['const', 'x']);
+    expect(decoded.responses[1]).toEqual({});
+  });
+});
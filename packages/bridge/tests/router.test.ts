@@ -24,6 +24,7 @@ import { request } from './tools/index.js';
 import fs from 'fs';
 import { describe, before, after, it, mock, Mock } from 'node:test';
 import { expect } from 'expect';
+import { loadSync } from 'protobufjs';
 
 import { rule as S5362 } from '../../css/src/rules/S5362/index.js';
 import assert from 'node:assert';
@@ -198,6 +199,61 @@ describe('router', () => {
     );
   });
 
+  it('should route /analyze-batch requests', async () => {
+    await requestInitLinter(server, [
+      { key: 'S6325', configurations: [], fileTypeTarget: ['MAIN'] },
+    ]);
+    const data = {
+      requests: [
+        { filePath: path.join(fixtures, 'file.js'), fileType: 'MAIN', tsConfigs: [] },
+        { filePath: path.join(fixtures, 'missing.js'), fileType: 'MAIN', tsConfigs: [] },
+      ],
+    };
+    const response = (await request(server, '/analyze-batch', 'POST', data)) as string;
+    const {
+      responses: [first, second],
+    } = JSON.parse(response);
+    expect(first.issues).toEqual([
+      expect.objectContaining({ ruleId: 'S6325', line: 1, column: 0, endLine: 1, endColumn: 17 }),
+    ]);
+    expect(first.ast).toBeUndefined();
+    expect(second.issues).toEqual([]);
+    expect(second.parsingError).toEqual(
+      expect.objectContaining({ code: 'PARSING', message: expect.stringContaining('missing.js') }),
+    );
+  });
+
+  it('should route /analyze-batch requests with Protobuf responses', async () => {
+    await requestInitLinter(
+      server,
+      [{ key: 'S6325', configurations: [], fileTypeTarget: ['MAIN'] }],
+      ['protobuf', 'json'],
+    );
+    try {
+      const data = {
+        requests: [
+          { filePath: path.join(fixtures, 'file.js'), fileType: 'MAIN', tsConfigs: [] },
+          { filePath: path.join(fixtures, 'missing.js'), fileType: 'MAIN', tsConfigs: [] },
+        ],
+      };
+      const response = (await request(server, '/analyze-batch', 'POST', data)) as Buffer;
+      const protoPath = path.join(import.meta.dirname, '..', 'src', 'analysis.proto');
+      const type = loadSync(protoPath).lookupType('analysis.AnalysisBatchResponse');
+      const {
+        responses: [first, second],
+      } = type.toObject(type.decode(response)) as any;
+      expect(first.issues).toEqual([
+        expect.objectContaining({ ruleId: 'S6325', line: 1, column: 0, endLine: 1, endColumn: 17 }),
+      ]);
+      expect(first.ast).toBeUndefined();
+      expect(second.issues).toBeUndefined();
+      expect(second.parsingError.message).toContain('missing.js');
+    } finally {
+      // the negotiated format applies to the following requests
+      await requestInitLinter(server, []);
+    }
+  });
+
   it('should route /analyze-yaml requests', async () => {
     await requestInitLinter(server, [
       { key: 'S3923', configurations: [], fileTypeTarget: ['MAIN'] },
@@ -331,7 +387,7 @@ describe('router', () => {
   });
 });
 
-function requestInitLinter(server: http.Server, rules: RuleConfig[]) {
-  const config = { rules };
+function requestInitLinter(server: http.Server, rules: RuleConfig[], responseFormats?: string[]) {
+  const config = { rules, responseFormats };
   return request(server, '/init-linter', 'POST', config);
 }
@@ -38,6 +38,8 @@ export async function request(server: http.Server, path: string, method: string,
 
   if (contentTypeHeader?.includes('multipart/form-data')) {
     return res.formData();
+  } else if (contentTypeHeader?.includes('application/x-protobuf')) {
+    return Buffer.from(await res.arrayBuffer());
   } else {
     return res.text();
   }
@@ -44,6 +44,9 @@ import { Issue } from '../linter/issues/issue.js';
  * @param tsConfigs a list of TSConfigs
  * @param language the file language ('js' or 'ts')
  * @param programId the identifier of a TypeScript Program's instance
+ * @param skipAst a flag to not serialize the AST of the analyzed code
+ * @param astFormat the encoding of the serialized AST, protobuf by default
+ * @param astNodeTypes the node types subscribed to by the consumers of the AST, all of them if not set
  */
 export interface JsTsAnalysisInput extends AnalysisInput {
   fileType: FileType;
@@ -52,8 +55,12 @@ export interface JsTsAnalysisInput extends AnalysisInput {
   tsConfigs?: string[];
   programId?: string;
   skipAst?: boolean;
+  astFormat?: AstFormat;
+  astNodeTypes?: string[];
 }
 
+export type AstFormat = 'protobuf' | 'flat';
+
 export interface ParsingError {
   message: string;
   line?: number;
@@ -27,6 +27,8 @@ import { buildSourceCode } from '../builders/build.js';
 import { LinterWrapper } from '../linter/wrapper.js';
 import { APIError } from '../../../shared/src/errors/error.js';
 import { serializeInProtobuf } from '../parsers/ast.js';
+import { serializeInFlatFormat } from '../parsers/flat-ast.js';
+import { pruneAst } from '../parsers/prune.js';
 import { SymbolHighlight } from '../linter/visitors/symbol-highlighting.js';
 import { getContext } from '../../../shared/src/helpers/context.js';
 import { computeMetrics, findNoSonarLines } from '../linter/visitors/metrics/index.js';
@@ -94,7 +96,7 @@ function analyzeFile(
     };
 
     if (!input.skipAst) {
-      const ast = serializeAst(sourceCode, filePath);
+      const ast = serializeAst(sourceCode, input);
       if (ast) {
         result.ast = ast;
       }
@@ -120,9 +122,14 @@ function analyzeFile(
   }
 }
 
-function serializeAst(sourceCode: SourceCode, filePath: string) {
+function serializeAst(sourceCode: SourceCode, input: JsTsAnalysisInput) {
+  const { filePath, astFormat, astNodeTypes } = input;
   try {
-    return serializeInProtobuf(sourceCode.ast as TSESTree.Program);
+    let ast = sourceCode.ast as TSESTree.Program;
+    if (astNodeTypes?.length) {
+      ast = pruneAst(ast, new Set(astNodeTypes));
+    }
+    return astFormat === 'flat' ? serializeInFlatFormat(ast) : serializeInProtobuf(ast);
   } catch (e) {
     info(`Failed to serialize AST for file "${filePath}"`);
     return null;
@@ -0,0 +1,186 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import { TSESTree } from '@typescript-eslint/utils';
+
+/**
+ * Flat encoding of an ESTree, as an alternative to the protobuf encoding of `ast.ts`.
+ *
+ * The nodes are numbered in pre-order and stored as a table of parallel int32 columns,
+ * every string (node types, property names, attribute values) being stored once in a
+ * string pool. The encoding is a single iterative pass over the tree, and the decoding
+ * on the Java side (see FlatAst in the plugin API) is a handful of bulk array copies,
+ * without any recursion or depth limit.
+ *
+ * Layout, every integer being a little-endian int32:
+ *
+ *   magic 'SJFA' | version
+ *   nodeCount | type[] | parent[] | firstChild[] | nextSibling[] | field[] | firstAttribute[]
+ *             | startLine[] | startColumn[] | endLine[] | endColumn[]
+ *   attributeCount | attributeName[] | attributeValue[]
+ *   stringCount | (byteLength | UTF-8 bytes)*
+ *
+ * Children are the properties of a node holding nodes, `field` being the name of that
+ * property (-1 for the root). Holes in arrays of nodes are not encoded. Attributes are
+ * the other properties of a node with a primitive value, stringified; the properties of
+ * plain objects, e.g. `regex` on literals, are flattened with a dotted name. The
+ * attributes of a node are contiguous and start at its `firstAttribute`.
+ */
+export const FLAT_AST_MAGIC = Buffer.from('SJFA', 'ascii');
+export const FLAT_AST_VERSION = 1;
+
+const IGNORED_PROPERTIES = new Set(['type', 'loc', 'range', 'parent', 'tokens', 'comments']);
+
+type Child = { node: TSESTree.Node; parent: number; field: number };
+
+export function serializeInFlatFormat(ast: TSESTree.Program): Uint8Array {
+  const strings = new StringPool();
+  const type: number[] = [];
+  const parent: number[] = [];
+  const firstChild: number[] = [];
+  const nextSibling: number[] = [];
+  const lastChild: number[] = [];
+  const field: number[] = [];
+  const firstAttribute: number[] = [];
+  const loc: number[] = [];
+  const attributeName: number[] = [];
+  const attributeValue: number[] = [];
+
+  const stack: Child[] = [{ node: ast, parent: -1, field: -1 }];
+  while (stack.length > 0) {
+    const current = stack.pop()!;
+    const index = type.length;
+    type.push(strings.index(current.node.type));
+    parent.push(current.parent);
+    firstChild.push(-1);
+    nextSibling.push(-1);
+    lastChild.push(-1);
+    field.push(current.field);
+    firstAttribute.push(attributeName.length);
+    const { start, end } = current.node.loc;
+    loc.push(start.line, start.column, end.line, end.column);
+    if (current.parent >= 0) {
+      const previous = lastChild[current.parent];
+      if (previous < 0) {
+        firstChild[current.parent] = index;
+      } else {
+        nextSibling[previous] = index;
+      }
+      lastChild[current.parent] = index;
+    }
+
+    const children: Child[] = [];
+    for (const [key, value] of Object.entries(current.node)) {
+      if (IGNORED_PROPERTIES.has(key) || value === null || value === undefined) {
+        continue;
+      }
+      if (Array.isArray(value)) {
+        for (const element of value) {
+          if (isNode(element)) {
+            children.push({ node: element, parent: index, field: strings.index(key) });
+          }
+        }
+      } else if (isNode(value)) {
+        children.push({ node: value, parent: index, field: strings.index(key) });
+      } else if (typeof value === 'object') {
+        if (!(value instanceof RegExp)) {
+          for (const [subKey, subValue] of Object.entries(value)) {
+            addAttribute(`${key}.${subKey}`, subValue);
+          }
+        }
+      } else {
+        addAttribute(key, value);
+      }
+    }
+    // children are pushed in reverse order to be popped, hence numbered, in source order
+    for (let i = children.length - 1; i >= 0; i--) {
+      stack.push(children[i]);
+    }
+  }
+
+  return encode();
+
+  function addAttribute(name: string, value: unknown) {
+    if (['string', 'number', 'boolean', 'bigint'].includes(typeof value)) {
+      attributeName.push(strings.index(name));
+      attributeValue.push(strings.index(String(value)));
+    }
+  }
+
+  function encode() {
+    const nodeCount = type.length;
+    const encodedStrings = strings.values.map(value => Buffer.from(value, 'utf8'));
+    const size =
+      FLAT_AST_MAGIC.length +
+      4 * (3 + 10 * nodeCount + 2 * attributeName.length + 1 + encodedStrings.length) +
+      encodedStrings.reduce((total, value) => total + value.length, 0);
+    const buffer = Buffer.alloc(size);
+    let offset = FLAT_AST_MAGIC.copy(buffer, 0);
+    const writeInt = (value: number) => {
+      offset = buffer.writeInt32LE(value, offset);
+    };
+    const writeColumn = (column: number[], stride = 1, shift = 0) => {
+      for (let i = shift; i < column.length; i += stride) {
+        writeInt(column[i]);
+      }
+    };
+
+    writeInt(FLAT_AST_VERSION);
+    writeInt(nodeCount);
+    [type, parent, firstChild, nextSibling, field, firstAttribute].forEach(column =>
+      writeColumn(column),
+    );
+    for (let shift = 0; shift < 4; shift++) {
+      writeColumn(loc, 4, shift);
+    }
+    writeInt(attributeName.length);
+    writeColumn(attributeName);
+    writeColumn(attributeValue);
+    writeInt(encodedStrings.length);
+    for (const value of encodedStrings) {
+      writeInt(value.length);
+      offset += value.copy(buffer, offset);
+    }
+    return buffer;
+  }
+}
+
+function isNode(value: unknown): value is TSESTree.Node {
+  return (
+    typeof value === 'object' &&
+    value !== null &&
+    typeof (value as TSESTree.Node).type === 'string' &&
+    (value as TSESTree.Node).loc !== undefined
+  );
+}
+
+class StringPool {
+  readonly values: string[] = [];
+  private readonly indexes = new Map<string, number>();
+
+  index(value: string) {
+    let index = this.indexes.get(value);
+    if (index === undefined) {
+      index = this.values.length;
+      this.values.push(value);
+      this.indexes.set(value, index);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import { TSESTree } from '@typescript-eslint/utils';
+
+/**
+ * Lists of statements or class members, which remain valid ESTree when some of their elements are removed
+ */
+const PRUNABLE_LISTS: { [type: string]: string[] } = {
+  Program: ['body'],
+  BlockStatement: ['body'],
+  StaticBlock: ['body'],
+  SwitchCase: ['consequent'],
+  ClassBody: ['body'],
+  TSModuleBlock: ['body'],
+};
+
+const IGNORED_PROPERTIES = new Set(['type', 'loc', 'range', 'parent', 'tokens', 'comments']);
+
+type Pruned = { node: TSESTree.Node; matches: boolean };
+
+/**
+ * Removes from the AST what the consumers on the Java side did not subscribe to, before
+ * serializing it: the statements and class members which contain no node of the given types
+ * are dropped. Nodes of these types are kept with their whole subtree. The result is still a
+ * valid ESTree, sharing the untouched nodes with the original one, which is left as is.
+ *
+ * @param ast the AST to prune
+ * @param nodeTypes the subscribed node types, e.g. 'CallExpression'
+ * @returns the pruned AST
+ */
+export function pruneAst(ast: TSESTree.Program, nodeTypes: Set<string>): TSESTree.Program {
+  return prune(ast, nodeTypes).node as TSESTree.Program;
+}
+
+function prune(node: TSESTree.Node, nodeTypes: Set<string>): Pruned {
+  if (nodeTypes.has(node.type)) {
+    return { node, matches: true };
+  }
+  const prunableLists = PRUNABLE_LISTS[node.type] ?? [];
+  let matches = false;
+  let changes: { [key: string]: unknown } | undefined;
+  for (const [key, value] of Object.entries(node)) {
+    if (IGNORED_PROPERTIES.has(key)) {
+      continue;
+    }
+    let pruned: unknown = value;
+    if (Array.isArray(value)) {
+      const elements = value.map(element =>
+        isNode(element) ? prune(element, nodeTypes) : { node: element, matches: false },
+      );
+      matches ||= elements.some(element => element.matches);
+      const kept = prunableLists.includes(key)
+        ? elements.filter(element => element.matches)
+        : elements;
+      if (kept.length !== value.length || kept.some((element, i) => element.node !== value[i])) {
+        pruned = kept.map(element => element.node);
+      }
+    } else if (isNode(value)) {
+      const child = prune(value, nodeTypes);
+      matches ||= child.matches;
+      pruned = child.node;
+    }
+    if (pruned !== value) {
+      changes ??= {};
+      changes[key] = pruned;
+    }
+  }
+  return { node: changes ? ({ ...node, ...changes } as TSESTree.Node) : node, matches };
+}
+
+function isNode(value: unknown): value is TSESTree.Node {
+  return (
+    typeof value === 'object' &&
+    value !== null &&
+    typeof (value as TSESTree.Node).type === 'string' &&
+    (value as TSESTree.Node).loc !== undefined
+  );
+}
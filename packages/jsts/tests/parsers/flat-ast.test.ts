@@ -0,0 +1,137 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import { parsers } from '../../src/parsers/eslint.js';
+import { TSESTree } from '@typescript-eslint/utils';
+import { describe, test } from 'node:test';
+import { expect } from 'expect';
+import { parseForESLint } from '../../src/parsers/parse.js';
+import {
+  FLAT_AST_MAGIC,
+  FLAT_AST_VERSION,
+  serializeInFlatFormat,
+} from '../../src/parsers/flat-ast.js';
+
+function parse(code: string) {
+  return parseForESLint(code, parsers.typescript.parse, {
+    comment: true,
+    loc: true,
+    range: true,
+    tokens: true,
+  }).ast as TSESTree.Program;
+}
+
+/**
+ * Decodes the columns of the flat encoding, as done on the Java side by FlatAst
+ */
+function decode(serialized: Uint8Array) {
+  const buffer = Buffer.from(serialized);
+  let offset = FLAT_AST_MAGIC.length;
+  const readInt = () => {
+    const value = buffer.readInt32LE(offset);
+    offset += 4;
+    return value;
+  };
+  const readColumn = (length: number) => Array.from({ length }, readInt);
+
+  const magic = buffer.subarray(0, FLAT_AST_MAGIC.length);
+  const version = readInt();
+  const nodeCount = readInt();
+  const [type, parent, firstChild, nextSibling, field, firstAttribute] = Array.from(
+    { length: 6 },
+    () => readColumn(nodeCount),
+  );
+  const [startLine, startColumn, endLine, endColumn] = Array.from({ length: 4 }, () =>
+    readColumn(nodeCount),
+  );
+  const attributeCount = readInt();
+  const attributeName = readColumn(attributeCount);
+  const attributeValue = readColumn(attributeCount);
+  const strings = Array.from({ length: readInt() }, () => {
+    const length = readInt();
+    const value = buffer.toString('utf8', offset, offset + length);
+    offset += length;
+    return value;
+  });
+  return {
+    magic,
+    version,
+    end: offset === buffer.length,
+    types: type.map(index => strings[index]),
+    fields: field.map(index => (index < 0 ? null : strings[index])),
+    parent,
+    firstChild,
+    nextSibling,
+    firstAttribute,
+    locations: startLine.map((line, i) => [line, startColumn[i], endLine[i], endColumn[i]]),
+    attributes: attributeName.map((name, i) => [strings[name], strings[attributeValue[i]]]),
+  };
+}
+
+describe('serializeInFlatFormat()', () => {
+  test('should number nodes in pre-order', () => {
+    const flat = decode(serializeInFlatFormat(parse(`let a = [, b];\nf(a);`)));
+
+    expect(flat.magic).toEqual(FLAT_AST_MAGIC);
+    expect(flat.version).toEqual(FLAT_AST_VERSION);
+    expect(flat.end).toBe(true);
+    expect(flat.types).toEqual([
+      'Program',
+      'VariableDeclaration',
+      'VariableDeclarator',
+      'Identifier',
+      'ArrayExpression',
+      'Identifier',
+      'ExpressionStatement',
+      'CallExpression',
+      'Identifier',
+      'Identifier',
+    ]);
+    expect(flat.fields).toEqual([
+      null,
+      'body',
+      'declarations',
+      'id',
+      'init',
+      'elements',
+      'body',
+      'expression',
+      'callee',
+      'arguments',
+    ]);
+    expect(flat.parent).toEqual([-1, 0, 1, 2, 2, 4, 0, 6, 7, 7]);
+    expect(flat.firstChild).toEqual([1, 2, 3, -1, 5, -1, 7, 8, -1, -1]);
+    expect(flat.nextSibling).toEqual([-1, 6, -1, 4, -1, -1, -1, -1, 9, -1]);
+    expect(flat.locations[7]).toEqual([2, 0, 2, 4]);
+  });
+
+  test('should encode primitive properties as attributes', () => {
+    const flat = decode(serializeInFlatFormat(parse(`/a/g;`)));
+
+    const literal = flat.types.indexOf('Literal');
+    const attributes = flat.attributes.slice(flat.firstAttribute[literal]);
+    expect(attributes).toEqual(
+      expect.arrayContaining([
+        ['raw', '/a/g'],
+        ['regex.pattern', 'a'],
+        ['regex.flags', 'g'],
+      ]),
+    );
+  });
+});
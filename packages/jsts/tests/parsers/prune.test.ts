@@ -0,0 +1,75 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+import { parsers } from '../../src/parsers/eslint.js';
+import { TSESTree } from '@typescript-eslint/utils';
+import { describe, test } from 'node:test';
+import { expect } from 'expect';
+import { parseForESLint } from '../../src/parsers/parse.js';
+import { pruneAst } from '../../src/parsers/prune.js';
+
+function parse(code: string) {
+  return parseForESLint(code, parsers.typescript.parse, {
+    comment: true,
+    loc: true,
+    range: true,
+    tokens: true,
+  }).ast as TSESTree.Program;
+}
+
+describe('pruneAst()', () => {
+  test('should drop the statements without subscribed nodes', () => {
+    const ast = parse(`import a from 'a';
+let b = 1;
+function c() {
+  let d = 2;
+  a(d);
+}
+class E {
+  f() {}
+  g() { a(); }
+}`);
+    const pruned = pruneAst(ast, new Set(['CallExpression']));
+
+    expect(pruned.body.map(statement => statement.type)).toEqual([
+      'FunctionDeclaration',
+      'ClassDeclaration',
+    ]);
+    const c = pruned.body[0] as TSESTree.FunctionDeclaration;
+    expect(c.body.body.map(statement => statement.type)).toEqual(['ExpressionStatement']);
+    const e = pruned.body[1] as TSESTree.ClassDeclaration;
+    expect(e.body.body).toHaveLength(1);
+    // subscribed nodes are kept as is
+    expect((c.body.body[0] as TSESTree.ExpressionStatement).expression).toBe(
+      ((ast.body[2] as TSESTree.FunctionDeclaration).body.body[1] as TSESTree.ExpressionStatement)
+        .expression,
+    );
+    // the original AST is left untouched
+    expect(ast.body).toHaveLength(4);
+  });
+
+  test('should keep whole subtrees of subscribed nodes', () => {
+    const ast = parse(`import a from 'a';\nfoo();`);
+    const pruned = pruneAst(ast, new Set(['ImportDeclaration']));
+
+    expect(pruned.body).toHaveLength(1);
+    expect(pruned.body[0]).toBe(ast.body[0]);
+    expect(pruneAst(ast, new Set(['Program']))).toBe(ast);
+  });
+});
@@ -10,7 +10,7 @@ import { createHeartBeat } from './lib/bridge/src/heartbeat.js';
 /**
  * This script expects following arguments
  *
- * port - port number on which server.mjs should listen
+ * port - port number on which server.mjs should listen, or comma-separated port numbers to start one analysis worker per port
  * host - host address on which server.mjs should listen
  * workDir - working directory from SonarQube API
  * shouldUseTypeScriptParserForJS - whether TypeScript parser should be used for JS code (default true, can be set to false in case of perf issues)
@@ -18,7 +18,7 @@ import { createHeartBeat } from './lib/bridge/src/heartbeat.js';
  * bundles - ; or : delimited paths to additional rule bundles
  */
 
-const port = process.argv[2];
+const ports = process.argv[2].split(',');
 const heartbeatPort = process.argv[3];
 const workDir = process.argv[4];
 const shouldUseTypeScriptParserForJS = process.argv[5] !== 'false';
@@ -33,13 +33,16 @@ if (process.argv[9]) {
 
 context.setContext({ workDir, shouldUseTypeScriptParserForJS, sonarlint, debugMemory, bundles });
 
-const worker = new Worker(path.join(scriptDirectoryPath, 'worker.js'), {
-  workerData: {
-    context: getContext(),
-    port,
-  },
-});
-
-const start = createHeartBeat(heartbeatPort, worker);
+const workers = ports.map(
+  port =>
+    new Worker(path.join(scriptDirectoryPath, 'worker.js'), {
+      workerData: {
+        context: getContext(),
+        port,
+      },
+    }),
+);
+
+const start = createHeartBeat(heartbeatPort, workers);
 
 start();
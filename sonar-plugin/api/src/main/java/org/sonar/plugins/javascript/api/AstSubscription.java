@@ -0,0 +1,45 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.api;
+
+import java.util.Set;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Describes the ASTs a {@link JsAnalysisConsumer} is interested in, an empty set meaning no restriction.
+ * <p>
+ * The consumer only receives the files of the given languages ("js" or "ts") and types. When node types are given,
+ * the statements and class members containing none of them may be removed from the AST, unless another consumer
+ * needs them: nodes of these types are always complete, but not the rest of the tree.
+ */
+public record AstSubscription(Set<String> languages, Set<InputFile.Type> fileTypes, Set<String> nodeTypes) {
+
+  public static final AstSubscription ALL = new AstSubscription(Set.of(), Set.of(), Set.of());
+
+  public AstSubscription {
+    languages = Set.copyOf(languages);
+    fileTypes = Set.copyOf(fileTypes);
+    nodeTypes = Set.copyOf(nodeTypes);
+  }
+
+  public boolean matches(String language, InputFile.Type fileType) {
+    return (languages.isEmpty() || languages.contains(language)) && (fileTypes.isEmpty() || fileTypes.contains(fileType));
+  }
+}
@@ -36,6 +36,22 @@ public interface JsAnalysisConsumer {
    */
   void accept(JsFile jsFile);
 
+  /**
+   * When all the consumers accept it, the AST is sent by the bridge in a flat format, cheaper to produce and to
+   * decode, and given by {@link JsFile#flatAst()} instead of {@link JsFile#program()}.
+   */
+  default boolean acceptsFlatAst() {
+    return false;
+  }
+
+  /**
+   * The files and the AST nodes the consumer is interested in: the AST is only sent by the bridge for the files at
+   * least one consumer subscribed to, and only contains what these consumers subscribed to.
+   */
+  default AstSubscription subscription() {
+    return AstSubscription.ALL;
+  }
+
   /**
    *
    * Called at the end of the analysis.
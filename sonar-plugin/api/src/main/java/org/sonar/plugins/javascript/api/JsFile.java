@@ -19,8 +19,18 @@
  */
 package org.sonar.plugins.javascript.api;
 
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.plugins.javascript.api.estree.ESTree;
+import org.sonar.plugins.javascript.api.estree.FlatAst;
 
-public record JsFile(InputFile inputFile, ESTree.Program program) {
+/**
+ * An analyzed file with its AST: {@link #program()} unless all the consumers accept the flat representation, see
+ * {@link JsAnalysisConsumer#acceptsFlatAst()}, in which case {@link #flatAst()} is set instead.
+ */
+public record JsFile(InputFile inputFile, @Nullable ESTree.Program program, @Nullable FlatAst flatAst) {
+
+  public JsFile(InputFile inputFile, ESTree.Program program) {
+    this(inputFile, program, null);
+  }
 }
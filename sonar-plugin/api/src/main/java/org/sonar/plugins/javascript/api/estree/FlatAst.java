@@ -0,0 +1,296 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.api.estree;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
+
+/**
+ * Flat representation of an ESTree, as an alternative to the {@link ESTree} records. The nodes are numbered in
+ * pre-order, the root being 0, and described by parallel arrays: type, parent, first child, next sibling, field in
+ * the parent and location. The primitive properties of the nodes are available as attributes, with their value
+ * stringified. All strings are shared through a string pool.
+ * <p>
+ * Use a {@link Cursor} to navigate the tree, or {@link #walk(Visitor)} to visit it, none of them allocating per node.
+ * <p>
+ * This is !EXPERIMENTAL UNSUPPORTED INTERNAL API! It can be modified or removed without prior notice.
+ */
+public final class FlatAst {
+
+  private static final byte[] MAGIC = "SJFA".getBytes(US_ASCII);
+  private static final int VERSION = 1;
+
+  private final int[] type;
+  private final int[] parent;
+  private final int[] firstChild;
+  private final int[] nextSibling;
+  private final int[] field;
+  private final int[] firstAttribute;
+  private final int[] startLine;
+  private final int[] startColumn;
+  private final int[] endLine;
+  private final int[] endColumn;
+  private final int[] attributeName;
+  private final int[] attributeValue;
+  private final String[] strings;
+
+  private FlatAst(ByteBuffer buffer) {
+    var nodeCount = buffer.getInt();
+    type = readInts(buffer, nodeCount);
+    parent = readInts(buffer, nodeCount);
+    firstChild = readInts(buffer, nodeCount);
+    nextSibling = readInts(buffer, nodeCount);
+    field = readInts(buffer, nodeCount);
+    firstAttribute = readInts(buffer, nodeCount);
+    startLine = readInts(buffer, nodeCount);
+    startColumn = readInts(buffer, nodeCount);
+    endLine = readInts(buffer, nodeCount);
+    endColumn = readInts(buffer, nodeCount);
+    var attributeCount = buffer.getInt();
+    attributeName = readInts(buffer, attributeCount);
+    attributeValue = readInts(buffer, attributeCount);
+    strings = new String[buffer.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      var length = buffer.getInt();
+      if (length > buffer.remaining()) {
+        // the bytes may be followed by unrelated ones, e.g. in a reused buffer
+        throw new BufferUnderflowException();
+      }
+      strings[i] = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+      buffer.position(buffer.position() + length);
+    }
+  }
+
+  /**
+   * @return true if the given bytes start like a flat AST, i.e. not like a protobuf one
+   */
+  public static boolean isFlatAst(byte[] bytes) {
+    return isFlatAst(bytes, 0, bytes.length);
+  }
+
+  /**
+   * @return true if the given range of bytes starts like a flat AST
+   */
+  public static boolean isFlatAst(byte[] bytes, int offset, int length) {
+    return (
+      length >= MAGIC.length &&
+      Arrays.equals(bytes, offset, offset + MAGIC.length, MAGIC, 0, MAGIC.length)
+    );
+  }
+
+  /**
+   * Decodes the flat AST serialized by the bridge, see packages/jsts/src/parsers/flat-ast.ts.
+   *
+   * @throws IllegalArgumentException if the bytes are not a flat AST, or are truncated
+   */
+  public static FlatAst decode(byte[] bytes) {
+    return decode(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Decodes the flat AST serialized in the given range of bytes. The decoded AST does not reference them: they can be
+   * reused once this method returns.
+   *
+   * @throws IllegalArgumentException if the bytes are not a flat AST, or are truncated
+   */
+  public static FlatAst decode(byte[] bytes, int offset, int length) {
+    if (!isFlatAst(bytes, offset, length)) {
+      throw new IllegalArgumentException("Not a flat AST");
+    }
+    var buffer = ByteBuffer.wrap(bytes, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.position(offset + MAGIC.length);
+    try {
+      var version = buffer.getInt();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported flat AST version: " + version);
+      }
+      return new FlatAst(buffer);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+      throw new IllegalArgumentException("Truncated flat AST", e);
+    }
+  }
+
+  private static int[] readInts(ByteBuffer buffer, int length) {
+    var ints = new int[length];
+    buffer.asIntBuffer().get(ints);
+    buffer.position(buffer.position() + length * Integer.BYTES);
+    return ints;
+  }
+
+  public int nodeCount() {
+    return type.length;
+  }
+
+  /**
+   * @return a new cursor on the root node
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Visits the nodes in pre-order, without recursion.
+   */
+  public void walk(Visitor visitor) {
+    if (type.length == 0) {
+      return;
+    }
+    var cursor = new Cursor();
+    var node = 0;
+    while (node >= 0) {
+      cursor.node = node;
+      if (visitor.enter(cursor) && firstChild[node] >= 0) {
+        node = firstChild[node];
+        continue;
+      }
+      while (node >= 0) {
+        cursor.node = node;
+        visitor.leave(cursor);
+        if (nextSibling[node] >= 0) {
+          node = nextSibling[node];
+          break;
+        }
+        node = parent[node];
+      }
+    }
+  }
+
+  public interface Visitor {
+
+    /**
+     * @param cursor positioned on the visited node, only valid during the call
+     * @return false to skip the children of the node
+     */
+    boolean enter(Cursor cursor);
+
+    /**
+     * Called once the children of the node, if any, were visited.
+     */
+    default void leave(Cursor cursor) {
+    }
+  }
+
+  /**
+   * Position on a node of the tree, which can be moved around.
+   */
+  public final class Cursor {
+
+    private int node;
+
+    private Cursor() {
+    }
+
+    public int node() {
+      return node;
+    }
+
+    public void moveTo(int node) {
+      this.node = node;
+    }
+
+    public boolean moveToParent() {
+      return follow(parent);
+    }
+
+    public boolean moveToFirstChild() {
+      return follow(firstChild);
+    }
+
+    public boolean moveToNextSibling() {
+      return follow(nextSibling);
+    }
+
+    private boolean follow(int[] relation) {
+      var target = relation[node];
+      if (target < 0) {
+        return false;
+      }
+      node = target;
+      return true;
+    }
+
+    public Cursor copy() {
+      var copy = new Cursor();
+      copy.node = node;
+      return copy;
+    }
+
+    /**
+     * @return the ESTree type of the node, e.g. "CallExpression"
+     */
+    public String type() {
+      return strings[type[node]];
+    }
+
+    /**
+     * @return the property of the parent holding the node, e.g. "callee", null for the root
+     */
+    @CheckForNull
+    public String field() {
+      var index = field[node];
+      return index < 0 ? null : strings[index];
+    }
+
+    public int startLine() {
+      return startLine[node];
+    }
+
+    public int startColumn() {
+      return startColumn[node];
+    }
+
+    public int endLine() {
+      return endLine[node];
+    }
+
+    public int endColumn() {
+      return endColumn[node];
+    }
+
+    public ESTree.Location loc() {
+      return new ESTree.Location(
+        new ESTree.Position(startLine[node], startColumn[node]),
+        new ESTree.Position(endLine[node], endColumn[node])
+      );
+    }
+
+    /**
+     * @param name the name of a primitive property of the node, e.g. "name" or "operator", dotted for the properties
+     *             of nested objects, e.g. "regex.pattern"
+     * @return its value as a string, null if the node has no such property
+     */
+    @CheckForNull
+    public String attribute(String name) {
+      var end = node + 1 < firstAttribute.length ? firstAttribute[node + 1] : attributeName.length;
+      for (int i = firstAttribute[node]; i < end; i++) {
+        if (strings[attributeName[i]].equals(name)) {
+          return strings[attributeValue[i]];
+        }
+      }
+      return null;
+    }
+  }
+}
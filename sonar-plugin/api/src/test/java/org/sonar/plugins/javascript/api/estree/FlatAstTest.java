@@ -0,0 +1,184 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.api.estree;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FlatAstTest {
+
+  private static final List<String> STRINGS = List.of(
+    "Program", "ExpressionStatement", "CallExpression", "Identifier",
+    "body", "expression", "callee", "arguments",
+    "sourceType", "module", "optional", "false", "name", "f", "a"
+  );
+
+  /**
+   * Flat AST of "f(a);"
+   */
+  static byte[] serialized() {
+    var out = new ByteArrayOutputStream();
+    out.writeBytes("SJFA".getBytes(UTF_8));
+    writeInts(out, 1, 5);
+    writeInts(out, 0, 1, 2, 3, 3);
+    writeInts(out, -1, 0, 1, 2, 2);
+    writeInts(out, 1, 2, 3, -1, -1);
+    writeInts(out, -1, -1, -1, 4, -1);
+    writeInts(out, -1, 4, 5, 6, 7);
+    writeInts(out, 0, 1, 1, 2, 3);
+    writeInts(out, 1, 1, 1, 1, 1);
+    writeInts(out, 0, 0, 0, 0, 2);
+    writeInts(out, 1, 1, 1, 1, 1);
+    writeInts(out, 5, 5, 4, 1, 3);
+    writeInts(out, 4, 8, 10, 12, 12, 9, 11, 13, 14);
+    writeInts(out, STRINGS.size());
+    for (var string : STRINGS) {
+      var bytes = string.getBytes(UTF_8);
+      writeInts(out, bytes.length);
+      out.writeBytes(bytes);
+    }
+    return out.toByteArray();
+  }
+
+  private static void writeInts(ByteArrayOutputStream out, int... ints) {
+    var buffer = ByteBuffer.allocate(ints.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asIntBuffer().put(ints);
+    out.writeBytes(buffer.array());
+  }
+
+  @Test
+  void should_navigate_with_cursor() {
+    var ast = FlatAst.decode(serialized());
+    assertThat(ast.nodeCount()).isEqualTo(5);
+
+    var cursor = ast.cursor();
+    assertThat(cursor.type()).isEqualTo("Program");
+    assertThat(cursor.field()).isNull();
+    assertThat(cursor.attribute("sourceType")).isEqualTo("module");
+    assertThat(cursor.moveToParent()).isFalse();
+    assertThat(cursor.moveToNextSibling()).isFalse();
+
+    assertThat(cursor.moveToFirstChild()).isTrue();
+    assertThat(cursor.moveToFirstChild()).isTrue();
+    assertThat(cursor.type()).isEqualTo("CallExpression");
+    assertThat(cursor.attribute("optional")).isEqualTo("false");
+    assertThat(cursor.attribute("name")).isNull();
+    assertThat(cursor.loc()).isEqualTo(new ESTree.Location(new ESTree.Position(1, 0), new ESTree.Position(1, 4)));
+
+    var call = cursor.copy();
+    assertThat(cursor.moveToFirstChild()).isTrue();
+    assertThat(cursor.field()).isEqualTo("callee");
+    assertThat(cursor.attribute("name")).isEqualTo("f");
+    assertThat(cursor.moveToNextSibling()).isTrue();
+    assertThat(cursor.field()).isEqualTo("arguments");
+    assertThat(cursor.attribute("name")).isEqualTo("a");
+    assertThat(cursor.startColumn()).isEqualTo(2);
+    assertThat(cursor.endColumn()).isEqualTo(3);
+    assertThat(cursor.moveToFirstChild()).isFalse();
+    assertThat(cursor.moveToNextSibling()).isFalse();
+    assertThat(cursor.moveToParent()).isTrue();
+    assertThat(cursor.node()).isEqualTo(call.node());
+  }
+
+  @Test
+  void should_walk_in_pre_order() {
+    var ast = FlatAst.decode(serialized());
+    var events = new ArrayList<String>();
+    ast.walk(new FlatAst.Visitor() {
+      @Override
+      public boolean enter(FlatAst.Cursor cursor) {
+        events.add("enter " + cursor.type());
+        return true;
+      }
+
+      @Override
+      public void leave(FlatAst.Cursor cursor) {
+        events.add("leave " + cursor.type());
+      }
+    });
+    assertThat(events).containsExactly(
+      "enter Program",
+      "enter ExpressionStatement",
+      "enter CallExpression",
+      "enter Identifier",
+      "leave Identifier",
+      "enter Identifier",
+      "leave Identifier",
+      "leave CallExpression",
+      "leave ExpressionStatement",
+      "leave Program"
+    );
+
+    var entered = new ArrayList<String>();
+    ast.walk(cursor -> {
+      entered.add(cursor.type());
+      return !cursor.type().equals("CallExpression");
+    });
+    assertThat(entered).containsExactly("Program", "ExpressionStatement", "CallExpression");
+  }
+
+  @Test
+  void should_reject_invalid_bytes() {
+    var bytes = serialized();
+    assertThat(FlatAst.isFlatAst(bytes)).isTrue();
+    assertThat(FlatAst.isFlatAst(new byte[] {8, 0})).isFalse();
+
+    assertThatThrownBy(() -> FlatAst.decode(new byte[] {8, 0}))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Not a flat AST");
+    assertThatThrownBy(() -> FlatAst.decode(Arrays.copyOf(bytes, bytes.length - 1)))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Truncated flat AST");
+    var otherVersion = bytes.clone();
+    otherVersion[4] = 2;
+    assertThatThrownBy(() -> FlatAst.decode(otherVersion))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Unsupported flat AST version: 2");
+  }
+
+  @Test
+  void should_decode_range_of_reused_buffer() {
+    var bytes = serialized();
+    var reused = new byte[bytes.length + 20];
+    Arrays.fill(reused, (byte) 'x');
+    System.arraycopy(bytes, 0, reused, 8, bytes.length);
+
+    assertThat(FlatAst.isFlatAst(reused, 8, bytes.length)).isTrue();
+    var ast = FlatAst.decode(reused, 8, bytes.length);
+    Arrays.fill(reused, (byte) 0);
+    assertThat(ast.nodeCount()).isEqualTo(5);
+    assertThat(ast.cursor().type()).isEqualTo("Program");
+
+    // the last string must not be read from the bytes following the range
+    System.arraycopy(bytes, 0, reused, 8, bytes.length);
+    assertThatThrownBy(() -> FlatAst.decode(reused, 8, bytes.length - 1))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Truncated flat AST");
+  }
+}
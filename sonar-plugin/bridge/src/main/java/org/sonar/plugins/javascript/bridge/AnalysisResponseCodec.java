@@ -0,0 +1,207 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.IntConsumer;
+import javax.annotation.Nullable;
+import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbolBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Issue;
+import org.sonar.plugins.javascript.bridge.BridgeServer.IssueLocation;
+import org.sonar.plugins.javascript.bridge.BridgeServer.LocationBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Metrics;
+import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingError;
+import org.sonar.plugins.javascript.bridge.BridgeServer.QuickFix;
+import org.sonar.plugins.javascript.bridge.protobuf.AnalysisProtos;
+
+/**
+ * Encodes analysis responses after analysis.proto, the way the bridge does when Protobuf is negotiated, so that they can
+ * be stored and decoded later on by {@link AnalysisResponseDecoder}. The AST of the response is not encoded.
+ */
+public final class AnalysisResponseCodec {
+
+  private AnalysisResponseCodec() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /**
+   * @throws IllegalArgumentException if the response holds a highlight whose type is unknown to analysis.proto
+   */
+  public static byte[] encode(AnalysisResponse response) {
+    return toProtobuf(response).toByteArray();
+  }
+
+  /**
+   * @throws com.google.protobuf.InvalidProtocolBufferException if the input is not a valid message
+   * @throws IOException if reading the input fails
+   */
+  public static AnalysisResponse decode(InputStream input) throws IOException {
+    return AnalysisResponseDecoder.decodeProtobuf(input);
+  }
+
+  private static AnalysisProtos.AnalysisResponse toProtobuf(AnalysisResponse response) {
+    var builder = AnalysisProtos.AnalysisResponse.newBuilder();
+    if (response.parsingError() != null) {
+      builder.setParsingError(toProtobuf(response.parsingError()));
+    }
+    response.issues().forEach(issue -> builder.addIssues(toProtobuf(issue)));
+    builder.setHighlights(toProtobuf(response.highlights()));
+    addHighlightedSymbols(builder, response.highlightedSymbols());
+    builder.setMetrics(toProtobuf(response.metrics()));
+    builder.setCpdTokens(toProtobuf(response.cpdTokens()));
+    builder.addAllUcfgPaths(response.ucfgPaths());
+    return builder.build();
+  }
+
+  private static AnalysisProtos.ParsingError toProtobuf(ParsingError parsingError) {
+    var builder = AnalysisProtos.ParsingError.newBuilder().setMessage(orEmpty(parsingError.message()));
+    if (parsingError.line() != null) {
+      builder.setLine(parsingError.line());
+    }
+    if (parsingError.code() != null) {
+      builder.setCode(AnalysisProtos.ParsingErrorCode.valueOf(parsingError.code().name()));
+    }
+    return builder.build();
+  }
+
+  private static AnalysisProtos.Issue toProtobuf(Issue issue) {
+    var builder = AnalysisProtos.Issue
+      .newBuilder()
+      .setRuleId(orEmpty(issue.ruleId()))
+      .setLine(orZero(issue.line()))
+      .setColumn(orZero(issue.column()))
+      .setMessage(orEmpty(issue.message()));
+    if (issue.endLine() != null) {
+      builder.setEndLine(issue.endLine());
+    }
+    if (issue.endColumn() != null) {
+      builder.setEndColumn(issue.endColumn());
+    }
+    if (issue.cost() != null) {
+      builder.setCost(issue.cost());
+    }
+    emptyIfNull(issue.secondaryLocations()).forEach(location -> builder.addSecondaryLocations(toProtobuf(location)));
+    emptyIfNull(issue.quickFixes()).forEach(quickFix -> builder.addQuickFixes(toProtobuf(quickFix)));
+    return builder.build();
+  }
+
+  private static AnalysisProtos.IssueLocation toProtobuf(IssueLocation location) {
+    var builder = AnalysisProtos.IssueLocation
+      .newBuilder()
+      .setLine(orZero(location.line()))
+      .setColumn(orZero(location.column()))
+      .setEndLine(orZero(location.endLine()))
+      .setEndColumn(orZero(location.endColumn()));
+    if (location.message() != null) {
+      builder.setMessage(location.message());
+    }
+    return builder.build();
+  }
+
+  private static AnalysisProtos.QuickFix toProtobuf(QuickFix quickFix) {
+    var builder = AnalysisProtos.QuickFix.newBuilder().setMessage(orEmpty(quickFix.message()));
+    for (var edit : emptyIfNull(quickFix.edits())) {
+      builder.addEdits(
+        AnalysisProtos.QuickFixEdit.newBuilder().setText(orEmpty(edit.text())).setLoc(toProtobuf(edit.loc()))
+      );
+    }
+    return builder.build();
+  }
+
+  private static AnalysisProtos.Highlights toProtobuf(HighlightBlock highlights) {
+    var builder = AnalysisProtos.Highlights.newBuilder();
+    for (var i = 0; i < highlights.size(); i++) {
+      addLocation(builder::addLocations, highlights.locations(), i);
+      builder.addTextTypes(AnalysisProtos.TextType.valueOf(highlights.textTypes()[i]));
+    }
+    return builder.build();
+  }
+
+  private static void addHighlightedSymbols(AnalysisProtos.AnalysisResponse.Builder response, HighlightedSymbolBlock symbols) {
+    var offsets = symbols.referenceOffsets();
+    for (var i = 0; i < symbols.size(); i++) {
+      var symbol = AnalysisProtos.HighlightedSymbol.newBuilder();
+      addLocation(symbol::addDeclaration, symbols.declarations(), i);
+      for (var j = offsets[i]; j < offsets[i + 1]; j++) {
+        addLocation(symbol::addReferences, symbols.references(), j);
+      }
+      response.addHighlightedSymbols(symbol);
+    }
+  }
+
+  private static AnalysisProtos.Metrics toProtobuf(Metrics metrics) {
+    var builder = AnalysisProtos.Metrics
+      .newBuilder()
+      .setFunctions(metrics.functions())
+      .setStatements(metrics.statements())
+      .setClasses(metrics.classes())
+      .setComplexity(metrics.complexity())
+      .setCognitiveComplexity(metrics.cognitiveComplexity());
+    for (var line : metrics.ncloc()) {
+      builder.addNcloc(line);
+    }
+    for (var line : metrics.commentLines()) {
+      builder.addCommentLines(line);
+    }
+    for (var line : metrics.nosonarLines()) {
+      builder.addNosonarLines(line);
+    }
+    for (var line : metrics.executableLines()) {
+      builder.addExecutableLines(line);
+    }
+    return builder.build();
+  }
+
+  private static AnalysisProtos.CpdTokens toProtobuf(CpdTokenBlock cpdTokens) {
+    var builder = AnalysisProtos.CpdTokens.newBuilder();
+    for (var i = 0; i < cpdTokens.size(); i++) {
+      addLocation(builder::addLocations, cpdTokens.locations(), i);
+      builder.addImages(orEmpty(cpdTokens.images()[i]));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Locations are flattened in Protobuf messages, four integers per location.
+   */
+  private static void addLocation(IntConsumer flattened, LocationBlock locations, int index) {
+    flattened.accept(locations.startLines()[index]);
+    flattened.accept(locations.startCols()[index]);
+    flattened.accept(locations.endLines()[index]);
+    flattened.accept(locations.endCols()[index]);
+  }
+
+  private static String orEmpty(@Nullable String string) {
+    return string == null ? "" : string;
+  }
+
+  private static int orZero(@Nullable Integer integer) {
+    return integer == null ? 0 : integer;
+  }
+
+  private static <T> List<T> emptyIfNull(@Nullable List<T> list) {
+    return list == null ? List.of() : list;
+  }
+}
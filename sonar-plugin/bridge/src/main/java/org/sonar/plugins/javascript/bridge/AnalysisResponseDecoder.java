@@ -0,0 +1,662 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.google.protobuf.CodedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbolBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Issue;
+import org.sonar.plugins.javascript.bridge.BridgeServer.IssueLocation;
+import org.sonar.plugins.javascript.bridge.BridgeServer.LocationBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Metrics;
+import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingError;
+import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingErrorCode;
+import org.sonar.plugins.javascript.bridge.BridgeServer.QuickFix;
+import org.sonar.plugins.javascript.bridge.BridgeServer.QuickFixEdit;
+import org.sonar.plugins.javascript.bridge.protobuf.AnalysisProtos;
+
+/**
+ * Decodes the JSON of an analysis response while it is being received, without materializing it
+ * as a String. The bulky parts of the response, i.e. metrics, highlights, symbols and CPD tokens,
+ * are read field by field, line numbers and locations being stored as primitive arrays. Issues
+ * and parsing errors are left to Gson.
+ * <p>
+ * When negotiated at linter initialization, responses are rather encoded after analysis.proto,
+ * and decoded with the generated Protobuf classes.
+ */
+final class AnalysisResponseDecoder {
+
+  static final String PROTOBUF_CONTENT_TYPE = "application/x-protobuf";
+
+  private static final Gson GSON = new Gson();
+  private static final Type ISSUES = new TypeToken<List<Issue>>() {}.getType();
+  private static final Type STRINGS = new TypeToken<List<String>>() {}.getType();
+  private static final int[] NO_LINES = new int[0];
+
+  private AnalysisResponseDecoder() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  @FunctionalInterface
+  private interface ElementReader<T> {
+    T read(JsonReader reader) throws IOException;
+  }
+
+  /**
+   * @throws JsonSyntaxException if the response is not valid JSON
+   * @throws IOException if reading the response fails
+   */
+  static AnalysisResponse decode(InputStream json) throws IOException {
+    var reader = new JsonReader(new InputStreamReader(json, UTF_8));
+    reader.setLenient(true);
+    try {
+      return readResponse(reader);
+    } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  /**
+   * Decodes the response of a batch analysis, i.e. an object whose "responses" field holds one analysis
+   * response per request.
+   */
+  static List<AnalysisResponse> decodeBatch(InputStream json) throws IOException {
+    var reader = new JsonReader(new InputStreamReader(json, UTF_8));
+    reader.setLenient(true);
+    try {
+      List<AnalysisResponse> responses = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if ("responses".equals(reader.nextName())) {
+          responses = readList(reader, AnalysisResponseDecoder::readResponse);
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+      return responses == null ? List.of() : responses;
+    } catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  static boolean isProtobuf(@Nullable String contentType) {
+    return contentType != null && contentType.startsWith(PROTOBUF_CONTENT_TYPE);
+  }
+
+  /**
+   * @throws com.google.protobuf.InvalidProtocolBufferException if the response is not a valid message
+   * @throws IOException if reading the response fails
+   */
+  static AnalysisResponse decodeProtobuf(InputStream input) throws IOException {
+    try (var buffer = DecodeBuffer.acquire()) {
+      return fromProtobuf(AnalysisProtos.AnalysisResponse.parseFrom(aliasingInput(buffer.readFrom(input))));
+    }
+  }
+
+  static List<AnalysisResponse> decodeBatchProtobuf(InputStream input) throws IOException {
+    try (var buffer = DecodeBuffer.acquire()) {
+      var batch = AnalysisProtos.AnalysisBatchResponse.parseFrom(aliasingInput(buffer.readFrom(input)));
+      var responses = new ArrayList<AnalysisResponse>(batch.getResponsesCount());
+      for (var response : batch.getResponsesList()) {
+        responses.add(fromProtobuf(response));
+      }
+      return responses;
+    }
+  }
+
+  /**
+   * The AST, the only bytes field of the responses, then references the buffer instead of being copied. It is decoded
+   * by {@link #fromProtobuf(AnalysisProtos.AnalysisResponse)}, before the buffer is released.
+   */
+  private static CodedInputStream aliasingInput(DecodeBuffer buffer) {
+    var input = buffer.newCodedInput();
+    input.enableAliasing(true);
+    return input;
+  }
+
+  private static AnalysisResponse readResponse(JsonReader reader) throws IOException {
+    ParsingError parsingError = null;
+    List<Issue> issues = null;
+    HighlightBlock highlights = null;
+    HighlightedSymbolBlock highlightedSymbols = null;
+    Metrics metrics = null;
+    CpdTokenBlock cpdTokens = null;
+    List<String> ucfgPaths = null;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "parsingError" -> parsingError = GSON.fromJson(reader, ParsingError.class);
+        case "issues" -> issues = GSON.fromJson(reader, ISSUES);
+        case "highlights" -> highlights = readHighlights(reader);
+        case "highlightedSymbols" -> highlightedSymbols = readHighlightedSymbols(reader);
+        case "metrics" -> metrics = readMetrics(reader);
+        case "cpdTokens" -> cpdTokens = readCpdTokens(reader);
+        case "ucfgPaths" -> ucfgPaths = GSON.fromJson(reader, STRINGS);
+        default -> reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new AnalysisResponse(
+      parsingError,
+      issues,
+      highlights,
+      highlightedSymbols,
+      metrics,
+      cpdTokens,
+      ucfgPaths,
+      null
+    );
+  }
+
+  @CheckForNull
+  private static <T> List<T> readList(JsonReader reader, ElementReader<T> elementReader)
+    throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    var result = new ArrayList<T>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      result.add(elementReader.read(reader));
+    }
+    reader.endArray();
+    return result;
+  }
+
+  @CheckForNull
+  private static Metrics readMetrics(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    var ncloc = NO_LINES;
+    var commentLines = NO_LINES;
+    var nosonarLines = NO_LINES;
+    var executableLines = NO_LINES;
+    var functions = 0;
+    var statements = 0;
+    var classes = 0;
+    var complexity = 0;
+    var cognitiveComplexity = 0;
+
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "ncloc" -> ncloc = readLines(reader);
+        case "commentLines" -> commentLines = readLines(reader);
+        case "nosonarLines" -> nosonarLines = readLines(reader);
+        case "executableLines" -> executableLines = readLines(reader);
+        case "functions" -> functions = readInt(reader);
+        case "statements" -> statements = readInt(reader);
+        case "classes" -> classes = readInt(reader);
+        case "complexity" -> complexity = readInt(reader);
+        case "cognitiveComplexity" -> cognitiveComplexity = readInt(reader);
+        default -> reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return new Metrics(
+      ncloc,
+      commentLines,
+      nosonarLines,
+      executableLines,
+      functions,
+      statements,
+      classes,
+      complexity,
+      cognitiveComplexity
+    );
+  }
+
+  private static int[] readLines(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return NO_LINES;
+    }
+    var lines = new int[16];
+    var size = 0;
+    reader.beginArray();
+    while (reader.hasNext()) {
+      if (size == lines.length) {
+        lines = Arrays.copyOf(lines, size * 2);
+      }
+      lines[size++] = reader.nextInt();
+    }
+    reader.endArray();
+    return Arrays.copyOf(lines, size);
+  }
+
+  private static int readInt(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return 0;
+    }
+    return reader.nextInt();
+  }
+
+  @CheckForNull
+  private static String readString(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    return reader.nextString();
+  }
+
+  /**
+   * @return whether a location was read, null locations being skipped
+   */
+  private static boolean readLocation(JsonReader reader, LocationBlockBuilder locations) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return false;
+    }
+    var startLine = 0;
+    var startCol = 0;
+    var endLine = 0;
+    var endCol = 0;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "startLine" -> startLine = readInt(reader);
+        case "startCol" -> startCol = readInt(reader);
+        case "endLine" -> endLine = readInt(reader);
+        case "endCol" -> endCol = readInt(reader);
+        default -> reader.skipValue();
+      }
+    }
+    reader.endObject();
+    locations.add(startLine, startCol, endLine, endCol);
+    return true;
+  }
+
+  /**
+   * Highlights without location can't be saved, they are dropped. The same goes for symbols
+   * without declaration and CPD tokens without location.
+   */
+  @CheckForNull
+  private static HighlightBlock readHighlights(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    var locations = new LocationBlockBuilder();
+    var textTypes = new ArrayList<String>();
+    var strings = new HashMap<String, String>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      var located = false;
+      String textType = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "location" -> located = readLocation(reader, locations);
+          case "textType" -> textType = readString(reader);
+          default -> reader.skipValue();
+        }
+      }
+      reader.endObject();
+      if (located) {
+        textTypes.add(intern(strings, textType));
+      }
+    }
+    reader.endArray();
+    return new HighlightBlock(locations.build(), textTypes.toArray(new String[0]));
+  }
+
+  @CheckForNull
+  private static HighlightedSymbolBlock readHighlightedSymbols(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    var declarations = new LocationBlockBuilder();
+    var references = new LocationBlockBuilder();
+    var referenceOffsets = new int[17];
+    reader.beginArray();
+    while (reader.hasNext()) {
+      var declared = false;
+      var firstReference = references.size();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "declaration" -> declared = readLocation(reader, declarations);
+          case "references" -> readLocations(reader, references);
+          default -> reader.skipValue();
+        }
+      }
+      reader.endObject();
+      if (!declared) {
+        references.truncate(firstReference);
+        continue;
+      }
+      var symbols = declarations.size();
+      if (symbols == referenceOffsets.length) {
+        referenceOffsets = Arrays.copyOf(referenceOffsets, symbols * 2);
+      }
+      referenceOffsets[symbols] = references.size();
+    }
+    reader.endArray();
+    return new HighlightedSymbolBlock(
+      declarations.build(),
+      Arrays.copyOf(referenceOffsets, declarations.size() + 1),
+      references.build()
+    );
+  }
+
+  private static void readLocations(JsonReader reader, LocationBlockBuilder locations) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return;
+    }
+    reader.beginArray();
+    while (reader.hasNext()) {
+      readLocation(reader, locations);
+    }
+    reader.endArray();
+  }
+
+  @CheckForNull
+  private static CpdTokenBlock readCpdTokens(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    var locations = new LocationBlockBuilder();
+    var images = new ArrayList<String>();
+    var strings = new HashMap<String, String>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      var located = false;
+      String image = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "location" -> located = readLocation(reader, locations);
+          case "image" -> image = readString(reader);
+          default -> reader.skipValue();
+        }
+      }
+      reader.endObject();
+      if (located) {
+        images.add(intern(strings, image));
+      }
+    }
+    reader.endArray();
+    return new CpdTokenBlock(locations.build(), images.toArray(new String[0]));
+  }
+
+  /**
+   * Images of CPD tokens and types of highlights repeat a lot, a single instance of each is kept.
+   */
+  @CheckForNull
+  private static String intern(Map<String, String> strings, @Nullable String string) {
+    return string == null ? null : strings.computeIfAbsent(string, Function.identity());
+  }
+
+  private static AnalysisResponse fromProtobuf(AnalysisProtos.AnalysisResponse response) throws IOException {
+    var ast = response.getAst().isEmpty() ? FormDataUtils.Ast.NONE : FormDataUtils.parseAst(response.getAst());
+    return new AnalysisResponse(
+      response.hasParsingError() ? fromProtobuf(response.getParsingError()) : null,
+      response.getIssuesList().stream().map(AnalysisResponseDecoder::fromProtobuf).toList(),
+      fromProtobuf(response.getHighlights()),
+      fromProtobuf(response.getHighlightedSymbolsList()),
+      response.hasMetrics() ? fromProtobuf(response.getMetrics()) : null,
+      fromProtobuf(response.getCpdTokens()),
+      List.copyOf(response.getUcfgPathsList()),
+      ast.protobuf(),
+      ast.flat()
+    );
+  }
+
+  private static ParsingError fromProtobuf(AnalysisProtos.ParsingError parsingError) {
+    var code = switch (parsingError.getCode()) {
+      case PARSING -> ParsingErrorCode.PARSING;
+      case FAILING_TYPESCRIPT -> ParsingErrorCode.FAILING_TYPESCRIPT;
+      case GENERAL_ERROR -> ParsingErrorCode.GENERAL_ERROR;
+      // like with Gson, codes unknown to the plugin are ignored
+      default -> null;
+    };
+    return new ParsingError(
+      parsingError.getMessage(),
+      parsingError.hasLine() ? parsingError.getLine() : null,
+      code
+    );
+  }
+
+  private static Issue fromProtobuf(AnalysisProtos.Issue issue) {
+    return new Issue(
+      issue.getLine(),
+      issue.getColumn(),
+      issue.hasEndLine() ? issue.getEndLine() : null,
+      issue.hasEndColumn() ? issue.getEndColumn() : null,
+      issue.getMessage(),
+      issue.getRuleId(),
+      issue.getSecondaryLocationsList().stream().map(AnalysisResponseDecoder::fromProtobuf).toList(),
+      issue.hasCost() ? issue.getCost() : null,
+      issue.getQuickFixesList().stream().map(AnalysisResponseDecoder::fromProtobuf).toList()
+    );
+  }
+
+  private static IssueLocation fromProtobuf(AnalysisProtos.IssueLocation location) {
+    return new IssueLocation(
+      location.getLine(),
+      location.getColumn(),
+      location.getEndLine(),
+      location.getEndColumn(),
+      location.hasMessage() ? location.getMessage() : null
+    );
+  }
+
+  private static QuickFix fromProtobuf(AnalysisProtos.QuickFix quickFix) {
+    var edits = quickFix.getEditsList().stream()
+      .map(edit -> new QuickFixEdit(edit.getText(), fromProtobuf(edit.getLoc())))
+      .toList();
+    return new QuickFix(quickFix.getMessage(), edits);
+  }
+
+  private static HighlightBlock fromProtobuf(AnalysisProtos.Highlights highlights) {
+    var size = Math.min(highlights.getTextTypesCount(), highlights.getLocationsCount() / 4);
+    var textTypes = new String[size];
+    for (var i = 0; i < size; i++) {
+      textTypes[i] = highlights.getTextTypes(i).name();
+    }
+    return new HighlightBlock(locations(size, highlights::getLocations), textTypes);
+  }
+
+  private static HighlightedSymbolBlock fromProtobuf(List<AnalysisProtos.HighlightedSymbol> symbols) {
+    var declarations = new LocationBlockBuilder(symbols.size());
+    var references = new LocationBlockBuilder();
+    var referenceOffsets = new int[symbols.size() + 1];
+    for (var symbol : symbols) {
+      if (symbol.getDeclarationCount() < 4) {
+        continue;
+      }
+      declarations.add(symbol.getDeclaration(0), symbol.getDeclaration(1), symbol.getDeclaration(2), symbol.getDeclaration(3));
+      for (var i = 0; i + 3 < symbol.getReferencesCount(); i += 4) {
+        references.add(symbol.getReferences(i), symbol.getReferences(i + 1), symbol.getReferences(i + 2), symbol.getReferences(i + 3));
+      }
+      referenceOffsets[declarations.size()] = references.size();
+    }
+    return new HighlightedSymbolBlock(
+      declarations.build(),
+      Arrays.copyOf(referenceOffsets, declarations.size() + 1),
+      references.build()
+    );
+  }
+
+  private static Metrics fromProtobuf(AnalysisProtos.Metrics metrics) {
+    return new Metrics(
+      lines(metrics.getNclocCount(), metrics::getNcloc),
+      lines(metrics.getCommentLinesCount(), metrics::getCommentLines),
+      lines(metrics.getNosonarLinesCount(), metrics::getNosonarLines),
+      lines(metrics.getExecutableLinesCount(), metrics::getExecutableLines),
+      metrics.getFunctions(),
+      metrics.getStatements(),
+      metrics.getClasses(),
+      metrics.getComplexity(),
+      metrics.getCognitiveComplexity()
+    );
+  }
+
+  private static CpdTokenBlock fromProtobuf(AnalysisProtos.CpdTokens cpdTokens) {
+    var size = Math.min(cpdTokens.getImagesCount(), cpdTokens.getLocationsCount() / 4);
+    var images = new String[size];
+    var strings = new HashMap<String, String>();
+    for (var i = 0; i < size; i++) {
+      images[i] = intern(strings, cpdTokens.getImages(i));
+    }
+    return new CpdTokenBlock(locations(size, cpdTokens::getLocations), images);
+  }
+
+  /**
+   * Locations are flattened in Protobuf messages, four integers per location.
+   */
+  private static LocationBlock locations(int size, IntUnaryOperator flattened) {
+    var startLines = new int[size];
+    var startCols = new int[size];
+    var endLines = new int[size];
+    var endCols = new int[size];
+    for (var i = 0; i < size; i++) {
+      startLines[i] = flattened.applyAsInt(i * 4);
+      startCols[i] = flattened.applyAsInt(i * 4 + 1);
+      endLines[i] = flattened.applyAsInt(i * 4 + 2);
+      endCols[i] = flattened.applyAsInt(i * 4 + 3);
+    }
+    return new LocationBlock(startLines, startCols, endLines, endCols);
+  }
+
+  private static int[] lines(int count, IntUnaryOperator line) {
+    var lines = new int[count];
+    for (var i = 0; i < count; i++) {
+      lines[i] = line.applyAsInt(i);
+    }
+    return lines;
+  }
+
+  private static void writeLocation(JsonWriter writer, LocationBlock locations, int index) throws IOException {
+    writer.beginObject();
+    writer.name("startLine").value(locations.startLines()[index]);
+    writer.name("startCol").value(locations.startCols()[index]);
+    writer.name("endLine").value(locations.endLines()[index]);
+    writer.name("endCol").value(locations.endCols()[index]);
+    writer.endObject();
+  }
+
+  /**
+   * Lets Gson handle blocks as arrays of objects, the way they are sent by the bridge.
+   */
+  static final class HighlightBlockAdapter extends TypeAdapter<HighlightBlock> {
+
+    @Override
+    public void write(JsonWriter writer, HighlightBlock highlights) throws IOException {
+      writer.beginArray();
+      for (var i = 0; i < highlights.size(); i++) {
+        writer.beginObject();
+        writer.name("location");
+        writeLocation(writer, highlights.locations(), i);
+        writer.name("textType").value(highlights.textTypes()[i]);
+        writer.endObject();
+      }
+      writer.endArray();
+    }
+
+    @Override
+    public HighlightBlock read(JsonReader reader) throws IOException {
+      return readHighlights(reader);
+    }
+  }
+
+  static final class HighlightedSymbolBlockAdapter extends TypeAdapter<HighlightedSymbolBlock> {
+
+    @Override
+    public void write(JsonWriter writer, HighlightedSymbolBlock symbols) throws IOException {
+      writer.beginArray();
+      for (var i = 0; i < symbols.size(); i++) {
+        writer.beginObject();
+        writer.name("declaration");
+        writeLocation(writer, symbols.declarations(), i);
+        writer.name("references");
+        writer.beginArray();
+        for (var j = symbols.referenceOffsets()[i]; j < symbols.referenceOffsets()[i + 1]; j++) {
+          writeLocation(writer, symbols.references(), j);
+        }
+        writer.endArray();
+        writer.endObject();
+      }
+      writer.endArray();
+    }
+
+    @Override
+    public HighlightedSymbolBlock read(JsonReader reader) throws IOException {
+      return readHighlightedSymbols(reader);
+    }
+  }
+
+  static final class CpdTokenBlockAdapter extends TypeAdapter<CpdTokenBlock> {
+
+    @Override
+    public void write(JsonWriter writer, CpdTokenBlock cpdTokens) throws IOException {
+      writer.beginArray();
+      for (var i = 0; i < cpdTokens.size(); i++) {
+        writer.beginObject();
+        writer.name("location");
+        writeLocation(writer, cpdTokens.locations(), i);
+        writer.name("image").value(cpdTokens.images()[i]);
+        writer.endObject();
+      }
+      writer.endArray();
+    }
+
+    @Override
+    public CpdTokenBlock read(JsonReader reader) throws IOException {
+      return readCpdTokens(reader);
+    }
+  }
+}
@@ -19,13 +19,17 @@
  */
 package org.sonar.plugins.javascript.bridge;
 
+import com.google.gson.annotations.JsonAdapter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javax.annotation.Nullable;
 import org.sonar.api.Startable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.TextRange;
 import org.sonar.api.scanner.ScannerSide;
+import org.sonar.plugins.javascript.api.estree.FlatAst;
 import org.sonar.plugins.javascript.bridge.protobuf.Node;
 import org.sonarsource.api.sonarlint.SonarLintSide;
 
@@ -43,6 +47,14 @@ public interface BridgeServer extends Startable {
 
   AnalysisResponse analyzeTypeScript(JsAnalysisRequest request) throws IOException;
 
+  /**
+   * Analyzes several JavaScript or TypeScript files in a single round-trip to the bridge. The ASTs are never
+   * returned, the requests are expected to skip them. Requests referring to a program must all refer to the same one.
+   *
+   * @return the responses, in the order of the requests
+   */
+  List<AnalysisResponse> analyzeBatch(List<JsAnalysisRequest> requests) throws IOException;
+
   AnalysisResponse analyzeCss(CssAnalysisRequest request) throws IOException;
 
   AnalysisResponse analyzeYaml(JsAnalysisRequest request) throws IOException;
@@ -65,9 +77,21 @@ public interface BridgeServer extends Startable {
 
   TsConfigFile createTsConfigFile(String content) throws IOException;
 
+  /**
+   * @param astFormat "flat" to get the AST as a {@link FlatAst}, protobuf otherwise
+   * @param astNodeTypes the node types to keep in the AST, with the statements containing them, all of them if null
+   */
   record JsAnalysisRequest(String filePath, String fileType, String language, @Nullable String fileContent, boolean ignoreHeaderComments,
-                           @Nullable List<String> tsConfigs, @Nullable String programId, String linterId, boolean skipAst) {
+                           @Nullable List<String> tsConfigs, @Nullable String programId, String linterId, boolean skipAst,
+                           @Nullable String astFormat, @Nullable List<String> astNodeTypes) {
+
+    public JsAnalysisRequest(String filePath, String fileType, String language, @Nullable String fileContent, boolean ignoreHeaderComments,
+                             @Nullable List<String> tsConfigs, @Nullable String programId, String linterId, boolean skipAst) {
+      this(filePath, fileType, language, fileContent, ignoreHeaderComments, tsConfigs, programId, linterId, skipAst, null, null);
+    }
+  }
 
+  record JsAnalysisBatchRequest(List<JsAnalysisRequest> requests) {
   }
 
   record CssAnalysisRequest(String filePath, @Nullable String fileContent, List<StylelintRule> rules) {
@@ -78,29 +102,41 @@ public interface BridgeServer extends Startable {
       this(json, null);
     }
   }
-  record AnalysisResponse(@Nullable ParsingError parsingError, List<Issue> issues, List<Highlight> highlights,
-                          List<HighlightedSymbol> highlightedSymbols, Metrics metrics, List<CpdToken> cpdTokens, List<String> ucfgPaths, @Nullable Node ast) {
+  record AnalysisResponse(@Nullable ParsingError parsingError, List<Issue> issues, HighlightBlock highlights,
+                          HighlightedSymbolBlock highlightedSymbols, Metrics metrics, CpdTokenBlock cpdTokens, List<String> ucfgPaths, @Nullable Node ast,
+                          @Nullable FlatAst flatAst) {
 
     public AnalysisResponse(AnalysisResponse response, @Nullable Node ast) {
+      this(response, ast, null);
+    }
+
+    public AnalysisResponse(AnalysisResponse response, @Nullable Node ast, @Nullable FlatAst flatAst) {
       this(response.parsingError, response.issues, response.highlights, response.highlightedSymbols,
-           response.metrics, response.cpdTokens, response.ucfgPaths, ast);
+           response.metrics, response.cpdTokens, response.ucfgPaths, ast, flatAst);
     }
 
     public AnalysisResponse() {
-      this(null, List.of(), List.of(), List.of(), new Metrics(), List.of(), List.of(), null);
+      this(null, List.of(), HighlightBlock.EMPTY, HighlightedSymbolBlock.EMPTY, new Metrics(), CpdTokenBlock.EMPTY, List.of(), null);
     }
 
-    public AnalysisResponse(@Nullable ParsingError parsingError, @Nullable List<Issue> issues, @Nullable List<Highlight> highlights,
-                            @Nullable List<HighlightedSymbol> highlightedSymbols, @Nullable Metrics metrics,
-                            @Nullable List<CpdToken> cpdTokens, List<String> ucfgPaths, @Nullable Node ast) {
+    public AnalysisResponse(@Nullable ParsingError parsingError, @Nullable List<Issue> issues, @Nullable HighlightBlock highlights,
+                            @Nullable HighlightedSymbolBlock highlightedSymbols, @Nullable Metrics metrics,
+                            @Nullable CpdTokenBlock cpdTokens, List<String> ucfgPaths, @Nullable Node ast) {
+      this(parsingError, issues, highlights, highlightedSymbols, metrics, cpdTokens, ucfgPaths, ast, null);
+    }
+
+    public AnalysisResponse(@Nullable ParsingError parsingError, @Nullable List<Issue> issues, @Nullable HighlightBlock highlights,
+                            @Nullable HighlightedSymbolBlock highlightedSymbols, @Nullable Metrics metrics,
+                            @Nullable CpdTokenBlock cpdTokens, List<String> ucfgPaths, @Nullable Node ast, @Nullable FlatAst flatAst) {
       this.parsingError = parsingError;
       this.issues = issues != null ? issues : List.of();
-      this.highlights = highlights != null ? highlights : List.of();
-      this.highlightedSymbols = highlightedSymbols != null ? highlightedSymbols : List.of();
+      this.highlights = highlights != null ? highlights : HighlightBlock.EMPTY;
+      this.highlightedSymbols = highlightedSymbols != null ? highlightedSymbols : HighlightedSymbolBlock.EMPTY;
       this.metrics = metrics != null ? metrics : new Metrics();
-      this.cpdTokens = cpdTokens != null ? cpdTokens : List.of();
+      this.cpdTokens = cpdTokens != null ? cpdTokens : CpdTokenBlock.EMPTY;
       this.ucfgPaths = ucfgPaths;
       this.ast = ast;
+      this.flatAst = flatAst;
     }
   }
 
@@ -152,10 +188,10 @@ public interface BridgeServer extends Startable {
 
   record Metrics(
 
-    List<Integer> ncloc, List<Integer> commentLines, List<Integer> nosonarLines, List<Integer> executableLines, int functions,
+    int[] ncloc, int[] commentLines, int[] nosonarLines, int[] executableLines, int functions,
     int statements, int classes, int complexity, int cognitiveComplexity) {
     public Metrics() {
-      this(List.of(), List.of(), List.of(), List.of(), 0, 0, 0, 0, 0);
+      this(new int[0], new int[0], new int[0], new int[0], 0, 0, 0, 0, 0);
     }
   }
 
@@ -164,6 +200,163 @@ public interface BridgeServer extends Startable {
     Location location, String image) {
   }
 
+  /**
+   * Locations stored column by column. Highlights, symbols and CPD tokens come by the thousands for
+   * a single file, so they are kept in blocks of primitive arrays rather than as one object per location.
+   */
+  record LocationBlock(int[] startLines, int[] startCols, int[] endLines, int[] endCols) {
+
+    public static final LocationBlock EMPTY = new LocationBlock(new int[0], new int[0], new int[0], new int[0]);
+
+    /**
+     * Null locations are skipped, like when decoding a response.
+     */
+    public static LocationBlock of(List<Location> locations) {
+      var builder = new LocationBlockBuilder(locations.size());
+      for (var location : locations) {
+        if (location != null) {
+          builder.add(location);
+        }
+      }
+      return builder.build();
+    }
+
+    public int size() {
+      return startLines.length;
+    }
+
+    public Location get(int index) {
+      return new Location(startLines[index], startCols[index], endLines[index], endCols[index]);
+    }
+
+    public TextRange toTextRange(int index, InputFile inputFile) {
+      return inputFile.newRange(startLines[index], startCols[index], endLines[index], endCols[index]);
+    }
+  }
+
+  @JsonAdapter(AnalysisResponseDecoder.HighlightBlockAdapter.class)
+  record HighlightBlock(LocationBlock locations, String[] textTypes) {
+
+    public static final HighlightBlock EMPTY = new HighlightBlock(LocationBlock.EMPTY, new String[0]);
+
+    /**
+     * Highlights without location are dropped, like when decoding a response.
+     */
+    public static HighlightBlock of(List<Highlight> highlights) {
+      var locations = new LocationBlockBuilder(highlights.size());
+      var textTypes = new ArrayList<String>(highlights.size());
+      for (var highlight : highlights) {
+        if (highlight.location() != null) {
+          locations.add(highlight.location());
+          textTypes.add(highlight.textType());
+        }
+      }
+      return new HighlightBlock(locations.build(), textTypes.toArray(new String[0]));
+    }
+
+    public int size() {
+      return textTypes.length;
+    }
+
+    public Highlight get(int index) {
+      return new Highlight(locations.get(index), textTypes[index]);
+    }
+  }
+
+  /**
+   * The references of the i-th symbol are the ones from index {@code referenceOffsets[i]} included
+   * to index {@code referenceOffsets[i + 1]} excluded.
+   */
+  @JsonAdapter(AnalysisResponseDecoder.HighlightedSymbolBlockAdapter.class)
+  record HighlightedSymbolBlock(LocationBlock declarations, int[] referenceOffsets, LocationBlock references) {
+
+    public static final HighlightedSymbolBlock EMPTY = new HighlightedSymbolBlock(LocationBlock.EMPTY, new int[] {0}, LocationBlock.EMPTY);
+
+    /**
+     * Symbols without declaration and null references are dropped, like when decoding a response.
+     */
+    public static HighlightedSymbolBlock of(List<HighlightedSymbol> symbols) {
+      var declarations = new LocationBlockBuilder(symbols.size());
+      var references = new LocationBlockBuilder();
+      var referenceOffsets = new int[symbols.size() + 1];
+      for (var symbol : symbols) {
+        if (symbol.declaration() == null) {
+          continue;
+        }
+        if (symbol.references() != null) {
+          for (var reference : symbol.references()) {
+            if (reference != null) {
+              references.add(reference);
+            }
+          }
+        }
+        declarations.add(symbol.declaration());
+        referenceOffsets[declarations.size()] = references.size();
+      }
+      return new HighlightedSymbolBlock(
+        declarations.build(),
+        Arrays.copyOf(referenceOffsets, declarations.size() + 1),
+        references.build()
+      );
+    }
+
+    public int size() {
+      return declarations.size();
+    }
+
+    public HighlightedSymbol get(int index) {
+      var symbolReferences = new ArrayList<Location>(referenceOffsets[index + 1] - referenceOffsets[index]);
+      for (var i = referenceOffsets[index]; i < referenceOffsets[index + 1]; i++) {
+        symbolReferences.add(references.get(i));
+      }
+      return new HighlightedSymbol(declarations.get(index), symbolReferences);
+    }
+  }
+
+  /**
+   * Identical images share the same String instance.
+   */
+  @JsonAdapter(AnalysisResponseDecoder.CpdTokenBlockAdapter.class)
+  record CpdTokenBlock(LocationBlock locations, String[] images) {
+
+    public static final CpdTokenBlock EMPTY = new CpdTokenBlock(LocationBlock.EMPTY, new String[0]);
+
+    /**
+     * CPD tokens without location are dropped, like when decoding a response.
+     */
+    public static CpdTokenBlock of(List<CpdToken> cpdTokens) {
+      var locations = new LocationBlockBuilder(cpdTokens.size());
+      var images = new ArrayList<String>(cpdTokens.size());
+      for (var cpdToken : cpdTokens) {
+        if (cpdToken.location() != null) {
+          locations.add(cpdToken.location());
+          images.add(cpdToken.image());
+        }
+      }
+      return new CpdTokenBlock(locations.build(), images.toArray(new String[0]));
+    }
+
+    public int size() {
+      return images.length;
+    }
+
+    public boolean isEmpty() {
+      return images.length == 0;
+    }
+
+    public CpdToken get(int index) {
+      return new CpdToken(locations.get(index), images[index]);
+    }
+
+    public List<CpdToken> toList() {
+      var cpdTokens = new ArrayList<CpdToken>(size());
+      for (var i = 0; i < size(); i++) {
+        cpdTokens.add(get(i));
+      }
+      return cpdTokens;
+    }
+  }
+
   class TsConfigResponse {
 
     final List<String> files;
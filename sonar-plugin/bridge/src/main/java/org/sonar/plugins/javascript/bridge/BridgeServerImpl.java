@@ -27,6 +27,7 @@ import static org.sonar.plugins.javascript.nodejs.NodeCommandBuilderImpl.SKIP_NO
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -37,14 +38,17 @@ import java.net.URISyntaxException;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -72,27 +76,51 @@ public class BridgeServerImpl implements BridgeServer {
   private static final String MAX_OLD_SPACE_SIZE_PROPERTY = "sonar.javascript.node.maxspace";
   private static final String ALLOW_TS_PARSER_JS_FILES = "sonar.javascript.allowTsParserJsFiles";
   private static final String DEBUG_MEMORY = "sonar.javascript.node.debugMemory";
+  // internal property to set the number of requests kept in flight, and of analysis workers started by the bridge;
+  // the files of a TypeScript program are all analyzed by the worker holding it, so it brings no speedup within a program
+  public static final String ANALYSIS_PARALLELISM_PROPERTY = "sonar.javascript.analysis.parallelism";
+  // internal property to create the next TypeScript program while the current one is analyzed
+  public static final String ANALYSIS_PREFETCH_PROGRAM_PROPERTY = "sonar.javascript.analysis.prefetchProgram";
+  // internal property to limit the number of TypeScript programs alive at once, each of them held by its own worker
+  public static final String ANALYSIS_MAX_PROGRAMS_PROPERTY = "sonar.javascript.analysis.maxPrograms";
+  // internal property to send analysis requests as frames over persistent connections instead of HTTP
+  private static final String FRAMED_TRANSPORT_PROPERTY = "sonar.javascript.bridge.framedTransport";
+  // internal property to set the number of Node.js processes running the bridge server, each with its own heap
+  public static final String BRIDGE_PROCESSES_PROPERTY = "sonar.javascript.bridge.processes";
+  // internal property to extract the bridge server in a temporary directory instead of reusing it from the user home
+  private static final String BRIDGE_DEPLOY_CACHE_PROPERTY = "sonar.javascript.bridge.deployCache";
   public static final String SONARJS_EXISTING_NODE_PROCESS_PORT =
     "SONARJS_EXISTING_NODE_PROCESS_PORT";
   private static final Gson GSON = new Gson();
+  private static final List<String> RESPONSE_FORMATS = List.of("protobuf", "json");
   private static final String BRIDGE_DEPLOY_LOCATION = "bridge-bundle";
+  private static final Path BRIDGE_DEPLOY_CACHE_LOCATION = Path.of("js", "bridge-bundle");
+  private static final String RULES_BUNDLES_DEPLOY_LOCATION = "custom-rules";
 
   private final NodeCommandBuilder nodeCommandBuilder;
   private final int timeoutSeconds;
   private final Bundle bundle;
   private final String hostAddress;
   private int port;
+  private List<Integer> workerPorts = List.of();
+  private final Map<String, Integer> programWorkerPorts = new ConcurrentHashMap<>();
+  private final Map<List<String>, Integer> tsConfigWorkerPorts = new ConcurrentHashMap<>();
+  private final Map<Integer, AtomicInteger> inFlightRequests = new ConcurrentHashMap<>();
+  private final AtomicInteger nextWorker = new AtomicInteger();
   private int heartbeatPort;
   private NodeCommand nodeCommand;
+  private final List<BridgeProcess> additionalProcesses = new ArrayList<>();
   private Status status = Status.NOT_STARTED;
   private final RulesBundles rulesBundles;
   private final NodeDeprecationWarning deprecationWarning;
   private final Path temporaryDeployLocation;
+  private Path rulesBundlesDeployLocation;
   private final EmbeddedNode embeddedNode;
   private static final int HEARTBEAT_INTERVAL_SECONDS = 5;
   private final ScheduledExecutorService heartbeatService;
   private ScheduledFuture<?> heartbeatFuture;
   private final Http http;
+  private Http transport;
 
   // Used by pico container for dependency injection
   public BridgeServerImpl(
@@ -155,6 +183,7 @@ public class BridgeServerImpl implements BridgeServer {
     this.heartbeatService = Executors.newSingleThreadScheduledExecutor();
     this.embeddedNode = embeddedNode;
     this.http = http;
+    this.transport = http;
   }
 
   void heartbeat() {
@@ -186,7 +215,8 @@ public class BridgeServerImpl implements BridgeServer {
    * @throws IOException
    */
   void deploy(Configuration configuration) throws IOException {
-    bundle.deploy(temporaryDeployLocation);
+    // custom rules bundles get their own root, as a complete deployment of the bridge is never modified
+    rulesBundlesDeployLocation = deployBundle(configuration).resolveSibling(RULES_BUNDLES_DEPLOY_LOCATION);
     if (configuration.get(NODE_EXECUTABLE_PROPERTY).isPresent() ||
         configuration.getBoolean(SKIP_NODE_PROVISIONING_PROPERTY).orElse(false) ||
         configuration.getBoolean(NODE_FORCE_HOST_PROPERTY).orElse(false)) {
@@ -204,10 +234,32 @@ public class BridgeServerImpl implements BridgeServer {
     embeddedNode.deploy();
   }
 
+  /**
+   * Deploys the bridge files under the user home, where they are reused by the next analyses, or in a temporary directory
+   * if that's not possible
+   *
+   * @return the directory where the bridge files were deployed
+   */
+  private Path deployBundle(Configuration configuration) throws IOException {
+    if (configuration.getBoolean(BRIDGE_DEPLOY_CACHE_PROPERTY).orElse(true)) {
+      var location = new Environment(configuration).getSonarUserHome().resolve(BRIDGE_DEPLOY_CACHE_LOCATION);
+      try {
+        bundle.deploy(location);
+        return location;
+      } catch (IOException e) {
+        LOG.warn("Failed to deploy the bridge server in {}, falling back to a temporary directory", location, e);
+      }
+    }
+    bundle.deploy(temporaryDeployLocation);
+    return temporaryDeployLocation;
+  }
+
   void startServer(BridgeServerConfig serverConfig, List<Path> deployedBundles) throws IOException {
     LOG.debug("Starting server");
     long start = System.currentTimeMillis();
     port = findOpenPort();
+    var workers = analysisWorkers(serverConfig.config());
+    var primaryWorkerPorts = findWorkerPorts(port, workers);
     heartbeatPort = findOpenPort();
 
     File scriptFile = new File(bundle.startServerScript());
@@ -222,9 +274,22 @@ public class BridgeServerImpl implements BridgeServer {
       .stream()
       .map(Path::toString)
       .collect(Collectors.joining(File.pathSeparator));
-    nodeCommand = initNodeCommand(serverConfig, scriptFile, bundles);
+    nodeCommand = initNodeCommand(serverConfig, scriptFile, bundles, primaryWorkerPorts);
     nodeCommand.start();
 
+    var ports = new ArrayList<>(primaryWorkerPorts);
+    for (int i = 1; i < bridgeProcesses(serverConfig.config()); i++) {
+      var processWorkerPorts = findWorkerPorts(findOpenPort(), workers);
+      var processHeartbeatPort = findOpenPort();
+      var processCommand = nodeCommandBuilder
+        .scriptArgs(scriptArgs(serverConfig, scriptFile, bundles, processWorkerPorts, processHeartbeatPort))
+        .build();
+      processCommand.start();
+      additionalProcesses.add(new BridgeProcess(processCommand, processHeartbeatPort));
+      ports.addAll(processWorkerPorts);
+    }
+    workerPorts = List.copyOf(ports);
+
     if (!waitServerToStart(timeoutSeconds * 1000)) {
       status = Status.FAILED;
       throw new NodeCommandException(
@@ -234,10 +299,53 @@ public class BridgeServerImpl implements BridgeServer {
       serverHasStarted();
     }
     long duration = System.currentTimeMillis() - start;
-    LOG.debug("Bridge server started on port {} in {} ms", port, duration);
+    LOG.debug(
+      "Bridge server started in {} process(es) on port(s) {} in {} ms",
+      additionalProcesses.size() + 1,
+      workerPorts,
+      duration
+    );
     deprecationWarning.logNodeDeprecation(nodeCommand.getActualNodeVersion().major());
   }
 
+  /**
+   * Number of requests kept in flight. Requests are sent one at a time unless it is set explicitly, whatever the
+   * number of workers started for the programs.
+   */
+  public static int analysisParallelism(Configuration configuration) {
+    return Math.max(1, configuration.getInt(ANALYSIS_PARALLELISM_PROPERTY).orElse(1));
+  }
+
+  /**
+   * Number of TypeScript programs alive at once. Prefetching the next program means holding two of them, unless the
+   * number of programs is set explicitly.
+   */
+  public static int analysisMaxPrograms(Configuration configuration) {
+    var prefetch = configuration.getBoolean(ANALYSIS_PREFETCH_PROGRAM_PROPERTY).orElse(false);
+    return Math.max(1, configuration.getInt(ANALYSIS_MAX_PROGRAMS_PROPERTY).orElse(prefetch ? 2 : 1));
+  }
+
+  /**
+   * Number of analysis workers started by each bridge process: one per program alive at once, so that programs are
+   * created and analyzed side by side, and at least one per request in flight.
+   */
+  static int analysisWorkers(Configuration configuration) {
+    return Math.max(analysisParallelism(configuration), analysisMaxPrograms(configuration));
+  }
+
+  static int bridgeProcesses(Configuration configuration) {
+    return Math.max(1, configuration.getInt(BRIDGE_PROCESSES_PROPERTY).orElse(1));
+  }
+
+  private static List<Integer> findWorkerPorts(int firstPort, int workers) throws IOException {
+    var ports = new ArrayList<Integer>(workers);
+    ports.add(firstPort);
+    while (ports.size() < workers) {
+      ports.add(findOpenPort());
+    }
+    return List.copyOf(ports);
+  }
+
   boolean waitServerToStart(int timeoutMs) {
     int sleepStep = 100;
     long start = System.currentTimeMillis();
@@ -255,16 +363,15 @@ public class BridgeServerImpl implements BridgeServer {
     return true;
   }
 
-  private NodeCommand initNodeCommand(BridgeServerConfig serverConfig, File scriptFile, String bundles)
-    throws IOException {
-    var workdir = serverConfig.workDirAbsolutePath();
-    var config = serverConfig.config();
-    var allowTsParserJsFiles = config.getBoolean(ALLOW_TS_PARSER_JS_FILES).orElse(true);
-    var isSonarLint = serverConfig.product() == SonarProduct.SONARLINT;
-    if (isSonarLint) {
+  private NodeCommand initNodeCommand(
+    BridgeServerConfig serverConfig,
+    File scriptFile,
+    String bundles,
+    List<Integer> processWorkerPorts
+  ) throws IOException {
+    if (serverConfig.product() == SonarProduct.SONARLINT) {
       LOG.info("Running in SonarLint context, metrics will not be computed.");
     }
-    var debugMemory = config.getBoolean(DEBUG_MEMORY).orElse(false);
 
     nodeCommandBuilder
       .outputConsumer(new LogOutputConsumer())
@@ -274,16 +381,7 @@ public class BridgeServerImpl implements BridgeServer {
       .minNodeVersion(NodeDeprecationWarning.MIN_SUPPORTED_NODE_VERSION)
       .configuration(serverConfig.config())
       .script(scriptFile.getAbsolutePath())
-      .scriptArgs(
-        String.valueOf(port),
-        String.valueOf(heartbeatPort),
-        workdir,
-        String.valueOf(allowTsParserJsFiles),
-        String.valueOf(isSonarLint),
-        String.valueOf(debugMemory),
-        scriptFile.getParent(),
-        bundles
-      )
+      .scriptArgs(scriptArgs(serverConfig, scriptFile, bundles, processWorkerPorts, heartbeatPort))
       .env(getEnv());
 
     serverConfig
@@ -294,6 +392,29 @@ public class BridgeServerImpl implements BridgeServer {
     return nodeCommandBuilder.build();
   }
 
+  private static String[] scriptArgs(
+    BridgeServerConfig serverConfig,
+    File scriptFile,
+    String bundles,
+    List<Integer> processWorkerPorts,
+    int processHeartbeatPort
+  ) {
+    var config = serverConfig.config();
+    var allowTsParserJsFiles = config.getBoolean(ALLOW_TS_PARSER_JS_FILES).orElse(true);
+    var isSonarLint = serverConfig.product() == SonarProduct.SONARLINT;
+    var debugMemory = config.getBoolean(DEBUG_MEMORY).orElse(false);
+    return new String[] {
+      processWorkerPorts.stream().map(String::valueOf).collect(Collectors.joining(",")),
+      String.valueOf(processHeartbeatPort),
+      serverConfig.workDirAbsolutePath(),
+      String.valueOf(allowTsParserJsFiles),
+      String.valueOf(isSonarLint),
+      String.valueOf(debugMemory),
+      scriptFile.getParent(),
+      bundles,
+    };
+  }
+
   private static Map<String, String> getEnv() {
     Map<String, String> env = new HashMap<>();
     if (LOG.isDebugEnabled()) {
@@ -310,10 +431,15 @@ public class BridgeServerImpl implements BridgeServer {
       // required for SonarLint context to avoid restarting already failed server
       throw new ServerAlreadyFailedException();
     }
+    if (serverConfig.config().getBoolean(FRAMED_TRANSPORT_PROPERTY).orElse(false) && transport == http) {
+      LOG.debug("Using framed transport to send analysis requests to the bridge server");
+      transport = new FramedTransport(http);
+    }
     var providedPort = nodeAlreadyRunningPort();
     // if SONARJS_EXISTING_NODE_PROCESS_PORT is set, use existing node process
     if (providedPort != 0) {
       port = providedPort;
+      workerPorts = List.of(providedPort);
       serverHasStarted();
       LOG.info("Using existing Node.js process on port {}", port);
     }
@@ -327,7 +453,7 @@ public class BridgeServerImpl implements BridgeServer {
         throw new ServerAlreadyFailedException();
       }
       deploy(serverConfig.config());
-      List<Path> deployedBundles = rulesBundles.deploy(temporaryDeployLocation.resolve("package"));
+      List<Path> deployedBundles = rulesBundles.deploy(rulesBundlesDeployLocation);
       rulesBundles
         .getUcfgRulesBundle()
         .ifPresent(rulesBundle -> PluginInfo.setUcfgPluginVersion(rulesBundle.bundleVersion()));
@@ -379,65 +505,194 @@ public class BridgeServerImpl implements BridgeServer {
     );
     String request = GSON.toJson(initLinterRequest);
 
-    URI uri = null;
-    try {
-      uri = new URI("http", null, hostAddress, port, "/init-linter", null, null);
-    } catch (URISyntaxException e) {
-      throw new RuntimeException(e);
+    // every worker holds its own linter instances
+    for (var workerPort : workerPorts) {
+      URI uri = null;
+      try {
+        uri = new URI("http", null, hostAddress, workerPort, "/init-linter", null, null);
+      } catch (URISyntaxException e) {
+        throw new RuntimeException(e);
+      }
+
+      HttpResponse response = null;
+      try {
+        response = http.getResponse(uri, request);
+
+        if (response.statusCode() != 200) {
+          throw new IllegalStateException("Failed to initialize linter");
+        }
+        LOG.debug("Analysis responses of linter {} are encoded as {}", linterId, responseFormat(response.body()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
     }
+  }
 
-    HttpResponse response = null;
+  /**
+   * Bridge servers predating the negotiation of the response format only send JSON.
+   */
+  private static String responseFormat(@Nullable Object initLinterResponse) {
     try {
-      response = http.getResponse(uri, request);
-
-      if (response.statusCode() != 200) {
-        throw new IllegalStateException("Failed to initialize linter");
+      var response = GSON.fromJson(String.valueOf(initLinterResponse), InitLinterResponse.class);
+      if (response != null && response.responseFormat != null) {
+        return response.responseFormat;
       }
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    } catch (JsonSyntaxException e) {
+      // older bridge servers answer with plain text
     }
+    return "json";
   }
 
   @Override
   public AnalysisResponse analyzeJavaScript(JsAnalysisRequest request) throws IOException {
-    String json = GSON.toJson(request);
-    return response(request(json, "analyze-js"), request.filePath());
+    return analyze(request, "analyze-js", workerPortFor(request), request.filePath());
   }
 
   @Override
   public AnalysisResponse analyzeTypeScript(JsAnalysisRequest request) {
-    String json = GSON.toJson(request);
-    return response(request(json, "analyze-ts"), request.filePath());
+    return analyze(request, "analyze-ts", workerPortFor(request), request.filePath());
+  }
+
+  @Override
+  public List<AnalysisResponse> analyzeBatch(List<JsAnalysisRequest> requests) {
+    if (requests.isEmpty()) {
+      return List.of();
+    }
+    var workerPort = workerPortFor(requests.get(0));
+    try {
+      var response = transport.post(
+        GSON.toJson(new JsAnalysisBatchRequest(requests)),
+        url("analyze-batch", workerPort),
+        timeoutSeconds
+      );
+      try (var body = response.body()) {
+        var responses = AnalysisResponseDecoder.isProtobuf(response.contentType())
+          ? AnalysisResponseDecoder.decodeBatchProtobuf(body)
+          : AnalysisResponseDecoder.decodeBatch(body);
+        if (responses.size() != requests.size()) {
+          throw new IllegalStateException(
+            "Expected " + requests.size() + " responses from the bridge server, got " + responses.size()
+          );
+        }
+        return responses;
+      }
+    } catch (JsonSyntaxException | InvalidProtocolBufferException e) {
+      LOG.error("Failed to parse response for batch starting with file " + requests.get(0).filePath(), e);
+      throw new IllegalStateException("Failed to parse response", e);
+    } catch (IOException e) {
+      throw new IllegalStateException("The bridge server is unresponsive", e);
+    }
   }
 
   @Override
   public AnalysisResponse analyzeCss(CssAnalysisRequest request) {
-    String json = GSON.toJson(request);
-    return response(request(json, "analyze-css"), request.filePath());
+    return analyze(request, "analyze-css", nextWorkerPort(), request.filePath());
   }
 
   @Override
   public AnalysisResponse analyzeYaml(JsAnalysisRequest request) {
-    String json = GSON.toJson(request);
-    return response(request(json, "analyze-yaml"), request.filePath());
+    return analyze(request, "analyze-yaml", nextWorkerPort(), request.filePath());
   }
 
   @Override
   public AnalysisResponse analyzeHtml(JsAnalysisRequest request) {
-    var json = GSON.toJson(request);
-    return response(request(json, "analyze-html"), request.filePath());
+    return analyze(request, "analyze-html", nextWorkerPort(), request.filePath());
+  }
+
+  /**
+   * TypeScript programs live in the memory of the worker that created them, so requests referring
+   * to a program must be sent to that worker. Likewise, the watch programs created from tsconfig files
+   * in SonarLint are cached by the worker which analyzed the first file of their tsconfig files, and
+   * the next files are sent to it rather than having each worker build its own. Other requests go to
+   * the least busy worker, whichever bridge process it belongs to.
+   */
+  private int workerPortFor(JsAnalysisRequest request) {
+    var programId = request.programId();
+    if (programId != null) {
+      var programWorkerPort = programWorkerPorts.get(programId);
+      if (programWorkerPort != null) {
+        return programWorkerPort;
+      }
+    }
+    var tsConfigs = request.tsConfigs();
+    if (programId == null && tsConfigs != null && !tsConfigs.isEmpty()) {
+      return tsConfigWorkerPorts.computeIfAbsent(List.copyOf(tsConfigs), key -> nextProgramWorkerPort());
+    }
+    return nextWorkerPort();
+  }
+
+  /**
+   * Programs go to the worker holding the fewest of them, as they take most of its memory, and then to the least busy one.
+   */
+  private int nextProgramWorkerPort() {
+    var ports = workerPorts;
+    if (ports.size() <= 1) {
+      return port;
+    }
+    var programs = new HashMap<Integer, Integer>();
+    programWorkerPorts.values().forEach(workerPort -> programs.merge(workerPort, 1, Integer::sum));
+    tsConfigWorkerPorts.values().forEach(workerPort -> programs.merge(workerPort, 1, Integer::sum));
+    var offset = nextWorker.getAndIncrement();
+    var selected = port;
+    var lowestPrograms = Integer.MAX_VALUE;
+    var lowestInFlight = Integer.MAX_VALUE;
+    for (int i = 0; i < ports.size(); i++) {
+      var candidate = ports.get(Math.floorMod(offset + i, ports.size()));
+      var candidatePrograms = programs.getOrDefault(candidate, 0);
+      var inFlight = inFlight(candidate).get();
+      if (candidatePrograms < lowestPrograms || (candidatePrograms == lowestPrograms && inFlight < lowestInFlight)) {
+        selected = candidate;
+        lowestPrograms = candidatePrograms;
+        lowestInFlight = inFlight;
+      }
+    }
+    return selected;
+  }
+
+  private int nextWorkerPort() {
+    var ports = workerPorts;
+    if (ports.size() <= 1) {
+      return port;
+    }
+    // idle workers pick up the next request, ties are broken in turn so that programs spread over processes
+    var offset = nextWorker.getAndIncrement();
+    var selected = port;
+    var lowest = Integer.MAX_VALUE;
+    for (int i = 0; i < ports.size(); i++) {
+      var candidate = ports.get(Math.floorMod(offset + i, ports.size()));
+      var inFlight = inFlight(candidate).get();
+      if (inFlight < lowest) {
+        selected = candidate;
+        lowest = inFlight;
+      }
+    }
+    return selected;
+  }
+
+  private AtomicInteger inFlight(int workerPort) {
+    return inFlightRequests.computeIfAbsent(workerPort, p -> new AtomicInteger());
   }
 
   private BridgeResponse request(String json, String endpoint) {
+    return request(json, endpoint, port);
+  }
+
+  private BridgeResponse request(String json, String endpoint, int workerPort) {
+    var inFlight = inFlight(workerPort);
+    inFlight.incrementAndGet();
     try {
-      var response = http.post(json, url(endpoint), timeoutSeconds);
-      if (isFormData(response.contentType())) {
-        return FormDataUtils.parseFormData(response.contentType(), response.body());
-      } else {
-        return new BridgeServer.BridgeResponse(new String(response.body(), StandardCharsets.UTF_8));
+      var response = transport.post(json, url(endpoint, workerPort), timeoutSeconds);
+      try (var body = response.body()) {
+        if (isFormData(response.contentType())) {
+          return FormDataUtils.parseFormData(response.contentType(), body);
+        } else {
+          return new BridgeServer.BridgeResponse(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
       }
     } catch (IOException e) {
       throw new IllegalStateException("The bridge server is unresponsive", e);
+    } finally {
+      inFlight.decrementAndGet();
     }
   }
 
@@ -445,17 +700,27 @@ public class BridgeServerImpl implements BridgeServer {
     return contentTypeHeader != null && contentTypeHeader.contains("multipart/form-data");
   }
 
-  private static AnalysisResponse response(BridgeResponse result, String filePath) {
+  private AnalysisResponse analyze(Object request, String endpoint, int workerPort, String filePath) {
+    var inFlight = inFlight(workerPort);
+    inFlight.incrementAndGet();
     try {
-      return new AnalysisResponse(
-        GSON.fromJson(result.json(), AnalysisResponse.class),
-        result.ast()
-      );
-    } catch (JsonSyntaxException e) {
-      String msg =
-        "Failed to parse response for file " + filePath + ": \n-----\n" + result + "\n-----\n";
-      LOG.error(msg, e);
+      var response = transport.post(GSON.toJson(request), url(endpoint, workerPort), timeoutSeconds);
+      try (var body = response.body()) {
+        if (isFormData(response.contentType())) {
+          return FormDataUtils.parseAnalysisResponse(response.contentType(), body);
+        } else if (AnalysisResponseDecoder.isProtobuf(response.contentType())) {
+          return AnalysisResponseDecoder.decodeProtobuf(body);
+        } else {
+          return AnalysisResponseDecoder.decode(body);
+        }
+      }
+    } catch (JsonSyntaxException | InvalidProtocolBufferException e) {
+      LOG.error("Failed to parse response for file " + filePath, e);
       throw new IllegalStateException("Failed to parse response", e);
+    } catch (IOException e) {
+      throw new IllegalStateException("The bridge server is unresponsive", e);
+    } finally {
+      inFlight.decrementAndGet();
     }
   }
 
@@ -463,8 +728,20 @@ public class BridgeServerImpl implements BridgeServer {
     if (nodeCommand == null && status != Status.STARTED) {
       return false;
     }
+    if (!isAlive(heartbeatPort)) {
+      return false;
+    }
+    for (var process : additionalProcesses) {
+      if (!isAlive(process.heartbeatPort())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isAlive(int processHeartbeatPort) {
     try {
-      var heartBeatURI = new URI("http", null, hostAddress, heartbeatPort, "/", null, null);
+      var heartBeatURI = new URI("http", null, hostAddress, processHeartbeatPort, "/", null, null);
       var response = http.getResponse(heartBeatURI);
       return response.statusCode() == 200; // todo: there is no contract for the heartbeat service, we assume here that it returns 200 when everything is fine; potentially, we could also establish that it returns an error from the 5xx range
     } catch (IOException e) {
@@ -476,8 +753,14 @@ public class BridgeServerImpl implements BridgeServer {
 
   @Override
   public boolean newTsConfig() {
-    var response = request("", "new-tsconfig").json();
-    return "OK!".equals(response);
+    // the workers drop their watch programs, which are placed again from the next requests
+    tsConfigWorkerPorts.clear();
+    var result = true;
+    for (var workerPort : workerPorts) {
+      var response = request("", "new-tsconfig", workerPort).json();
+      result &= "OK!".equals(response);
+    }
+    return result;
   }
 
   TsConfigResponse tsConfigFiles(String tsconfigAbsolutePath) {
@@ -510,17 +793,23 @@ public class BridgeServerImpl implements BridgeServer {
 
   @Override
   public TsProgram createProgram(TsProgramRequest tsProgramRequest) {
-    var response = request(GSON.toJson(tsProgramRequest), "create-program");
-    return GSON.fromJson(response.json(), TsProgram.class);
+    var workerPort = nextProgramWorkerPort();
+    var response = request(GSON.toJson(tsProgramRequest), "create-program", workerPort);
+    var program = GSON.fromJson(response.json(), TsProgram.class);
+    if (program.programId() != null) {
+      programWorkerPorts.put(program.programId(), workerPort);
+    }
+    return program;
   }
 
   @Override
   public boolean deleteProgram(TsProgram tsProgram) {
     var programToDelete = new TsProgram(tsProgram.programId(), null, null);
+    var workerPort = tsProgram.programId() == null ? null : programWorkerPorts.remove(tsProgram.programId());
 
     URI uri = null;
     try {
-      uri = new URI("http", null, hostAddress, heartbeatPort, "/delete-program", null, null);
+      uri = new URI("http", null, hostAddress, workerPort == null ? port : workerPort, "/delete-program", null, null);
     } catch (URISyntaxException e) {
       throw new RuntimeException(e);
     }
@@ -548,23 +837,52 @@ public class BridgeServerImpl implements BridgeServer {
   public void clean() {
     LOG.info("Closing heartbeat service");
     heartbeatService.shutdownNow();
-    if (nodeCommand != null && isAlive()) {
-      URI closeURI = null;
-      try {
-        closeURI = new URI("http", null, hostAddress, heartbeatPort, "/close", null, null);
-
-        http.getResponse(closeURI);
-        nodeCommand.stop();
-        nodeCommand.waitFor();
-        nodeCommand = null;
-      } catch (URISyntaxException | IOException e) {
-        throw new RuntimeException(e);
+    if (nodeCommand != null) {
+      // processes are closed one by one, one of them being down doesn't keep the others running
+      closeProcess(nodeCommand, heartbeatPort);
+      for (var process : additionalProcesses) {
+        closeProcess(process.nodeCommand(), process.heartbeatPort());
       }
+      nodeCommand = null;
+    }
+    additionalProcesses.clear();
+    if (transport instanceof FramedTransport framedTransport) {
+      framedTransport.close();
+      transport = http;
     }
     port = 0;
+    workerPorts = List.of();
+    programWorkerPorts.clear();
+    tsConfigWorkerPorts.clear();
+    inFlightRequests.clear();
     status = Status.NOT_STARTED;
   }
 
+  private void closeProcess(NodeCommand processCommand, int processHeartbeatPort) {
+    try {
+      if (isAlive(processHeartbeatPort)) {
+        close(processCommand, processHeartbeatPort);
+      } else {
+        // the process may still be running without answering its heartbeat
+        processCommand.stop();
+        processCommand.waitFor();
+      }
+    } catch (RuntimeException e) {
+      LOG.warn("Failed to close the bridge server process {}", processCommand, e);
+    }
+  }
+
+  private void close(NodeCommand processCommand, int processHeartbeatPort) {
+    try {
+      var closeURI = new URI("http", null, hostAddress, processHeartbeatPort, "/close", null, null);
+      http.getResponse(closeURI);
+      processCommand.stop();
+      processCommand.waitFor();
+    } catch (URISyntaxException | IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   /**
    * Required for testing purposes
    */
@@ -591,9 +909,9 @@ public class BridgeServerImpl implements BridgeServer {
     clean();
   }
 
-  private URI url(String endpoint) {
+  private URI url(String endpoint, int workerPort) {
     try {
-      return new URI("http", null, hostAddress, port, "/" + endpoint, null, null);
+      return new URI("http", null, hostAddress, workerPort, "/" + endpoint, null, null);
     } catch (URISyntaxException e) {
       throw new IllegalStateException("Invalid URI: " + e.getMessage(), e);
     }
@@ -640,6 +958,8 @@ public class BridgeServerImpl implements BridgeServer {
     List<String> globals;
     String baseDir;
     List<String> exclusions;
+    // formats of analysis responses supported by the plugin, the bridge picks one of them
+    List<String> responseFormats = RESPONSE_FORMATS;
 
     InitLinterRequest(
       String linterId,
@@ -658,6 +978,16 @@ public class BridgeServerImpl implements BridgeServer {
     }
   }
 
+  static class InitLinterResponse {
+
+    String responseFormat;
+  }
+
+  /**
+   * Bridge server process started in addition to the primary one, when several are configured.
+   */
+  private record BridgeProcess(NodeCommand nodeCommand, int heartbeatPort) {}
+
   static class LogOutputConsumer implements Consumer<String> {
 
     @Override
@@ -56,8 +56,9 @@ public class BundleImpl implements Bundle {
     if (bundle == null) {
       throw new IllegalStateException("The bridge server was not found in the plugin jar");
     }
-    BundleUtils.extractFromClasspath(bundle, deployLocation);
-    this.deployLocation = deployLocation;
+    try (bundle) {
+      this.deployLocation = DeploymentCache.deploy(bundle, deployLocation, "bridge");
+    }
   }
 
   @Override
@@ -0,0 +1,94 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Buffer into which responses and ASTs are read before being decoded, reused by the decodings of a thread instead of
+ * allocating new arrays for each file. Decoded messages never reference the buffer, which can then be reused as soon
+ * as the decoding returns, e.g. when a Protobuf response, aliased in a buffer, holds an AST decoded in another one.
+ */
+final class DecodeBuffer implements AutoCloseable {
+
+  private static final int INITIAL_SIZE = 64 * 1024;
+  // buffers grown for unusually large files are not kept
+  private static final int MAX_RETAINED_SIZE = 8 * 1024 * 1024;
+  private static final int MAX_RETAINED_BUFFERS = 2;
+  private static final ThreadLocal<Deque<DecodeBuffer>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+  private byte[] bytes = new byte[INITIAL_SIZE];
+  private int length;
+
+  private DecodeBuffer() {}
+
+  static DecodeBuffer acquire() {
+    var buffer = POOL.get().poll();
+    return buffer == null ? new DecodeBuffer() : buffer;
+  }
+
+  DecodeBuffer readFrom(InputStream input) throws IOException {
+    length = 0;
+    int read;
+    while ((read = input.read(bytes, length, bytes.length - length)) >= 0) {
+      length += read;
+      if (length == bytes.length) {
+        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+      }
+    }
+    return this;
+  }
+
+  DecodeBuffer copyOf(ByteString content) {
+    if (content.size() > bytes.length) {
+      bytes = new byte[Math.max(content.size(), bytes.length * 2)];
+    }
+    content.copyTo(bytes, 0);
+    length = content.size();
+    return this;
+  }
+
+  byte[] array() {
+    return bytes;
+  }
+
+  int length() {
+    return length;
+  }
+
+  CodedInputStream newCodedInput() {
+    return CodedInputStream.newInstance(bytes, 0, length);
+  }
+
+  @Override
+  public void close() {
+    var pool = POOL.get();
+    if (bytes.length <= MAX_RETAINED_SIZE && pool.size() < MAX_RETAINED_BUFFERS) {
+      length = 0;
+      pool.push(this);
+    }
+  }
+}
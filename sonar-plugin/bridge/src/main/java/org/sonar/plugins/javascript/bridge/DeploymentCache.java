@@ -0,0 +1,103 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts archives into directories named after the hash of their contents, so that an archive deployed under a shared
+ * root, e.g. the Sonar user home, is only extracted once for all the analyses of the machine.
+ * <p>
+ * Extractions are protected by a single file lock per root, and a deployment is only reused once its marker file has
+ * been written: an extraction which was interrupted is started over. A complete deployment is never modified nor deleted,
+ * as other analyses may be running from it.
+ */
+class DeploymentCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DeploymentCache.class);
+  private static final String DEPLOYED_MARKER = ".deployed";
+  private static final String LOCK = ".lock";
+  private static final int HASH_BYTES = 16;
+
+  private DeploymentCache() {
+    // utility class
+  }
+
+  /**
+   * @return the directory where the archive is deployed
+   */
+  static synchronized Path deploy(InputStream archive, Path root, String prefix) throws IOException {
+    var contents = archive.readAllBytes();
+    var location = root.resolve(prefix + "-" + hash(contents));
+    var marker = location.resolve(DEPLOYED_MARKER);
+    if (Files.exists(marker)) {
+      LOG.trace("Reusing deployment in {}", location);
+      return location;
+    }
+    Files.createDirectories(root);
+    try (
+      var channel = FileChannel.open(root.resolve(LOCK), CREATE, WRITE);
+      var lock = channel.lock()
+    ) {
+      // another process may have completed the deployment while we were waiting for the lock
+      if (!Files.exists(marker)) {
+        delete(location);
+        BundleUtils.extractFromClasspath(new ByteArrayInputStream(contents), location);
+        Files.createDirectories(location);
+        Files.createFile(marker);
+      }
+    }
+    return location;
+  }
+
+  private static void delete(Path location) throws IOException {
+    if (!Files.exists(location)) {
+      return;
+    }
+    try (var paths = Files.walk(location)) {
+      for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private static String hash(byte[] contents) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(contents);
+      return HexFormat.of().formatHex(digest, 0, HASH_BYTES);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -96,6 +96,11 @@ import org.sonar.plugins.javascript.bridge.protobuf.WhileStatement;
 import org.sonar.plugins.javascript.bridge.protobuf.WithStatement;
 import org.sonar.plugins.javascript.bridge.protobuf.YieldExpression;
 
+/**
+ * Converts the protobuf AST into ESTree nodes. The lists of children are converted lazily, when they are first
+ * accessed, see {@link LazyNodeList}: a node type mismatch deep in the tree is then only reported when the faulty node
+ * is reached.
+ */
 public class ESTreeFactory {
 
   private ESTreeFactory() {
@@ -193,7 +198,7 @@ public class ESTreeFactory {
   }
 
   private static <T> List<T> from(List<Node> bodyList, Class<T> clazz) {
-    return bodyList.stream().map(n -> from(n, clazz)).toList();
+    return LazyNodeList.of(bodyList, n -> from(n, clazz));
   }
 
 
@@ -322,7 +327,7 @@ public class ESTreeFactory {
   private static ESTree.ArrayPattern fromArrayPatternType(Node node) {
     ArrayPattern arrayPattern = node.getArrayPattern();
     return new ESTree.ArrayPattern(fromLocation(node.getLoc()),
-      arrayPattern.getElementsList().stream().map(ESTreeFactory::fromArrayPatternElement).toList());
+      LazyNodeList.of(arrayPattern.getElementsList(), ESTreeFactory::fromArrayPatternElement));
   }
 
   private static Optional<ESTree.Pattern> fromArrayPatternElement(ArrayElement element) {
@@ -482,7 +487,7 @@ public class ESTreeFactory {
   private static ESTree.ArrayExpression fromArrayExpressionType(Node node) {
     ArrayExpression arrayExpression = node.getArrayExpression();
     return new ESTree.ArrayExpression(fromLocation(node.getLoc()),
-      arrayExpression.getElementsList().stream().map(ESTreeFactory::fromArrayExpressionElement).toList());
+      LazyNodeList.of(arrayExpression.getElementsList(), ESTreeFactory::fromArrayExpressionElement));
   }
 
   private static Optional<ESTree.ExpressionOrSpreadElement> fromArrayExpressionElement(ArrayElement element) {
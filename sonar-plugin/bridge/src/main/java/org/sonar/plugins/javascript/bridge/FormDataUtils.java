@@ -19,16 +19,17 @@
  */
 package org.sonar.plugins.javascript.bridge;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.plugins.javascript.api.estree.FlatAst;
 import org.sonar.plugins.javascript.bridge.protobuf.Node;
 
 public class FormDataUtils {
@@ -50,49 +51,98 @@ public class FormDataUtils {
     throw new IllegalStateException("Utility class");
   }
 
-  public static BridgeServer.BridgeResponse parseFormData(String contentType, byte[] responseBody) {
-    String boundary = "--" + contentType.split("boundary=")[1];
-    byte[] boundaryBytes = boundary.getBytes(StandardCharsets.ISO_8859_1);
-    List<byte[]> parts = split(responseBody, boundaryBytes);
+  public static BridgeServer.BridgeResponse parseFormData(String contentType, InputStream responseBody) {
+    var parts = readParts(
+      contentType,
+      responseBody,
+      json -> new String(json.readAllBytes(), StandardCharsets.UTF_8)
+    );
+    return new BridgeServer.BridgeResponse(parts.json(), parts.ast().protobuf());
+  }
 
-    String json = null;
-    byte[] ast = null;
+  static BridgeServer.AnalysisResponse parseAnalysisResponse(String contentType, InputStream responseBody) {
+    var parts = readParts(contentType, responseBody, AnalysisResponseDecoder::decode);
+    return new BridgeServer.AnalysisResponse(parts.json(), parts.ast().protobuf(), parts.ast().flat());
+  }
 
-    for (byte[] part : parts) {
-      int separatorIndex = indexOf(part, "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
-      if (separatorIndex == -1) {
-        // Skip if there's no body
-        continue;
-      }
+  @FunctionalInterface
+  private interface JsonPartReader<T> {
+    T read(InputStream json) throws IOException;
+  }
 
-      // I remove the first 2 bytes, representing "\r\n" before the headers
-      byte[] headers = Arrays.copyOfRange(part, 2, separatorIndex);
-      // I remove the first 4 bytes and last 2.
-      // They are the "\r\n\r\n" before and "\r\n" after the payload
-      byte[] body = Arrays.copyOfRange(part, separatorIndex + 4, part.length - 2);
+  private record Parts<T>(T json, Ast ast) {}
 
-      String headersStr = new String(headers, StandardCharsets.UTF_8);
+  /**
+   * The AST of a response, encoded either in protobuf or in the flat format, depending on the request.
+   */
+  record Ast(@Nullable Node protobuf, @Nullable FlatAst flat) {
+    static final Ast NONE = new Ast(null, null);
+  }
+
+  private static <T> Parts<T> readParts(String contentType, InputStream responseBody, JsonPartReader<T> jsonPartReader) {
+    var reader = new MultipartReader(responseBody, contentType.split("boundary=")[1]);
+
+    T json = null;
+    var ast = Ast.NONE;
+    var hasAst = false;
 
-      if (headersStr.contains("json")) {
-        json = new String(body, StandardCharsets.UTF_8);
-      } else if (headersStr.contains("ast")) {
-        ast = body;
+    try {
+      for (var part = reader.nextPart(); part != null; part = reader.nextPart()) {
+        if (part.headers().contains("json")) {
+          json = jsonPartReader.read(part.body());
+        } else if (part.headers().contains("ast")) {
+          hasAst = true;
+          try (var buffer = DecodeBuffer.acquire()) {
+            buffer.readFrom(part.body());
+            ast = parseAst(buffer.array(), buffer.length());
+          }
+        }
       }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
     }
-    if (json == null || ast == null) {
+    if (json == null || !hasAst) {
       throw new IllegalStateException("Data missing from response");
     }
+    return new Parts<>(json, ast);
+  }
+
+  static Ast parseAst(ByteString ast) throws IOException {
+    try (var buffer = DecodeBuffer.acquire()) {
+      buffer.copyOf(ast);
+      return parseAst(buffer.array(), buffer.length());
+    }
+  }
+
+  /**
+   * The AST is decoded from the first bytes of the given array, which can be reused once this method returns.
+   */
+  static Ast parseAst(byte[] ast, int length) throws IOException {
+    if (FlatAst.isFlatAst(ast, 0, length)) {
+      return new Ast(null, parseFlatAst(ast, length));
+    }
+    return new Ast(parseProtobuf(CodedInputStream.newInstance(ast, 0, length)), null);
+  }
+
+  @CheckForNull
+  private static FlatAst parseFlatAst(byte[] ast, int length) {
     try {
-      return new BridgeServer.BridgeResponse(json, parseProtobuf(ast));
-    } catch (IOException e) {
-      throw new IllegalStateException(e);
+      return FlatAst.decode(ast, 0, length);
+    } catch (IllegalArgumentException e) {
+      // like with protobuf, failing to decode the AST should not prevent the analysis from continuing
+      LOG.error("Failed to decode flat AST: {}", e.getMessage());
     }
+    return null;
   }
 
   @CheckForNull
-  private static Node parseProtobuf(byte[] ast) throws IOException {
+  static Node parseProtobuf(InputStream ast) throws IOException {
+    return parseProtobuf(CodedInputStream.newInstance(ast));
+  }
+
+  @CheckForNull
+  private static Node parseProtobuf(CodedInputStream input) throws IOException {
     try {
-      CodedInputStream input = CodedInputStream.newInstance(ast);
       input.setRecursionLimit(PROTOBUF_RECURSION_LIMIT);
       return Node.parseFrom(input);
     } catch (InvalidProtocolBufferException e) {
@@ -102,39 +152,4 @@ public class FormDataUtils {
     }
     return null;
   }
-
-  private static int indexOf(byte[] array, byte[] pattern) {
-    for (int i = 0; i < array.length - pattern.length + 1; i++) {
-      boolean found = true;
-      for (int j = 0; j < pattern.length; j++) {
-        if (array[i + j] != pattern[j]) {
-          found = false;
-          break;
-        }
-      }
-      if (found) return i;
-    }
-    return -1;
-  }
-
-  private static List<byte[]> split(byte[] array, byte[] delimiter) {
-    List<byte[]> byteArrays = new LinkedList<>();
-    if (delimiter.length == 0) {
-      return byteArrays;
-    }
-    int begin = 0;
-
-    outer:
-    for (int i = 0; i < array.length - delimiter.length + 1; i++) {
-      for (int j = 0; j < delimiter.length; j++) {
-        if (array[i + j] != delimiter[j]) {
-          continue outer;
-        }
-      }
-      byteArrays.add(Arrays.copyOfRange(array, begin, i));
-      begin = i + delimiter.length;
-    }
-    byteArrays.add(Arrays.copyOfRange(array, begin, array.length));
-    return byteArrays;
-  }
 }
@@ -0,0 +1,233 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends analysis requests to the bridge as length-prefixed frames over a single long-lived
+ * connection per worker, instead of one HTTP exchange per request. Each frame carries a request
+ * id, so several requests can be outstanding on the same connection and responses can come back
+ * in any order.
+ * <p>
+ * A connection starts with {@link #PREFACE}, which the bridge uses to tell it apart from HTTP
+ * connections on the same port. Then, all integers being big-endian:
+ * <ul>
+ *   <li>request frame: length (int32), request id (int32), path length (uint16), path (UTF-8), JSON body</li>
+ *   <li>response frame: length (int32), request id (int32), status code (int32), content type length (uint16),
+ *   content type (UTF-8), body</li>
+ * </ul>
+ * Only {@link #post(String, URI, long)} uses frames, other calls are delegated to the HTTP client.
+ */
+class FramedTransport implements Http, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FramedTransport.class);
+
+  static final byte[] PREFACE = { 0, 'S', 'J', 'S' };
+
+  private final Http http;
+  private final Map<InetSocketAddress, Connection> connections = new ConcurrentHashMap<>();
+
+  FramedTransport(Http http) {
+    this.http = http;
+  }
+
+  @Override
+  public Response post(String json, URI uri, long timeoutSeconds) throws IOException {
+    var address = new InetSocketAddress(uri.getHost(), uri.getPort());
+    return connection(address).send(uri.getPath(), json.getBytes(UTF_8), timeoutSeconds);
+  }
+
+  private Connection connection(InetSocketAddress address) throws IOException {
+    var connection = connections.get(address);
+    if (connection == null || !connection.isOpen()) {
+      synchronized (connections) {
+        connection = connections.get(address);
+        if (connection == null || !connection.isOpen()) {
+          connection = new Connection(address);
+          connections.put(address, connection);
+        }
+      }
+    }
+    return connection;
+  }
+
+  @Override
+  public String get(URI uri) throws IOException {
+    return http.get(uri);
+  }
+
+  @Override
+  public HttpResponse getResponse(URI uri) throws IOException {
+    return http.getResponse(uri);
+  }
+
+  @Override
+  public HttpResponse getResponse(URI uri, String json) throws IOException {
+    return http.getResponse(uri, json);
+  }
+
+  @Override
+  public void close() {
+    connections.values().forEach(Connection::close);
+    connections.clear();
+  }
+
+  private static class Connection implements Closeable {
+
+    private static final int REQUEST_HEADER_SIZE = Integer.BYTES + Integer.BYTES + Short.BYTES;
+    private static final int RESPONSE_HEADER_SIZE =
+      Integer.BYTES + Integer.BYTES + Integer.BYTES + Short.BYTES;
+    // far above the largest response, batches and ASTs included, so that a corrupt length can't exhaust the heap
+    private static final int MAX_FRAME_LENGTH = 512 * 1024 * 1024;
+
+    private final SocketChannel channel;
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<Response>> pendingRequests =
+      new ConcurrentHashMap<>();
+
+    Connection(InetSocketAddress address) throws IOException {
+      channel = SocketChannel.open(address);
+      channel.write(ByteBuffer.wrap(PREFACE));
+      var reader = new Thread(this::readFrames, "sonarjs-bridge-connection-" + address.getPort());
+      reader.setDaemon(true);
+      reader.start();
+      LOG.debug("Opened framed connection to the bridge server on port {}", address.getPort());
+    }
+
+    boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    Response send(String path, byte[] body, long timeoutSeconds) throws IOException {
+      var requestId = nextRequestId.incrementAndGet();
+      var response = new CompletableFuture<Response>();
+      pendingRequests.put(requestId, response);
+
+      var pathBytes = path.getBytes(UTF_8);
+      var frame = ByteBuffer.allocate(REQUEST_HEADER_SIZE + pathBytes.length + body.length);
+      frame
+        .putInt(frame.capacity() - Integer.BYTES)
+        .putInt(requestId)
+        .putShort((short) pathBytes.length)
+        .put(pathBytes)
+        .put(body)
+        .flip();
+      try {
+        synchronized (channel) {
+          while (frame.hasRemaining()) {
+            channel.write(frame);
+          }
+        }
+        return response.get(timeoutSeconds, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Request " + path + " was interrupted.", e);
+      } catch (TimeoutException e) {
+        throw new HttpTimeoutException("Request " + path + " timed out");
+      } catch (ExecutionException e) {
+        throw new IOException("Request " + path + " failed", e.getCause());
+      } finally {
+        pendingRequests.remove(requestId);
+      }
+    }
+
+    private void readFrames() {
+      var header = ByteBuffer.allocate(RESPONSE_HEADER_SIZE);
+      try {
+        while (true) {
+          header.clear();
+          readFully(header);
+          header.flip();
+          var frameLength = header.getInt();
+          if (frameLength < RESPONSE_HEADER_SIZE - Integer.BYTES || frameLength > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid response frame length " + frameLength);
+          }
+          var requestId = header.getInt();
+          // the status code is not exposed, like for HTTP responses
+          header.getInt();
+          var contentTypeLength = Short.toUnsignedInt(header.getShort());
+          var bodyLength = frameLength - (RESPONSE_HEADER_SIZE - Integer.BYTES) - contentTypeLength;
+          if (bodyLength < 0) {
+            throw new IOException("Invalid response frame length " + frameLength + " for content type length " + contentTypeLength);
+          }
+          var contentType = new byte[contentTypeLength];
+          readFully(ByteBuffer.wrap(contentType));
+          var body = new byte[bodyLength];
+          readFully(ByteBuffer.wrap(body));
+
+          var response = pendingRequests.get(requestId);
+          if (response != null) {
+            response.complete(
+              new Response(
+                contentType.length == 0 ? null : new String(contentType, UTF_8),
+                new ByteArrayInputStream(body)
+              )
+            );
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        // the frames can't be told apart anymore: the connection is dropped, and replaced on the next request
+        if (channel.isOpen()) {
+          LOG.debug("Framed connection to the bridge server failed", e);
+        }
+        close();
+        pendingRequests.values().forEach(response -> response.completeExceptionally(e));
+      }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw new EOFException("Connection closed by the bridge server");
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to close framed connection to the bridge server", e);
+      }
+    }
+  }
+}
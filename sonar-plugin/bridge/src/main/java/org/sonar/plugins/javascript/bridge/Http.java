@@ -20,6 +20,7 @@
 package org.sonar.plugins.javascript.bridge;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -42,7 +43,10 @@ public interface Http {
   HttpResponse getResponse(URI uri) throws IOException;
   HttpResponse getResponse(URI uri, String json) throws IOException;
 
-  record Response(@Nullable String contentType, byte[] body) {}
+  /**
+   * The body is read while the response is being received, it must be closed once consumed.
+   */
+  record Response(@Nullable String contentType, InputStream body) {}
 
   class JdkHttp implements Http {
 
@@ -64,7 +68,7 @@ public interface Http {
         .build();
 
       try {
-        var response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        var response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
         var contentType = response.headers().firstValue("Content-Type")
           .orElse(null);
         return new Response(contentType, response.body());
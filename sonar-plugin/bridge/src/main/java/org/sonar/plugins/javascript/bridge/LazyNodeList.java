@@ -0,0 +1,79 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Read-only view over a list of protobuf messages, converting each element only the first time it is accessed. The
+ * children of the ESTree nodes are mostly lists (statements, arguments, properties...), so a consumer which only
+ * visits part of the tree only pays for the conversion of that part.
+ * <p>
+ * The list may be read from several threads: each element is published with a compare-and-exchange, so that all the
+ * readers get the same instance even when they convert it concurrently.
+ */
+final class LazyNodeList<S, T> extends AbstractList<T> implements RandomAccess {
+
+  private final List<S> source;
+  private final Function<S, T> converter;
+  private final AtomicReferenceArray<T> converted;
+
+  private LazyNodeList(List<S> source, Function<S, T> converter) {
+    this.source = source;
+    this.converter = converter;
+    this.converted = new AtomicReferenceArray<>(source.size());
+  }
+
+  static <S, T> List<T> of(List<S> source, Function<S, T> converter) {
+    return source.isEmpty() ? List.of() : new LazyNodeList<>(source, converter);
+  }
+
+  @Override
+  public T get(int index) {
+    Objects.checkIndex(index, converted.length());
+    var element = converted.get(index);
+    if (element == null) {
+      var conversion = converter.apply(source.get(index));
+      var witness = converted.compareAndExchange(index, null, conversion);
+      element = witness == null ? conversion : witness;
+    }
+    return element;
+  }
+
+  @Override
+  public int size() {
+    return converted.length();
+  }
+
+  int convertedCount() {
+    var count = 0;
+    for (var i = 0; i < converted.length(); i++) {
+      if (converted.get(i) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
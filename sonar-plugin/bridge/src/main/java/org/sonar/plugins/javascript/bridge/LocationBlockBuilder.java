@@ -0,0 +1,90 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import java.util.Arrays;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Location;
+import org.sonar.plugins.javascript.bridge.BridgeServer.LocationBlock;
+
+/**
+ * Accumulates locations into growing primitive arrays, for when their number is not known upfront.
+ */
+final class LocationBlockBuilder {
+
+  private int[] startLines;
+  private int[] startCols;
+  private int[] endLines;
+  private int[] endCols;
+  private int size;
+
+  LocationBlockBuilder() {
+    this(16);
+  }
+
+  LocationBlockBuilder(int initialCapacity) {
+    var capacity = Math.max(initialCapacity, 1);
+    startLines = new int[capacity];
+    startCols = new int[capacity];
+    endLines = new int[capacity];
+    endCols = new int[capacity];
+  }
+
+  void add(Location location) {
+    add(location.startLine(), location.startCol(), location.endLine(), location.endCol());
+  }
+
+  void add(int startLine, int startCol, int endLine, int endCol) {
+    if (size == startLines.length) {
+      var capacity = size * 2;
+      startLines = Arrays.copyOf(startLines, capacity);
+      startCols = Arrays.copyOf(startCols, capacity);
+      endLines = Arrays.copyOf(endLines, capacity);
+      endCols = Arrays.copyOf(endCols, capacity);
+    }
+    startLines[size] = startLine;
+    startCols[size] = startCol;
+    endLines[size] = endLine;
+    endCols[size] = endCol;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Drops the locations added after the first {@code size} ones.
+   */
+  void truncate(int size) {
+    this.size = Math.min(this.size, size);
+  }
+
+  LocationBlock build() {
+    if (size == 0) {
+      return LocationBlock.EMPTY;
+    }
+    return new LocationBlock(
+      Arrays.copyOf(startLines, size),
+      Arrays.copyOf(startCols, size),
+      Arrays.copyOf(endLines, size),
+      Arrays.copyOf(endCols, size)
+    );
+  }
+}
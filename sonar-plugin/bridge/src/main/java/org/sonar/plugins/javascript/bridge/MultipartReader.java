@@ -0,0 +1,238 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.CheckForNull;
+
+/**
+ * Reads a multipart/form-data body part by part, without holding the parts in memory: the body of
+ * each part is an {@link InputStream} reading directly from the response. Delimiters are located
+ * with the Knuth-Morris-Pratt algorithm, so that every byte of the response is examined once.
+ * <p>
+ * The body of a part can only be read until the next call to {@link #nextPart()}.
+ */
+final class MultipartReader {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final byte[] HEADERS_END = "\r\n\r\n".getBytes(ISO_8859_1);
+
+  private final InputStream in;
+  private final byte[] delimiter;
+  private final int[] failure;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private PartInputStream currentPart;
+  private boolean finished;
+
+  record Part(String headers, InputStream body) {}
+
+  MultipartReader(InputStream in, String boundary) {
+    this.in = in;
+    this.delimiter = ("\r\n--" + boundary).getBytes(ISO_8859_1);
+    this.failure = failureFunction(delimiter);
+  }
+
+  /**
+   * Returns the next part, after skipping what was not read of the current one, or null when the
+   * closing delimiter has been reached.
+   */
+  @CheckForNull
+  Part nextPart() throws IOException {
+    if (finished) {
+      return null;
+    }
+    if (currentPart == null) {
+      // the first delimiter is not preceded by a line break, we consider it already matched
+      currentPart = new PartInputStream(2);
+    }
+    currentPart.skipRemaining();
+
+    var first = readByte();
+    var second = readByte();
+    if (first == -1 || (first == '-' && second == '-')) {
+      finished = true;
+      return null;
+    }
+    // ignore transport padding until the end of the delimiter line
+    while (second != '\n') {
+      if (second == -1) {
+        throw new EOFException("Unexpected end of multipart body");
+      }
+      second = readByte();
+    }
+    var headers = readHeaders();
+    currentPart = new PartInputStream(0);
+    return new Part(headers, currentPart);
+  }
+
+  private String readHeaders() throws IOException {
+    var headers = new ByteArrayOutputStream();
+    var matched = 0;
+    while (matched < HEADERS_END.length) {
+      var b = readByte();
+      if (b == -1) {
+        throw new EOFException("Unexpected end of multipart body");
+      }
+      headers.write(b);
+      if (b == HEADERS_END[matched]) {
+        matched++;
+      } else {
+        matched = b == HEADERS_END[0] ? 1 : 0;
+      }
+    }
+    return headers.toString(UTF_8);
+  }
+
+  private int readByte() throws IOException {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  private boolean fill() throws IOException {
+    var read = in.read(buffer, 0, buffer.length);
+    if (read <= 0) {
+      return false;
+    }
+    position = 0;
+    limit = read;
+    return true;
+  }
+
+  private static int[] failureFunction(byte[] pattern) {
+    var result = new int[pattern.length];
+    var k = 0;
+    for (int i = 1; i < pattern.length; i++) {
+      while (k > 0 && pattern[k] != pattern[i]) {
+        k = result[k - 1];
+      }
+      if (pattern[k] == pattern[i]) {
+        k++;
+      }
+      result[i] = k;
+    }
+    return result;
+  }
+
+  /**
+   * Streams the body of a part. Bytes which may start a delimiter are held back until the
+   * delimiter is either completed, ending the part, or ruled out, in which case they are part of
+   * the body. As they are a prefix of the delimiter, they are not copied anywhere.
+   */
+  private final class PartInputStream extends InputStream {
+
+    private int matched;
+    private int heldBack;
+    private int released;
+    private int pendingByte = -1;
+    private boolean ended;
+
+    PartInputStream(int matched) {
+      this.matched = matched;
+    }
+
+    @Override
+    public int read() throws IOException {
+      var single = new byte[1];
+      return read(single, 0, 1) == -1 ? -1 : (single[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      var count = 0;
+      while (count < len) {
+        if (released < heldBack) {
+          b[off + count++] = delimiter[released++];
+        } else if (pendingByte >= 0) {
+          b[off + count++] = (byte) pendingByte;
+          pendingByte = -1;
+        } else if (ended) {
+          break;
+        } else if (position == limit && !fill()) {
+          throw new EOFException("Unexpected end of multipart body");
+        } else if (matched == 0) {
+          count += copyUntilDelimiterStart(b, off + count, len - count);
+        } else {
+          step(buffer[position++]);
+        }
+      }
+      return count == 0 ? -1 : count;
+    }
+
+    private int copyUntilDelimiterStart(byte[] b, int off, int len) {
+      var end = Math.min(limit, position + len);
+      var i = position;
+      while (i < end && buffer[i] != delimiter[0]) {
+        i++;
+      }
+      var copied = i - position;
+      System.arraycopy(buffer, position, b, off, copied);
+      position = i;
+      if (i < end) {
+        position++;
+        matched = 1;
+      }
+      return copied;
+    }
+
+    private void step(byte c) {
+      var q = matched;
+      while (q > 0 && delimiter[q] != c) {
+        q = failure[q - 1];
+      }
+      var next = delimiter[q] == c ? (q + 1) : 0;
+      if (next == delimiter.length) {
+        ended = true;
+        matched = 0;
+        return;
+      }
+      // the held back bytes were the matched delimiter prefix followed by c, release those that
+      // can no longer start a delimiter
+      var toRelease = matched + 1 - next;
+      if (next == 0) {
+        heldBack = matched;
+        pendingByte = c & 0xFF;
+      } else {
+        heldBack = toRelease;
+      }
+      released = 0;
+      matched = next;
+    }
+
+    void skipRemaining() throws IOException {
+      var scratch = new byte[BUFFER_SIZE];
+      while (read(scratch, 0, scratch.length) != -1) {
+        // discard
+      }
+    }
+  }
+}
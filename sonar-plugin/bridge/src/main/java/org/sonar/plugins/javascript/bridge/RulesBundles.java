@@ -74,16 +74,15 @@ public class RulesBundles {
   }
 
   /**
-   * Deploy bundles in temporary directory and return list of paths for deployed modules
+   * Deploy bundles in the given directory, unless they are already there, and return list of paths for deployed modules
    *
    */
   public List<Path> deploy(Path target) {
     List<Path> unpackedBundles = new ArrayList<>();
     bundleUrls.forEach(bundle -> {
-      try {
-        Path location = Files.createTempDirectory(target, "custom-rules");
-        LOG.debug("Deploying custom rules bundle {} to {}", bundle, location);
-        BundleUtils.extractFromClasspath(bundle.openStream(), location);
+      try (var archive = bundle.openStream()) {
+        LOG.debug("Deploying custom rules bundle {} to {}", bundle, target);
+        Path location = DeploymentCache.deploy(archive, target, "custom-rules");
         Path deployedBundle = location.resolve("package").toAbsolutePath();
         if (!Files.exists(deployedBundle)) {
           // Inside tgz we expect "package" directory, this is npm contract.
@@ -0,0 +1,95 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Highlight;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbol;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbolBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Issue;
+import org.sonar.plugins.javascript.bridge.BridgeServer.IssueLocation;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Location;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Metrics;
+import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingError;
+import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingErrorCode;
+import org.sonar.plugins.javascript.bridge.BridgeServer.QuickFix;
+import org.sonar.plugins.javascript.bridge.BridgeServer.QuickFixEdit;
+
+class AnalysisResponseCodecTest {
+
+  @Test
+  void should_encode_and_decode_response() throws IOException {
+    var secondaryLocation = new IssueLocation(2, 0, 2, 3, "secondary");
+    var quickFix = new QuickFix("fix", List.of(new QuickFixEdit("text", new IssueLocation(1, 2, 1, 4, null))));
+    var issue = new Issue(1, 2, 3, 4, "message", "S3923", List.of(secondaryLocation), 1.5, List.of(quickFix));
+    var response = new AnalysisResponse(
+      null,
+      List.of(issue, new Issue(5, 0, null, null, "no end", "S1481", List.of(), null, List.of())),
+      HighlightBlock.of(List.of(new Highlight(new Location(1, 0, 1, 5), "KEYWORD"))),
+      HighlightedSymbolBlock.of(
+        List.of(
+          new HighlightedSymbol(new Location(1, 6, 1, 7), List.of(new Location(2, 0, 2, 1), new Location(3, 0, 3, 1))),
+          new HighlightedSymbol(new Location(4, 6, 4, 7), List.of())
+        )
+      ),
+      new Metrics(new int[] { 1, 2 }, new int[] { 3 }, new int[0], new int[] { 2 }, 1, 2, 3, 4, 5),
+      CpdTokenBlock.of(List.of(new CpdToken(new Location(1, 0, 1, 5), "const"))),
+      List.of(),
+      null
+    );
+
+    var decoded = AnalysisResponseCodec.decode(new ByteArrayInputStream(AnalysisResponseCodec.encode(response)));
+
+    assertThat(decoded.parsingError()).isNull();
+    assertThat(decoded.issues()).containsExactlyElementsOf(response.issues());
+    assertThat(decoded.highlights().get(0)).isEqualTo(response.highlights().get(0));
+    assertThat(decoded.highlightedSymbols().size()).isEqualTo(2);
+    assertThat(decoded.highlightedSymbols().get(0)).isEqualTo(response.highlightedSymbols().get(0));
+    assertThat(decoded.highlightedSymbols().get(1).references()).isEmpty();
+    assertThat(decoded.metrics().ncloc()).containsExactly(1, 2);
+    assertThat(decoded.metrics().commentLines()).containsExactly(3);
+    assertThat(decoded.metrics().executableLines()).containsExactly(2);
+    assertThat(decoded.metrics().cognitiveComplexity()).isEqualTo(5);
+    assertThat(decoded.cpdTokens().toList()).containsExactlyElementsOf(response.cpdTokens().toList());
+    assertThat(decoded.ast()).isNull();
+  }
+
+  @Test
+  void should_encode_and_decode_parsing_error() throws IOException {
+    var response = new AnalysisResponse(
+      new ParsingError("Unexpected token", 3, ParsingErrorCode.PARSING),
+      null, null, null, null, null, List.of(), null
+    );
+
+    var decoded = AnalysisResponseCodec.decode(new ByteArrayInputStream(AnalysisResponseCodec.encode(response)));
+
+    assertThat(decoded.parsingError()).isEqualTo(response.parsingError());
+    assertThat(decoded.issues()).isEmpty();
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Highlight;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbol;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbolBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.IssueLocation;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Location;
+import org.sonar.plugins.javascript.bridge.BridgeServer.LocationBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingErrorCode;
+import org.sonar.plugins.javascript.bridge.protobuf.AnalysisProtos;
+
+class AnalysisResponseDecoderTest {
+
+  @Test
+  void should_decode_response() throws IOException {
+    var response = decode(
+      """
+      {
+        "issues": [{"line": 1, "column": 2, "endLine": 3, "endColumn": 4, "message": "Issue message", "ruleId": "S3923",
+          "secondaryLocations": [], "quickFixes": []}],
+        "highlights": [{"location": {"startLine": 1, "startCol": 0, "endLine": 1, "endCol": 5}, "textType": "KEYWORD"}],
+        "highlightedSymbols": [{"declaration": {"startLine": 1, "startCol": 6, "endLine": 1, "endCol": 7},
+          "references": [{"startLine": 2, "startCol": 0, "endLine": 2, "endCol": 1}]}],
+        "metrics": {"ncloc": [1, 2, 3], "commentLines": [4], "nosonarLines": [], "functions": 1, "statements": 2,
+          "classes": 3, "complexity": 4, "cognitiveComplexity": 5, "unknown": {"a": [1]}},
+        "cpdTokens": [{"location": {"startLine": 1, "startCol": 0, "endLine": 1, "endCol": 5}, "image": "const"}],
+        "ucfgPaths": ["path/to/ucfg"],
+        "ast": "ignored"
+      }
+      """
+    );
+
+    assertThat(response.parsingError()).isNull();
+    assertThat(response.issues()).hasSize(1);
+    assertThat(response.issues().get(0).ruleId()).isEqualTo("S3923");
+    assertThat(response.highlights().size()).isEqualTo(1);
+    assertThat(response.highlights().get(0).location()).isEqualTo(new Location(1, 0, 1, 5));
+    assertThat(response.highlights().get(0).textType()).isEqualTo("KEYWORD");
+    assertThat(response.highlightedSymbols().size()).isEqualTo(1);
+    assertThat(response.highlightedSymbols().get(0).declaration()).isEqualTo(new Location(1, 6, 1, 7));
+    assertThat(response.highlightedSymbols().get(0).references()).containsExactly(new Location(2, 0, 2, 1));
+    assertThat(response.metrics().ncloc()).containsExactly(1, 2, 3);
+    assertThat(response.metrics().commentLines()).containsExactly(4);
+    assertThat(response.metrics().nosonarLines()).isEmpty();
+    assertThat(response.metrics().executableLines()).isEmpty();
+    assertThat(response.metrics().functions()).isEqualTo(1);
+    assertThat(response.metrics().cognitiveComplexity()).isEqualTo(5);
+    assertThat(response.cpdTokens().size()).isEqualTo(1);
+    assertThat(response.cpdTokens().get(0).image()).isEqualTo("const");
+    assertThat(response.ucfgPaths()).containsExactly("path/to/ucfg");
+    assertThat(response.ast()).isNull();
+  }
+
+  @Test
+  void should_decode_parsing_error() throws IOException {
+    var response = decode(
+      "{\"parsingError\": {\"message\": \"Unexpected token\", \"line\": 3, \"code\": \"PARSING\"}}"
+    );
+
+    assertThat(response.parsingError().message()).isEqualTo("Unexpected token");
+    assertThat(response.parsingError().line()).isEqualTo(3);
+    assertThat(response.parsingError().code()).isEqualTo(BridgeServer.ParsingErrorCode.PARSING);
+    assertThat(response.issues()).isEmpty();
+    assertThat(response.highlights().size()).isZero();
+    assertThat(response.metrics().ncloc()).isEmpty();
+  }
+
+  @Test
+  void should_decode_columns_of_locations() throws IOException {
+    var response = decode(
+      """
+      {
+        "highlightedSymbols": [
+          {"declaration": {"startLine": 1, "startCol": 0, "endLine": 1, "endCol": 1}, "references": []},
+          {"references": [{"startLine": 9, "startCol": 0, "endLine": 9, "endCol": 1}]},
+          {"references": [{"startLine": 3, "startCol": 0, "endLine": 3, "endCol": 1}],
+            "declaration": {"startLine": 2, "startCol": 0, "endLine": 2, "endCol": 1}}
+        ],
+        "cpdTokens": [
+          {"location": {"startLine": 1, "startCol": 0, "endLine": 1, "endCol": 5}, "image": "const"},
+          {"image": "dropped"},
+          {"location": {"startLine": 2, "startCol": 0, "endLine": 2, "endCol": 5}, "image": "const"}
+        ]
+      }
+      """
+    );
+
+    var symbols = response.highlightedSymbols();
+    assertThat(symbols.size()).isEqualTo(2);
+    assertThat(symbols.referenceOffsets()).containsExactly(0, 0, 1);
+    assertThat(symbols.get(0).references()).isEmpty();
+    assertThat(symbols.get(1).declaration()).isEqualTo(new Location(2, 0, 2, 1));
+    assertThat(symbols.get(1).references()).containsExactly(new Location(3, 0, 3, 1));
+
+    var cpdTokens = response.cpdTokens();
+    assertThat(cpdTokens.toList()).extracting(CpdToken::image).containsExactly("const", "const");
+    assertThat(cpdTokens.locations().startLines()).containsExactly(1, 2);
+    assertThat(cpdTokens.images()[0]).isSameAs(cpdTokens.images()[1]);
+  }
+
+  @Test
+  void should_skip_null_locations_when_building_blocks() {
+    var symbols = HighlightedSymbolBlock.of(Arrays.asList(
+      new HighlightedSymbol(new Location(1, 0, 1, 1), Arrays.asList(new Location(4, 0, 4, 1), null)),
+      new HighlightedSymbol(null, List.of(new Location(9, 0, 9, 1))),
+      new HighlightedSymbol(new Location(2, 0, 2, 1), List.of(new Location(3, 0, 3, 1)))
+    ));
+    assertThat(symbols.size()).isEqualTo(2);
+    assertThat(symbols.referenceOffsets()).containsExactly(0, 1, 2);
+    assertThat(symbols.get(0).references()).containsExactly(new Location(4, 0, 4, 1));
+    assertThat(symbols.get(1).references()).containsExactly(new Location(3, 0, 3, 1));
+
+    var cpdTokens = CpdTokenBlock.of(List.of(
+      new CpdToken(new Location(1, 0, 1, 5), "const"),
+      new CpdToken(null, "dropped")
+    ));
+    assertThat(cpdTokens.toList()).extracting(CpdToken::image).containsExactly("const");
+
+    var highlights = HighlightBlock.of(List.of(new Highlight(null, "KEYWORD"), new Highlight(new Location(1, 0, 1, 5), "STRING")));
+    assertThat(highlights.size()).isEqualTo(1);
+    assertThat(highlights.get(0)).isEqualTo(new Highlight(new Location(1, 0, 1, 5), "STRING"));
+
+    assertThat(LocationBlock.of(Arrays.asList(null, new Location(1, 0, 1, 1))).size()).isEqualTo(1);
+  }
+
+  @Test
+  void should_read_and_write_blocks_with_gson() {
+    var gson = new Gson();
+    var cpdTokens = CpdTokenBlock.of(List.of(new CpdToken(new Location(1, 0, 1, 5), "const")));
+    var symbols = HighlightedSymbolBlock.of(List.of(new HighlightedSymbol(new Location(1, 6, 1, 7), List.of(new Location(2, 0, 2, 1)))));
+    var highlights = HighlightBlock.of(List.of(new Highlight(new Location(1, 0, 1, 5), "KEYWORD")));
+
+    assertThat(gson.fromJson(gson.toJson(cpdTokens), CpdTokenBlock.class).toList()).isEqualTo(cpdTokens.toList());
+    assertThat(gson.fromJson(gson.toJson(symbols), HighlightedSymbolBlock.class).get(0)).isEqualTo(symbols.get(0));
+    assertThat(gson.fromJson(gson.toJson(highlights), HighlightBlock.class).get(0)).isEqualTo(highlights.get(0));
+    assertThat(gson.fromJson("{\"cpdTokens\": null}", AnalysisResponse.class).cpdTokens()).isSameAs(CpdTokenBlock.EMPTY);
+  }
+
+  @Test
+  void should_decode_large_line_lists() throws IOException {
+    var lines = new StringBuilder();
+    for (int i = 1; i <= 1000; i++) {
+      lines.append(i == 1 ? "" : ",").append(i);
+    }
+    var response = decode("{\"metrics\": {\"executableLines\": [" + lines + "], \"ncloc\": null}}");
+
+    assertThat(response.metrics().executableLines()).hasSize(1000).startsWith(1, 2).endsWith(1000);
+    assertThat(response.metrics().ncloc()).isEmpty();
+  }
+
+  @Test
+  void should_decode_batch_responses() throws IOException {
+    var responses = AnalysisResponseDecoder.decodeBatch(
+      new ByteArrayInputStream(
+        "{\"responses\": [{\"issues\": []}, {\"parsingError\": {\"message\": \"boom\", \"code\": \"GENERAL_ERROR\"}}]}"
+          .getBytes(UTF_8)
+      )
+    );
+
+    assertThat(responses).hasSize(2);
+    assertThat(responses.get(0).parsingError()).isNull();
+    assertThat(responses.get(1).parsingError().message()).isEqualTo("boom");
+    assertThat(AnalysisResponseDecoder.decodeBatch(new ByteArrayInputStream("{}".getBytes(UTF_8)))).isEmpty();
+  }
+
+  @Test
+  void should_fail_on_invalid_json() {
+    assertThatThrownBy(() -> decode("{\"issues\": [")).isInstanceOf(JsonSyntaxException.class);
+    assertThatThrownBy(() -> decode("[]")).isInstanceOf(JsonSyntaxException.class);
+    assertThatThrownBy(() -> decode("{\"metrics\": {\"functions\": \"many\"}}"))
+      .isInstanceOf(JsonSyntaxException.class);
+  }
+
+  @Test
+  void should_decode_protobuf_response() throws IOException {
+    var message = AnalysisProtos.AnalysisResponse.newBuilder()
+      .addIssues(AnalysisProtos.Issue.newBuilder()
+        .setRuleId("S3923")
+        .setLine(1)
+        .setColumn(2)
+        .setEndLine(3)
+        .setMessage("Issue message")
+        .addSecondaryLocations(AnalysisProtos.IssueLocation.newBuilder().setLine(1).setColumn(2).setEndLine(1).setEndColumn(3))
+        .addQuickFixes(AnalysisProtos.QuickFix.newBuilder()
+          .setMessage("Fix it")
+          .addEdits(AnalysisProtos.QuickFixEdit.newBuilder()
+            .setText("fixed")
+            .setLoc(AnalysisProtos.IssueLocation.newBuilder().setLine(1).setColumn(0).setEndLine(1).setEndColumn(5)))))
+      .setHighlights(AnalysisProtos.Highlights.newBuilder()
+        .addAllLocations(List.of(1, 0, 1, 5, 2, 0, 2, 3))
+        .addTextTypes(AnalysisProtos.TextType.KEYWORD)
+        .addTextTypes(AnalysisProtos.TextType.STRING))
+      .addHighlightedSymbols(AnalysisProtos.HighlightedSymbol.newBuilder()
+        .addAllDeclaration(List.of(1, 6, 1, 7))
+        .addAllReferences(List.of(2, 0, 2, 1, 3, 0, 3, 1)))
+      .setMetrics(AnalysisProtos.Metrics.newBuilder().addAllNcloc(List.of(1, 2, 3)).setFunctions(1).setCognitiveComplexity(5))
+      .setCpdTokens(AnalysisProtos.CpdTokens.newBuilder().addAllLocations(List.of(1, 0, 1, 5)).addImages("const"))
+      .addUcfgPaths("path/to/ucfg")
+      .setAst(ByteString.copyFrom(Files.readAllBytes(Path.of("src/test/resources/files/serialized.proto"))))
+      .build();
+
+    var response = AnalysisResponseDecoder.decodeProtobuf(new ByteArrayInputStream(message.toByteArray()));
+
+    assertThat(response.parsingError()).isNull();
+    assertThat(response.issues()).hasSize(1);
+    var issue = response.issues().get(0);
+    assertThat(issue.ruleId()).isEqualTo("S3923");
+    assertThat(issue.endLine()).isEqualTo(3);
+    assertThat(issue.endColumn()).isNull();
+    assertThat(issue.cost()).isNull();
+    assertThat(issue.secondaryLocations()).containsExactly(new IssueLocation(1, 2, 1, 3, null));
+    assertThat(issue.quickFixes()).hasSize(1);
+    assertThat(issue.quickFixes().get(0).edits().get(0).loc()).isEqualTo(new IssueLocation(1, 0, 1, 5, null));
+    assertThat(response.highlights().size()).isEqualTo(2);
+    assertThat(response.highlights().get(1).location()).isEqualTo(new Location(2, 0, 2, 3));
+    assertThat(response.highlights().get(1).textType()).isEqualTo("STRING");
+    assertThat(response.highlightedSymbols().get(0).declaration()).isEqualTo(new Location(1, 6, 1, 7));
+    assertThat(response.highlightedSymbols().get(0).references())
+      .containsExactly(new Location(2, 0, 2, 1), new Location(3, 0, 3, 1));
+    assertThat(response.metrics().ncloc()).containsExactly(1, 2, 3);
+    assertThat(response.metrics().commentLines()).isEmpty();
+    assertThat(response.metrics().functions()).isEqualTo(1);
+    assertThat(response.metrics().cognitiveComplexity()).isEqualTo(5);
+    assertThat(response.cpdTokens().size()).isEqualTo(1);
+    assertThat(response.cpdTokens().get(0).location()).isEqualTo(new Location(1, 0, 1, 5));
+    assertThat(response.cpdTokens().get(0).image()).isEqualTo("const");
+    assertThat(response.ucfgPaths()).containsExactly("path/to/ucfg");
+    assertThat(response.ast().getProgram().getBodyList()).isNotEmpty();
+  }
+
+  @Test
+  void should_decode_protobuf_batch_responses() throws IOException {
+    var message = AnalysisProtos.AnalysisBatchResponse.newBuilder()
+      .addResponses(AnalysisProtos.AnalysisResponse.getDefaultInstance())
+      .addResponses(AnalysisProtos.AnalysisResponse.newBuilder()
+        .setParsingError(AnalysisProtos.ParsingError.newBuilder()
+          .setMessage("boom")
+          .setLine(3)
+          .setCode(AnalysisProtos.ParsingErrorCode.FAILING_TYPESCRIPT)))
+      .addResponses(AnalysisProtos.AnalysisResponse.newBuilder()
+        .setParsingError(AnalysisProtos.ParsingError.newBuilder()
+          .setMessage("unknown code")
+          .setCode(AnalysisProtos.ParsingErrorCode.LINTER_INITIALIZATION)))
+      .build();
+
+    var responses = AnalysisResponseDecoder.decodeBatchProtobuf(new ByteArrayInputStream(message.toByteArray()));
+
+    assertThat(responses).hasSize(3);
+    assertThat(responses.get(0).parsingError()).isNull();
+    assertThat(responses.get(0).metrics().ncloc()).isEmpty();
+    assertThat(responses.get(0).ast()).isNull();
+    assertThat(responses.get(1).parsingError().line()).isEqualTo(3);
+    assertThat(responses.get(1).parsingError().code()).isEqualTo(ParsingErrorCode.FAILING_TYPESCRIPT);
+    assertThat(responses.get(2).parsingError().line()).isNull();
+    assertThat(responses.get(2).parsingError().code()).isNull();
+  }
+
+  @Test
+  void should_fail_on_invalid_protobuf() {
+    assertThatThrownBy(() -> AnalysisResponseDecoder.decodeProtobuf(new ByteArrayInputStream(new byte[] {42})))
+      .isInstanceOf(InvalidProtocolBufferException.class);
+    assertThat(AnalysisResponseDecoder.isProtobuf("application/x-protobuf")).isTrue();
+    assertThat(AnalysisResponseDecoder.isProtobuf("application/json")).isFalse();
+    assertThat(AnalysisResponseDecoder.isProtobuf(null)).isFalse();
+  }
+
+  private static AnalysisResponse decode(String json) throws IOException {
+    return AnalysisResponseDecoder.decode(new ByteArrayInputStream(json.getBytes(UTF_8)));
+  }
+}
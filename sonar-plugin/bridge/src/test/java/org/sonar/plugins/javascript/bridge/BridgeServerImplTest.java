@@ -28,8 +28,10 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.awaitility.Awaitility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -65,6 +67,7 @@ import static org.awaitility.Awaitility.await;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.slf4j.event.Level.DEBUG;
 import static org.slf4j.event.Level.ERROR;
@@ -216,7 +219,7 @@ class BridgeServerImplTest {
     bridgeServer.stop();
     assertThat(logTester.logs())
       .contains(
-        "{\"linterId\":\"default\",\"rules\":[{\"key\":\"key\",\"fileTypeTarget\":[\"MAIN\"],\"configurations\":[\"config\"],\"language\":\"js\"}],\"environments\":[],\"globals\":[],\"baseDir\":\"\",\"exclusions\":[]}"
+        "{\"linterId\":\"default\",\"rules\":[{\"key\":\"key\",\"fileTypeTarget\":[\"MAIN\"],\"configurations\":[\"config\"],\"language\":\"js\"}],\"environments\":[],\"globals\":[],\"baseDir\":\"\",\"exclusions\":[],\"responseFormats\":[\"protobuf\",\"json\"]}"
       );
   }
 
@@ -247,6 +250,17 @@ class BridgeServerImplTest {
     assertThat(bridgeServer.analyzeTypeScript(request).issues()).hasSize(1);
   }
 
+  @Test
+  void should_get_answers_from_server_for_batch_request() throws Exception {
+    bridgeServer = createBridgeServer(START_SERVER_SCRIPT);
+    bridgeServer.startServer(serverConfig, emptyList());
+
+    var first = TestInputFileBuilder.create("foo", "foo.js").setContents("alert('Fly')").build();
+    var second = TestInputFileBuilder.create("foo", "bar.js").setContents("alert('you fools!')").build();
+    var responses = bridgeServer.analyzeBatch(List.of(createRequest(first), createRequest(second)));
+    assertThat(responses).hasSize(2).allSatisfy(response -> assertThat(response.issues()).hasSize(1));
+  }
+
   @Test
   void should_get_answer_from_server_for_yaml_request() throws Exception {
     bridgeServer = createBridgeServer(START_SERVER_SCRIPT);
@@ -305,6 +319,123 @@ class BridgeServerImplTest {
     assertThat(bridgeServer.deleteProgram(programCreated)).isTrue();
   }
 
+  @Test
+  void should_route_requests_over_several_processes() throws Exception {
+    context.setSettings(new MapSettings().setProperty(BridgeServerImpl.BRIDGE_PROCESSES_PROPERTY, "2"));
+    serverConfig = BridgeServerConfig.fromSensorContext(context);
+    bridgeServer = new BridgeServerImpl(
+      builder(),
+      10,
+      new TestBundle("startMultiProcessServer.js"),
+      emptyRulesBundles,
+      deprecationWarning,
+      tempFolder,
+      unsupportedEmbeddedRuntime
+    );
+    bridgeServer.startServer(serverConfig, emptyList());
+    assertThat(bridgeServer.isAlive()).isTrue();
+
+    // the mock names programs after the worker creating them, and answers with the worker serving the request
+    var first = bridgeServer.createProgram(new TsProgramRequest("/absolute/path/tsconfig.json"));
+    var second = bridgeServer.createProgram(new TsProgramRequest("/absolute/path/tsconfig.json"));
+    assertThat(first.programId()).isNotEqualTo(second.programId());
+    for (var program : List.of(first, second, first)) {
+      assertThat(servingWorker(bridgeServer.analyzeTypeScript(programRequest("file.ts", program)))).isEqualTo(program.programId());
+    }
+
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      var slow = executor.submit(() -> bridgeServer.analyzeJavaScript(programRequest("slow.js", first)));
+      await().until(() -> logTester.logs(INFO).contains("slow request on " + first.programId()));
+      for (int i = 0; i < 3; i++) {
+        assertThat(servingWorker(bridgeServer.analyzeJavaScript(programRequest("file.js", null)))).isEqualTo(second.programId());
+      }
+      assertThat(servingWorker(slow.get())).isEqualTo(first.programId());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // the process of the second program exits, the other one must still be closed
+    bridgeServer.analyzeTypeScript(programRequest("exit.ts", second));
+    await().until(() -> !bridgeServer.isAlive());
+    bridgeServer.clean();
+    await().untilAsserted(() -> assertThat(logTester.logs(INFO)).contains("closing worker(s) " + first.programId()));
+    assertThat(logTester.logs(INFO)).noneMatch(log -> log.equals("closing worker(s) " + second.programId()));
+    assertThat(bridgeServer.isAlive()).isFalse();
+  }
+
+  @Test
+  void should_route_watch_program_requests_by_tsconfig() throws Exception {
+    context.setSettings(new MapSettings().setProperty(BridgeServerImpl.BRIDGE_PROCESSES_PROPERTY, "2"));
+    serverConfig = BridgeServerConfig.fromSensorContext(context);
+    bridgeServer = new BridgeServerImpl(
+      builder(),
+      10,
+      new TestBundle("startMultiProcessServer.js"),
+      emptyRulesBundles,
+      deprecationWarning,
+      tempFolder,
+      unsupportedEmbeddedRuntime
+    );
+    bridgeServer.startServer(serverConfig, emptyList());
+
+    var first = servingWorker(bridgeServer.analyzeTypeScript(watchProgramRequest("/a/tsconfig.json")));
+    var second = servingWorker(bridgeServer.analyzeTypeScript(watchProgramRequest("/b/tsconfig.json")));
+    assertThat(first).isNotEqualTo(second);
+    for (int i = 0; i < 3; i++) {
+      assertThat(servingWorker(bridgeServer.analyzeTypeScript(watchProgramRequest("/a/tsconfig.json")))).isEqualTo(first);
+      assertThat(servingWorker(bridgeServer.analyzeTypeScript(watchProgramRequest("/b/tsconfig.json")))).isEqualTo(second);
+    }
+    bridgeServer.clean();
+  }
+
+  private static JsAnalysisRequest watchProgramRequest(String tsConfig) {
+    return new JsAnalysisRequest(
+      "/absolute/path/file.ts",
+      "MAIN",
+      "ts",
+      null,
+      true,
+      List.of(tsConfig),
+      null,
+      DEFAULT_LINTER_ID,
+      true
+    );
+  }
+
+  private static JsAnalysisRequest programRequest(String fileName, @Nullable TsProgram program) {
+    return new JsAnalysisRequest(
+      "/absolute/path/" + fileName,
+      "MAIN",
+      "js",
+      null,
+      true,
+      null,
+      program == null ? null : program.programId(),
+      DEFAULT_LINTER_ID,
+      true
+    );
+  }
+
+  private static String servingWorker(BridgeServer.AnalysisResponse response) {
+    return response.issues().get(0).message();
+  }
+
+  @Test
+  void should_start_a_second_worker_to_prefetch_programs() {
+    assertThat(BridgeServerImpl.analysisWorkers(new MapSettings().asConfig())).isEqualTo(1);
+    var prefetch = new MapSettings().setProperty(BridgeServerImpl.ANALYSIS_PREFETCH_PROGRAM_PROPERTY, "true");
+    assertThat(BridgeServerImpl.analysisWorkers(prefetch.asConfig())).isEqualTo(2);
+    // requests are still sent one at a time
+    assertThat(BridgeServerImpl.analysisParallelism(prefetch.asConfig())).isEqualTo(1);
+    prefetch.setProperty(BridgeServerImpl.ANALYSIS_MAX_PROGRAMS_PROPERTY, "1");
+    assertThat(BridgeServerImpl.analysisMaxPrograms(prefetch.asConfig())).isEqualTo(1);
+    assertThat(BridgeServerImpl.analysisWorkers(prefetch.asConfig())).isEqualTo(1);
+    prefetch.setProperty(BridgeServerImpl.ANALYSIS_PARALLELISM_PROPERTY, "4");
+    assertThat(BridgeServerImpl.analysisParallelism(prefetch.asConfig())).isEqualTo(4);
+    assertThat(BridgeServerImpl.analysisWorkers(prefetch.asConfig())).isEqualTo(4);
+  }
+
   @Test
   void should_create_tsconfig_files() throws IOException {
     bridgeServer = createBridgeServer(START_SERVER_SCRIPT);
@@ -735,6 +866,27 @@ class BridgeServerImplTest {
       .contains("Security Frontend version is available: [some_bundle_version]");
   }
 
+  @Test
+  void should_deploy_rules_bundles_next_to_the_bridge() throws Exception {
+    context.setSettings(new MapSettings().setProperty("sonar.javascript.bridge.deployCache", "false"));
+    serverConfig = BridgeServerConfig.fromSensorContext(context);
+    RulesBundles rulesBundles = mock(RulesBundles.class);
+
+    bridgeServer =
+      new BridgeServerImpl(
+        builder(),
+        TEST_TIMEOUT_SECONDS,
+        new TestBundle(START_SERVER_SCRIPT),
+        rulesBundles,
+        deprecationWarning,
+        tempFolder,
+        unsupportedEmbeddedRuntime
+      );
+    bridgeServer.startServerLazily(serverConfig);
+
+    verify(rulesBundles).deploy(tempDir.toPath().resolve("custom-rules"));
+  }
+
   @Test
   void should_return_an_ast() throws Exception {
     bridgeServer = createBridgeServer(START_SERVER_SCRIPT);
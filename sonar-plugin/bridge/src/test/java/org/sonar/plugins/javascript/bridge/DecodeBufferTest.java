@@ -0,0 +1,76 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.ByteString;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class DecodeBufferTest {
+
+  @Test
+  void should_read_whole_stream() throws Exception {
+    var content = new byte[200_000];
+    Arrays.fill(content, (byte) 42);
+    try (var buffer = DecodeBuffer.acquire()) {
+      buffer.readFrom(new ByteArrayInputStream(content));
+      assertThat(buffer.length()).isEqualTo(content.length);
+      assertThat(Arrays.equals(buffer.array(), 0, buffer.length(), content, 0, content.length)).isTrue();
+      assertThat(buffer.newCodedInput().readRawBytes(content.length)).isEqualTo(content);
+    }
+  }
+
+  @Test
+  void should_reuse_released_buffer() throws Exception {
+    byte[] array;
+    try (var buffer = DecodeBuffer.acquire()) {
+      array = buffer.readFrom(new ByteArrayInputStream(new byte[] { 1, 2, 3 })).array();
+    }
+    try (var buffer = DecodeBuffer.acquire()) {
+      buffer.copyOf(ByteString.copyFromUtf8("ab"));
+      assertThat(buffer.array()).isSameAs(array);
+      assertThat(buffer.length()).isEqualTo(2);
+      assertThat(buffer.array()[0]).isEqualTo((byte) 'a');
+    }
+  }
+
+  @Test
+  void should_not_share_buffer_between_nested_decodings() {
+    try (var outer = DecodeBuffer.acquire(); var inner = DecodeBuffer.acquire()) {
+      assertThat(inner).isNotSameAs(outer);
+      assertThat(inner.array()).isNotSameAs(outer.array());
+    }
+  }
+
+  @Test
+  void should_not_retain_large_buffers() {
+    DecodeBuffer large;
+    try (var buffer = DecodeBuffer.acquire()) {
+      large = buffer.copyOf(ByteString.copyFrom(new byte[16 * 1024 * 1024]));
+    }
+    try (var first = DecodeBuffer.acquire(); var second = DecodeBuffer.acquire()) {
+      assertThat(first).isNotSameAs(large);
+      assertThat(second).isNotSameAs(large);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DeploymentCacheTest {
+
+  @TempDir
+  Path root;
+
+  @Test
+  void should_reuse_deployment_of_same_archive() throws Exception {
+    var location = DeploymentCache.deploy(archive(), root, "bridge");
+    assertThat(location.getParent()).isEqualTo(root);
+    assertThat(location.getFileName().toString()).startsWith("bridge-");
+    var script = location.resolve("package/bin/server.cjs");
+    assertThat(script).exists();
+
+    Files.writeString(script, "modified");
+    assertThat(DeploymentCache.deploy(archive(), root, "bridge")).isEqualTo(location);
+    assertThat(script).hasContent("modified");
+  }
+
+  @Test
+  void should_redeploy_interrupted_deployment() throws Exception {
+    var location = DeploymentCache.deploy(archive(), root, "bridge");
+    Files.delete(location.resolve(".deployed"));
+    var script = location.resolve("package/bin/server.cjs");
+    Files.writeString(script, "partial");
+    var leftover = Files.writeString(location.resolve("leftover"), "");
+
+    assertThat(DeploymentCache.deploy(archive(), root, "bridge")).isEqualTo(location);
+    assertThat(Files.readString(script)).startsWith("#!/usr/bin/env node");
+    assertThat(leftover).doesNotExist();
+  }
+
+  @Test
+  void should_keep_other_deployments() throws Exception {
+    var other = Files.createDirectories(root.resolve("bridge-" + "0".repeat(32)).resolve("package"));
+    Files.createFile(other.getParent().resolve(".deployed"));
+
+    var location = DeploymentCache.deploy(archive(), root, "bridge");
+    assertThat(location.resolve("package/bin/server.cjs")).exists();
+    assertThat(other).exists();
+    try (var files = Files.list(root)) {
+      assertThat(files.map(path -> path.getFileName().toString()))
+        .containsExactlyInAnyOrder(".lock", other.getParent().getFileName().toString(), location.getFileName().toString());
+    }
+  }
+
+  private InputStream archive() throws IOException {
+    return getClass().getResourceAsStream("/test-bundle.tgz");
+  }
+}
@@ -23,11 +23,15 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.sonar.plugins.javascript.bridge.FormDataUtils.parseFormData;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -45,7 +49,7 @@ public class FormDataUtilsTest {
     var contentTypeHeader = "multipart/form-data; boundary=---------------------------9051914041544843365972754266";
     var body = buildPayload("{\"hello\":\"worlds\"}");
 
-    BridgeServer.BridgeResponse response = parseFormData(contentTypeHeader, body);
+    BridgeServer.BridgeResponse response = parseFormData(contentTypeHeader, new ByteArrayInputStream(body));
     assertThat(response.json()).contains("{\"hello\":\"worlds\"}");
     Node node = response.ast();
     assertThat(node.getProgram()).isNotNull();
@@ -95,13 +99,39 @@ public class FormDataUtilsTest {
     );
   }
 
+  @Test
+  void should_parse_flat_ast() throws Exception {
+    var contentTypeHeader = "multipart/form-data; boundary=---------------------------9051914041544843365972754266";
+    // a single Program node, without attributes
+    var flatAst = ByteBuffer.allocate(4 + 4 * 15 + 7).order(ByteOrder.LITTLE_ENDIAN)
+      .put("SJFA".getBytes(StandardCharsets.US_ASCII))
+      .putInt(1).putInt(1)
+      .putInt(0).putInt(-1).putInt(-1).putInt(-1).putInt(-1).putInt(0)
+      .putInt(1).putInt(0).putInt(1).putInt(10)
+      .putInt(0)
+      .putInt(1).putInt(7).put("Program".getBytes(StandardCharsets.UTF_8))
+      .array();
+    var body = buildPayload("{\"issues\":[]}", flatAst);
+
+    var response = FormDataUtils.parseAnalysisResponse(contentTypeHeader, new ByteArrayInputStream(body));
+    assertThat(response.ast()).isNull();
+    assertThat(response.flatAst()).isNotNull();
+    assertThat(response.flatAst().cursor().type()).isEqualTo("Program");
+    assertThat(response.flatAst().cursor().endColumn()).isEqualTo(10);
+
+    var truncated = Arrays.copyOf(flatAst, flatAst.length - 1);
+    body = buildPayload("{\"issues\":[]}", truncated);
+    assertThat(FormDataUtils.parseAnalysisResponse(contentTypeHeader, new ByteArrayInputStream(body)).flatAst()).isNull();
+    assertThat(logTester.logs(Level.ERROR)).containsExactly("Failed to decode flat AST: Truncated flat AST");
+  }
+
   @Test
   void should_log_error_if_ast_is_invalid() throws Exception {
     var contentTypeHeader = "multipart/form-data; boundary=---------------------------9051914041544843365972754266";
     var invalidAst = new byte[]{42};
     var body = buildPayload("{\"hello\":\"worlds\"}", invalidAst);
 
-    assertThat(parseFormData(contentTypeHeader, body).ast()).isNull();
+    assertThat(parseFormData(contentTypeHeader, new ByteArrayInputStream(body)).ast()).isNull();
     assertThat(logTester.logs(Level.ERROR)).containsExactly(
       "Failed to deserialize Protobuf message: While parsing a protocol message, the input ended unexpectedly in the middle of a field.  " +
         "This could mean either that the input has been truncated or that an embedded message misreported its own length.");
@@ -120,7 +150,7 @@ public class FormDataUtilsTest {
       "-----------------------------9051914041544843365972754266--" +
       "\r\n";
 
-    assertThatThrownBy(() -> parseFormData(contentTypeHeader, body.getBytes(StandardCharsets.UTF_8)))
+    assertThatThrownBy(() -> parseFormData(contentTypeHeader, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
       .isInstanceOf(IllegalStateException.class)
       .hasMessage("Data missing from response");
   }
@@ -137,7 +167,7 @@ public class FormDataUtilsTest {
       "\r\n" +
       "-----------------------------9051914041544843365972754266--" +
       "\r\n";
-    assertThatThrownBy(() -> parseFormData(contentTypeHeader, body.getBytes(StandardCharsets.UTF_8)))
+    assertThatThrownBy(() -> parseFormData(contentTypeHeader, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
       .isInstanceOf(IllegalStateException.class)
       .hasMessage("Data missing from response");
   }
@@ -0,0 +1,175 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FramedTransportTest {
+
+  private ServerSocket serverSocket;
+  private Thread server;
+  private FramedTransport transport;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    transport = new FramedTransport(mock(Http.class));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    transport.close();
+    serverSocket.close();
+    if (server != null) {
+      server.join();
+    }
+  }
+
+  @Test
+  void should_match_responses_with_requests() throws Exception {
+    // the server answers the two requests in reverse order, echoing the path and the body
+    startServer(2);
+    var executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Http.Response> first = executor.submit(() -> transport.post("{\"a\":1}", uri("/analyze-js"), 5));
+      Future<Http.Response> second = executor.submit(() -> transport.post("{\"b\":2}", uri("/analyze-ts"), 5));
+
+      assertThat(first.get().contentType()).isNull();
+      assertThat(new String(first.get().body().readAllBytes(), UTF_8)).isEqualTo("/analyze-js {\"a\":1}");
+      assertThat(new String(second.get().body().readAllBytes(), UTF_8)).isEqualTo("/analyze-ts {\"b\":2}");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void should_fail_pending_requests_when_connection_is_closed() throws Exception {
+    startServer(0);
+    assertThatThrownBy(() -> transport.post("{}", uri("/analyze-js"), 5))
+      .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void should_close_connection_on_invalid_frame() throws Exception {
+    server =
+      new Thread(() -> {
+        try (
+          Socket socket = serverSocket.accept();
+          var in = new DataInputStream(socket.getInputStream());
+          var out = new DataOutputStream(socket.getOutputStream())
+        ) {
+          in.readNBytes(FramedTransport.PREFACE.length);
+          in.readNBytes(in.readInt());
+          // a frame shorter than its own header
+          out.writeInt(2);
+          out.writeInt(1);
+          out.writeInt(200);
+          out.writeShort(0);
+          out.flush();
+          // returns once the transport has closed the connection
+          assertThat(in.read()).isEqualTo(-1);
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    server.start();
+
+    assertThatThrownBy(() -> transport.post("{}", uri("/analyze-js"), 5))
+      .isInstanceOf(IOException.class)
+      .isNotInstanceOf(HttpTimeoutException.class)
+      .hasRootCauseMessage("Invalid response frame length 2");
+    server.join();
+  }
+
+  @Test
+  void should_delegate_other_calls() throws Exception {
+    var http = mock(Http.class);
+    var delegating = new FramedTransport(http);
+    var uri = uri("/status");
+    delegating.get(uri);
+    delegating.getResponse(uri);
+    delegating.getResponse(uri, "{}");
+    verify(http).get(uri);
+    verify(http).getResponse(uri);
+    verify(http).getResponse(uri, "{}");
+  }
+
+  private URI uri(String path) throws Exception {
+    return new URI("http", null, "127.0.0.1", serverSocket.getLocalPort(), path, null, null);
+  }
+
+  /**
+   * Reads the given number of requests on a single connection, then answers them in reverse order
+   * and closes the connection.
+   */
+  private void startServer(int requests) {
+    server =
+      new Thread(() -> {
+        try (
+          Socket socket = serverSocket.accept();
+          var in = new DataInputStream(socket.getInputStream());
+          var out = new DataOutputStream(socket.getOutputStream())
+        ) {
+          assertThat(in.readNBytes(FramedTransport.PREFACE.length))
+            .isEqualTo(FramedTransport.PREFACE);
+          var ids = new ArrayList<Integer>();
+          var bodies = new ArrayList<byte[]>();
+          for (int i = 0; i < requests; i++) {
+            var frameLength = in.readInt();
+            ids.add(in.readInt());
+            var path = new String(in.readNBytes(in.readUnsignedShort()), UTF_8);
+            var body = new String(in.readNBytes(frameLength - 6 - path.length()), UTF_8);
+            bodies.add((path + " " + body).getBytes(UTF_8));
+          }
+          for (int i = requests - 1; i >= 0; i--) {
+            out.writeInt(4 + 4 + 2 + bodies.get(i).length);
+            out.writeInt(ids.get(i));
+            out.writeInt(200);
+            out.writeShort(0);
+            out.write(bodies.get(i));
+          }
+          out.flush();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      });
+    server.start();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.javascript.api.estree.ESTree;
+import org.sonar.plugins.javascript.bridge.protobuf.Node;
+import org.sonar.plugins.javascript.bridge.protobuf.NodeType;
+import org.sonar.plugins.javascript.bridge.protobuf.Program;
+
+class LazyNodeListTest {
+
+  @Test
+  void should_convert_elements_on_access() {
+    var conversions = new ArrayList<String>();
+    var list = LazyNodeList.of(
+      List.of("a", "b", "c"),
+      s -> {
+        conversions.add(s);
+        return s.toUpperCase();
+      }
+    );
+
+    assertThat(list).hasSize(3);
+    assertThat(conversions).isEmpty();
+    assertThat(list.get(1)).isEqualTo("B");
+    assertThat(list.get(1)).isEqualTo("B");
+    assertThat(conversions).containsExactly("b");
+    assertThat(((LazyNodeList<?, ?>) list).convertedCount()).isEqualTo(1);
+    assertThat(list).containsExactly("A", "B", "C");
+    assertThat(conversions).containsExactly("b", "a", "c");
+  }
+
+  @Test
+  void should_publish_a_single_instance_per_element() throws Exception {
+    var list = LazyNodeList.of(List.of("a"), s -> new StringBuilder(s));
+    var start = new CountDownLatch(1);
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var reads = new ArrayList<Future<StringBuilder>>();
+      for (var i = 0; i < 4; i++) {
+        reads.add(executor.submit(() -> {
+          start.await();
+          return list.get(0);
+        }));
+      }
+      start.countDown();
+      for (var read : reads) {
+        assertThat(read.get()).isSameAs(list.get(0));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void should_be_read_only() {
+    var list = LazyNodeList.of(List.of("a"), String::toUpperCase);
+    assertThatThrownBy(() -> list.add("b")).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> list.set(0, "b")).isInstanceOf(UnsupportedOperationException.class);
+    assertThatThrownBy(() -> list.get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+    assertThat(LazyNodeList.of(List.of(), String::toUpperCase)).isSameAs(List.of());
+  }
+
+  @Test
+  void should_only_convert_visited_nodes() throws IOException {
+    Node node;
+    try (var fis = new FileInputStream(Path.of("src", "test", "resources", "files", "serialized.proto").toFile())) {
+      node = Node.parseFrom(fis);
+    }
+    var program = ESTreeFactory.from(node, ESTree.Program.class);
+    var body = (LazyNodeList<?, ?>) program.body();
+    assertThat(body.convertedCount()).isZero();
+
+    assertThat(program.body().get(0)).isInstanceOf(ESTree.VariableDeclaration.class);
+    assertThat(body.convertedCount()).isEqualTo(1);
+    assertThat(program.body().get(0)).isSameAs(program.body().get(0));
+    assertThat(program).isEqualTo(ESTreeFactory.from(node, ESTree.Program.class));
+  }
+
+  @Test
+  void should_report_type_mismatch_when_accessed() {
+    var program = Node.newBuilder()
+      .setType(NodeType.ProgramType)
+      .setProgram(Program.newBuilder().addBody(Node.newBuilder().setType(NodeType.ProgramType).build()).build())
+      .build();
+
+    var estree = ESTreeFactory.from(program, ESTree.Program.class);
+    assertThat(estree.body()).hasSize(1);
+    assertThatThrownBy(() -> estree.body().get(0))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Expected interface org.sonar.plugins.javascript.api.estree.ESTree$DirectiveOrModuleDeclarationOrStatement");
+  }
+}
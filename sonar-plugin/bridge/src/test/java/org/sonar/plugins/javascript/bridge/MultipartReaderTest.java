@@ -0,0 +1,108 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.bridge;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class MultipartReaderTest {
+
+  private static final String BOUNDARY = "----boundary42";
+
+  @Test
+  void should_read_parts() throws IOException {
+    var reader = reader(
+      "--" + BOUNDARY + "\r\n" +
+      "Content-Disposition: form-data; name=\"json\"\r\n\r\n" +
+      "{\"a\":1}\r\n" +
+      "--" + BOUNDARY + "\r\n" +
+      "Content-Disposition: form-data; name=\"ast\"\r\n\r\n" +
+      "ast\r\n" +
+      "--" + BOUNDARY + "--\r\n"
+    );
+
+    var json = reader.nextPart();
+    assertThat(json.headers()).contains("name=\"json\"");
+    assertThat(new String(json.body().readAllBytes(), UTF_8)).isEqualTo("{\"a\":1}");
+    var ast = reader.nextPart();
+    assertThat(ast.headers()).contains("name=\"ast\"");
+    assertThat(new String(ast.body().readAllBytes(), UTF_8)).isEqualTo("ast");
+    assertThat(reader.nextPart()).isNull();
+    assertThat(reader.nextPart()).isNull();
+  }
+
+  @Test
+  void should_keep_partial_delimiters_in_body() throws IOException {
+    var content = "a\r\n--" + "----boundary4\r\n\r\n--" + "----boundary\r\r\n-\r\n--" + BOUNDARY.substring(0, 5);
+    var reader = reader(
+      "--" + BOUNDARY + "\r\nName: first\r\n\r\n" + content + "\r\n--" + BOUNDARY + "--"
+    );
+
+    assertThat(new String(reader.nextPart().body().readAllBytes(), UTF_8)).isEqualTo(content);
+    assertThat(reader.nextPart()).isNull();
+  }
+
+  @Test
+  void should_read_large_parts_byte_by_byte() throws IOException {
+    var content = "x\r".repeat(10_000);
+    var reader = reader(
+      "preamble\r\n--" + BOUNDARY + "\r\nName: first\r\n\r\n" + content + "\r\n--" + BOUNDARY + "--"
+    );
+
+    var body = reader.nextPart().body();
+    var result = new StringBuilder();
+    for (int b = body.read(); b != -1; b = body.read()) {
+      result.append((char) b);
+    }
+    assertThat(result).hasToString(content);
+  }
+
+  @Test
+  void should_skip_unread_parts() throws IOException {
+    var reader = reader(
+      "--" + BOUNDARY + "\r\nName: first\r\n\r\n" + "y".repeat(20_000) + "\r\n" +
+      "--" + BOUNDARY + "\r\nName: second\r\n\r\nsecond\r\n" +
+      "--" + BOUNDARY + "--\r\n"
+    );
+
+    assertThat(reader.nextPart().headers()).contains("first");
+    var second = reader.nextPart();
+    assertThat(second.headers()).contains("second");
+    assertThat(new String(second.body().readAllBytes(), UTF_8)).isEqualTo("second");
+  }
+
+  @Test
+  void should_fail_on_truncated_body() throws IOException {
+    var reader = reader("--" + BOUNDARY + "\r\nName: first\r\n\r\ntruncated");
+
+    var body = reader.nextPart().body();
+    assertThatThrownBy(body::readAllBytes).isInstanceOf(EOFException.class);
+  }
+
+  private static MultipartReader reader(String body) {
+    return new MultipartReader(new ByteArrayInputStream(body.getBytes(UTF_8)), BOUNDARY);
+  }
+}
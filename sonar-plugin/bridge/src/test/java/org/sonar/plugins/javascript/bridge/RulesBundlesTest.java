@@ -23,6 +23,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.nio.file.Path;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.io.TempDir;
@@ -63,6 +64,13 @@ class RulesBundlesTest {
     assertThat(logTester.logs(Level.DEBUG).get(0)).contains(filename);
   }
 
+  @Test
+  void test_deploy_twice_should_reuse_deployment() {
+    RulesBundles rulesBundles = new RulesBundles(new TestRulesBundle[] { new TestRulesBundle("/test-bundle.tgz") });
+    List<Path> deployed = rulesBundles.deploy(tempDir);
+    assertThat(rulesBundles.deploy(tempDir)).isEqualTo(deployed);
+  }
+
   @Test
   void test_get_ucfg_bundle() {
     TestRulesBundle rulesBundle = new TestRulesBundle("/test-bundle.tgz");
@@ -0,0 +1,52 @@
+#!/usr/bin/env node
+// Bridge server process answering on each of its worker ports with the port serving the request,
+// so that tests can tell which worker of which process a request was routed to.
+const http = require('node:http');
+const workerPorts = process.argv[2].split(',').map(Number);
+const heartbeatPort = Number(process.argv[3]);
+
+const servers = workerPorts.map(port => {
+  const server = http.createServer((request, response) => {
+    let data = '';
+    request.on('data', chunk => (data += chunk));
+    request.on('end', () => {
+      if (request.url === '/create-program') {
+        response.end(JSON.stringify({ programId: String(port), files: [], projectReferences: [] }));
+      } else if (request.url === '/delete-program' || request.url === '/init-linter') {
+        response.end('OK!');
+      } else {
+        const { filePath } = JSON.parse(data);
+        const res = { issues: [{ line: 1, column: 0, message: String(port) }] };
+        if (filePath.endsWith('slow.js')) {
+          console.log(`slow request on ${port}`);
+        }
+        setTimeout(
+          () =>
+            response.end(JSON.stringify(res), () => {
+              if (filePath.endsWith('exit.ts')) {
+                process.exit(0);
+              }
+            }),
+          filePath.endsWith('slow.js') ? 1000 : 0,
+        );
+      }
+    });
+  });
+  server.keepAliveTimeout = 100;
+  server.listen(port, '127.0.0.1');
+  return server;
+});
+
+const heartbeat = http.createServer((request, response) => {
+  if (request.url === '/close') {
+    console.log(`closing worker(s) ${workerPorts.join(',')}`);
+    response.end(() => {
+      servers.forEach(server => server.close());
+      heartbeat.close();
+    });
+  } else {
+    response.end('OK!');
+  }
+});
+heartbeat.keepAliveTimeout = 100;
+heartbeat.listen(heartbeatPort, '127.0.0.1');
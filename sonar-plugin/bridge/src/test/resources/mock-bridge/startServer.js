@@ -51,6 +51,7 @@ const requestHandler = (request, response) => {
       // /analyze-with-program
       // /analyze-js
       // /analyze-ts
+      // /analyze-batch
       // objects are created to have test coverage
       const res = {
         issues: [
@@ -78,7 +79,9 @@ const requestHandler = (request, response) => {
 
       data = JSON.parse(data);
 
-      if (data.skipAst) {
+      if (request.url === '/analyze-batch') {
+        response.end(JSON.stringify({ responses: data.requests.map(() => res) }));
+      } else if (data.skipAst) {
         response.end(JSON.stringify(res));
       } else {
         replyWithAst(res, response);
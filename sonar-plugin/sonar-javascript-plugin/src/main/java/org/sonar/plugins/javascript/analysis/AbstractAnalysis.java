@@ -20,7 +20,19 @@
 package org.sonar.plugins.javascript.analysis;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -30,9 +42,12 @@ import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.plugins.javascript.CancellationException;
 import org.sonar.plugins.javascript.JavaScriptFilePredicate;
 import org.sonar.plugins.javascript.JavaScriptLanguage;
+import org.sonar.plugins.javascript.JavaScriptPlugin;
 import org.sonar.plugins.javascript.TypeScriptLanguage;
 import org.sonar.plugins.javascript.analysis.cache.CacheAnalysis;
 import org.sonar.plugins.javascript.analysis.cache.CacheStrategies;
+import org.sonar.plugins.javascript.analysis.cache.CacheStrategy;
+import org.sonar.plugins.javascript.analysis.cache.ResultCache;
 import org.sonar.plugins.javascript.api.JsFile;
 import org.sonar.plugins.javascript.api.estree.ESTree;
 import org.sonar.plugins.javascript.bridge.AnalysisMode;
@@ -48,6 +63,7 @@ abstract class AbstractAnalysis {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractAnalysis.class);
   static final String PROGRESS_REPORT_TITLE = "Progress of JavaScript/TypeScript analysis";
   static final long PROGRESS_REPORT_PERIOD = TimeUnit.SECONDS.toMillis(10);
+  private static final String FLAT_AST_FORMAT = "flat";
 
   final BridgeServer bridgeServer;
   final AnalysisProcessor analysisProcessor;
@@ -58,6 +74,12 @@ abstract class AbstractAnalysis {
   AnalysisMode analysisMode;
   protected final AnalysisWarningsWrapper analysisWarnings;
   private AnalysisConsumers consumers;
+  private int parallelism;
+  private ExecutorService analysisExecutor;
+  private final Deque<PendingAnalysis> pendingAnalyses = new ArrayDeque<>();
+  private long maxBatchBytes;
+  private final Map<BatchKey, Batch> batches = new LinkedHashMap<>();
+  private ResultCache resultCache;
 
   AbstractAnalysis(
     BridgeServer bridgeServer,
@@ -82,6 +104,33 @@ abstract class AbstractAnalysis {
     this.checks = checks;
     this.analysisMode = analysisMode;
     this.consumers = consumers;
+    this.parallelism = contextUtils.analysisParallelism();
+    this.maxBatchBytes = contextUtils.analysisBatchBytes();
+    this.resultCache = null;
+  }
+
+  /**
+   * Lets files whose analysis is required be replayed from the result cache, if enabled, when nothing changed since
+   * their analysis was stored, tsconfig files included. The analysis goes on without it if it can't be opened.
+   */
+  protected void initializeResultCache(List<String> tsConfigs) {
+    if (contextUtils.isResultCacheEnabled()) {
+      var config = context.config();
+      try {
+        resultCache = ResultCache.create(
+          context,
+          contextUtils.localResultCacheDirectory(),
+          contextUtils.localResultCacheMaxBytes(),
+          checks.eslintRules(),
+          Arrays.asList(config.getStringArray(JavaScriptPlugin.ENVIRONMENTS)),
+          Arrays.asList(config.getStringArray(JavaScriptPlugin.GLOBALS)),
+          tsConfigs
+        );
+      } catch (IOException e) {
+        LOG.warn("Failed to open the analysis result cache, files will be analyzed without it", e);
+        resultCache = null;
+      }
+    }
   }
 
   protected boolean isJavaScript(InputFile file) {
@@ -98,27 +147,23 @@ abstract class AbstractAnalysis {
     }
     var cacheStrategy = CacheStrategies.getStrategyFor(context, file);
     if (cacheStrategy.isAnalysisRequired()) {
+      AnalysisTask task;
       try {
         LOG.debug("Analyzing file: {}", file.uri());
         progressReport.nextFile(file.toString());
         var fileContent = contextUtils.shouldSendFileContent(file) ? file.contents() : null;
-        var skipAst = !consumers.hasConsumers() || !(contextUtils.isSonarArmorEnabled() || contextUtils.isSonarJasminEnabled() || contextUtils.isSonarJaredEnabled());
-        var request = getJsAnalysisRequest(file, fileContent, tsProgram, tsConfigs, skipAst);
-
-        var response = isJavaScript(file)
-          ? bridgeServer.analyzeJavaScript(request)
-          : bridgeServer.analyzeTypeScript(request);
-
-        analysisProcessor.processResponse(context, checks, file, response);
-        cacheStrategy.writeAnalysisToCache(
-          CacheAnalysis.fromResponse(response.ucfgPaths(), response.cpdTokens()),
-          file
-        );
-        acceptAstResponse(response, file);
+        var astNodeTypes = contextUtils.isSonarArmorEnabled() || contextUtils.isSonarJasminEnabled() || contextUtils.isSonarJaredEnabled()
+          ? consumers.subscribedNodeTypes(file)
+          : null;
+        var request = getJsAnalysisRequest(file, fileContent, tsProgram, tsConfigs, astNodeTypes);
+        task = new AnalysisTask(file, cacheStrategy, request, requestSize(file, fileContent));
       } catch (Exception e) {
         LOG.error("Failed to get response while analyzing " + file.uri(), e);
         throw e;
       }
+      if (!replayFromResultCache(task)) {
+        schedule(task);
+      }
     } else {
       LOG.debug("Processing cache analysis of file: {}", file.uri());
       var cacheAnalysis = cacheStrategy.readAnalysisFromCache();
@@ -126,18 +171,258 @@ abstract class AbstractAnalysis {
     }
   }
 
+  private boolean replayFromResultCache(AnalysisTask task) throws IOException {
+    // the AST is never cached, requests needing it are always sent
+    if (resultCache == null || !task.request().skipAst()) {
+      return false;
+    }
+    var response = resultCache.read(task.file(), task.request().linterId());
+    if (response.isEmpty()) {
+      return false;
+    }
+    LOG.debug("Replaying cached analysis results of file: {}", task.file().uri());
+    processResponse(task, response.get());
+    return true;
+  }
+
+  /**
+   * Size of the file in bytes, like the batch limit, whether its content is sent or read from disk by the bridge.
+   */
+  private static long requestSize(InputFile file, @Nullable String fileContent) {
+    if (fileContent != null) {
+      return utf8Length(fileContent);
+    }
+    try {
+      return Files.size(file.path());
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Length of the UTF-8 encoding of the content sent to the bridge, without encoding it.
+   */
+  private static long utf8Length(String content) {
+    long length = 0;
+    for (int i = 0; i < content.length(); i++) {
+      char c = content.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < content.length() && Character.isLowSurrogate(content.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Requests which don't need the AST are grouped until their files reach {@link #maxBatchBytes},
+   * so that small files don't pay the cost of a round-trip to the bridge each. A batch is sent to
+   * a single bridge worker, so requests are only grouped with the ones referring to the same
+   * program or tsconfig files, which the bridge routes to the same worker.
+   */
+  private void schedule(AnalysisTask task) throws IOException {
+    if (maxBatchBytes > 0 && task.request().skipAst()) {
+      var key = new BatchKey(task.request().programId(), task.request().tsConfigs());
+      var batch = batches.computeIfAbsent(key, k -> new Batch());
+      batch.tasks.add(task);
+      batch.bytes += task.size();
+      if (batch.bytes >= maxBatchBytes) {
+        batches.remove(key);
+        dispatch(batch.tasks);
+      }
+    } else {
+      dispatch(List.of(task));
+    }
+  }
+
+  private void flushBatches() throws IOException {
+    var pending = List.copyOf(batches.values());
+    batches.clear();
+    for (var batch : pending) {
+      dispatch(batch.tasks);
+    }
+  }
+
+  /**
+   * With parallelism, sends the requests to the bridge without waiting for the responses, keeping
+   * at most {@link #parallelism} round-trips in flight. Responses are always processed on the
+   * calling thread in submission order, as the sensor context is not thread-safe.
+   */
+  private void dispatch(List<AnalysisTask> tasks) throws IOException {
+    if (parallelism > 1) {
+      if (analysisExecutor == null) {
+        analysisExecutor = Executors.newFixedThreadPool(parallelism);
+      }
+      pendingAnalyses.add(
+        new PendingAnalysis(tasks, analysisExecutor.submit(() -> analyze(tasks)), new ArrayList<>())
+      );
+      awaitPendingAnalyses(parallelism - 1);
+    } else {
+      try {
+        processResponses(tasks, analyze(tasks));
+      } catch (Exception e) {
+        LOG.error("Failed to get response while analyzing " + describe(tasks), e);
+        throw e;
+      }
+    }
+  }
+
+  private List<BridgeServer.AnalysisResponse> analyze(List<AnalysisTask> tasks) throws IOException {
+    if (tasks.size() > 1) {
+      return bridgeServer.analyzeBatch(tasks.stream().map(AnalysisTask::request).toList());
+    }
+    var task = tasks.get(0);
+    return List.of(
+      isJavaScript(task.file())
+        ? bridgeServer.analyzeJavaScript(task.request())
+        : bridgeServer.analyzeTypeScript(task.request())
+    );
+  }
+
+  private void processResponses(List<AnalysisTask> tasks, List<BridgeServer.AnalysisResponse> responses) throws IOException {
+    for (int i = 0; i < tasks.size(); i++) {
+      var task = tasks.get(i);
+      var response = responses.get(i);
+      processResponse(task, response);
+      if (resultCache != null) {
+        resultCache.write(task.file(), task.request().linterId(), response);
+      }
+    }
+  }
+
+  private void processResponse(AnalysisTask task, BridgeServer.AnalysisResponse response) throws IOException {
+    analysisProcessor.processResponse(context, checks, task.file(), response);
+    task.cacheStrategy().writeAnalysisToCache(
+      CacheAnalysis.fromResponse(response.ucfgPaths(), response.cpdTokens()),
+      task.file()
+    );
+    acceptAstResponse(response, task.file());
+  }
+
+  private static String describe(List<AnalysisTask> tasks) {
+    var first = tasks.get(0).file().uri().toString();
+    return tasks.size() == 1 ? first : (first + " and " + (tasks.size() - 1) + " other file(s)");
+  }
+
+  /**
+   * Sends the pending batches, then waits for all the requests in flight and processes their responses.
+   * It must be called before deleting the program these requests refer to, and once all files have been submitted.
+   */
+  protected void awaitPendingAnalyses() throws IOException {
+    flushBatches();
+    awaitPendingAnalyses(0);
+  }
+
+  /**
+   * Runs the action once the requests sent so far have been processed, without waiting for them now.
+   * The action runs on the calling thread, from a later call processing pending analyses.
+   */
+  protected void afterPendingAnalyses(Completion action) throws IOException {
+    flushBatches();
+    var last = pendingAnalyses.peekLast();
+    if (last == null) {
+      action.run();
+    } else {
+      last.completions().add(action);
+    }
+  }
+
+  /**
+   * Waits for the oldest request in flight, if any, and processes its response.
+   */
+  protected void awaitNextPendingAnalysis() throws IOException {
+    if (!pendingAnalyses.isEmpty()) {
+      processNextPendingAnalysis();
+    }
+  }
+
+  private void awaitPendingAnalyses(int maxPending) throws IOException {
+    while (pendingAnalyses.size() > maxPending) {
+      processNextPendingAnalysis();
+    }
+  }
+
+  private void processNextPendingAnalysis() throws IOException {
+    var pending = pendingAnalyses.poll();
+    try {
+      processResponses(pending.tasks(), pending.responses().get());
+      for (var completion : pending.completions()) {
+        completion.run();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while analyzing " + describe(pending.tasks()), e);
+    } catch (ExecutionException e) {
+      LOG.error("Failed to get response while analyzing " + describe(pending.tasks()), e.getCause());
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Discards the pending batches and the requests still in flight, and releases the threads used to send them.
+   */
+  protected void stopPendingAnalyses() {
+    batches.clear();
+    pendingAnalyses.forEach(pending -> pending.responses().cancel(true));
+    pendingAnalyses.clear();
+    if (analysisExecutor != null) {
+      analysisExecutor.shutdownNow();
+      analysisExecutor = null;
+    }
+  }
+
+  private record AnalysisTask(
+    InputFile file,
+    CacheStrategy cacheStrategy,
+    BridgeServer.JsAnalysisRequest request,
+    long size
+  ) {}
+
+  private record BatchKey(@Nullable String programId, @Nullable List<String> tsConfigs) {}
+
+  private static final class Batch {
+    private final List<AnalysisTask> tasks = new ArrayList<>();
+    private long bytes;
+  }
+
+  private record PendingAnalysis(
+    List<AnalysisTask> tasks,
+    Future<List<BridgeServer.AnalysisResponse>> responses,
+    List<Completion> completions
+  ) {}
+
+  @FunctionalInterface
+  interface Completion {
+    void run() throws IOException;
+  }
+
   private void acceptAstResponse(BridgeServer.AnalysisResponse response, InputFile file) {
+    var flatAst = response.flatAst();
     Node responseAst = response.ast();
-    if (responseAst != null) {
-      // When we haven't serialized the AST:
-      // either because no consumer is listening
-      // or the file extension or AST nodes are unsupported
-      try {
+    try {
+      if (flatAst != null) {
+        consumers.accept(new JsFile(file, null, flatAst));
+      } else if (responseAst != null) {
+        // When we haven't serialized the AST:
+        // either because no consumer is listening
+        // or the file extension or AST nodes are unsupported
         ESTree.Program program = ESTreeFactory.from(responseAst, ESTree.Program.class);
         consumers.accept(new JsFile(file, program));
-      } catch (Exception e) {
-        LOG.debug("Failed to deserialize AST for file: {}", file.uri(), e);
       }
+    } catch (Exception e) {
+      LOG.debug("Failed to deserialize AST for file: {}", file.uri(), e);
     }
   }
 
@@ -146,8 +431,9 @@ abstract class AbstractAnalysis {
     @Nullable String fileContent,
     @Nullable TsProgram tsProgram,
     @Nullable List<String> tsConfigs,
-    boolean skipAst
+    @Nullable Set<String> astNodeTypes
   ) {
+    var skipAst = astNodeTypes == null;
     return new BridgeServer.JsAnalysisRequest(
       file.absolutePath(),
       file.type().toString(),
@@ -157,7 +443,9 @@ abstract class AbstractAnalysis {
       tsConfigs,
       tsProgram != null ? tsProgram.programId() : null,
       analysisMode.getLinterIdFor(file),
-      skipAst
+      skipAst,
+      skipAst || !consumers.acceptsFlatAst() ? null : FLAT_AST_FORMAT,
+      skipAst || astNodeTypes.isEmpty() ? null : List.copyOf(astNodeTypes)
     );
   }
 }
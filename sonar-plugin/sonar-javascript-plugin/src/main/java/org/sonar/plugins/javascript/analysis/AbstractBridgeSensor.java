@@ -61,7 +61,7 @@ public abstract class AbstractBridgeSensor implements Sensor {
 
   @Override
   public void execute(SensorContext context) {
-    CacheStrategies.reset();
+    CacheStrategies.reset(lang);
     this.context = context;
     this.exclusions = Arrays.asList(Exclusions.getExcludedPaths(context.config()));
     this.contextUtils = new ContextUtils(context);
@@ -102,10 +102,20 @@ public abstract class AbstractBridgeSensor implements Sensor {
       LOG.error("Failure during analysis", e);
       throw new IllegalStateException("Analysis of " + this.lang + " files failed", e);
     } finally {
+      CacheStrategies.stopPrefetch();
+      CacheStrategies.writeSharedEntries(context);
       CacheStrategies.logReport();
+      CacheStrategies.writeReport(context);
     }
   }
 
+  /**
+   * Starts resolving the cache strategies of the files, if enabled, while the sensor prepares their analysis.
+   */
+  protected void prefetchCacheStrategies(List<InputFile> inputFiles) {
+    CacheStrategies.prefetch(context, inputFiles, contextUtils.cachePrefetchThreads());
+  }
+
   protected void logErrorOrWarn(String msg, Throwable e) {
     LOG.error(msg, e);
   }
@@ -19,9 +19,19 @@
  */
 package org.sonar.plugins.javascript.analysis;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.scanner.ScannerSide;
 import org.sonar.plugins.javascript.api.JsAnalysisConsumer;
 import org.sonar.plugins.javascript.api.JsFile;
@@ -34,6 +44,8 @@ public class AnalysisConsumers implements JsAnalysisConsumer {
   private static final Logger LOG = LoggerFactory.getLogger(AnalysisConsumers.class);
 
   private final List<JsAnalysisConsumer> consumers;
+  private List<Lane> lanes = List.of();
+  private Semaphore pendingFiles;
 
   public AnalysisConsumers() {
     consumers = List.of();
@@ -45,17 +57,147 @@ public class AnalysisConsumers implements JsAnalysisConsumer {
     LOG.debug("Registered JsAnalysisConsumers {}", this.consumers);
   }
 
+  /**
+   * Dispatches the files to the consumers on the given number of threads, so that they run while the next files are
+   * analyzed. Each consumer is always called from the same thread, in the order of the files. At most
+   * {@code maxPendingFiles} files are waiting for the consumers: beyond that, {@link #accept(JsFile)} blocks, which
+   * bounds the memory held by their ASTs.
+   * <p>
+   * Without threads, the files are dispatched synchronously.
+   */
+  void start(int threads, int maxPendingFiles) {
+    stop();
+    if (threads <= 0 || consumers.isEmpty()) {
+      return;
+    }
+    var laneCount = Math.min(threads, consumers.size());
+    var newLanes = new ArrayList<Lane>(laneCount);
+    for (int i = 0; i < laneCount; i++) {
+      newLanes.add(new Lane(new ArrayList<>(), Executors.newSingleThreadExecutor()));
+    }
+    for (int i = 0; i < consumers.size(); i++) {
+      newLanes.get(i % laneCount).consumers().add(consumers.get(i));
+    }
+    lanes = List.copyOf(newLanes);
+    pendingFiles = new Semaphore(Math.max(1, maxPendingFiles));
+    LOG.debug("Dispatching files to JsAnalysisConsumers on {} thread(s)", laneCount);
+  }
+
+  /**
+   * @return the node types subscribed to by the consumers interested in the file, empty if any of them needs all the
+   * nodes, or null if no consumer is interested in the file
+   */
+  @CheckForNull
+  Set<String> subscribedNodeTypes(InputFile file) {
+    var nodeTypes = new TreeSet<String>();
+    var subscribed = false;
+    for (var consumer : consumers) {
+      if (isSubscribed(consumer, file)) {
+        var subscription = consumer.subscription().nodeTypes();
+        if (subscription.isEmpty()) {
+          return Set.of();
+        }
+        subscribed = true;
+        nodeTypes.addAll(subscription);
+      }
+    }
+    return subscribed ? nodeTypes : null;
+  }
+
+  private static boolean isSubscribed(JsAnalysisConsumer consumer, InputFile file) {
+    var subscription = consumer.subscription();
+    if (subscription.languages().isEmpty() && subscription.fileTypes().isEmpty()) {
+      return true;
+    }
+    return subscription.matches(AbstractAnalysis.inputFileLanguage(file), file.type());
+  }
+
   @Override
   public void accept(JsFile jsFile) {
-    consumers.forEach(c -> c.accept(jsFile));
+    if (lanes.isEmpty()) {
+      consumers.stream()
+        .filter(c -> isSubscribed(c, jsFile.inputFile()))
+        .forEach(c -> c.accept(jsFile));
+      return;
+    }
+    try {
+      pendingFiles.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the JsAnalysisConsumers", e);
+    }
+    var remainingLanes = new AtomicInteger(lanes.size());
+    for (var lane : lanes) {
+      lane.executor().execute(() -> {
+        try {
+          lane.accept(jsFile);
+        } finally {
+          if (remainingLanes.decrementAndGet() == 0) {
+            pendingFiles.release();
+          }
+        }
+      });
+    }
   }
 
+  /**
+   * Waits for the consumers to process the pending files, before notifying them that the analysis is done.
+   */
   @Override
   public void doneAnalysis() {
+    for (var lane : lanes) {
+      lane.executor().shutdown();
+    }
+    try {
+      for (var lane : lanes) {
+        while (!lane.executor().awaitTermination(1, TimeUnit.MINUTES)) {
+          LOG.debug("Waiting for JsAnalysisConsumers {}", lane.consumers());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the JsAnalysisConsumers", e);
+    } finally {
+      stop();
+    }
     consumers.forEach(JsAnalysisConsumer::doneAnalysis);
   }
 
+  /**
+   * Discards the pending files, if any, and releases the threads.
+   */
+  void stop() {
+    lanes.forEach(lane -> lane.executor().shutdownNow());
+    lanes = List.of();
+    pendingFiles = null;
+  }
+
+  /**
+   * The flat AST is requested only if every consumer can handle it, as a single AST is produced per file.
+   */
+  @Override
+  public boolean acceptsFlatAst() {
+    return hasConsumers() && consumers.stream().allMatch(JsAnalysisConsumer::acceptsFlatAst);
+  }
+
   public boolean hasConsumers() {
     return ! consumers.isEmpty();
   }
+
+  private record Lane(List<JsAnalysisConsumer> consumers, ExecutorService executor) {
+
+    void accept(JsFile jsFile) {
+      for (var consumer : consumers) {
+        if (!isSubscribed(consumer, jsFile.inputFile())) {
+          continue;
+        }
+        try {
+          consumer.accept(jsFile);
+        } catch (RuntimeException e) {
+          // like when dispatched synchronously, a failure on a file does not prevent consuming the next ones
+          LOG.debug("Failed to consume AST for file: {}", jsFile.inputFile().uri(), e);
+        }
+      }
+    }
+  }
 }
@@ -52,10 +52,10 @@ import org.sonar.api.scanner.ScannerSide;
 import org.sonar.api.utils.Version;
 import org.sonar.plugins.javascript.analysis.cache.CacheAnalysis;
 import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
-import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
-import org.sonar.plugins.javascript.bridge.BridgeServer.Highlight;
-import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbol;
-import org.sonar.plugins.javascript.bridge.BridgeServer.Location;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbolBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.LocationBlock;
 import org.sonar.plugins.javascript.bridge.BridgeServer.Metrics;
 import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingError;
 import org.sonar.plugins.javascript.bridge.BridgeServer.ParsingErrorCode;
@@ -192,16 +192,15 @@ public class AnalysisProcessor {
     }
   }
 
-  private void saveHighlights(List<Highlight> highlights) {
+  private void saveHighlights(HighlightBlock highlights) {
     NewHighlighting highlighting = context.newHighlighting().onFile(file);
-    for (Highlight highlight : highlights) {
+    LocationBlock locations = highlights.locations();
+    String[] textTypes = highlights.textTypes();
+    for (int i = 0; i < highlights.size(); i++) {
       try {
-        highlighting.highlight(
-          highlight.location().toTextRange(file),
-          TypeOfText.valueOf(highlight.textType())
-        );
+        highlighting.highlight(locations.toTextRange(i, file), TypeOfText.valueOf(textTypes[i]));
       } catch (RuntimeException e) {
-        LOG.warn("Failed to create highlight in {} at {}", file.uri(), highlight.location());
+        LOG.warn("Failed to create highlight in {} at {}", file.uri(), locations.get(i));
         LOG.warn("Exception cause", e);
         // continue processing other highlights
       }
@@ -214,33 +213,35 @@ public class AnalysisProcessor {
     }
   }
 
-  private void saveHighlightedSymbols(List<HighlightedSymbol> highlightedSymbols) {
+  private void saveHighlightedSymbols(HighlightedSymbolBlock highlightedSymbols) {
     NewSymbolTable symbolTable = context.newSymbolTable().onFile(file);
-    for (HighlightedSymbol highlightedSymbol : highlightedSymbols) {
-      Location declaration = highlightedSymbol.declaration();
+    LocationBlock declarations = highlightedSymbols.declarations();
+    LocationBlock references = highlightedSymbols.references();
+    int[] referenceOffsets = highlightedSymbols.referenceOffsets();
+    for (int i = 0; i < highlightedSymbols.size(); i++) {
       NewSymbol newSymbol;
       try {
         newSymbol =
           symbolTable.newSymbol(
-            declaration.startLine(),
-            declaration.startCol(),
-            declaration.endLine(),
-            declaration.endCol()
+            declarations.startLines()[i],
+            declarations.startCols()[i],
+            declarations.endLines()[i],
+            declarations.endCols()[i]
           );
       } catch (RuntimeException e) {
-        LOG.warn("Failed to create symbol declaration in {} at {}", file.uri(), declaration);
+        LOG.warn("Failed to create symbol declaration in {} at {}", file.uri(), declarations.get(i));
         continue;
       }
-      for (Location reference : highlightedSymbol.references()) {
+      for (int j = referenceOffsets[i]; j < referenceOffsets[i + 1]; j++) {
         try {
           newSymbol.newReference(
-            reference.startLine(),
-            reference.startCol(),
-            reference.endLine(),
-            reference.endCol()
+            references.startLines()[j],
+            references.startCols()[j],
+            references.endLines()[j],
+            references.endCols()[j]
           );
         } catch (RuntimeException e) {
-          LOG.warn("Failed to create symbol reference in {} at {}", file.uri(), reference);
+          LOG.warn("Failed to create symbol reference in {} at {}", file.uri(), references.get(j));
         }
       }
     }
@@ -249,25 +250,19 @@ public class AnalysisProcessor {
 
   private void saveMetrics(Metrics metrics) {
     if (file.type() == InputFile.Type.TEST || contextUtils.isSonarLint()) {
-      noSonarFilter.noSonarInFile(
-        file,
-        Set.copyOf(metrics.nosonarLines())
-      );
+      noSonarFilter.noSonarInFile(file, lineSet(metrics.nosonarLines()));
       return;
     }
 
     saveMetric(file, CoreMetrics.FUNCTIONS, metrics.functions());
     saveMetric(file, CoreMetrics.STATEMENTS, metrics.statements());
     saveMetric(file, CoreMetrics.CLASSES, metrics.classes());
-    saveMetric(file, CoreMetrics.NCLOC, metrics.ncloc().size());
-    saveMetric(file, CoreMetrics.COMMENT_LINES, metrics.commentLines().size());
+    saveMetric(file, CoreMetrics.NCLOC, metrics.ncloc().length);
+    saveMetric(file, CoreMetrics.COMMENT_LINES, metrics.commentLines().length);
     saveMetric(file, CoreMetrics.COMPLEXITY, metrics.complexity());
     saveMetric(file, CoreMetrics.COGNITIVE_COMPLEXITY, metrics.cognitiveComplexity());
 
-    noSonarFilter.noSonarInFile(
-      file,
-      Set.copyOf(metrics.nosonarLines())
-    );
+    noSonarFilter.noSonarInFile(file, lineSet(metrics.nosonarLines()));
 
     FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(file);
     for (int line : metrics.ncloc()) {
@@ -281,19 +276,29 @@ public class AnalysisProcessor {
     fileLinesContext.save();
   }
 
+  private static Set<Integer> lineSet(int[] lines) {
+    var result = new HashSet<Integer>(lines.length * 2);
+    for (int line : lines) {
+      result.add(line);
+    }
+    return result;
+  }
+
   private <T extends Serializable> void saveMetric(InputFile file, Metric<T> metric, T value) {
     context.<T>newMeasure().withValue(value).forMetric(metric).on(file).save();
   }
 
-  private void saveCpd(List<CpdToken> cpdTokens) {
+  private void saveCpd(CpdTokenBlock cpdTokens) {
     if (file.type().equals(InputFile.Type.TEST) || contextUtils.isSonarLint()) {
       // even providing empty 'NewCpdTokens' will trigger duplication computation so skipping
       return;
     }
     try {
       NewCpdTokens newCpdTokens = context.newCpdTokens().onFile(file);
-      for (CpdToken cpdToken : cpdTokens) {
-        newCpdTokens.addToken(cpdToken.location().toTextRange(file), cpdToken.image());
+      LocationBlock locations = cpdTokens.locations();
+      String[] images = cpdTokens.images();
+      for (int i = 0; i < cpdTokens.size(); i++) {
+        newCpdTokens.addToken(locations.toTextRange(i, file), images[i]);
       }
       newCpdTokens.save();
     } catch (RuntimeException e) {
@@ -20,12 +20,21 @@
 package org.sonar.plugins.javascript.analysis;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
@@ -43,6 +52,18 @@ import org.sonarsource.api.sonarlint.SonarLintSide;
 public class AnalysisWithProgram extends AbstractAnalysis {
 
   private static final Logger LOG = LoggerFactory.getLogger(AnalysisWithProgram.class);
+  /**
+   * Number of programs alive at once. Programs live in the heap of the bridge workers, which the plugin can't measure
+   * program by program, while the heap of each Node.js process is capped by sonar.javascript.node.maxspace. A program
+   * being by far the largest object of a worker, bounding their number is what keeps the heap of the bridge bounded.
+   * The bridge starts at least as many workers, so that each program can be created and analyzed on its own.
+   */
+  private int maxPrograms;
+  private int livePrograms;
+  private ExecutorService programExecutor;
+  private volatile boolean discardPrograms;
+  private final List<TsProgram> createdPrograms = new ArrayList<>();
+
   public AnalysisWithProgram(
     BridgeServer bridgeServer,
     AnalysisProcessor analysisProcessor,
@@ -53,43 +74,58 @@ public class AnalysisWithProgram extends AbstractAnalysis {
 
   @Override
   void analyzeFiles(List<InputFile> inputFiles, List<String> tsConfigs) throws IOException {
+    maxPrograms = contextUtils.analysisMaxPrograms();
+    initializeResultCache(tsConfigs);
     progressReport = new ProgressReport(PROGRESS_REPORT_TITLE, PROGRESS_REPORT_PERIOD);
     progressReport.start(inputFiles.size(), inputFiles.iterator().next().toString());
     boolean success = false;
+    Deque<PendingProgram> pendingPrograms = new ArrayDeque<>();
     try {
       Deque<String> workList = new ArrayDeque<>(tsConfigs);
+      Deque<ActiveProgram> activePrograms = new ArrayDeque<>();
       Set<String> analyzedProjects = new HashSet<>();
       Set<InputFile> analyzedFiles = new HashSet<>();
-      while (!workList.isEmpty()) {
-        var tsConfig = Path.of(workList.pop()).toString();
-        // Use of path.of as it normalizes Unix and Windows paths. Otherwise, project references returned by typescript may not match system slash
-        if (!analyzedProjects.add(tsConfig)) {
-          LOG.debug("tsconfig.json already analyzed: '{}'. Skipping it.", tsConfig);
-          continue;
+      livePrograms = 0;
+      discardPrograms = false;
+      createdPrograms.clear();
+      while (!workList.isEmpty() || !pendingPrograms.isEmpty() || !activePrograms.isEmpty()) {
+        while (!workList.isEmpty() && livePrograms < maxPrograms) {
+          var tsConfig = Path.of(workList.pop()).toString();
+          // Use of path.of as it normalizes Unix and Windows paths. Otherwise, project references returned by typescript may not match system slash
+          if (!analyzedProjects.add(tsConfig)) {
+            LOG.debug("tsconfig.json already analyzed: '{}'. Skipping it.", tsConfig);
+            continue;
+          }
+          pendingPrograms.add(createProgram(tsConfig));
+          livePrograms++;
         }
-        LOG.info("Creating TypeScript program");
-        LOG.info("TypeScript configuration file {}", tsConfig);
-        var program = bridgeServer.createProgram(new TsProgramRequest(tsConfig));
-        if (program.error() != null) {
-          LOG.error("Failed to create program: {}", program.error());
-          this.analysisWarnings.addUnique(
-              String.format(
-                "Failed to create TypeScript program with TSConfig file %s. Highest TypeScript supported version is %s.",
-                tsConfig,
-                JavaScriptPlugin.TYPESCRIPT_VERSION
-              )
-            );
+        // programs are analyzed in the order of the work list, from the time they are created
+        while (!pendingPrograms.isEmpty() && (activePrograms.isEmpty() || pendingPrograms.peek().program().isDone())) {
+          var activeProgram = activate(pendingPrograms.poll(), workList, analyzedFiles);
+          if (activeProgram != null) {
+            activePrograms.add(activeProgram);
+          }
+        }
+        var activeProgram = activePrograms.poll();
+        if (activeProgram == null) {
+          if (livePrograms >= maxPrograms) {
+            // all the programs allowed are alive, the oldest one is deleted once its files are analyzed
+            awaitNextPendingAnalysis();
+          }
           continue;
         }
-        if (program.missingTsConfig()) {
-          String msg =
-            "At least one tsconfig.json was not found in the project. Please run 'npm install' for a more complete analysis. Check analysis logs for more details.";
-          LOG.warn(msg);
-          this.analysisWarnings.addUnique(msg);
+        if (activeProgram.files().hasNext()) {
+          analyzeFile(activeProgram.files().next(), null, activeProgram.program());
+          activePrograms.add(activeProgram);
+        } else {
+          LOG.info("Analyzed {} file(s) with program of {}", activeProgram.fileCount(), activeProgram.tsConfig());
+          var program = activeProgram.program();
+          afterPendingAnalyses(() -> {
+            bridgeServer.deleteProgram(program);
+            createdPrograms.remove(program);
+            livePrograms--;
+          });
         }
-        analyzeProgram(program, analyzedFiles);
-        workList.addAll(program.projectReferences());
-        bridgeServer.deleteProgram(program);
       }
       Set<InputFile> skippedFiles = new HashSet<>(inputFiles);
       skippedFiles.removeAll(analyzedFiles);
@@ -105,6 +141,7 @@ public class AnalysisWithProgram extends AbstractAnalysis {
           analyzeFile(f, null, null);
         }
       }
+      awaitPendingAnalyses();
       success = true;
       if (analysisProcessor.parsingErrorFilesCount() > 0) {
         this.analysisWarnings.addUnique(
@@ -115,6 +152,15 @@ public class AnalysisWithProgram extends AbstractAnalysis {
           );
       }
     } finally {
+      stopPendingAnalyses();
+      if (!success) {
+        deletePrograms(pendingPrograms);
+      }
+      if (programExecutor != null) {
+        // programs being created are not interrupted, so that they can still be deleted
+        programExecutor.shutdown();
+        programExecutor = null;
+      }
       if (success) {
         progressReport.stop();
       } else {
@@ -123,19 +169,80 @@ public class AnalysisWithProgram extends AbstractAnalysis {
     }
   }
 
-  private void analyzeProgram(TsProgram program, Set<InputFile> analyzedFiles) throws IOException {
-    LOG.info("Starting analysis with current program");
+  /**
+   * Programs are independent of each other, even when their tsconfig files reference each other: as long
+   * as {@link #maxPrograms} allows it, the next programs are created by other bridge workers while the
+   * files of the current ones are analyzed.
+   */
+  private PendingProgram createProgram(String tsConfig) throws IOException {
+    LOG.info("Creating TypeScript program");
+    LOG.info("TypeScript configuration file {}", tsConfig);
+    var request = new TsProgramRequest(tsConfig);
+    if (maxPrograms <= 1) {
+      return new PendingProgram(tsConfig, CompletableFuture.completedFuture(bridgeServer.createProgram(request)));
+    }
+    if (programExecutor == null) {
+      programExecutor = Executors.newFixedThreadPool(maxPrograms);
+    }
+    return new PendingProgram(
+      tsConfig,
+      CompletableFuture.supplyAsync(
+        () -> {
+          if (discardPrograms) {
+            return null;
+          }
+          try {
+            return bridgeServer.createProgram(request);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        },
+        programExecutor
+      )
+    );
+  }
+
+  /**
+   * Waits for the creation of the program, and claims its files which were not claimed by a program before it in
+   * the work list: a file belonging to several programs is always analyzed with the same one, however the analysis
+   * of their files is interleaved.
+   *
+   * @return null if the program could not be created
+   */
+  @CheckForNull
+  private ActiveProgram activate(PendingProgram pendingProgram, Deque<String> workList, Set<InputFile> analyzedFiles)
+    throws IOException {
+    var tsConfig = pendingProgram.tsConfig();
+    var program = awaitProgram(pendingProgram);
+    if (program.error() != null) {
+      livePrograms--;
+      LOG.error("Failed to create program: {}", program.error());
+      this.analysisWarnings.addUnique(
+          String.format(
+            "Failed to create TypeScript program with TSConfig file %s. Highest TypeScript supported version is %s.",
+            tsConfig,
+            JavaScriptPlugin.TYPESCRIPT_VERSION
+          )
+        );
+      return null;
+    }
+    createdPrograms.add(program);
+    if (program.missingTsConfig()) {
+      String msg =
+        "At least one tsconfig.json was not found in the project. Please run 'npm install' for a more complete analysis. Check analysis logs for more details.";
+      LOG.warn(msg);
+      this.analysisWarnings.addUnique(msg);
+    }
+    workList.addAll(program.projectReferences());
+    LOG.info("Starting analysis with program of {}", tsConfig);
     var fs = context.fileSystem();
-    var counter = 0;
+    var files = new ArrayList<InputFile>();
     for (var file : program.files()) {
       var inputFile = fs.inputFile(fs.predicates().hasAbsolutePath(file));
       if (inputFile == null) {
         LOG.debug("File not part of the project: '{}'", file);
-        continue;
-      }
-      if (analyzedFiles.add(inputFile)) {
-        analyzeFile(inputFile, null, program);
-        counter++;
+      } else if (analyzedFiles.add(inputFile)) {
+        files.add(inputFile);
       } else {
         LOG.debug(
           "File already analyzed: '{}'. Check your project configuration to avoid files being part of multiple projects.",
@@ -143,8 +250,51 @@ public class AnalysisWithProgram extends AbstractAnalysis {
         );
       }
     }
+    return new ActiveProgram(tsConfig, program, files.size(), files.iterator());
+  }
 
-    LOG.info("Analyzed {} file(s) with current program", counter);
+  private static TsProgram awaitProgram(PendingProgram pendingProgram) throws IOException {
+    try {
+      return pendingProgram.program().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while creating program for " + pendingProgram.tsConfig(), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+        throw uncheckedIOException.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Deletes the programs left alive by a failed analysis, the ones created ahead included: the programs still being
+   * created are deleted once created, and the ones whose creation didn't start are not created.
+   */
+  private void deletePrograms(Deque<PendingProgram> pendingPrograms) {
+    discardPrograms = true;
+    createdPrograms.forEach(this::deleteProgramQuietly);
+    createdPrograms.clear();
+    for (var pendingProgram : pendingPrograms) {
+      pendingProgram.program().thenAccept(this::deleteProgramQuietly);
+    }
   }
 
+  private void deleteProgramQuietly(@Nullable TsProgram program) {
+    if (program == null || program.programId() == null) {
+      return;
+    }
+    try {
+      bridgeServer.deleteProgram(program);
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Failed to delete program {}", program.programId(), e);
+    }
+  }
+
+  private record PendingProgram(String tsConfig, CompletableFuture<TsProgram> program) {}
+
+  private record ActiveProgram(String tsConfig, TsProgram program, int fileCount, Iterator<InputFile> files) {}
 }
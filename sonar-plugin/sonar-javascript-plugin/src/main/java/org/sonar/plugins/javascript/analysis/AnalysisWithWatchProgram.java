@@ -51,11 +51,13 @@ public class AnalysisWithWatchProgram extends AbstractAnalysis {
     boolean success = false;
     progressReport = new ProgressReport(PROGRESS_REPORT_TITLE, PROGRESS_REPORT_PERIOD);
     try {
+      initializeResultCache(tsConfigs);
       progressReport.start(inputFiles.size(), inputFiles.iterator().next().toString());
       for (InputFile inputFile : inputFiles) {
         var tsConfigFile = tsConfigCache.getTsConfigForInputFile(inputFile);
         analyzeFile(inputFile, tsConfigFile == null ? List.of() : List.of(tsConfigFile.getFilename()), null);
       }
+      awaitPendingAnalyses();
       success = true;
       if (analysisProcessor.parsingErrorFilesCount() > 0) {
         this.analysisWarnings.addUnique(
@@ -66,6 +68,7 @@ public class AnalysisWithWatchProgram extends AbstractAnalysis {
           );
       }
     } finally {
+      stopPendingAnalyses();
       if (success) {
         progressReport.stop();
       } else {
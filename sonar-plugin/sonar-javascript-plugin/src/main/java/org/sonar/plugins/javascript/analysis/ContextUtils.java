@@ -20,10 +20,14 @@
 package org.sonar.plugins.javascript.analysis;
 
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import javax.annotation.CheckForNull;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.plugins.javascript.JavaScriptPlugin;
+import org.sonar.plugins.javascript.bridge.BridgeServerImpl;
+import org.sonar.plugins.javascript.bridge.Environment;
 
 class ContextUtils {
 
@@ -44,6 +48,34 @@ class ContextUtils {
   /* Internal property to enable JaRED (disabled by default) */
   private static final String JARED_INTERNAL_ENABLED = "sonar.jared.internal.enabled";
 
+  /* Internal property to send analysis requests in batches of files up to the given size in bytes (disabled by default) */
+  private static final String ANALYSIS_BATCH_BYTES = "sonar.javascript.analysis.batchBytes";
+
+  /* Internal property to replay the results of unchanged files from the analysis cache (disabled by default) */
+  private static final String ANALYSIS_RESULT_CACHE = "sonar.javascript.analysis.resultCache";
+
+  /* Internal property to keep the replayed results in a local directory instead of the analysis cache (disabled by default) */
+  private static final String ANALYSIS_RESULT_CACHE_LOCAL = "sonar.javascript.analysis.resultCache.local";
+
+  /* Internal property to set the directory of the local result cache (defaults to a directory of the Sonar user home) */
+  private static final String ANALYSIS_RESULT_CACHE_PATH = "sonar.javascript.analysis.resultCache.path";
+
+  /* Internal property to set the size budget of the local result cache in bytes */
+  private static final String ANALYSIS_RESULT_CACHE_MAX_BYTES = "sonar.javascript.analysis.resultCache.maxBytes";
+
+  /* Internal property to resolve the cache strategies of the files on the given number of threads before analyzing them (disabled by default) */
+  private static final String CACHE_PREFETCH_THREADS = "sonar.javascript.cache.prefetchThreads";
+
+  /* Internal property to run the JsAnalysisConsumers on the given number of threads, while the next files are analyzed (disabled by default) */
+  private static final String CONSUMERS_THREADS = "sonar.javascript.consumers.threads";
+
+  /* Internal property to limit the number of files waiting for the JsAnalysisConsumers when they run on their own threads */
+  private static final String CONSUMERS_MAX_PENDING_FILES = "sonar.javascript.consumers.maxPendingFiles";
+
+  private static final int DEFAULT_CONSUMERS_MAX_PENDING_FILES = 16;
+
+  private static final long DEFAULT_RESULT_CACHE_MAX_BYTES = 512L * 1024 * 1024;
+
   private final SensorContext context;
 
   ContextUtils(SensorContext context) {
@@ -73,6 +105,51 @@ class ContextUtils {
     return context.config().getBoolean("sonar.internal.analysis.failFast").orElse(false);
   }
 
+  int analysisParallelism() {
+    return BridgeServerImpl.analysisParallelism(context.config());
+  }
+
+  long analysisBatchBytes() {
+    return context.config().getLong(ANALYSIS_BATCH_BYTES).orElse(0L);
+  }
+
+  int analysisMaxPrograms() {
+    return BridgeServerImpl.analysisMaxPrograms(context.config());
+  }
+
+  boolean isResultCacheEnabled() {
+    return context.config().getBoolean(ANALYSIS_RESULT_CACHE).orElse(false);
+  }
+
+  /**
+   * @return the directory of the local result cache, or null when results are kept in the analysis cache
+   */
+  @CheckForNull
+  Path localResultCacheDirectory() {
+    if (!context.config().getBoolean(ANALYSIS_RESULT_CACHE_LOCAL).orElse(false)) {
+      return null;
+    }
+    return context.config().get(ANALYSIS_RESULT_CACHE_PATH)
+      .map(Path::of)
+      .orElseGet(() -> new Environment(context.config()).getSonarUserHome().resolve("js").resolve("results"));
+  }
+
+  long localResultCacheMaxBytes() {
+    return context.config().getLong(ANALYSIS_RESULT_CACHE_MAX_BYTES).orElse(DEFAULT_RESULT_CACHE_MAX_BYTES);
+  }
+
+  int cachePrefetchThreads() {
+    return Math.max(0, context.config().getInt(CACHE_PREFETCH_THREADS).orElse(0));
+  }
+
+  int consumersThreads() {
+    return Math.max(0, context.config().getInt(CONSUMERS_THREADS).orElse(0));
+  }
+
+  int consumersMaxPendingFiles() {
+    return Math.max(1, context.config().getInt(CONSUMERS_MAX_PENDING_FILES).orElse(DEFAULT_CONSUMERS_MAX_PENDING_FILES));
+  }
+
   SensorContext context() {
     return context;
   }
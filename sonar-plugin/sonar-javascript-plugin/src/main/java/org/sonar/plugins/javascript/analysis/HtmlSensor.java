@@ -72,6 +72,7 @@ public class HtmlSensor extends AbstractBridgeSensor {
     var success = false;
     try {
       progressReport.start(inputFiles.size(), inputFiles.iterator().next().toString());
+      prefetchCacheStrategies(inputFiles);
       bridgeServer.initLinter(
         AnalysisMode.getHtmlFileRules(checks.eslintRules()),
         environments,
@@ -82,6 +82,7 @@ public class JsTsSensor extends AbstractBridgeSensor {
   @Override
   protected void analyzeFiles(List<InputFile> inputFiles) throws IOException {
     var analysisMode = AnalysisMode.getMode(context);
+    prefetchCacheStrategies(inputFiles);
 
     bridgeServer.initLinter(
       checks.eslintRules(),
@@ -106,9 +107,14 @@ public class JsTsSensor extends AbstractBridgeSensor {
     if (tsConfigs.isEmpty()) {
       LOG.info("No tsconfig.json file found");
     }
-    analysis.initialize(context, checks, analysisMode, consumers);
-    analysis.analyzeFiles(inputFiles, tsConfigs);
-    consumers.doneAnalysis();
+    consumers.start(contextUtils.consumersThreads(), contextUtils.consumersMaxPendingFiles());
+    try {
+      analysis.initialize(context, checks, analysisMode, consumers);
+      analysis.analyzeFiles(inputFiles, tsConfigs);
+      consumers.doneAnalysis();
+    } finally {
+      consumers.stop();
+    }
   }
 
   private String createTsConfigFile(String content) throws IOException {
@@ -79,6 +79,7 @@ public class YamlSensor extends AbstractBridgeSensor {
     var success = false;
     try {
       progressReport.start(inputFiles.size(), inputFiles.iterator().next().toString());
+      prefetchCacheStrategies(inputFiles);
       bridgeServer.initLinter(
         checks.eslintRules(),
         environments,
@@ -21,26 +21,26 @@ package org.sonar.plugins.javascript.analysis.cache;
 
 import java.util.List;
 import javax.annotation.Nullable;
-import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
 
 public class CacheAnalysis {
 
   private final List<String> ucfgPaths;
-  private final List<CpdToken> cpdTokens;
+  private final CpdTokenBlock cpdTokens;
 
-  public CacheAnalysis(@Nullable List<String> ucfgPaths, List<CpdToken> cpdTokens) {
+  public CacheAnalysis(@Nullable List<String> ucfgPaths, CpdTokenBlock cpdTokens) {
     this.ucfgPaths = ucfgPaths;
     this.cpdTokens = cpdTokens;
   }
 
   public static CacheAnalysis fromResponse(
     List<String> ucfgPaths,
-    List<CpdToken> cpdTokens
+    CpdTokenBlock cpdTokens
   ) {
     return new CacheAnalysis(ucfgPaths, cpdTokens);
   }
 
-  static CacheAnalysis fromCache(List<CpdToken> cpdTokens) {
+  static CacheAnalysis fromCache(CpdTokenBlock cpdTokens) {
     return new CacheAnalysis(null, cpdTokens);
   }
 
@@ -49,7 +49,7 @@ public class CacheAnalysis {
     return ucfgPaths;
   }
 
-  public List<CpdToken> getCpdTokens() {
+  public CpdTokenBlock getCpdTokens() {
     return cpdTokens;
   }
 }
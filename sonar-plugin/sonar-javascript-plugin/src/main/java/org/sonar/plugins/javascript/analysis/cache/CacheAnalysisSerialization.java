@@ -21,52 +21,110 @@ package org.sonar.plugins.javascript.analysis.cache;
 
 import java.io.IOException;
 import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.plugins.javascript.analysis.cache.CacheMetrics.Phase;
+import org.sonar.plugins.javascript.bridge.PluginInfo;
 
+/**
+ * Stores the analysis of a file as a single {@link CacheEntry}, next to the contents of its UCFG files. The entry is read
+ * from the previous cache at most once, as checking whether the file changed already needs it.
+ */
 public class CacheAnalysisSerialization extends CacheSerialization {
 
+  private static final Logger LOG = LoggerFactory.getLogger(CacheAnalysisSerialization.class);
+
   private final UCFGFilesSerialization ucfgFileSerialization;
-  private final CpdSerialization cpdSerialization;
-  private final JsonSerialization<FileMetadata> fileMetadataSerialization;
+  private final CpdDictionary cpdDictionary;
+  private boolean entryRead;
+  private CacheEntry entry;
 
-  CacheAnalysisSerialization(SensorContext context, CacheKey cacheKey) {
-    super(context, cacheKey);
+  CacheAnalysisSerialization(SensorContext context, CacheKey cacheKey, CpdDictionary cpdDictionary) {
+    super(context, cacheKey.forAnalysis());
     ucfgFileSerialization = new UCFGFilesSerialization(context, cacheKey.forUcfg());
-    cpdSerialization = new CpdSerialization(context, cacheKey.forCpd());
-    fileMetadataSerialization =
-      new JsonSerialization<>(FileMetadata.class, context, cacheKey.forFileMetadata());
+    this.cpdDictionary = cpdDictionary;
+  }
+
+  private static String ucfgVersion() {
+    return PluginInfo.getUcfgPluginVersion().orElse("");
   }
 
   @Override
   boolean isInCache() {
-    return ucfgFileSerialization.isInCache() && cpdSerialization.isInCache();
+    try {
+      var cacheEntry = readEntry();
+      return (
+        cacheEntry != null &&
+        ucfgVersion().equals(cacheEntry.getUcfgVersion()) &&
+        cacheEntry.getCpdDictionaryId() == cpdDictionary.id()
+      );
+    } catch (IOException e) {
+      return false;
+    }
   }
 
   Optional<FileMetadata> fileMetadata() throws IOException {
-    if (fileMetadataSerialization.isInCache()) {
-      return Optional.of(fileMetadataSerialization.readFromCache());
-    } else {
-      return Optional.empty();
-    }
+    return Optional.ofNullable(readEntry()).map(CacheEntry::getMetadata);
   }
 
   CacheAnalysis readFromCache() throws IOException {
-    ucfgFileSerialization.readFromCache();
+    var cacheEntry = readEntry();
+    if (cacheEntry == null) {
+      throw new IOException("The cache entry is missing for key " + getCacheKey());
+    }
+    var start = System.nanoTime();
+    ucfgFileSerialization.readFromCache(cacheEntry.getManifest());
+    CacheMetrics.record(Phase.UCFG_EXTRACTION, start);
 
-    var cpdData = cpdSerialization.readFromCache();
+    start = System.nanoTime();
+    var cpdData = CpdDeserializer.fromBinary(cacheEntry.getCpdData(), cpdDictionary);
+    CacheMetrics.record(Phase.CPD_DECODE, start);
     return CacheAnalysis.fromCache(cpdData.getCpdTokens());
   }
 
   void writeToCache(CacheAnalysis analysis, InputFile file) throws IOException {
-    ucfgFileSerialization.writeToCache(analysis.getUcfgPaths());
-    cpdSerialization.writeToCache(new CpdData(analysis.getCpdTokens()));
-    fileMetadataSerialization.writeToCache(FileMetadata.from(file));
+    var start = System.nanoTime();
+    var manifest = ucfgFileSerialization.writeToCache(analysis.getUcfgPaths());
+    var cacheEntry = new CacheEntry(
+      FileFingerprints.of(file),
+      ucfgVersion(),
+      manifest,
+      CpdSerializer.toBinary(new CpdData(analysis.getCpdTokens()), cpdDictionary),
+      cpdDictionary.id()
+    );
+    var bytes = cacheEntry.toBinary();
+    writeToCache(bytes);
+    CacheMetrics.bytesWritten(getCacheKey().file(), bytes.length);
+    CacheMetrics.record(Phase.CACHE_WRITE, start);
+    LOG.debug("Cache entry created for key '{}'", getCacheKey());
   }
 
   @Override
   void copyFromPrevious() {
-    ucfgFileSerialization.copyFromPrevious();
-    cpdSerialization.copyFromPrevious();
+    var start = System.nanoTime();
+    super.copyFromPrevious();
+    if (entry != null) {
+      ucfgFileSerialization.copyFromPrevious(entry.getManifest());
+    }
+    CacheMetrics.record(Phase.CACHE_WRITE, start);
+  }
+
+  @CheckForNull
+  private CacheEntry readEntry() throws IOException {
+    if (!entryRead) {
+      entryRead = true;
+      var start = System.nanoTime();
+      if (getContext().previousCache().contains(getCacheKey().toString())) {
+        var bytes = readBytesFromCache();
+        CacheMetrics.bytesRead(getCacheKey().file(), bytes.length);
+        entry = CacheEntry.fromBinary(bytes);
+        LOG.debug("Cache entry extracted for key '{}'", getCacheKey());
+      }
+      CacheMetrics.record(Phase.CACHE_READ, start);
+    }
+    return entry;
   }
 }
@@ -0,0 +1,240 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import javax.annotation.CheckForNull;
+
+/**
+ * Everything cached for a source file but the contents of its UCFG files, stored as a single binary entry:
+ * <pre>
+ * magic | version | flags | payload length | stored length | CRC32 of the stored payload | stored payload
+ * </pre>
+ * The payload holds the file metadata, the UCFG manifest, and the CPD data with the id of the {@link CpdDictionary} it
+ * references. It is deflated when that makes it smaller. The checksum detects a corrupted entry before the payload is inflated or parsed.
+ */
+class CacheEntry {
+
+  static final byte VERSION = 2;
+  private static final int MAGIC = 0x534A5343;
+  private static final byte DEFLATED = 0x1;
+  private static final int HEADER_SIZE = 18;
+  private static final int COMPRESSION_THRESHOLD = 512;
+
+  private final FileMetadata metadata;
+  private final String ucfgVersion;
+  private final FilesManifest manifest;
+  private final byte[] cpdData;
+  private final long cpdDictionaryId;
+
+  CacheEntry(
+    FileMetadata metadata,
+    String ucfgVersion,
+    FilesManifest manifest,
+    byte[] cpdData,
+    long cpdDictionaryId
+  ) {
+    this.metadata = metadata;
+    this.ucfgVersion = ucfgVersion;
+    this.manifest = manifest;
+    this.cpdData = cpdData;
+    this.cpdDictionaryId = cpdDictionaryId;
+  }
+
+  FileMetadata getMetadata() {
+    return metadata;
+  }
+
+  String getUcfgVersion() {
+    return ucfgVersion;
+  }
+
+  FilesManifest getManifest() {
+    return manifest;
+  }
+
+  byte[] getCpdData() {
+    return cpdData;
+  }
+
+  long getCpdDictionaryId() {
+    return cpdDictionaryId;
+  }
+
+  byte[] toBinary() throws IOException {
+    var payload = writePayload();
+    var stored = payload.length < COMPRESSION_THRESHOLD ? payload : deflate(payload);
+    byte flags = 0;
+    if (stored.length < payload.length) {
+      flags |= DEFLATED;
+    } else {
+      stored = payload;
+    }
+    return ByteBuffer
+      .allocate(HEADER_SIZE + stored.length)
+      .putInt(MAGIC)
+      .put(VERSION)
+      .put(flags)
+      .putInt(payload.length)
+      .putInt(stored.length)
+      .putInt(checksum(stored, 0, stored.length))
+      .put(stored)
+      .array();
+  }
+
+  /**
+   * @return the entry, or null if it was written in another version of the format
+   */
+  @CheckForNull
+  static CacheEntry fromBinary(byte[] bytes) throws IOException {
+    var buffer = ByteBuffer.wrap(bytes);
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Can't read data from cache, not a cache entry");
+      }
+      if (buffer.get() != VERSION) {
+        return null;
+      }
+      var flags = buffer.get();
+      var payloadLength = buffer.getInt();
+      var storedLength = buffer.getInt();
+      var checksum = buffer.getInt();
+      if (storedLength != buffer.remaining() || checksum != checksum(bytes, HEADER_SIZE, storedLength)) {
+        throw new IOException("Can't read data from cache, checksum mismatch");
+      }
+      var payload = (flags & DEFLATED) == 0
+        ? Arrays.copyOfRange(bytes, HEADER_SIZE, bytes.length)
+        : inflate(bytes, HEADER_SIZE, storedLength, payloadLength);
+      return readPayload(payload);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Can't read data from cache, truncated entry", e);
+    }
+  }
+
+  private byte[] writePayload() throws IOException {
+    var stream = new ByteArrayOutputStream();
+    try (var out = new DataOutputStream(stream)) {
+      out.writeLong(metadata.size());
+      writeBytes(out, metadata.hash());
+      out.writeUTF(ucfgVersion);
+      var fileSizes = manifest.getFileSizes();
+      out.writeInt(fileSizes.size());
+      for (var fileSize : fileSizes) {
+        out.writeUTF(fileSize.getName());
+        out.writeLong(fileSize.getSize());
+        out.writeUTF(fileSize.getHash());
+      }
+      writeBytes(out, cpdData);
+      out.writeLong(cpdDictionaryId);
+    }
+    return stream.toByteArray();
+  }
+
+  private static CacheEntry readPayload(byte[] payload) throws IOException {
+    try (var in = new DataInputStream(new ByteArrayInputStream(payload))) {
+      var metadata = new FileMetadata(in.readLong(), readBytes(in));
+      var ucfgVersion = in.readUTF();
+      var count = in.readInt();
+      var fileSizes = new ArrayList<FilesManifest.FileSize>();
+      for (var i = 0; i < count; i++) {
+        fileSizes.add(new FilesManifest.FileSize(in.readUTF(), in.readLong(), in.readUTF()));
+      }
+      var cpdData = readBytes(in);
+      var cpdDictionaryId = in.readLong();
+      if (in.available() > 0) {
+        throw new IOException("Can't read data from cache, format corrupted");
+      }
+      return new CacheEntry(metadata, ucfgVersion, new FilesManifest(fileSizes), cpdData, cpdDictionaryId);
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    var length = in.readInt();
+    if (length < 0 || length > in.available()) {
+      throw new IOException("Can't read data from cache, format corrupted");
+    }
+    return in.readNBytes(length);
+  }
+
+  private static int checksum(byte[] bytes, int offset, int length) {
+    var crc = new CRC32();
+    crc.update(bytes, offset, length);
+    return (int) crc.getValue();
+  }
+
+  private static byte[] deflate(byte[] payload) throws IOException {
+    var deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      var stream = new ByteArrayOutputStream();
+      try (var out = new DeflaterOutputStream(stream, deflater)) {
+        out.write(payload);
+      }
+      return stream.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] bytes, int offset, int length, int payloadLength)
+    throws IOException {
+    if (payloadLength < 0) {
+      throw new IOException("Can't read data from cache, format corrupted");
+    }
+    var inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, offset, length);
+      var payload = new byte[payloadLength];
+      var read = 0;
+      while (read < payloadLength && !inflater.finished()) {
+        var inflated = inflater.inflate(payload, read, payloadLength - read);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        read += inflated;
+      }
+      if (read != payloadLength) {
+        throw new IOException("Can't read data from cache, format corrupted");
+      }
+      return payload;
+    } catch (DataFormatException e) {
+      throw new IOException("Can't read data from cache, format corrupted", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -46,8 +46,12 @@ class CacheKey {
     return new CacheKey(emptyList(), pluginVersion, inputFile.key());
   }
 
-  CacheKey forCpd() {
-    return withPrefix("js", "cpd");
+  static CacheKey forCpdDictionary(String sensor, @Nullable String pluginVersion) {
+    return new CacheKey(List.of("js", "cpd", "dictionary"), pluginVersion, sensor);
+  }
+
+  CacheKey forAnalysis() {
+    return withPrefix("js", "analysis");
   }
 
   CacheKey forUcfg() {
@@ -61,8 +65,8 @@ class CacheKey {
     );
   }
 
-  CacheKey forFileMetadata() {
-    return withPrefix("js", "filemetadata");
+  CacheKey forResult() {
+    return withPrefix("js", "result");
   }
 
   CacheKey withPrefix(String... prefixes) {
@@ -73,6 +77,20 @@ class CacheKey {
     );
   }
 
+  /**
+   * Key of a content shared by several files, which is addressed by its hash instead of the file it belongs to.
+   */
+  CacheKey forContent(String hash) {
+    return new CacheKey(prefixes, pluginVersion, hash);
+  }
+
+  /**
+   * @return the key of the file this key belongs to, or the hash of the content it addresses
+   */
+  String file() {
+    return file;
+  }
+
   @Override
   public String toString() {
     var elements = new ArrayList<>(prefixes);
@@ -0,0 +1,109 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures, for the rest of the sensor run, the time spent in each phase of reading and writing the cache, and the number
+ * of bytes read from and written to the cache for each file. Phases may run on several threads at once when strategies
+ * are prefetched, their times are then summed up.
+ */
+final class CacheMetrics {
+
+  enum Phase {
+    FINGERPRINTING,
+    CACHE_READ,
+    CACHE_WRITE,
+    UCFG_EXTRACTION,
+    CPD_DECODE,
+  }
+
+  private static final Map<Phase, PhaseTimer> TIMERS = new EnumMap<>(Phase.class);
+  private static final Map<String, FileBytes> FILES = new ConcurrentHashMap<>();
+
+  static {
+    for (var phase : Phase.values()) {
+      TIMERS.put(phase, new PhaseTimer());
+    }
+  }
+
+  private CacheMetrics() {}
+
+  /**
+   * @param start the {@link System#nanoTime()} at which the phase started
+   */
+  static void record(Phase phase, long start) {
+    var timer = TIMERS.get(phase);
+    timer.count.increment();
+    timer.nanos.add(System.nanoTime() - start);
+  }
+
+  static void bytesRead(String file, long bytes) {
+    FILES.computeIfAbsent(file, key -> new FileBytes()).read.add(bytes);
+  }
+
+  static void bytesWritten(String file, long bytes) {
+    FILES.computeIfAbsent(file, key -> new FileBytes()).written.add(bytes);
+  }
+
+  static long count(Phase phase) {
+    return TIMERS.get(phase).count.sum();
+  }
+
+  static long nanos(Phase phase) {
+    return TIMERS.get(phase).nanos.sum();
+  }
+
+  static long bytesRead(String file) {
+    var bytes = FILES.get(file);
+    return bytes == null ? 0 : bytes.read.sum();
+  }
+
+  static long bytesWritten(String file) {
+    var bytes = FILES.get(file);
+    return bytes == null ? 0 : bytes.written.sum();
+  }
+
+  static void reset() {
+    TIMERS.values().forEach(PhaseTimer::reset);
+    FILES.clear();
+  }
+
+  private static class PhaseTimer {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private void reset() {
+      count.reset();
+      nanos.reset();
+    }
+  }
+
+  private static class FileBytes {
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder written = new LongAdder();
+  }
+}
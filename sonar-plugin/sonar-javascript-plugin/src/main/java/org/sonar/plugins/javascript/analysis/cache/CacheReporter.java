@@ -23,9 +23,18 @@ import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.joining;
 
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -35,8 +44,10 @@ import org.sonar.api.batch.fs.InputFile;
 class CacheReporter {
 
   private static final Logger LOG = LoggerFactory.getLogger(CacheReporter.class);
+  private static final Gson GSON = new Gson();
 
   private final Map<Optional<CacheStrategies.MissReason>, AtomicInteger> counters = new HashMap<>();
+  private final List<FileOutcome> outcomes = new ArrayList<>();
 
   private static String getStrategyMessage(
     CacheStrategy strategy,
@@ -67,10 +78,16 @@ class CacheReporter {
       LOG.debug(getStrategyMessage(strategy, inputFile, missReason));
     }
     getCounter(missReason).incrementAndGet();
+    outcomes.add(new FileOutcome(inputFile.key(), strategy.getName(), missReason));
+  }
+
+  boolean isEmpty() {
+    return outcomes.isEmpty();
   }
 
   void reset() {
     counters.clear();
+    outcomes.clear();
   }
 
   void logReport() {
@@ -82,6 +99,42 @@ class CacheReporter {
     LOG.info(format("Miss the cache for %d out of %d%s", misses, total, getMissMessages(total)));
   }
 
+  /**
+   * Writes the hits and misses, the time spent in each phase of the cache and the bytes read and written for each file
+   * as a JSON report, meant to be collected across analyses.
+   */
+  void writeReport(Path reportFile, String sensor) throws IOException {
+    var total = getTotal();
+    var misses = new TreeMap<String, Integer>();
+    counters.forEach((reason, count) -> reason.ifPresent(r -> misses.put(r.name(), count.intValue())));
+    var phases = new EnumMap<CacheMetrics.Phase, PhaseReport>(CacheMetrics.Phase.class);
+    for (var phase : CacheMetrics.Phase.values()) {
+      phases.put(phase, new PhaseReport(CacheMetrics.count(phase), CacheMetrics.nanos(phase)));
+    }
+    var files = new ArrayList<FileReport>();
+    var bytesRead = 0L;
+    var bytesWritten = 0L;
+    for (var outcome : outcomes) {
+      var read = outcome.file() == null ? 0 : CacheMetrics.bytesRead(outcome.file());
+      var written = outcome.file() == null ? 0 : CacheMetrics.bytesWritten(outcome.file());
+      bytesRead += read;
+      bytesWritten += written;
+      files.add(
+        new FileReport(
+          outcome.file(),
+          outcome.strategy(),
+          outcome.missReason() == null ? null : outcome.missReason().name(),
+          read,
+          written
+        )
+      );
+    }
+    var report = new Report(sensor, total, getHits(), misses, phases, bytesRead, bytesWritten, files);
+    Files.createDirectories(reportFile.getParent());
+    Files.writeString(reportFile, GSON.toJson(report), StandardCharsets.UTF_8);
+    LOG.debug("Cache report written to {}", reportFile);
+  }
+
   private String getMissMessages(int total) {
     String message = counters
       .entrySet()
@@ -108,4 +161,31 @@ class CacheReporter {
   private AtomicInteger getCounter(@Nullable CacheStrategies.MissReason reason) {
     return counters.computeIfAbsent(ofNullable(reason), key -> new AtomicInteger(0));
   }
+
+  private record FileOutcome(
+    @Nullable String file,
+    String strategy,
+    @Nullable CacheStrategies.MissReason missReason
+  ) {}
+
+  private record PhaseReport(long count, long nanos) {}
+
+  private record FileReport(
+    @Nullable String file,
+    String strategy,
+    @Nullable String missReason,
+    long bytesRead,
+    long bytesWritten
+  ) {}
+
+  private record Report(
+    String sensor,
+    int total,
+    int hits,
+    Map<String, Integer> misses,
+    Map<CacheMetrics.Phase, PhaseReport> phases,
+    long bytesRead,
+    long bytesWritten,
+    List<FileReport> files
+  ) {}
 }
@@ -24,6 +24,20 @@ import static org.sonar.plugins.javascript.analysis.cache.CacheStrategy.readAndW
 import static org.sonar.plugins.javascript.analysis.cache.CacheStrategy.writeOnly;
 
 import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,11 +51,20 @@ public class CacheStrategies {
 
   private static final Logger LOG = LoggerFactory.getLogger(CacheStrategies.class);
 
+  static final String REPORT_DIRECTORY = "js-cache-report";
+
   private static final CacheReporter REPORTER = new CacheReporter();
+  /**
+   * Number of strategies each prefetching thread may resolve ahead of the sensor, as a resolved strategy holds the
+   * analysis restored from the cache until its file is processed.
+   */
+  private static final int PREFETCH_LOOKAHEAD_PER_THREAD = 4;
+  private static Prefetch prefetch;
+  private static String sensorName = "";
 
   private CacheStrategies() {}
 
-  private static boolean isRuntimeApiCompatible(SensorContext context) {
+  static boolean isRuntimeApiCompatible(SensorContext context) {
     var isVersionValid = context
       .runtime()
       .getApiVersion()
@@ -65,6 +88,10 @@ public class CacheStrategies {
 
   public static CacheStrategy getStrategyFor(SensorContext context, InputFile inputFile)
     throws IOException {
+    var prefetched = prefetch == null ? null : prefetch.claim(inputFile);
+    if (prefetched != null) {
+      return report(await(prefetched, inputFile));
+    }
     return getStrategyFor(context, inputFile, PluginInfo.getVersion());
   }
 
@@ -72,45 +99,122 @@ public class CacheStrategies {
     SensorContext context,
     InputFile inputFile,
     @Nullable String pluginVersion
+  ) throws IOException {
+    return report(resolve(context, inputFile, pluginVersion));
+  }
+
+  /**
+   * Resolves the strategies of the given files on a pool of threads, so that fingerprinting the files and restoring
+   * their analysis from the cache overlap with what the sensor does before analyzing them. {@link #getStrategyFor}
+   * then waits for the strategy of the file it is asked for. Writing to the next cache and reporting are still done
+   * by the calling thread, as files are processed.
+   * <p>
+   * Files are resolved in order, and only a few of them ahead of the sensor: each strategy claimed by
+   * {@link #getStrategyFor} lets the next file be resolved.
+   */
+  public static void prefetch(SensorContext context, List<InputFile> inputFiles, int threads) {
+    prefetch(context, inputFiles, threads, PluginInfo.getVersion());
+  }
+
+  static void prefetch(
+    SensorContext context,
+    List<InputFile> inputFiles,
+    int threads,
+    @Nullable String pluginVersion
+  ) {
+    if (threads < 1 || !isRuntimeApiCompatible(context) || !context.canSkipUnchangedFiles()) {
+      return;
+    }
+    stopPrefetch();
+    LOG.debug("Prefetching the cache strategies of {} file(s) on {} thread(s)", inputFiles.size(), threads);
+    prefetch = new Prefetch(context, inputFiles, threads, pluginVersion);
+    prefetch.submit();
+  }
+
+  /**
+   * Cancels the resolution of the prefetched strategies which were not asked for. The resolutions already running are
+   * not interrupted, as they may be restoring files from the cache, but waited for.
+   */
+  public static void stopPrefetch() {
+    if (prefetch != null) {
+      prefetch.stop();
+      prefetch = null;
+    }
+  }
+
+  /**
+   * @return the number of prefetched strategies which were not asked for yet
+   */
+  static int prefetchedCount() {
+    return prefetch == null ? 0 : prefetch.resolutions.size();
+  }
+
+  private static Resolution await(Future<Resolution> resolution, InputFile inputFile)
+    throws IOException {
+    try {
+      return resolution.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading the cache for " + inputFile, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static CacheStrategy report(Resolution resolution) {
+    var strategy = resolution.strategy();
+    if (!strategy.isAnalysisRequired()) {
+      // only the thread processing the files writes to the next cache
+      strategy.copyFromPrevious();
+    }
+    REPORTER.logAndIncrement(strategy, resolution.inputFile(), resolution.missReason());
+    return strategy;
+  }
+
+  private static Resolution resolve(
+    SensorContext context,
+    InputFile inputFile,
+    @Nullable String pluginVersion
   ) throws IOException {
     if (!isRuntimeApiCompatible(context)) {
-      var strategy = noCache();
-      REPORTER.logAndIncrement(strategy, inputFile, MissReason.RUNTIME_API_INCOMPATIBLE);
-      return strategy;
+      return new Resolution(noCache(), inputFile, MissReason.RUNTIME_API_INCOMPATIBLE);
     }
 
     var cacheKey = CacheKey.forFile(inputFile, pluginVersion);
-    var serialization = new CacheAnalysisSerialization(context, cacheKey);
+    var cpdDictionary = CpdDictionaries.get(context, pluginVersion);
+    var serialization = new CacheAnalysisSerialization(context, cacheKey, cpdDictionary);
 
     if (!context.canSkipUnchangedFiles()) {
-      var strategy = writeOnly(serialization);
-      REPORTER.logAndIncrement(strategy, inputFile, MissReason.ANALYSIS_MODE_INELIGIBLE);
-      return strategy;
+      return new Resolution(writeOnly(serialization), inputFile, MissReason.ANALYSIS_MODE_INELIGIBLE);
     }
 
-    var fileMetadata = serialization.fileMetadata();
+    Optional<FileMetadata> fileMetadata;
+    try {
+      fileMetadata = serialization.fileMetadata();
+    } catch (IOException e) {
+      LOG.error("Failure when reading cache entry", e);
+      return new Resolution(writeOnly(serialization), inputFile, MissReason.CACHE_CORRUPTED);
+    }
     if (fileMetadata.isEmpty() || !isSameFile(fileMetadata.get(), inputFile)) {
-      var strategy = writeOnly(serialization);
-      REPORTER.logAndIncrement(strategy, inputFile, MissReason.FILE_CHANGED);
-      return strategy;
+      return new Resolution(writeOnly(serialization), inputFile, MissReason.FILE_CHANGED);
     }
 
     if (!serialization.isInCache()) {
-      var strategy = writeOnly(serialization);
-      REPORTER.logAndIncrement(strategy, inputFile, MissReason.FILE_NOT_IN_CACHE);
-      return strategy;
+      return new Resolution(writeOnly(serialization), inputFile, MissReason.FILE_NOT_IN_CACHE);
     }
 
     var cacheAnalysis = readFromCache(serialization);
     if (cacheAnalysis == null) {
-      var strategy = writeOnly(serialization);
-      REPORTER.logAndIncrement(strategy, inputFile, MissReason.CACHE_CORRUPTED);
-      return strategy;
+      return new Resolution(writeOnly(serialization), inputFile, MissReason.CACHE_CORRUPTED);
     }
 
-    var strategy = readAndWrite(cacheAnalysis, serialization);
-    REPORTER.logAndIncrement(strategy, inputFile, null);
-    return strategy;
+    return new Resolution(readAndWrite(cacheAnalysis, serialization), inputFile, null);
   }
 
   private static boolean isSameFile(FileMetadata fileMetadata, InputFile inputFile)
@@ -120,23 +224,127 @@ public class CacheStrategies {
 
   static CacheAnalysis readFromCache(CacheAnalysisSerialization serialization) {
     try {
-      var cacheAnalysis = serialization.readFromCache();
-      serialization.copyFromPrevious();
-      return cacheAnalysis;
+      return serialization.readFromCache();
     } catch (IOException e) {
       LOG.error("Failure when reading cache entry", e);
       return null;
     }
   }
 
-  public static void reset() {
+  public static void reset(String sensor) {
+    stopPrefetch();
+    sensorName = sensor;
     REPORTER.reset();
+    CacheMetrics.reset();
+    FileFingerprints.reset();
+    UCFGBlobs.reset();
+    CpdDictionaries.reset(sensor);
+  }
+
+  /**
+   * Writes what the cache entries of the files analyzed by the sensor share, once they are all written.
+   */
+  public static void writeSharedEntries(SensorContext context) {
+    try {
+      CpdDictionaries.writeToCache(context);
+    } catch (IOException e) {
+      LOG.error("Failure when writing cache entry", e);
+    }
   }
 
   public static void logReport() {
     REPORTER.logReport();
   }
 
+  /**
+   * Writes the report of the cache usage of the sensor in the work directory, unless no file went through the cache.
+   */
+  public static void writeReport(SensorContext context) {
+    if (REPORTER.isEmpty()) {
+      return;
+    }
+    var reportFile = context
+      .fileSystem()
+      .workDir()
+      .toPath()
+      .resolve(REPORT_DIRECTORY)
+      .resolve(sensorName.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-") + ".json");
+    try {
+      REPORTER.writeReport(reportFile, sensorName);
+    } catch (IOException e) {
+      LOG.warn("Failure when writing cache report", e);
+    }
+  }
+
+  private static final class Prefetch {
+
+    private final SensorContext context;
+    @Nullable
+    private final String pluginVersion;
+    private final ExecutorService executor;
+    private final Semaphore lookahead;
+    private final Set<InputFile> pending;
+    private final Map<InputFile, Future<Resolution>> resolutions = new IdentityHashMap<>();
+
+    private Prefetch(
+      SensorContext context,
+      List<InputFile> inputFiles,
+      int threads,
+      @Nullable String pluginVersion
+    ) {
+      this.context = context;
+      this.pluginVersion = pluginVersion;
+      this.executor = Executors.newFixedThreadPool(threads);
+      this.lookahead = new Semaphore(threads * PREFETCH_LOOKAHEAD_PER_THREAD);
+      this.pending = new LinkedHashSet<>(inputFiles);
+    }
+
+    private synchronized void submit() {
+      var iterator = pending.iterator();
+      while (iterator.hasNext() && lookahead.tryAcquire()) {
+        var inputFile = iterator.next();
+        iterator.remove();
+        resolutions.put(inputFile, executor.submit(() -> resolve(context, inputFile, pluginVersion)));
+      }
+    }
+
+    /**
+     * @return the resolution of the strategy of the file, or null if it was not submitted
+     */
+    @CheckForNull
+    private synchronized Future<Resolution> claim(InputFile inputFile) {
+      pending.remove(inputFile);
+      var resolution = resolutions.remove(inputFile);
+      if (resolution != null) {
+        lookahead.release();
+        submit();
+      }
+      return resolution;
+    }
+
+    private void stop() {
+      synchronized (this) {
+        pending.clear();
+        resolutions.values().forEach(resolution -> resolution.cancel(false));
+        resolutions.clear();
+      }
+      executor.shutdown();
+      try {
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+          LOG.warn("Timeout while waiting for the prefetching of cache strategies to stop");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private record Resolution(
+    CacheStrategy strategy,
+    InputFile inputFile,
+    @Nullable MissReason missReason
+  ) {}
+
   enum MissReason {
     RUNTIME_API_INCOMPATIBLE("the runtime API is not compatible"),
     CACHE_DISABLED("cache is disabled"),
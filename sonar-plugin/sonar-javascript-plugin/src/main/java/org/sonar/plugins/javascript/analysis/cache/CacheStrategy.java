@@ -73,6 +73,12 @@ public class CacheStrategy {
     }
   }
 
+  void copyFromPrevious() {
+    if (serialization != null) {
+      serialization.copyFromPrevious();
+    }
+  }
+
   public CacheAnalysis readAnalysisFromCache() {
     return Objects.requireNonNull(cacheAnalysis);
   }
@@ -19,18 +19,17 @@
  */
 package org.sonar.plugins.javascript.analysis.cache;
 
-import java.util.List;
-import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
 
 class CpdData {
 
-  private final List<CpdToken> cpdTokens;
+  private final CpdTokenBlock cpdTokens;
 
-  CpdData(List<CpdToken> cpdTokens) {
-    this.cpdTokens = List.copyOf(cpdTokens);
+  CpdData(CpdTokenBlock cpdTokens) {
+    this.cpdTokens = cpdTokens;
   }
 
-  List<CpdToken> getCpdTokens() {
+  CpdTokenBlock getCpdTokens() {
     return cpdTokens;
   }
 }
@@ -20,72 +20,57 @@
 package org.sonar.plugins.javascript.analysis.cache;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
-import org.sonar.plugins.javascript.bridge.BridgeServer.Location;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.LocationBlock;
 
 public class CpdDeserializer {
 
   private final VarLengthInputStream in;
-  private final VarLengthInputStream stringTableIn;
+  private final CpdDictionary dictionary;
 
-  private StringTable stringTable;
-
-  private CpdDeserializer(byte[] data, byte[] stringTable) {
+  private CpdDeserializer(byte[] data, CpdDictionary dictionary) {
     in = new VarLengthInputStream(data);
-    stringTableIn = new VarLengthInputStream(stringTable);
+    this.dictionary = dictionary;
   }
 
-  public static CpdData fromBinary(byte[] data, byte[] stringTable) throws IOException {
-    var deserializer = new CpdDeserializer(data, stringTable);
+  static CpdData fromBinary(byte[] data, CpdDictionary dictionary) throws IOException {
+    var deserializer = new CpdDeserializer(data, dictionary);
     return deserializer.convert();
   }
 
   private CpdData convert() throws IOException {
-    try (in; stringTableIn) {
-      stringTable = readStringTable();
-
+    try (in) {
       var sizeOfCpdTokens = readInt();
-      var cpdTokens = new ArrayList<CpdToken>(sizeOfCpdTokens);
+      var startLines = new int[sizeOfCpdTokens];
+      var startCols = new int[sizeOfCpdTokens];
+      var endLines = new int[sizeOfCpdTokens];
+      var endCols = new int[sizeOfCpdTokens];
+      var images = new String[sizeOfCpdTokens];
 
       for (int i = 0; i < sizeOfCpdTokens; i++) {
-        readCpdToken(cpdTokens);
+        startLines[i] = readInt();
+        startCols[i] = readInt();
+        endLines[i] = readInt();
+        endCols[i] = readInt();
+        images[i] = readString();
       }
 
       if (!"END".equals(in.readUTF())) {
         throw new IOException("Can't read data from cache, format corrupted");
       }
 
-      return new CpdData(cpdTokens);
+      var locations = new LocationBlock(startLines, startCols, endLines, endCols);
+      return new CpdData(new CpdTokenBlock(locations, images));
     } catch (IOException e) {
       throw new IOException("Can't deserialize data from the cache", e);
     }
   }
 
-  private void readCpdToken(List<CpdToken> cpdTokens) throws IOException {
-    var location = new Location(readInt(), readInt(), readInt(), readInt());
-    var cpdToken = new CpdToken(location, readString());
-    cpdTokens.add(cpdToken);
-  }
-
   private int readInt() throws IOException {
     return in.readInt();
   }
 
   private String readString() throws IOException {
-    return stringTable.getString(in.readInt());
-  }
-
-  private StringTable readStringTable() throws IOException {
-    var size = stringTableIn.readInt();
-    var byIndex = new ArrayList<String>(size);
-    for (int i = 0; i < size; i++) {
-      byIndex.add(stringTableIn.readUTF());
-    }
-    if (!"END".equals(stringTableIn.readUTF())) {
-      throw new IOException("Can't read data from cache, format corrupted");
-    }
-    return new StringTable(byIndex);
+    return dictionary.image(in.readInt());
   }
 }
@@ -0,0 +1,90 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import java.io.IOException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.sensor.SensorContext;
+
+/**
+ * Keeps the {@link CpdDictionary} of the running sensor. It extends the dictionary of the previous analysis when files
+ * can be restored from the cache, and is written to the next cache once the sensor is done.
+ */
+final class CpdDictionaries {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CpdDictionaries.class);
+
+  // a new dictionary is started past this size, so that images no longer used are eventually dropped
+  static final int MAX_SIZE = 500_000;
+
+  private static String sensor = "";
+  private static CacheKey key;
+  private static CpdDictionary dictionary;
+
+  private CpdDictionaries() {}
+
+  static synchronized void reset(String sensorName) {
+    sensor = sensorName;
+    key = null;
+    dictionary = null;
+  }
+
+  static synchronized CpdDictionary get(SensorContext context, @Nullable String pluginVersion) {
+    if (dictionary == null) {
+      key = CacheKey.forCpdDictionary(sensor, pluginVersion);
+      dictionary = context.canSkipUnchangedFiles() ? load(context, key) : null;
+      if (dictionary == null) {
+        dictionary = CpdDictionary.create();
+      }
+    }
+    return dictionary;
+  }
+
+  static synchronized void writeToCache(SensorContext context) throws IOException {
+    if (dictionary != null) {
+      context.nextCache().write(key.toString(), dictionary.toBinary());
+      LOG.debug("Cache entry created for key '{}' containing {} CPD image(s)", key, dictionary.size());
+      dictionary = null;
+    }
+  }
+
+  @CheckForNull
+  private static CpdDictionary load(SensorContext context, CacheKey key) {
+    var cache = context.previousCache();
+    if (!cache.contains(key.toString())) {
+      return null;
+    }
+    try (var input = cache.read(key.toString())) {
+      var previous = CpdDictionary.fromBinary(input.readAllBytes());
+      if (previous.size() >= MAX_SIZE) {
+        LOG.debug("Starting a new CPD dictionary as the previous one has {} images", previous.size());
+        return null;
+      }
+      LOG.debug("Cache entry extracted for key '{}'", key);
+      return previous;
+    } catch (IOException e) {
+      LOG.debug("Failure when reading the CPD dictionary, starting a new one", e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static java.util.Objects.requireNonNullElse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
+
+/**
+ * Dictionary of the CPD token images shared by all the files analyzed by a sensor. The cache entry of a file only
+ * references images by index, and the images read back from the cache are the same String instances for all files.
+ * <p>
+ * A dictionary is identified by a random id, which the cache entries referencing it record. It only grows, so that the
+ * entries written by a previous analysis stay valid when it is extended.
+ */
+class CpdDictionary {
+
+  private final long id;
+  private final List<String> images;
+  private final Map<String, Integer> indexes;
+
+  CpdDictionary(long id, List<String> images) {
+    this.id = id;
+    this.images = new ArrayList<>(images);
+    this.indexes = new HashMap<>();
+    for (var i = 0; i < images.size(); i++) {
+      indexes.put(images.get(i), i);
+    }
+  }
+
+  static CpdDictionary create() {
+    return new CpdDictionary(ThreadLocalRandom.current().nextLong(), List.of());
+  }
+
+  long id() {
+    return id;
+  }
+
+  synchronized int size() {
+    return images.size();
+  }
+
+  synchronized int indexOf(@Nullable String image) {
+    return indexes.computeIfAbsent(
+      requireNonNullElse(image, ""),
+      key -> {
+        images.add(key);
+        return images.size() - 1;
+      }
+    );
+  }
+
+  synchronized String image(int index) throws IOException {
+    if (index < 0 || index >= images.size()) {
+      throw new IOException("Can't read data from cache, unknown CPD image " + index);
+    }
+    return images.get(index);
+  }
+
+  synchronized byte[] toBinary() throws IOException {
+    var stream = new ByteArrayOutputStream();
+    try (var out = new DataOutputStream(stream)) {
+      out.writeLong(id);
+      out.writeInt(images.size());
+      for (var image : images) {
+        var bytes = image.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+    return stream.toByteArray();
+  }
+
+  static CpdDictionary fromBinary(byte[] bytes) throws IOException {
+    try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      var id = in.readLong();
+      var size = in.readInt();
+      if (size < 0) {
+        throw new IOException("Can't read data from cache, format corrupted");
+      }
+      var images = new ArrayList<String>(Math.min(size, in.available()));
+      for (var i = 0; i < size; i++) {
+        var length = in.readInt();
+        if (length < 0 || length > in.available()) {
+          throw new IOException("Can't read data from cache, format corrupted");
+        }
+        images.add(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+      }
+      return new CpdDictionary(id, images);
+    }
+  }
+}
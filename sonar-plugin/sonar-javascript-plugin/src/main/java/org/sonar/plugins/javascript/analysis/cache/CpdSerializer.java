@@ -21,89 +21,56 @@ package org.sonar.plugins.javascript.analysis.cache;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.List;
 import javax.annotation.Nullable;
-import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
 
 class CpdSerializer {
 
   private final ByteArrayOutputStream stream;
   private final VarLengthOutputStream out;
-  private final StringTable stringTable;
+  private final CpdDictionary dictionary;
 
-  private CpdSerializer() {
+  private CpdSerializer(CpdDictionary dictionary) {
     stream = new ByteArrayOutputStream();
     out = new VarLengthOutputStream(stream);
-    stringTable = new StringTable();
+    this.dictionary = dictionary;
   }
 
-  static SerializationResult toBinary(CpdData cpdData) throws IOException {
-    var serializer = new CpdSerializer();
+  static byte[] toBinary(CpdData cpdData, CpdDictionary dictionary) throws IOException {
+    var serializer = new CpdSerializer(dictionary);
     return serializer.convert(cpdData);
   }
 
-  private SerializationResult convert(CpdData cpdData) throws IOException {
+  private byte[] convert(CpdData cpdData) throws IOException {
     try (out; stream) {
       var cpdTokens = cpdData.getCpdTokens();
       writeInt(cpdTokens.size());
-      for (var cpdToken : cpdTokens) {
-        write(cpdToken);
+      for (var i = 0; i < cpdTokens.size(); i++) {
+        write(cpdTokens, i);
       }
 
       out.writeUTF("END");
 
-      return new SerializationResult(stream.toByteArray(), writeStringTable());
+      return stream.toByteArray();
     } catch (IOException e) {
       throw new IOException("Can't store data in cache", e);
     }
   }
 
-  private void write(CpdToken cpdToken) throws IOException {
-    var location = cpdToken.location();
-    writeInt(location.startLine());
-    writeInt(location.startCol());
-    writeInt(location.endLine());
-    writeInt(location.endCol());
-    writeText(cpdToken.image());
+  private void write(CpdTokenBlock cpdTokens, int index) throws IOException {
+    var locations = cpdTokens.locations();
+    writeInt(locations.startLines()[index]);
+    writeInt(locations.startCols()[index]);
+    writeInt(locations.endLines()[index]);
+    writeInt(locations.endCols()[index]);
+    writeText(cpdTokens.images()[index]);
   }
 
   private void writeText(@Nullable String text) throws IOException {
-    out.writeInt(stringTable.getIndex(text));
+    out.writeInt(dictionary.indexOf(text));
   }
 
   private void writeInt(int number) throws IOException {
     out.writeInt(number);
   }
-
-  private byte[] writeStringTable() throws IOException {
-    ByteArrayOutputStream stringTableStream = new ByteArrayOutputStream();
-    VarLengthOutputStream output = new VarLengthOutputStream(stringTableStream);
-    List<String> byIndex = stringTable.getStringList();
-    output.writeInt(byIndex.size());
-    for (String string : byIndex) {
-      output.writeUTF(string);
-    }
-
-    output.writeUTF("END");
-    return stringTableStream.toByteArray();
-  }
-
-  static class SerializationResult {
-
-    private final byte[] data;
-    private final byte[] stringTable;
-
-    private SerializationResult(byte[] data, byte[] stringTable) {
-      this.data = data;
-      this.stringTable = stringTable;
-    }
-
-    byte[] getData() {
-      return data;
-    }
-
-    byte[] getStringTable() {
-      return stringTable;
-    }
-  }
 }
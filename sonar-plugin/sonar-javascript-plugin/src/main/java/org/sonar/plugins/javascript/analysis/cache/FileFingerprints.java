@@ -19,46 +19,35 @@
  */
 package org.sonar.plugins.javascript.analysis.cache;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Map;
-import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
 
-class StringTable {
+/**
+ * Remembers the {@link FileMetadata} of the files for the rest of the sensor run, as both checking whether a file changed
+ * and writing its analysis to the cache need it. Files are told apart by identity, the file system handing out a single
+ * instance per file.
+ */
+final class FileFingerprints {
 
-  private final Map<String, Integer> table;
-  private final List<String> byIndex;
+  private static final Map<InputFile, FileMetadata> FINGERPRINTS = Collections.synchronizedMap(new IdentityHashMap<>());
 
-  StringTable() {
-    table = new HashMap<>();
-    byIndex = new ArrayList<>();
-  }
+  private FileFingerprints() {}
 
-  StringTable(List<String> byIndex) {
-    table = new HashMap<>();
-    this.byIndex = byIndex;
-    for (int i = 0; i < byIndex.size(); i++) {
-      table.put(byIndex.get(i), i);
+  static FileMetadata of(InputFile file) throws IOException {
+    var fingerprint = FINGERPRINTS.get(file);
+    if (fingerprint == null) {
+      var start = System.nanoTime();
+      fingerprint = FileMetadata.from(file);
+      CacheMetrics.record(CacheMetrics.Phase.FINGERPRINTING, start);
+      FINGERPRINTS.put(file, fingerprint);
     }
+    return fingerprint;
   }
 
-  int getIndex(@Nullable String string) {
-    return table.computeIfAbsent(
-      string,
-      s -> {
-        byIndex.add(s);
-        return byIndex.size() - 1;
-      }
-    );
-  }
-
-  String getString(int index) {
-    return byIndex.get(index);
-  }
-
-  List<String> getStringList() {
-    return Collections.unmodifiableList(byIndex);
+  static void reset() {
+    FINGERPRINTS.clear();
   }
 }
@@ -27,6 +27,8 @@ import org.sonar.api.batch.fs.InputFile;
 
 public class FileMetadata {
 
+  private static final int BUFFER_SIZE = 8192;
+
   private final long size;
 
   private final byte[] hash;
@@ -36,23 +38,42 @@ public class FileMetadata {
     this.hash = hash;
   }
 
+  /**
+   * Reads the bytes of the file once, both to count them and to hash them.
+   */
   static FileMetadata from(InputFile file) throws IOException {
-    return new FileMetadata(fileSize(file), computeHash(file));
+    var digest = sha256();
+    var size = 0L;
+    try (var input = file.inputStream()) {
+      var buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+        size += read;
+      }
+    }
+    return new FileMetadata(size, digest.digest());
+  }
+
+  long size() {
+    return size;
+  }
+
+  byte[] hash() {
+    return hash;
   }
 
   boolean compareTo(InputFile file) throws IOException {
-    return size == fileSize(file) && Arrays.equals(hash, computeHash(file));
+    return matches(FileFingerprints.of(file));
   }
 
-  static int fileSize(InputFile file) throws IOException {
-    return file.contents().getBytes(file.charset()).length;
+  boolean matches(FileMetadata other) {
+    return size == other.size && Arrays.equals(hash, other.hash);
   }
 
-  static byte[] computeHash(InputFile file) throws IOException {
+  private static MessageDigest sha256() {
     try {
-      var digest = MessageDigest.getInstance("SHA-256");
-      var bytes = file.contents().getBytes(file.charset());
-      return digest.digest(bytes);
+      return MessageDigest.getInstance("SHA-256");
     } catch (NoSuchAlgorithmException e) {
       throw new IllegalStateException(e);
     }
@@ -21,6 +21,9 @@ package org.sonar.plugins.javascript.analysis.cache;
 
 import java.util.List;
 
+/**
+ * Lists the files generated for a source file, each of them referencing its content by hash.
+ */
 class FilesManifest {
 
   private final List<FileSize> fileSizes;
@@ -37,10 +40,12 @@ class FilesManifest {
 
     private final String name;
     private final long size;
+    private final String hash;
 
-    FileSize(String name, long size) {
+    FileSize(String name, long size, String hash) {
       this.name = name;
       this.size = size;
+      this.hash = hash;
     }
 
     String getName() {
@@ -50,5 +55,9 @@ class FilesManifest {
     long getSize() {
       return size;
     }
+
+    String getHash() {
+      return hash;
+    }
   }
 }
@@ -0,0 +1,168 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Keeps the results in a local directory, so that they are reused across runs and branches on the same machine, whatever
+ * the runtime. Entries are addressed by the hash of the file key and of the fingerprint, and written atomically so that
+ * concurrent analyses can share the directory.
+ * <p>
+ * The last modification time of an entry is refreshed when it is read: when the store is opened, the least recently
+ * used entries are evicted until the directory fits in its size budget.
+ */
+class LocalResultStore implements ResultStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalResultStore.class);
+  private static final HexFormat HEX = HexFormat.of();
+
+  private final Path directory;
+
+  private LocalResultStore(Path directory) {
+    this.directory = directory;
+  }
+
+  static LocalResultStore open(Path directory, long maxBytes) throws IOException {
+    Files.createDirectories(directory);
+    evict(directory, maxBytes);
+    LOG.debug("Using local analysis result cache in {}", directory);
+    return new LocalResultStore(directory);
+  }
+
+  @CheckForNull
+  @Override
+  public byte[] read(InputFile file, byte[] fingerprint) throws IOException {
+    var entry = entry(file, fingerprint);
+    try {
+      var response = Files.readAllBytes(entry);
+      Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+      return response;
+    } catch (NoSuchFileException e) {
+      // never stored, or evicted in the meantime
+      return null;
+    }
+  }
+
+  @Override
+  public void write(InputFile file, byte[] fingerprint, byte[] response) throws IOException {
+    var entry = entry(file, fingerprint);
+    Files.createDirectories(entry.getParent());
+    var temporary = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temporary, response);
+      try {
+        Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  private Path entry(InputFile file, byte[] fingerprint) {
+    var digest = sha256();
+    digest.update(file.key().getBytes(UTF_8));
+    digest.update(fingerprint);
+    var address = HEX.formatHex(digest.digest());
+    return directory.resolve(address.substring(0, 2)).resolve(address);
+  }
+
+  private static void evict(Path directory, long maxBytes) throws IOException {
+    record Entry(Path path, long size, FileTime lastModified) {}
+    var entries = new ArrayList<Entry>();
+    Files.walkFileTree(
+      directory,
+      new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+          if (attributes.isRegularFile()) {
+            entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime()));
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+          if (e instanceof NoSuchFileException) {
+            // deleted by a concurrent analysis
+            return FileVisitResult.CONTINUE;
+          }
+          throw e;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, @Nullable IOException e) throws IOException {
+          if (e != null && !(e instanceof NoSuchFileException)) {
+            throw e;
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      }
+    );
+    var total = entries.stream().mapToLong(Entry::size).sum();
+    if (total <= maxBytes) {
+      return;
+    }
+    entries.sort(Comparator.comparing(Entry::lastModified));
+    List<Path> evicted = new ArrayList<>();
+    for (var entry : entries) {
+      if (total <= maxBytes) {
+        break;
+      }
+      Files.deleteIfExists(entry.path());
+      evicted.add(entry.path());
+      total -= entry.size();
+    }
+    LOG.debug("Evicted {} entries from local analysis result cache", evicted.size());
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
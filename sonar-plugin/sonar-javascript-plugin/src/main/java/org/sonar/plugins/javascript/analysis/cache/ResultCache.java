@@ -0,0 +1,158 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.plugins.javascript.bridge.AnalysisResponseCodec;
+import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
+import org.sonar.plugins.javascript.bridge.EslintRule;
+import org.sonar.plugins.javascript.bridge.PluginInfo;
+
+/**
+ * Cache of whole analysis responses, i.e. issues, metrics, highlights, symbols and CPD tokens, which lets unchanged files be
+ * replayed without going through the bridge, even when the analysis can't skip unchanged files.
+ * <p>
+ * Entries are keyed by file, and only replayed when the fingerprint they were stored with matches. The fingerprint covers
+ * the contents of the file, the version of the plugin, the linter configuration and the contents of the tsconfig files, the
+ * version keeping a new plugin from replaying the results of an older one out of the local store. It doesn't cover the other
+ * files of a TypeScript program, which may change the outcome of type-aware rules: the cache is opt-in. Responses referring
+ * to UCFG files are not stored, as these files are not kept.
+ * <p>
+ * Entries are kept either in the cache of the scanner, or in a local directory shared by all the analyses run on the
+ * machine, SonarLint included.
+ */
+public class ResultCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResultCache.class);
+  private static final Gson GSON = new Gson();
+
+  private final ResultStore store;
+  private final byte[] configuration;
+
+  ResultCache(ResultStore store, byte[] configuration) {
+    this.store = store;
+    this.configuration = configuration;
+  }
+
+  /**
+   * @param localDirectory directory of the local store, or null to use the cache of the scanner
+   * @param localMaxBytes size budget of the local store
+   * @return null when no local directory is given and the runtime doesn't provide a cache
+   */
+  @CheckForNull
+  public static ResultCache create(
+    SensorContext context,
+    @Nullable Path localDirectory,
+    long localMaxBytes,
+    List<EslintRule> rules,
+    List<String> environments,
+    List<String> globals,
+    List<String> tsConfigs
+  ) throws IOException {
+    ResultStore store;
+    if (localDirectory != null) {
+      store = LocalResultStore.open(localDirectory, localMaxBytes);
+    } else if (CacheStrategies.isRuntimeApiCompatible(context)) {
+      store = new ScannerResultStore(context, PluginInfo.getVersion());
+    } else {
+      return null;
+    }
+    var digest = sha256();
+    update(digest, String.valueOf(PluginInfo.getVersion()));
+    update(digest, GSON.toJson(rules));
+    update(digest, GSON.toJson(environments));
+    update(digest, GSON.toJson(globals));
+    for (var tsConfig : tsConfigs.stream().sorted().toList()) {
+      update(digest, tsConfig);
+      var path = Path.of(tsConfig);
+      if (Files.isRegularFile(path)) {
+        digest.update(Files.readAllBytes(path));
+      }
+    }
+    return new ResultCache(store, digest.digest());
+  }
+
+  public Optional<AnalysisResponse> read(InputFile file, String linterId) {
+    try {
+      var encoded = store.read(file, fingerprint(file, linterId));
+      if (encoded == null) {
+        return Optional.empty();
+      }
+      return Optional.of(AnalysisResponseCodec.decode(new ByteArrayInputStream(encoded)));
+    } catch (IOException e) {
+      LOG.debug("Failure when reading analysis result of file {} from cache", file, e);
+      return Optional.empty();
+    }
+  }
+
+  public void write(InputFile file, String linterId, AnalysisResponse response) {
+    if (!response.ucfgPaths().isEmpty()) {
+      return;
+    }
+    try {
+      store.write(file, fingerprint(file, linterId), AnalysisResponseCodec.encode(response));
+    } catch (IllegalArgumentException e) {
+      LOG.debug("Analysis result of file {} can't be cached", file, e);
+    } catch (IOException e) {
+      LOG.debug("Failure when writing analysis result of file {} to cache", file, e);
+    }
+  }
+
+  private byte[] fingerprint(InputFile file, String linterId) throws IOException {
+    var metadata = FileFingerprints.of(file);
+    var digest = sha256();
+    digest.update(configuration);
+    update(digest, linterId);
+    digest.update(ByteBuffer.allocate(Long.BYTES).putLong(metadata.size()).array());
+    digest.update(metadata.hash());
+    return digest.digest();
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    var bytes = value.getBytes(UTF_8);
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
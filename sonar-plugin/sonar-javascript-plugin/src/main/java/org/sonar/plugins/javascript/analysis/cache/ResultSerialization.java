@@ -19,39 +19,43 @@
  */
 package org.sonar.plugins.javascript.analysis.cache;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonParseException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import javax.annotation.CheckForNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.sensor.SensorContext;
 
-class JsonSerialization<P> extends CacheSerialization {
-
-  private static final Logger LOG = LoggerFactory.getLogger(JsonSerialization.class);
+/**
+ * Stores an encoded analysis response after the fingerprint it was computed for, and only gives it back for the same
+ * fingerprint.
+ */
+class ResultSerialization extends CacheSerialization {
 
-  private final Class<P> jsonClass;
-  private final Gson gson = new Gson();
+  private static final Logger LOG = LoggerFactory.getLogger(ResultSerialization.class);
 
-  JsonSerialization(Class<P> jsonClass, SensorContext context, CacheKey cacheKey) {
+  ResultSerialization(SensorContext context, CacheKey cacheKey) {
     super(context, cacheKey);
-    this.jsonClass = jsonClass;
   }
 
-  P readFromCache() throws IOException {
+  @CheckForNull
+  byte[] readFromCache(byte[] fingerprint) throws IOException {
     try (var input = getInputStream()) {
-      var value = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), jsonClass);
+      if (!Arrays.equals(input.readNBytes(fingerprint.length), fingerprint)) {
+        LOG.debug("Cache entry for key '{}' was computed for another fingerprint", getCacheKey());
+        return null;
+      }
+      var response = input.readAllBytes();
       LOG.debug("Cache entry extracted for key '{}'", getCacheKey());
-      return value;
-    } catch (JsonParseException e) {
-      throw new IOException("Failure when parsing cache entry JSON", e);
+      return response;
     }
   }
 
-  void writeToCache(P payload) {
-    writeToCache(gson.toJson(payload).getBytes(StandardCharsets.UTF_8));
+  void writeToCache(byte[] fingerprint, byte[] response) {
+    writeToCache(
+      ByteBuffer.allocate(fingerprint.length + response.length).put(fingerprint).put(response).array()
+    );
     LOG.debug("Cache entry created for key '{}'", getCacheKey());
   }
 }
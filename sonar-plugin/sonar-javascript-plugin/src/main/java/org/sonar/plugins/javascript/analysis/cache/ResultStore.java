@@ -19,25 +19,20 @@
  */
 package org.sonar.plugins.javascript.analysis.cache;
 
-import java.util.Enumeration;
-import java.util.Iterator;
+import java.io.IOException;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.fs.InputFile;
 
-@SuppressWarnings("java:S1150")
-class IteratorEnumeration<T> implements Enumeration<T> {
-
-  private final Iterator<T> iterator;
-
-  IteratorEnumeration(Iterator<T> iterator) {
-    this.iterator = iterator;
-  }
+/**
+ * Backend of the {@link ResultCache}, storing encoded analysis responses along with the fingerprint they were computed for.
+ */
+interface ResultStore {
 
-  @Override
-  public boolean hasMoreElements() {
-    return iterator.hasNext();
-  }
+  /**
+   * @return the encoded response stored for the file, or null if there is none for this fingerprint
+   */
+  @CheckForNull
+  byte[] read(InputFile file, byte[] fingerprint) throws IOException;
 
-  @Override
-  public T nextElement() {
-    return iterator.next();
-  }
+  void write(InputFile file, byte[] fingerprint, byte[] response) throws IOException;
 }
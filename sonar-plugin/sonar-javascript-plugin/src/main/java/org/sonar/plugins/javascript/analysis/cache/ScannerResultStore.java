@@ -0,0 +1,63 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import java.io.IOException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.SensorContext;
+
+/**
+ * Keeps the results in the cache of the scanner, which is shared by the analyses of a project on the server side.
+ */
+class ScannerResultStore implements ResultStore {
+
+  private final SensorContext context;
+  private final String pluginVersion;
+
+  ScannerResultStore(SensorContext context, @Nullable String pluginVersion) {
+    this.context = context;
+    this.pluginVersion = pluginVersion;
+  }
+
+  @CheckForNull
+  @Override
+  public byte[] read(InputFile file, byte[] fingerprint) throws IOException {
+    var serialization = serialization(file);
+    if (!serialization.isInCache()) {
+      return null;
+    }
+    var response = serialization.readFromCache(fingerprint);
+    if (response != null) {
+      serialization.copyFromPrevious();
+    }
+    return response;
+  }
+
+  @Override
+  public void write(InputFile file, byte[] fingerprint, byte[] response) {
+    serialization(file).writeToCache(fingerprint, response);
+  }
+
+  private ResultSerialization serialization(InputFile file) {
+    return new ResultSerialization(context, CacheKey.forFile(file, pluginVersion).forResult());
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+
+/**
+ * Remembers which UCFG contents were already stored in the next cache, and, for the rest of the sensor run, where they
+ * were already restored on disk. Identical UCFG files, e.g. generated for shared helpers, are then stored and read from
+ * the cache only once per analysis. Stored contents are remembered per next cache, as all the sensors of an analysis
+ * write to the same one.
+ */
+final class UCFGBlobs {
+
+  private static final HexFormat HEX = HexFormat.of();
+  private static final Map<WriteCache, Set<String>> STORED = Collections.synchronizedMap(new WeakHashMap<>());
+  private static final Map<String, Path> RESTORED = new ConcurrentHashMap<>();
+
+  private UCFGBlobs() {}
+
+  static String hash(byte[] content) {
+    try {
+      return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return true the first time the given content key is stored in the next cache
+   */
+  static boolean store(WriteCache nextCache, String key) {
+    return STORED.computeIfAbsent(nextCache, cache -> ConcurrentHashMap.newKeySet()).add(key);
+  }
+
+  /**
+   * Restores the content with the given key in the target file, by copying a file into which it was already restored,
+   * or by extracting it from the cache otherwise.
+   */
+  static void restore(String key, Path target, Extractor extractor) throws IOException {
+    var restored = RESTORED.get(key);
+    if (restored != null && !restored.equals(target) && Files.isRegularFile(restored)) {
+      Files.createDirectories(target.getParent());
+      // files are copied rather than linked, as the next analysis may overwrite any of them in place
+      Files.copy(restored, target, REPLACE_EXISTING);
+      return;
+    }
+    extractor.extract(target);
+    RESTORED.put(key, target);
+  }
+
+  static void reset() {
+    RESTORED.clear();
+  }
+
+  @FunctionalInterface
+  interface Extractor {
+    void extract(Path target) throws IOException;
+  }
+}
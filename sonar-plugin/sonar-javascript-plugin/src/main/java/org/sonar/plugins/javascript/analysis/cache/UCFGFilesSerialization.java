@@ -19,50 +19,165 @@
  */
 package org.sonar.plugins.javascript.analysis.cache;
 
+import static java.util.stream.Collectors.joining;
+
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.sensor.SensorContext;
 
-class UCFGFilesSerialization extends CacheSerialization {
+/**
+ * Stores the UCFG files generated for a source file as a manifest referencing their contents by hash. Each content is
+ * stored in its own cache entry, which is written only once per analysis, no matter how many files share it. The
+ * manifest itself is stored in the {@link CacheEntry} of the source file.
+ */
+class UCFGFilesSerialization {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UCFGFilesSerialization.class);
 
-  static final String SEQ_PREFIX = "SEQ";
-  static final String JSON_PREFIX = "JSON";
+  static final String BLOB_PREFIX = "BLOB";
+  private static final String ENTRY_SEPARATOR = "/";
+  private static final int DEFAULT_BUFFER_SIZE = 8192;
 
-  private final JsonSerialization<FilesManifest> json;
-  private final SequenceSerialization sequence;
+  private final SensorContext context;
+  private final CacheKey cacheKey;
+  private final CacheKey blobKey;
 
   UCFGFilesSerialization(SensorContext context, CacheKey cacheKey) {
-    super(context, cacheKey);
-    json = new JsonSerialization<>(FilesManifest.class, context, cacheKey.withPrefix(JSON_PREFIX));
-    sequence = new SequenceSerialization(context, cacheKey.withPrefix(SEQ_PREFIX));
+    this.context = context;
+    this.cacheKey = cacheKey;
+    blobKey = cacheKey.withPrefix(BLOB_PREFIX);
+  }
+
+  private static String convertToEntryName(Path baseAbsolutePath, Path fileAbsolutePath) {
+    var relativePath = baseAbsolutePath.relativize(fileAbsolutePath);
+    return StreamSupport
+      .stream(relativePath.spliterator(), false)
+      .map(Path::getFileName)
+      .map(Path::toString)
+      .collect(joining(ENTRY_SEPARATOR));
   }
 
-  void writeToCache(List<String> files) throws IOException {
-    var manifest = sequence.writeToCache(files);
-    json.writeToCache(manifest);
+  private static Path convertFromEntryName(Path baseAbsolutePath, String entryName) {
+    var fileAbsolutePath = baseAbsolutePath;
+    for (var name : entryName.split(ENTRY_SEPARATOR)) {
+      // This validates that the name is a valid OS path.
+      fileAbsolutePath = fileAbsolutePath.resolve(Path.of(name));
+    }
+    return fileAbsolutePath;
   }
 
-  @Override
-  boolean isInCache() {
-    if (!json.isInCache()) {
-      return false;
-    } else {
-      return sequence.isInCache();
+  private static void writeFile(InputStream input, Path file, long limit) throws IOException {
+    Files.createDirectories(file.getParent());
+
+    try (var output = new BufferedOutputStream(Files.newOutputStream(file))) {
+      var buffer = new byte[DEFAULT_BUFFER_SIZE];
+      var read = 0;
+      var totalRead = 0L;
+      var toRead = (int) Math.min(DEFAULT_BUFFER_SIZE, limit - totalRead);
+
+      while (totalRead < limit && (read = input.read(buffer, 0, toRead)) >= 0) {
+        output.write(buffer, 0, read);
+        totalRead += read;
+        toRead = (int) Math.min(DEFAULT_BUFFER_SIZE, limit - totalRead);
+      }
+
+      if (totalRead < limit) {
+        throw new IOException(
+          String.format("The cache stream is too small (<%d) for file %s", limit, file)
+        );
+      } else if (input.read() >= 0) {
+        throw new IOException(
+          String.format("The cache stream is too big (>%d) for file %s", limit, file)
+        );
+      }
     }
   }
 
-  void readFromCache() throws IOException {
-    var manifest = json.readFromCache();
-    if (manifest == null) {
-      throw new IOException("The manifest is null for key " + getCacheKey());
+  FilesManifest writeToCache(@Nullable List<String> files) {
+    var fileSizes = new ArrayList<FilesManifest.FileSize>();
+    var stored = 0;
+    for (var file : files == null ? List.<String>of() : files) {
+      var path = Path.of(file);
+      byte[] content;
+      try {
+        content = Files.readAllBytes(path);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failure when opening file", e);
+      }
+      var hash = UCFGBlobs.hash(content);
+      var key = blobKey.forContent(hash).toString();
+      if (UCFGBlobs.store(context.nextCache(), key)) {
+        context.nextCache().write(key, content);
+        CacheMetrics.bytesWritten(cacheKey.file(), content.length);
+        stored++;
+      }
+      var entryName = convertToEntryName(getWorkingDirectoryAbsolutePath(), path);
+      fileSizes.add(new FilesManifest.FileSize(entryName, content.length, hash));
     }
 
-    sequence.readFromCache(manifest);
+    LOG.debug(
+      "Cache entries created for key '{}' containing {} file(s), {} of them stored",
+      cacheKey,
+      fileSizes.size(),
+      stored
+    );
+    return new FilesManifest(fileSizes);
+  }
+
+  void readFromCache(FilesManifest manifest) throws IOException {
+    var previousCache = context.previousCache();
+    for (var fileSize : manifest.getFileSizes()) {
+      var file = convertFromEntryName(getWorkingDirectoryAbsolutePath(), fileSize.getName());
+      var key = contentKey(fileSize);
+      if (!previousCache.contains(key)) {
+        throw new IOException(String.format("The content of file %s is missing from the cache", file));
+      }
+      UCFGBlobs.restore(
+        key,
+        file,
+        target -> {
+          try (var input = previousCache.read(key)) {
+            writeFile(input, target, fileSize.getSize());
+          }
+          CacheMetrics.bytesRead(cacheKey.file(), fileSize.getSize());
+        }
+      );
+    }
+
+    LOG.debug(
+      "Cache entries extracted for key '{}' containing {} file(s)",
+      cacheKey,
+      manifest.getFileSizes().size()
+    );
+  }
+
+  void copyFromPrevious(FilesManifest manifest) {
+    for (var fileSize : manifest.getFileSizes()) {
+      var key = blobKey.forContent(fileSize.getHash()).toString();
+      if (UCFGBlobs.store(context.nextCache(), key)) {
+        context.nextCache().copyFromPrevious(key);
+      }
+    }
+  }
+
+  private String contentKey(FilesManifest.FileSize fileSize) throws IOException {
+    if (fileSize.getHash() == null) {
+      throw new IOException("The manifest has no content hash for key " + cacheKey);
+    }
+    return blobKey.forContent(fileSize.getHash()).toString();
   }
 
-  @Override
-  void copyFromPrevious() {
-    json.copyFromPrevious();
-    sequence.copyFromPrevious();
+  private Path getWorkingDirectoryAbsolutePath() {
+    return context.fileSystem().workDir().toPath();
   }
 }
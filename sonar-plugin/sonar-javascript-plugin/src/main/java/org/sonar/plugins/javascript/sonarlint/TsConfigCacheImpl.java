@@ -26,8 +26,10 @@ import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
@@ -62,10 +64,12 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
 
   class Cache {
     Map<String, TsConfigFile> inputFileToTsConfigFilesMap = new HashMap<>();
+    Map<String, TsConfigFile> loadedTsConfigFiles = new LinkedHashMap<>();
     Set<String> discoveredTsConfigFiles = new HashSet<>();
     List<String> originalTsConfigFiles = new ArrayList<>();
     Deque<String> pendingTsConfigFiles = new ArrayDeque<>();
     boolean initialized = false;
+    boolean stale = false;
 
     TsConfigFile getTsConfigForInputFile(InputFile inputFile) {
       var inputFilePath = inputFile.absolutePath();
@@ -84,6 +88,7 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
         var tsConfigPath = pendingTsConfigFiles.pop();
         LOG.debug("Computing tsconfig {} from bridge", tsConfigPath);
         TsConfigFile tsConfigFile = bridgeServer.loadTsConfig(tsConfigPath);
+        loadedTsConfigFiles.put(tsConfigPath, tsConfigFile);
         tsConfigFile.getFiles().forEach(file -> inputFileToTsConfigFilesMap.putIfAbsent(file, tsConfigFile));
         if (!tsConfigFile.getProjectReferences().isEmpty()) {
           LOG.info("Adding referenced project's tsconfigs {}", tsConfigFile.getProjectReferences());
@@ -110,22 +115,96 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
 
     void initializeOriginalTsConfigs(List<String> tsconfigs) {
       initialized = true;
+      stale = false;
       originalTsConfigFiles = tsconfigs;
       clearFileToTsConfigCache();
     }
 
-    void clearAll() {
-      initialized = false;
-      originalTsConfigFiles = new ArrayList<>();
-      clearFileToTsConfigCache();
-    }
-
     void clearFileToTsConfigCache() {
       inputFileToTsConfigFilesMap.clear();
+      loadedTsConfigFiles.clear();
       discoveredTsConfigFiles = new HashSet<>(originalTsConfigFiles);
       pendingTsConfigFiles = new ArrayDeque<>(originalTsConfigFiles);
     }
 
+    /**
+     * Replaces the tsconfig files the lookup starts from, keeping what is known of the ones which are still there.
+     */
+    void updateOriginalTsConfigs(List<String> tsconfigs) {
+      if (!initialized) {
+        initializeOriginalTsConfigs(tsconfigs);
+        return;
+      }
+      stale = false;
+      originalTsConfigFiles.stream().filter(tsconfig -> !tsconfigs.contains(tsconfig)).forEach(this::removeTsConfig);
+      var added = tsconfigs.stream().filter(tsconfig -> !originalTsConfigFiles.contains(tsconfig)).toList();
+      for (var tsconfig : added) {
+        discoveredTsConfigFiles.add(tsconfig);
+        pendingTsConfigFiles.addLast(tsconfig);
+      }
+      if (!added.isEmpty()) {
+        forgetUnresolvedFiles();
+      }
+      originalTsConfigFiles = tsconfigs;
+    }
+
+    /**
+     * Loads the given tsconfig file again when a file not yet resolved is analyzed, as its content changed.
+     */
+    void reloadTsConfig(String tsconfig) {
+      if (!discoveredTsConfigFiles.contains(tsconfig)) {
+        return;
+      }
+      loadedTsConfigFiles.remove(tsconfig);
+      forgetFilesOf(tsconfig);
+      forgetUnresolvedFiles();
+      pendingTsConfigFiles.remove(tsconfig);
+      pendingTsConfigFiles.addFirst(tsconfig);
+    }
+
+    void removeTsConfig(String tsconfig) {
+      discoveredTsConfigFiles.remove(tsconfig);
+      pendingTsConfigFiles.remove(tsconfig);
+      loadedTsConfigFiles.remove(tsconfig);
+      forgetFilesOf(tsconfig);
+      forgetUnresolvedFiles();
+      // the files which also belong to other tsconfig files already loaded fall back to them
+      loadedTsConfigFiles
+        .values()
+        .forEach(tsConfigFile -> tsConfigFile.getFiles().forEach(file -> inputFileToTsConfigFilesMap.putIfAbsent(file, tsConfigFile)));
+    }
+
+    /**
+     * A new file may belong to the tsconfig files already loaded from its parent folders, which are then loaded again
+     * when it is analyzed. When none was loaded from its parent folders, it may still be included by a tsconfig file
+     * from another folder, e.g. "config/tsconfig.json" including "../src", and all the loaded ones are loaded again.
+     * Files which are already resolved keep their tsconfig file.
+     */
+    void addSourceFile(String filename) {
+      if (inputFileToTsConfigFilesMap.get(filename) != null) {
+        return;
+      }
+      inputFileToTsConfigFilesMap.remove(filename);
+      var candidates = loadedTsConfigFiles.keySet().stream().filter(tsconfig -> isInFolderOf(filename, tsconfig)).toList();
+      if (candidates.isEmpty()) {
+        candidates = List.copyOf(loadedTsConfigFiles.keySet());
+      }
+      for (var tsconfig : candidates) {
+        loadedTsConfigFiles.remove(tsconfig);
+        pendingTsConfigFiles.remove(tsconfig);
+        pendingTsConfigFiles.addFirst(tsconfig);
+      }
+    }
+
+    private void forgetFilesOf(String tsconfig) {
+      inputFileToTsConfigFilesMap.values().removeIf(tsConfigFile -> tsConfigFile != null && tsConfigFile.getFilename().equals(tsconfig));
+    }
+
+    private void forgetUnresolvedFiles() {
+      // files without tsconfig file may belong to one which changed or was added
+      inputFileToTsConfigFilesMap.values().removeIf(Objects::isNull);
+    }
+
     /**
      * Compute an improved order of the pending tsconfig files with respect to the given inputFile.
      * This is based on the assumption that a tsconfig *should be* in some parent folder of the inputFile.
@@ -141,7 +220,7 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
       var newPendingTsConfigFiles = new ArrayDeque<String>();
       var notMatchingPendingTsConfigFiles = new ArrayList<String>();
       pendingTsConfigFiles.forEach(ts -> {
-        if (inputFile.absolutePath().startsWith(Path.of(ts).getParent().toAbsolutePath().toString())) {
+        if (isInFolderOf(inputFile.absolutePath(), ts)) {
           newPendingTsConfigFiles.add(ts);
         } else {
           notMatchingPendingTsConfigFiles.add(ts);
@@ -152,6 +231,11 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
     }
   }
 
+  private static boolean isInFolderOf(String filename, String tsconfig) {
+    // paths are compared by name elements, so that "/a/b/tsconfig.json" doesn't cover "/a/bc/file.ts"
+    return Path.of(filename).startsWith(Path.of(tsconfig).getParent().toAbsolutePath());
+  }
+
   public TsConfigFile getTsConfigForInputFile(InputFile inputFile) {
     if (origin == null) {
       return null;
@@ -162,7 +246,7 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
   public @Nullable List<String> listCachedTsConfigs(TsConfigOrigin tsConfigOrigin) {
     var currentCache = cacheMap.get(tsConfigOrigin);
 
-    if (currentCache.initialized) {
+    if (currentCache.initialized && !currentCache.stale) {
       LOG.debug("TsConfigCache is already initialized");
       return currentCache.originalTsConfigFiles;
     }
@@ -178,12 +262,18 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
     if (tsConfigOrigin == TsConfigOrigin.FALLBACK && cache.initialized) {
       return;
     }
-    if (tsConfigOrigin != TsConfigOrigin.FALLBACK && cache.originalTsConfigFiles.equals(tsConfigPaths)) {
+    if (tsConfigOrigin == TsConfigOrigin.FALLBACK) {
+      LOG.debug("Resetting the TsConfigCache {}", tsConfigOrigin);
+      cache.initializeOriginalTsConfigs(tsConfigPaths);
+      return;
+    }
+    if (cache.originalTsConfigFiles.equals(tsConfigPaths)) {
+      cache.stale = false;
       return;
     }
 
-    LOG.debug("Resetting the TsConfigCache {}", tsConfigOrigin);
-    cache.initializeOriginalTsConfigs(tsConfigPaths);
+    LOG.debug("Updating the TsConfigCache {}", tsConfigOrigin);
+    cache.updateOriginalTsConfigs(tsConfigPaths);
   }
 
   @Override
@@ -194,16 +284,22 @@ public class TsConfigCacheImpl implements TsConfigCache, ModuleFileListener {
     // Look for any event on files named *tsconfig*.json
     // Filenames other than tsconfig.json can be discovered through references
     if (filename.endsWith("json") && file.filename().contains("tsconfig")) {
-      LOG.debug("Clearing tsconfig cache");
-      cacheMap.get(TsConfigOrigin.LOOKUP).clearAll();
-      if (cacheMap.get(TsConfigOrigin.PROPERTY).discoveredTsConfigFiles.contains(filename)) {
-        cacheMap.get(TsConfigOrigin.PROPERTY).clearAll();
+      if (moduleFileEvent.getType() == ModuleFileEvent.Type.DELETED) {
+        LOG.debug("Forgetting tsconfig {}", filename);
+        cacheMap.values().forEach(cache -> cache.removeTsConfig(filename));
+      } else {
+        LOG.debug("Reloading tsconfig {} when needed", filename);
+        cacheMap.values().forEach(cache -> cache.reloadTsConfig(filename));
+      }
+      if (moduleFileEvent.getType() != ModuleFileEvent.Type.MODIFIED && "tsconfig.json".equals(file.filename())) {
+        // the tsconfig files found by lookup are looked up again on the next analysis
+        cacheMap.get(TsConfigOrigin.LOOKUP).stale = true;
       }
     } else if (moduleFileEvent.getType() == ModuleFileEvent.Type.CREATED && (JavaScriptFilePredicate.isJavaScriptFile(file) || JavaScriptFilePredicate.isTypeScriptFile(file))) {
-      // The file to tsconfig cache is cleared, as potentially the tsconfig file that would cover this new file
-      // has already been processed, and we would not be aware of it. By clearing the cache, we guarantee correctness.
-      LOG.debug("Clearing input file to tsconfig cache");
-      cacheMap.values().forEach(Cache::clearFileToTsConfigCache);
+      // Potentially the tsconfig file that would cover this new file has already been loaded, and we would not be aware of it.
+      // Only the tsconfig files which may cover it are loaded again, the TypeScript programs keep track of changed source files.
+      LOG.debug("Resolving tsconfig of new file {} when needed", filename);
+      cacheMap.values().forEach(cache -> cache.addSourceFile(filename));
     }
   }
 
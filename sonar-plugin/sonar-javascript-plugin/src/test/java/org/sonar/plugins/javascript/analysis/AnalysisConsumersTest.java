@@ -0,0 +1,216 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.plugins.javascript.api.AstSubscription;
+import org.sonar.plugins.javascript.api.JsAnalysisConsumer;
+import org.sonar.plugins.javascript.api.JsFile;
+
+class AnalysisConsumersTest {
+
+  private AnalysisConsumers consumers;
+
+  @AfterEach
+  void tearDown() {
+    if (consumers != null) {
+      consumers.stop();
+    }
+  }
+
+  @Test
+  void should_dispatch_synchronously_by_default() {
+    var consumer = new RecordingConsumer();
+    consumers = new AnalysisConsumers(List.of(consumer));
+    consumers.start(0, 1);
+
+    var file = jsFile();
+    consumers.accept(file);
+    assertThat(consumer.files).containsExactly(file);
+    assertThat(consumer.threads).containsExactly(Thread.currentThread());
+  }
+
+  @Test
+  void should_dispatch_on_consumer_threads() {
+    var first = new RecordingConsumer();
+    var second = new RecordingConsumer();
+    var third = new RecordingConsumer();
+    consumers = new AnalysisConsumers(List.of(first, second, third));
+    consumers.start(2, 100);
+
+    var files = List.of(jsFile(), jsFile(), jsFile());
+    files.forEach(consumers::accept);
+    consumers.doneAnalysis();
+
+    for (var consumer : List.of(first, second, third)) {
+      assertThat(consumer.files).containsExactlyElementsOf(files);
+      assertThat(consumer.threads).doesNotContain(Thread.currentThread());
+      // a consumer is always called from the same thread
+      assertThat(consumer.threads).containsOnly(consumer.threads.get(0));
+      assertThat(consumer.doneFiles).isEqualTo(3);
+    }
+    // consumers are spread over the threads
+    assertThat(first.threads.get(0)).isSameAs(third.threads.get(0)).isNotSameAs(second.threads.get(0));
+  }
+
+  @Test
+  void should_block_when_too_many_files_are_pending() throws Exception {
+    var release = new CountDownLatch(1);
+    var consumer = new RecordingConsumer() {
+      @Override
+      public void accept(JsFile jsFile) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.accept(jsFile);
+      }
+    };
+    consumers = new AnalysisConsumers(List.of(consumer));
+    consumers.start(1, 1);
+
+    consumers.accept(jsFile());
+    var second = CompletableFuture.runAsync(() -> consumers.accept(jsFile()));
+    assertThatThrownBy(() -> second.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+    release.countDown();
+    second.get(10, TimeUnit.SECONDS);
+    consumers.doneAnalysis();
+    assertThat(consumer.files).hasSize(2);
+  }
+
+  @Test
+  void should_consume_next_files_after_failure() {
+    var consumer = new RecordingConsumer() {
+      @Override
+      public void accept(JsFile jsFile) {
+        super.accept(jsFile);
+        if (files.size() == 1) {
+          throw new IllegalStateException("boom");
+        }
+      }
+    };
+    consumers = new AnalysisConsumers(List.of(consumer));
+    consumers.start(1, 1);
+
+    consumers.accept(jsFile());
+    consumers.accept(jsFile());
+    consumers.doneAnalysis();
+    assertThat(consumer.files).hasSize(2);
+    assertThat(consumer.doneFiles).isEqualTo(2);
+  }
+
+  @Test
+  void should_merge_subscriptions() {
+    var calls = new SubscribedConsumer(new AstSubscription(Set.of("ts"), Set.of(), Set.of("CallExpression")));
+    var imports = new SubscribedConsumer(new AstSubscription(Set.of(), Set.of(InputFile.Type.MAIN), Set.of("ImportDeclaration")));
+    consumers = new AnalysisConsumers(List.of(calls, imports));
+
+    var mainTs = inputFile("ts", InputFile.Type.MAIN);
+    var testTs = inputFile("ts", InputFile.Type.TEST);
+    var mainJs = inputFile("js", InputFile.Type.MAIN);
+    var testJs = inputFile("js", InputFile.Type.TEST);
+    assertThat(consumers.subscribedNodeTypes(mainTs)).containsExactly("CallExpression", "ImportDeclaration");
+    assertThat(consumers.subscribedNodeTypes(testTs)).containsExactly("CallExpression");
+    assertThat(consumers.subscribedNodeTypes(mainJs)).containsExactly("ImportDeclaration");
+    assertThat(consumers.subscribedNodeTypes(testJs)).isNull();
+
+    consumers = new AnalysisConsumers(List.of(calls, new RecordingConsumer()));
+    assertThat(consumers.subscribedNodeTypes(testJs)).isEmpty();
+    assertThat(new AnalysisConsumers().subscribedNodeTypes(mainTs)).isNull();
+  }
+
+  @Test
+  void should_only_dispatch_subscribed_files() {
+    var mainOnly = new SubscribedConsumer(new AstSubscription(Set.of(), Set.of(InputFile.Type.MAIN), Set.of()));
+    var all = new RecordingConsumer();
+    consumers = new AnalysisConsumers(List.of(mainOnly, all));
+
+    var main = new JsFile(inputFile("js", InputFile.Type.MAIN), null, null);
+    var test = new JsFile(inputFile("js", InputFile.Type.TEST), null, null);
+    consumers.accept(main);
+    consumers.accept(test);
+    consumers.start(1, 1);
+    consumers.accept(main);
+    consumers.accept(test);
+    consumers.doneAnalysis();
+
+    assertThat(mainOnly.files).containsExactly(main, main);
+    assertThat(all.files).containsExactly(main, test, main, test);
+  }
+
+  private static InputFile inputFile(String language, InputFile.Type type) {
+    var file = mock(InputFile.class);
+    when(file.language()).thenReturn(language);
+    when(file.type()).thenReturn(type);
+    when(file.filename()).thenReturn("file." + language);
+    return file;
+  }
+
+  private static JsFile jsFile() {
+    return new JsFile(mock(InputFile.class), null, null);
+  }
+
+  private static class SubscribedConsumer extends RecordingConsumer {
+    private final AstSubscription subscription;
+
+    SubscribedConsumer(AstSubscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public AstSubscription subscription() {
+      return subscription;
+    }
+  }
+
+  private static class RecordingConsumer implements JsAnalysisConsumer {
+    final List<JsFile> files = Collections.synchronizedList(new ArrayList<>());
+    final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    int doneFiles = -1;
+
+    @Override
+    public void accept(JsFile jsFile) {
+      files.add(jsFile);
+      threads.add(Thread.currentThread());
+    }
+
+    @Override
+    public void doneAnalysis() {
+      doneFiles = files.size();
+    }
+  }
+}
@@ -36,8 +36,11 @@ import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
 import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
 import org.sonar.plugins.javascript.bridge.BridgeServer.Highlight;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightBlock;
 import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbol;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbolBlock;
 import org.sonar.plugins.javascript.bridge.BridgeServer.Location;
 import org.sonar.plugins.javascript.bridge.BridgeServer.Metrics;
 
@@ -61,7 +64,7 @@ class AnalysisProcessorTest {
       .build();
     var location = new Location(1, 2, 1, 1); // invalid range startCol > endCol
     var highlight = new Highlight(location, "");
-    var response = new AnalysisResponse(null, List.of(), List.of(highlight), List.of(), new Metrics(), List.of(), List.of(), null);
+    var response = new AnalysisResponse(null, List.of(), HighlightBlock.of(List.of(highlight)), HighlightedSymbolBlock.EMPTY, new Metrics(), CpdTokenBlock.EMPTY, List.of(), null);
     processor.processResponse(context, mock(JsTsChecks.class), file, response);
     assertThat(logTester.logs())
       .contains("Failed to create highlight in " + file.uri() + " at 1:2-1:1");
@@ -79,14 +82,14 @@ class AnalysisProcessorTest {
       .build();
     var declaration = new Location(1, 2, 1, 1); // invalid range startCol > endCol
     var symbol = new HighlightedSymbol(declaration, List.of());
-    var response = new AnalysisResponse(null, List.of(), List.of(), List.of(symbol), new Metrics(), List.of(), List.of(), null);
+    var response = new AnalysisResponse(null, List.of(), HighlightBlock.EMPTY, HighlightedSymbolBlock.of(List.of(symbol)), new Metrics(), CpdTokenBlock.EMPTY, List.of(), null);
     processor.processResponse(context, mock(JsTsChecks.class), file, response);
     assertThat(logTester.logs())
       .contains("Failed to create symbol declaration in " + file.uri() + " at 1:2-1:1");
 
     context = SensorContextTester.create(baseDir);
     symbol = new HighlightedSymbol(new Location(1, 1, 1, 2), List.of(new Location(2, 2, 2, 1)));
-    response = new AnalysisResponse(null, List.of(), List.of(), List.of(symbol), new Metrics(), List.of(), List.of(), null);
+    response = new AnalysisResponse(null, List.of(), HighlightBlock.EMPTY, HighlightedSymbolBlock.of(List.of(symbol)), new Metrics(), CpdTokenBlock.EMPTY, List.of(), null);
     processor.processResponse(context, mock(JsTsChecks.class), file, response);
     assertThat(logTester.logs())
       .contains("Failed to create symbol reference in " + file.uri() + " at 2:2-2:1");
@@ -104,7 +107,7 @@ class AnalysisProcessorTest {
       .build();
     var location = new Location(1, 2, 1, 1); // invalid range startCol > endCol
     var cpd = new CpdToken(location, "img");
-    var response = new AnalysisResponse(null, List.of(), List.of(), List.of(), new Metrics(), List.of(cpd), List.of(), null);
+    var response = new AnalysisResponse(null, List.of(), HighlightBlock.EMPTY, HighlightedSymbolBlock.EMPTY, new Metrics(), CpdTokenBlock.of(List.of(cpd)), List.of(), null);
     processor.processResponse(context, mock(JsTsChecks.class), file, response);
     assertThat(context.cpdTokens(file.key())).isNull();
     assertThat(logTester.logs())
@@ -32,6 +32,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -80,6 +83,7 @@ import org.sonar.plugins.javascript.TestUtils;
 import org.sonar.plugins.javascript.analysis.cache.CacheTestUtils;
 import org.sonar.plugins.javascript.api.JsAnalysisConsumer;
 import org.sonar.plugins.javascript.api.JsFile;
+import org.sonar.plugins.javascript.api.estree.FlatAst;
 import org.sonar.plugins.javascript.bridge.BridgeServer;
 import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
 import org.sonar.plugins.javascript.bridge.BridgeServer.JsAnalysisRequest;
@@ -103,9 +107,11 @@ import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -405,6 +411,39 @@ class JsTsSensorTest {
     var captor = ArgumentCaptor.forClass(JsAnalysisRequest.class);
     verify(bridgeServerMock).analyzeTypeScript(captor.capture());
     assertThat(captor.getValue().skipAst()).isFalse();
+    assertThat(captor.getValue().astFormat()).isNull();
+  }
+
+  @Test
+  void should_request_flat_ast_when_consumers_accept_it() throws Exception {
+    var ctx = createSensorContext(baseDir);
+    ctx.setSettings(new MapSettings().setProperty("sonar.jasmin.internal.enabled", "true"));
+    var inputFile = createInputFile(ctx);
+    var tsProgram = new TsProgram("1", List.of(inputFile.absolutePath()), List.of());
+    var consumer = new JsAnalysisConsumer() {
+      @Override
+      public void accept(JsFile jsFile) {
+        // nothing to do
+      }
+
+      @Override
+      public boolean acceptsFlatAst() {
+        return true;
+      }
+
+      @Override
+      public void doneAnalysis() {
+        // nothing to do
+      }
+    };
+    when(bridgeServerMock.createProgram(any())).thenReturn(tsProgram);
+    when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(new AnalysisResponse());
+    createSensorWithConsumer(consumer).execute(ctx);
+
+    var captor = ArgumentCaptor.forClass(JsAnalysisRequest.class);
+    verify(bridgeServerMock).analyzeTypeScript(captor.capture());
+    assertThat(captor.getValue().skipAst()).isFalse();
+    assertThat(captor.getValue().astFormat()).isEqualTo("flat");
   }
 
   @Test
@@ -657,6 +696,274 @@ class JsTsSensorTest {
       );
   }
 
+  @Test
+  void should_analyze_without_result_cache_when_it_cannot_be_opened() throws Exception {
+    Path baseDir = Paths.get("src/test/resources/multi-tsconfig").toAbsolutePath();
+    SensorContextTester context = createSensorContext(baseDir);
+    var notADirectory = Files.createFile(tempDir.resolve("results"));
+    context.setSettings(
+      new MapSettings()
+        .setProperty("sonar.javascript.analysis.resultCache", "true")
+        .setProperty("sonar.javascript.analysis.resultCache.local", "true")
+        .setProperty("sonar.javascript.analysis.resultCache.path", notADirectory.toString())
+    );
+
+    var file1 = inputFileFromResource(context, baseDir, "dir1/file.ts");
+    when(bridgeServerMock.createProgram(any()))
+      .thenReturn(new TsProgram("1", singletonList(file1.absolutePath()), emptyList()));
+    when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(new AnalysisResponse());
+
+    createSensor().execute(context);
+    verify(bridgeServerMock, times(1)).analyzeTypeScript(any());
+    assertThat(logTester.logs(Level.WARN))
+      .contains("Failed to open the analysis result cache, files will be analyzed without it");
+  }
+
+  @Test
+  void should_analyze_by_program_with_parallelism() throws Exception {
+    Path baseDir = Paths.get("src/test/resources/multi-tsconfig").toAbsolutePath();
+    SensorContextTester context = createSensorContext(baseDir);
+    context.setSettings(
+      new MapSettings().setProperty("sonar.javascript.analysis.parallelism", "2")
+    );
+
+    var file1 = inputFileFromResource(context, baseDir, "dir1/file.ts");
+    var file2 = inputFileFromResource(context, baseDir, "dir2/file.ts");
+    var file3 = inputFileFromResource(context, baseDir, "dir3/file.ts");
+    var noconfig = inputFileFromResource(context, baseDir, "noconfig.ts");
+
+    when(bridgeServerMock.createProgram(any()))
+      .thenReturn(
+        new TsProgram(
+          "1",
+          Arrays.asList(file1.absolutePath(), file2.absolutePath(), file3.absolutePath()),
+          emptyList()
+        ),
+        new TsProgram("2", emptyList(), emptyList()),
+        new TsProgram("3", emptyList(), emptyList())
+      );
+    when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(new AnalysisResponse());
+
+    ArgumentCaptor<JsAnalysisRequest> captor = ArgumentCaptor.forClass(JsAnalysisRequest.class);
+    createSensor().execute(context);
+    verify(bridgeServerMock, times(4)).analyzeTypeScript(captor.capture());
+    verify(bridgeServerMock, times(3)).deleteProgram(any());
+    assertThat(captor.getAllValues())
+      .extracting(JsAnalysisRequest::filePath)
+      .containsExactlyInAnyOrder(
+        file1.absolutePath(),
+        file2.absolutePath(),
+        file3.absolutePath(),
+        noconfig.absolutePath()
+      );
+  }
+
+  @Test
+  void should_create_programs_in_parallel() throws Exception {
+    Path baseDir = Paths.get("src/test/resources/multi-tsconfig").toAbsolutePath();
+    SensorContextTester context = createSensorContext(baseDir);
+    context.setSettings(
+      new MapSettings()
+        .setProperty("sonar.javascript.analysis.parallelism", "2")
+        .setProperty("sonar.javascript.analysis.maxPrograms", "2")
+    );
+
+    var file1 = inputFileFromResource(context, baseDir, "dir1/file.ts");
+    var file2 = inputFileFromResource(context, baseDir, "dir2/file.ts");
+    var file3 = inputFileFromResource(context, baseDir, "dir3/file.ts");
+    var noconfig = inputFileFromResource(context, baseDir, "noconfig.ts");
+    var tsconfig1 = absolutePath(baseDir, "dir1/tsconfig.json");
+
+    when(bridgeServerMock.createProgram(any()))
+      .thenAnswer(invocation -> {
+        TsProgramRequest request = invocation.getArgument(0);
+        if (request.tsConfig().contains("dir1")) {
+          return new TsProgram("1", Arrays.asList(file1.absolutePath(), file2.absolutePath()), emptyList());
+        } else if (request.tsConfig().contains("dir2")) {
+          return new TsProgram("2", singletonList(file2.absolutePath()), emptyList());
+        }
+        return new TsProgram("3", singletonList(file3.absolutePath()), singletonList(tsconfig1));
+      });
+    when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(new AnalysisResponse());
+
+    ArgumentCaptor<JsAnalysisRequest> captor = ArgumentCaptor.forClass(JsAnalysisRequest.class);
+    createSensor().execute(context);
+    verify(bridgeServerMock, times(3)).createProgram(any());
+    verify(bridgeServerMock, times(3)).deleteProgram(any());
+    verify(bridgeServerMock, times(4)).analyzeTypeScript(captor.capture());
+    assertThat(captor.getAllValues())
+      .extracting(JsAnalysisRequest::filePath)
+      .containsExactlyInAnyOrder(
+        file1.absolutePath(),
+        file2.absolutePath(),
+        file3.absolutePath(),
+        noconfig.absolutePath()
+      );
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("tsconfig.json already analyzed: '" + tsconfig1 + "'. Skipping it.");
+  }
+
+  @Test
+  void should_prefetch_next_program() throws Exception {
+    Path baseDir = Paths.get("src/test/resources/multi-tsconfig").toAbsolutePath();
+    SensorContextTester context = createSensorContext(baseDir);
+    context.setSettings(
+      new MapSettings().setProperty("sonar.javascript.analysis.prefetchProgram", "true")
+    );
+
+    var file1 = inputFileFromResource(context, baseDir, "dir1/file.ts");
+    inputFileFromResource(context, baseDir, "dir2/file.ts");
+    inputFileFromResource(context, baseDir, "dir3/file.ts");
+
+    // every program creation waits for another one to start: it only succeeds if two programs are created at once
+    var creations = new CountDownLatch(2);
+    var concurrent = new AtomicBoolean(true);
+    when(bridgeServerMock.createProgram(any()))
+      .thenAnswer(invocation -> {
+        creations.countDown();
+        concurrent.compareAndSet(true, creations.await(5, TimeUnit.SECONDS));
+        return new TsProgram("1", singletonList(file1.absolutePath()), emptyList());
+      });
+    when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(new AnalysisResponse());
+
+    createSensor().execute(context);
+    verify(bridgeServerMock, times(3)).createProgram(any());
+    verify(bridgeServerMock, times(3)).deleteProgram(any());
+    assertThat(concurrent).isTrue();
+  }
+
+  @Test
+  void should_analyze_programs_side_by_side() throws Exception {
+    Path baseDir = Paths.get("src/test/resources/multi-tsconfig").toAbsolutePath();
+    SensorContextTester context = createSensorContext(baseDir);
+    context.setSettings(
+      new MapSettings()
+        .setProperty("sonar.javascript.analysis.parallelism", "2")
+        .setProperty("sonar.javascript.analysis.maxPrograms", "2")
+    );
+
+    var file1 = inputFileFromResource(context, baseDir, "dir1/file.ts");
+    var file2 = inputFileFromResource(context, baseDir, "dir2/file.ts");
+    var file3 = inputFileFromResource(context, baseDir, "dir3/file.ts");
+
+    // the first program is only available once the second one is, and the analysis of its first file waits for
+    // a file of the second program: it only succeeds if the files of both programs are analyzed at once
+    var secondProgram = new CountDownLatch(1);
+    var secondProgramFile = new CountDownLatch(1);
+    var concurrent = new AtomicBoolean(true);
+    when(bridgeServerMock.createProgram(any()))
+      .thenAnswer(invocation -> {
+        TsProgramRequest request = invocation.getArgument(0);
+        if (request.tsConfig().contains("dir1")) {
+          secondProgram.await(5, TimeUnit.SECONDS);
+          return new TsProgram("1", Arrays.asList(file1.absolutePath(), file2.absolutePath()), emptyList());
+        } else if (request.tsConfig().contains("dir2")) {
+          secondProgram.countDown();
+          return new TsProgram("2", singletonList(file3.absolutePath()), emptyList());
+        }
+        return new TsProgram("3", emptyList(), emptyList());
+      });
+    when(bridgeServerMock.analyzeTypeScript(any()))
+      .thenAnswer(invocation -> {
+        JsAnalysisRequest request = invocation.getArgument(0);
+        if (request.filePath().equals(file1.absolutePath())) {
+          concurrent.compareAndSet(true, secondProgramFile.await(5, TimeUnit.SECONDS));
+        } else if (request.filePath().equals(file3.absolutePath())) {
+          secondProgramFile.countDown();
+        }
+        return new AnalysisResponse();
+      });
+
+    ArgumentCaptor<JsAnalysisRequest> captor = ArgumentCaptor.forClass(JsAnalysisRequest.class);
+    createSensor().execute(context);
+    verify(bridgeServerMock, times(3)).createProgram(any());
+    verify(bridgeServerMock, times(3)).deleteProgram(any());
+    verify(bridgeServerMock, times(3)).analyzeTypeScript(captor.capture());
+    assertThat(captor.getAllValues())
+      .extracting(JsAnalysisRequest::filePath, JsAnalysisRequest::programId)
+      .containsExactlyInAnyOrder(
+        tuple(file1.absolutePath(), "1"),
+        tuple(file2.absolutePath(), "1"),
+        tuple(file3.absolutePath(), "2")
+      );
+    assertThat(concurrent).isTrue();
+  }
+
+  @Test
+  void should_delete_programs_created_ahead_on_failure() throws Exception {
+    Path baseDir = Paths.get("src/test/resources/multi-tsconfig").toAbsolutePath();
+    SensorContextTester context = createSensorContext(baseDir);
+    context.setSettings(
+      new MapSettings().setProperty("sonar.javascript.analysis.maxPrograms", "2")
+    );
+
+    var file1 = inputFileFromResource(context, baseDir, "dir1/file.ts");
+    var file2 = inputFileFromResource(context, baseDir, "dir2/file.ts");
+    inputFileFromResource(context, baseDir, "dir3/file.ts");
+
+    when(bridgeServerMock.createProgram(any()))
+      .thenAnswer(invocation -> {
+        TsProgramRequest request = invocation.getArgument(0);
+        if (request.tsConfig().contains("dir1")) {
+          return new TsProgram("1", singletonList(file1.absolutePath()), emptyList());
+        }
+        return new TsProgram("2", singletonList(file2.absolutePath()), emptyList());
+      });
+    when(bridgeServerMock.analyzeTypeScript(any())).thenThrow(new IllegalStateException("error"));
+
+    var sensor = createSensor();
+    assertThatThrownBy(() -> sensor.execute(context))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Analysis of JS/TS files failed");
+
+    // the program created ahead may still be in creation, it is deleted once created
+    ArgumentCaptor<TsProgram> captor = ArgumentCaptor.forClass(TsProgram.class);
+    verify(bridgeServerMock, timeout(5000).times(2)).deleteProgram(captor.capture());
+    verify(bridgeServerMock, times(2)).createProgram(any());
+    assertThat(captor.getAllValues())
+      .extracting(TsProgram::programId)
+      .containsExactlyInAnyOrder("1", "2");
+  }
+
+  @Test
+  void should_analyze_in_batches() throws Exception {
+    Path baseDir = Paths.get("src/test/resources/multi-tsconfig").toAbsolutePath();
+    SensorContextTester context = createSensorContext(baseDir);
+    context.setSettings(
+      new MapSettings()
+        .setProperty("sonar.javascript.analysis.batchBytes", "1")
+        .setProperty("sonar.javascript.analysis.parallelism", "2")
+    );
+
+    var file1 = inputFileFromResource(context, baseDir, "dir1/file.ts");
+    var file2 = inputFileFromResource(context, baseDir, "dir2/file.ts");
+    var file3 = inputFileFromResource(context, baseDir, "dir3/file.ts");
+    inputFileFromResource(context, baseDir, "noconfig.ts");
+
+    when(bridgeServerMock.createProgram(any()))
+      .thenReturn(
+        new TsProgram(
+          "1",
+          Arrays.asList(file1.absolutePath(), file2.absolutePath(), file3.absolutePath()),
+          emptyList()
+        ),
+        new TsProgram("2", emptyList(), emptyList()),
+        new TsProgram("3", emptyList(), emptyList())
+      );
+    when(bridgeServerMock.analyzeBatch(any()))
+      .thenAnswer(invocation -> {
+        List<JsAnalysisRequest> requests = invocation.getArgument(0);
+        return requests.stream().map(request -> new AnalysisResponse()).toList();
+      });
+
+    createSensor().execute(context);
+    // files are empty: the files of the program are sent together once it is analyzed,
+    // and the file outside of any program is sent alone
+    verify(bridgeServerMock, times(1)).analyzeBatch(any());
+    verify(bridgeServerMock, times(1)).analyzeTypeScript(any());
+    assertThat(logTester.logs(Level.DEBUG)).contains("Analyzing file: " + file3.uri());
+  }
+
   @Test
   void should_not_analyze_references_twice() throws Exception {
     Path baseDir = Paths.get("src/test/resources/referenced-tsconfigs").toAbsolutePath();
@@ -928,7 +1235,7 @@ class JsTsSensorTest {
       .build();
 
     when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(
-      new AnalysisResponse(null, List.of(), List.of(), List.of(), new BridgeServer.Metrics(), List.of(), List.of(), placeHolderNode)
+      new AnalysisResponse(null, List.of(), BridgeServer.HighlightBlock.EMPTY, BridgeServer.HighlightedSymbolBlock.EMPTY, new BridgeServer.Metrics(), BridgeServer.CpdTokenBlock.EMPTY, List.of(), placeHolderNode)
     );
 
     sensor.execute(context);
@@ -948,7 +1255,7 @@ class JsTsSensorTest {
       .build();
 
     when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(
-      new AnalysisResponse(null, List.of(), List.of(), List.of(), new BridgeServer.Metrics(), List.of(), List.of(), erroneousNode)
+      new AnalysisResponse(null, List.of(), BridgeServer.HighlightBlock.EMPTY, BridgeServer.HighlightedSymbolBlock.EMPTY, new BridgeServer.Metrics(), BridgeServer.CpdTokenBlock.EMPTY, List.of(), erroneousNode)
     );
     var consumer = new JsAnalysisConsumer() {
       final List<JsFile> files = new ArrayList<>();
@@ -973,6 +1280,41 @@ class JsTsSensorTest {
       .contains("Failed to deserialize AST for file: " + inputFile.uri());
   }
 
+  @Test
+  void should_keep_analyzing_when_flat_ast_cannot_be_read() throws Exception {
+    var inputFile = createInputFile(context);
+    var tsProgram = new TsProgram("1", List.of(inputFile.absolutePath()), List.of(), false, null);
+    when(bridgeServerMock.createProgram(any())).thenReturn(tsProgram);
+    when(bridgeServerMock.analyzeTypeScript(any())).thenReturn(
+      new AnalysisResponse(null, List.of(), BridgeServer.HighlightBlock.EMPTY, BridgeServer.HighlightedSymbolBlock.EMPTY, new BridgeServer.Metrics(), BridgeServer.CpdTokenBlock.EMPTY, List.of(), null, mock(FlatAst.class))
+    );
+    var consumer = new JsAnalysisConsumer() {
+      boolean done;
+
+      @Override
+      public void accept(JsFile jsFile) {
+        // the flat AST is decoded lazily, failures surface in the consumers
+        throw new IllegalArgumentException("Truncated flat AST");
+      }
+
+      @Override
+      public boolean acceptsFlatAst() {
+        return true;
+      }
+
+      @Override
+      public void doneAnalysis() {
+        done = true;
+      }
+    };
+    var sensor = createSensorWithConsumer(consumer);
+    sensor.execute(context);
+    assertThat(consumer.done).isTrue();
+
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("Failed to deserialize AST for file: " + inputFile.uri());
+  }
+
   private JsAnalysisConsumer createConsumer() {
     return new JsAnalysisConsumer() {
       final List<JsFile> files = new ArrayList<>();
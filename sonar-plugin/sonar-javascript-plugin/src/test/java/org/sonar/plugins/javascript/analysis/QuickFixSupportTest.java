@@ -43,6 +43,9 @@ import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightBlock;
+import org.sonar.plugins.javascript.bridge.BridgeServer.HighlightedSymbolBlock;
 import org.sonar.plugins.javascript.bridge.BridgeServer.Issue;
 import org.sonar.plugins.javascript.bridge.BridgeServer.IssueLocation;
 import org.sonar.plugins.javascript.bridge.BridgeServer.Metrics;
@@ -103,7 +106,7 @@ class QuickFixSupportTest {
   void test() {
     var context = createContext(Version.create(6, 3));
 
-    var response = new AnalysisResponse(null, List.of(issueWithQuickFix()), List.of(), List.of(), new Metrics(), List.of(), List.of(), null);
+    var response = new AnalysisResponse(null, List.of(issueWithQuickFix()), HighlightBlock.EMPTY, HighlightedSymbolBlock.EMPTY, new Metrics(), CpdTokenBlock.EMPTY, List.of(), null);
 
     var issueCaptor = ArgumentCaptor.forClass(DefaultSonarLintIssue.class);
     doNothing().when(sensorStorage).store(issueCaptor.capture());
@@ -135,7 +138,7 @@ class QuickFixSupportTest {
   @Test
   void test_old_version() {
     var context = createContext(Version.create(6, 2));
-    var response = new AnalysisResponse(null, List.of(issueWithQuickFix()), List.of(), List.of(), new Metrics(), List.of(), List.of(), null);
+    var response = new AnalysisResponse(null, List.of(issueWithQuickFix()), HighlightBlock.EMPTY, HighlightedSymbolBlock.EMPTY, new Metrics(), CpdTokenBlock.EMPTY, List.of(), null);
 
     var issueCaptor = ArgumentCaptor.forClass(DefaultSonarLintIssue.class);
     doNothing().when(sensorStorage).store(issueCaptor.capture());
@@ -148,7 +151,7 @@ class QuickFixSupportTest {
   void test_null() {
     var context = createContext(Version.create(6, 3));
     var issue = new Issue(1, 1, 1, 1,"", "S1116", List.of(), 1.0, List.of());
-    var response = new AnalysisResponse(null, List.of(issue), List.of(), List.of(), new Metrics(), List.of(), List.of(), null);
+    var response = new AnalysisResponse(null, List.of(issue), HighlightBlock.EMPTY, HighlightedSymbolBlock.EMPTY, new Metrics(), CpdTokenBlock.EMPTY, List.of(), null);
 
     var issueCaptor = ArgumentCaptor.forClass(DefaultSonarLintIssue.class);
     doNothing().when(sensorStorage).store(issueCaptor.capture());
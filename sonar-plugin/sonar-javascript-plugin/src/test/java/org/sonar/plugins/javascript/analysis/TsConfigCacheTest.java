@@ -23,6 +23,8 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.plugins.javascript.analysis.TsConfigProvider.TSCONFIG_PATHS;
 
@@ -133,7 +135,7 @@ class TsConfigCacheTest {
   }
 
   @Test
-  void testClearCacheOnTsConfigChange() throws IOException {
+  void testReloadTsConfigOnTsConfigChange() throws IOException {
     var fileAndTsConfig = prepareFileAndTsConfig();
     var file1 = fileAndTsConfig.getLeft();
     var tsConfigFile = fileAndTsConfig.getRight();
@@ -144,8 +146,144 @@ class TsConfigCacheTest {
 
     var fileEvent = DefaultModuleFileEvent.of(tsConfigInputFile, ModuleFileEvent.Type.MODIFIED);
     tsConfigCache.process(fileEvent);
+    assertThat(tsConfigCache.listCachedTsConfigs(TsConfigOrigin.LOOKUP)).containsExactly(tsConfigFile.getFilename());
     var newTsConfig = tsConfigCache.getTsConfigForInputFile(file1);
-    assertThat(newTsConfig).isNull();
+    assertThat(newTsConfig.getFilename()).isEqualTo(tsConfigFile.getFilename());
+    verify(bridgeServerMock, times(2)).loadTsConfig(tsConfigFile.getFilename());
+  }
+
+  @Test
+  void testLookupAgainOnTsConfigCreation() throws IOException {
+    var fileAndTsConfig = prepareFileAndTsConfig();
+    var file1 = fileAndTsConfig.getLeft();
+    var tsConfigFile = fileAndTsConfig.getRight();
+    tsConfigCache.getTsConfigForInputFile(file1);
+
+    Path tsconfig2 = baseDir.resolve("dir/tsconfig.json");
+    Files.createDirectory(tsconfig2.getParent());
+    Files.createFile(tsconfig2);
+    var tsConfigInputFile = TestInputFileBuilder.create(baseDir.toString(), "dir/tsconfig.json").build();
+    tsConfigCache.process(DefaultModuleFileEvent.of(tsConfigInputFile, ModuleFileEvent.Type.CREATED));
+    assertThat(tsConfigCache.listCachedTsConfigs(TsConfigOrigin.LOOKUP)).isNull();
+
+    SensorContextTester ctx = SensorContextTester.create(baseDir);
+    TsConfigProvider.getTsConfigs(new ContextUtils(ctx), this::tsConfigFileCreator, tsConfigCache);
+    assertThat(tsConfigCache.listCachedTsConfigs(TsConfigOrigin.LOOKUP))
+      .containsExactlyInAnyOrder(tsConfigFile.getFilename(), tsconfig2.toAbsolutePath().toString());
+
+    // the files already resolved keep their tsconfig
+    assertThat(tsConfigCache.getTsConfigForInputFile(file1)).isEqualTo(tsConfigFile);
+    verify(bridgeServerMock, times(1)).loadTsConfig(any());
+  }
+
+  @Test
+  void testFallBackOnTsConfigDeletion() throws IOException {
+    var file1 = TestInputFileBuilder.create(baseDir.toString(), "file1.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    Path tsconfig1 = baseDir.resolve("tsconfig.json");
+    Path tsconfig2 = baseDir.resolve("tsconfig2.json");
+    var tsConfigFile1 = new TsConfigFile(tsconfig1.toAbsolutePath().toString(), singletonList(file1.absolutePath()), singletonList(tsconfig2.toAbsolutePath().toString()));
+    var tsConfigFile2 = new TsConfigFile(tsconfig2.toAbsolutePath().toString(), singletonList(file1.absolutePath()), emptyList());
+    Files.createFile(tsconfig1);
+    Files.createFile(tsconfig2);
+
+    SensorContextTester ctx = SensorContextTester.create(baseDir);
+    TsConfigProvider.getTsConfigs(new ContextUtils(ctx), this::tsConfigFileCreator, tsConfigCache);
+    when(bridgeServerMock.loadTsConfig(tsConfigFile1.getFilename())).thenReturn(tsConfigFile1);
+    when(bridgeServerMock.loadTsConfig(tsConfigFile2.getFilename())).thenReturn(tsConfigFile2);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file1)).isEqualTo(tsConfigFile1);
+    // loads the referenced tsconfig, which also covers the file
+    var file2 = TestInputFileBuilder.create(baseDir.toString(), "file2.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    assertThat(tsConfigCache.getTsConfigForInputFile(file2)).isNull();
+
+    var tsConfigInputFile = TestInputFileBuilder.create(baseDir.toString(), "tsconfig.json").build();
+    tsConfigCache.process(DefaultModuleFileEvent.of(tsConfigInputFile, ModuleFileEvent.Type.DELETED));
+
+    assertThat(tsConfigCache.getTsConfigForInputFile(file1)).isEqualTo(tsConfigFile2);
+    verify(bridgeServerMock, times(1)).loadTsConfig(tsConfigFile1.getFilename());
+    verify(bridgeServerMock, times(1)).loadTsConfig(tsConfigFile2.getFilename());
+  }
+
+  @Test
+  void testReloadOnlyEnclosingTsConfigsOnFileCreation() throws IOException {
+    var file1 = TestInputFileBuilder.create(baseDir.toString(), "dir1/file1.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    var file2 = TestInputFileBuilder.create(baseDir.toString(), "dir2/file2.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    var file3 = TestInputFileBuilder.create(baseDir.toString(), "dir1/file3.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    Path tsconfig1 = baseDir.resolve("dir1/tsconfig.json");
+    Path tsconfig2 = baseDir.resolve("dir2/tsconfig.json");
+    Files.createDirectory(tsconfig1.getParent());
+    Files.createDirectory(tsconfig2.getParent());
+    Files.createFile(tsconfig1);
+    Files.createFile(tsconfig2);
+    var tsConfigFile1 = new TsConfigFile(tsconfig1.toAbsolutePath().toString(), singletonList(file1.absolutePath()), emptyList());
+    var tsConfigFile2 = new TsConfigFile(tsconfig2.toAbsolutePath().toString(), singletonList(file2.absolutePath()), emptyList());
+    var tsConfigFile1WithNewFile = new TsConfigFile(tsconfig1.toAbsolutePath().toString(), List.of(file1.absolutePath(), file3.absolutePath()), emptyList());
+
+    SensorContextTester ctx = SensorContextTester.create(baseDir);
+    TsConfigProvider.getTsConfigs(new ContextUtils(ctx), this::tsConfigFileCreator, tsConfigCache);
+    when(bridgeServerMock.loadTsConfig(tsConfigFile1.getFilename())).thenReturn(tsConfigFile1, tsConfigFile1WithNewFile);
+    when(bridgeServerMock.loadTsConfig(tsConfigFile2.getFilename())).thenReturn(tsConfigFile2);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file1)).isEqualTo(tsConfigFile1);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file2)).isEqualTo(tsConfigFile2);
+
+    tsConfigCache.process(DefaultModuleFileEvent.of(file3, ModuleFileEvent.Type.CREATED));
+
+    assertThat(tsConfigCache.getTsConfigForInputFile(file3)).isEqualTo(tsConfigFile1WithNewFile);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file2)).isEqualTo(tsConfigFile2);
+    verify(bridgeServerMock, times(2)).loadTsConfig(tsConfigFile1.getFilename());
+    verify(bridgeServerMock, times(1)).loadTsConfig(tsConfigFile2.getFilename());
+  }
+
+  @Test
+  void testReloadTsConfigsOfSiblingFoldersOnFileCreation() throws IOException {
+    var file1 = TestInputFileBuilder.create(baseDir.toString(), "dir1/file1.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    var file2 = TestInputFileBuilder.create(baseDir.toString(), "dir10/file2.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    var file3 = TestInputFileBuilder.create(baseDir.toString(), "dir10/file3.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    Path tsconfig1 = baseDir.resolve("dir1/tsconfig.json");
+    Path tsconfig2 = baseDir.resolve("dir10/tsconfig.json");
+    Files.createDirectory(tsconfig1.getParent());
+    Files.createDirectory(tsconfig2.getParent());
+    Files.createFile(tsconfig1);
+    Files.createFile(tsconfig2);
+    var tsConfigFile1 = new TsConfigFile(tsconfig1.toAbsolutePath().toString(), singletonList(file1.absolutePath()), emptyList());
+    var tsConfigFile2 = new TsConfigFile(tsconfig2.toAbsolutePath().toString(), singletonList(file2.absolutePath()), emptyList());
+    var tsConfigFile2WithNewFile = new TsConfigFile(tsconfig2.toAbsolutePath().toString(), List.of(file2.absolutePath(), file3.absolutePath()), emptyList());
+
+    SensorContextTester ctx = SensorContextTester.create(baseDir);
+    TsConfigProvider.getTsConfigs(new ContextUtils(ctx), this::tsConfigFileCreator, tsConfigCache);
+    when(bridgeServerMock.loadTsConfig(tsConfigFile1.getFilename())).thenReturn(tsConfigFile1);
+    when(bridgeServerMock.loadTsConfig(tsConfigFile2.getFilename())).thenReturn(tsConfigFile2, tsConfigFile2WithNewFile);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file1)).isEqualTo(tsConfigFile1);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file2)).isEqualTo(tsConfigFile2);
+
+    // "dir1" is a prefix of "dir10", but not one of its parent folders
+    tsConfigCache.process(DefaultModuleFileEvent.of(file3, ModuleFileEvent.Type.CREATED));
+
+    assertThat(tsConfigCache.getTsConfigForInputFile(file3)).isEqualTo(tsConfigFile2WithNewFile);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file1)).isEqualTo(tsConfigFile1);
+    verify(bridgeServerMock, times(1)).loadTsConfig(tsConfigFile1.getFilename());
+    verify(bridgeServerMock, times(2)).loadTsConfig(tsConfigFile2.getFilename());
+  }
+
+  @Test
+  void testReloadAllTsConfigsOnFileCreationOutsideOfTheirFolders() throws IOException {
+    var file1 = TestInputFileBuilder.create(baseDir.toString(), "src/file1.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    var file2 = TestInputFileBuilder.create(baseDir.toString(), "src/file2.ts").setLanguage(TypeScriptLanguage.KEY).build();
+    Path tsconfig = baseDir.resolve("config/tsconfig.json");
+    Files.createDirectory(tsconfig.getParent());
+    Files.createFile(tsconfig);
+    var tsConfigFile = new TsConfigFile(tsconfig.toAbsolutePath().toString(), singletonList(file1.absolutePath()), emptyList());
+    var tsConfigFileWithNewFile = new TsConfigFile(tsconfig.toAbsolutePath().toString(), List.of(file1.absolutePath(), file2.absolutePath()), emptyList());
+
+    SensorContextTester ctx = SensorContextTester.create(baseDir);
+    TsConfigProvider.getTsConfigs(new ContextUtils(ctx), this::tsConfigFileCreator, tsConfigCache);
+    when(bridgeServerMock.loadTsConfig(tsConfigFile.getFilename())).thenReturn(tsConfigFile, tsConfigFileWithNewFile);
+    assertThat(tsConfigCache.getTsConfigForInputFile(file1)).isEqualTo(tsConfigFile);
+
+    // the tsconfig file includes "../src", which is not below its folder
+    tsConfigCache.process(DefaultModuleFileEvent.of(file2, ModuleFileEvent.Type.CREATED));
+
+    assertThat(tsConfigCache.getTsConfigForInputFile(file2)).isEqualTo(tsConfigFileWithNewFile);
+    verify(bridgeServerMock, times(2)).loadTsConfig(tsConfigFile.getFilename());
   }
 
   @Test
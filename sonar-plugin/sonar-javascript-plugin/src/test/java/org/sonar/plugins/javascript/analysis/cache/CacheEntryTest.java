@@ -0,0 +1,97 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CacheEntryTest {
+
+  @Test
+  void should_read_written_entry() throws IOException {
+    var entry = entry(new byte[] { 1, 2, 3 });
+    var read = CacheEntry.fromBinary(entry.toBinary());
+
+    assertThat(read).isNotNull();
+    assertThat(read.getMetadata().matches(entry.getMetadata())).isTrue();
+    assertThat(read.getUcfgVersion()).isEqualTo("ucfg");
+    assertThat(read.getManifest().getFileSizes())
+      .singleElement()
+      .satisfies(fileSize -> {
+        assertThat(fileSize.getName()).isEqualTo("ucfg/file.ucfg");
+        assertThat(fileSize.getSize()).isEqualTo(42);
+        assertThat(fileSize.getHash()).isEqualTo("hash");
+      });
+    assertThat(read.getCpdData()).containsExactly(1, 2, 3);
+    assertThat(read.getCpdDictionaryId()).isEqualTo(45);
+  }
+
+  @Test
+  void should_compress_large_entry() throws IOException {
+    var cpdData = new byte[10_000];
+    Arrays.fill(cpdData, (byte) 7);
+    var binary = entry(cpdData).toBinary();
+
+    assertThat(binary).hasSizeLessThan(cpdData.length / 10);
+    assertThat(CacheEntry.fromBinary(binary).getCpdData()).isEqualTo(cpdData);
+  }
+
+  @Test
+  void should_detect_corrupted_entry() throws IOException {
+    var binary = entry(new byte[] { 1, 2, 3 }).toBinary();
+    binary[binary.length - 2] ^= 1;
+    assertThatThrownBy(() -> CacheEntry.fromBinary(binary))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Can't read data from cache, checksum mismatch");
+  }
+
+  @Test
+  void should_detect_truncated_entry() throws IOException {
+    var binary = entry(new byte[] { 1, 2, 3 }).toBinary();
+    assertThatThrownBy(() -> CacheEntry.fromBinary(Arrays.copyOf(binary, 10)))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Can't read data from cache, truncated entry");
+    assertThatThrownBy(() -> CacheEntry.fromBinary(Arrays.copyOf(binary, binary.length - 1)))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Can't read data from cache, checksum mismatch");
+  }
+
+  @Test
+  void should_ignore_other_format_version() throws IOException {
+    var binary = entry(new byte[] { 1, 2, 3 }).toBinary();
+    binary[4] = CacheEntry.VERSION + 1;
+    assertThat(CacheEntry.fromBinary(binary)).isNull();
+  }
+
+  private static CacheEntry entry(byte[] cpdData) {
+    return new CacheEntry(
+      new FileMetadata(12, new byte[] { 9, 8, 7 }),
+      "ucfg",
+      new FilesManifest(List.of(new FilesManifest.FileSize("ucfg/file.ucfg", 42, "hash"))),
+      cpdData,
+      45
+    );
+  }
+}
@@ -44,8 +44,19 @@ class CacheKeyTest {
   }
 
   @Test
-  void test_cpd_data_key() {
-    assertThat(CacheKey.forFile(inputFile, null).forCpd()).hasToString("js:cpd:fileKey");
+  void test_analysis_key() {
+    assertThat(CacheKey.forFile(inputFile, null).forAnalysis()).hasToString("js:analysis:fileKey");
+  }
+
+  @Test
+  void test_result_key() {
+    assertThat(CacheKey.forFile(inputFile, "1.0").forResult()).hasToString("js:result:1.0:fileKey");
+  }
+
+  @Test
+  void test_cpd_dictionary_key() {
+    assertThat(CacheKey.forCpdDictionary("JS/TS", "1.0"))
+      .hasToString("js:cpd:dictionary:1.0:JS/TS");
   }
 
   @Test
@@ -25,15 +25,20 @@ import static org.mockito.Mockito.when;
 import static org.sonar.plugins.javascript.analysis.cache.CacheStrategy.noCache;
 import static org.sonar.plugins.javascript.analysis.cache.CacheStrategy.writeOnly;
 
-import java.util.List;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.event.Level;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
 
 class CacheReporterTest {
 
@@ -104,14 +109,62 @@ class CacheReporterTest {
       );
   }
 
+  @Test
+  void should_write_report(@TempDir Path tempDir) throws IOException {
+    var otherFile = mock(InputFile.class);
+    when(inputFile.key()).thenReturn("file.js");
+    when(otherFile.key()).thenReturn("other.js");
+
+    cacheReporter.reset();
+    CacheMetrics.reset();
+    CacheMetrics.record(CacheMetrics.Phase.CACHE_READ, System.nanoTime());
+    CacheMetrics.bytesRead("file.js", 10);
+    CacheMetrics.bytesWritten("other.js", 20);
+    cacheReporter.logAndIncrement(createReadAndWrite(), inputFile, null);
+    cacheReporter.logAndIncrement(
+      writeOnly(createSerialization()),
+      otherFile,
+      CacheStrategies.MissReason.FILE_CHANGED
+    );
+    var reportFile = tempDir.resolve("report").resolve("js.json");
+    cacheReporter.writeReport(reportFile, "JS");
+
+    var report = JsonParser.parseString(Files.readString(reportFile)).getAsJsonObject();
+    assertThat(report.get("sensor").getAsString()).isEqualTo("JS");
+    assertThat(report.get("total").getAsInt()).isEqualTo(2);
+    assertThat(report.get("hits").getAsInt()).isEqualTo(1);
+    assertThat(report.getAsJsonObject("misses").get("FILE_CHANGED").getAsInt()).isEqualTo(1);
+    assertThat(report.getAsJsonObject("phases").getAsJsonObject("CACHE_READ").get("count").getAsLong())
+      .isEqualTo(1);
+    assertThat(report.getAsJsonObject("phases").getAsJsonObject("CPD_DECODE").get("count").getAsLong())
+      .isZero();
+    assertThat(report.get("bytesRead").getAsLong()).isEqualTo(10);
+    assertThat(report.get("bytesWritten").getAsLong()).isEqualTo(20);
+
+    var files = report.getAsJsonArray("files");
+    assertThat(files).hasSize(2);
+    var hit = files.get(0).getAsJsonObject();
+    assertThat(hit.get("file").getAsString()).isEqualTo("file.js");
+    assertThat(hit.get("strategy").getAsString()).isEqualTo("READ_AND_WRITE");
+    assertThat(hit.has("missReason")).isFalse();
+    assertThat(hit.get("bytesRead").getAsLong()).isEqualTo(10);
+    var miss = files.get(1).getAsJsonObject();
+    assertThat(miss.get("missReason").getAsString()).isEqualTo("FILE_CHANGED");
+    assertThat(miss.get("bytesWritten").getAsLong()).isEqualTo(20);
+  }
+
   private CacheStrategy createReadAndWrite() {
     return CacheStrategy.readAndWrite(
-      CacheAnalysis.fromCache(List.of()),
+      CacheAnalysis.fromCache(CpdTokenBlock.EMPTY),
       createSerialization()
     );
   }
 
   private CacheAnalysisSerialization createSerialization() {
-    return new CacheAnalysisSerialization(context, CacheKey.forFile(inputFile, null));
+    return new CacheAnalysisSerialization(
+      context,
+      CacheKey.forFile(inputFile, null),
+      CpdDictionary.create()
+    );
   }
 }
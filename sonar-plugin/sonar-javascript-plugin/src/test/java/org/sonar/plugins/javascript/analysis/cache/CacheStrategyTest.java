@@ -19,43 +19,41 @@
  */
 package org.sonar.plugins.javascript.analysis.cache;
 
-import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.plugins.javascript.analysis.cache.CacheStrategy.readAndWrite;
 import static org.sonar.plugins.javascript.analysis.cache.CacheStrategy.writeOnly;
 import static org.sonar.plugins.javascript.analysis.cache.CacheTestUtils.inputStream;
 
-import com.google.gson.Gson;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.stream.IntStream;
-import org.apache.commons.compress.utils.CountingInputStream;
 import org.apache.commons.io.input.InfiniteCircularInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
+import org.slf4j.event.Level;
 import org.sonar.api.SonarEdition;
 import org.sonar.api.SonarQubeSide;
 import org.sonar.api.batch.fs.FileSystem;
@@ -67,21 +65,20 @@ import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.testfixtures.log.LogTesterJUnit5;
 import org.sonar.api.utils.Version;
-import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
 import org.sonar.plugins.javascript.bridge.PluginInfo;
 
 @SuppressWarnings("resource")
 class CacheStrategyTest {
 
-  static final List<CpdToken> CPD_TOKENS = CacheTestUtils.getCpdTokens();
+  static final CpdTokenBlock CPD_TOKENS = CacheTestUtils.getCpdTokens();
   static final String PLUGIN_VERSION = "1.0.0";
 
+  CpdDictionary cpdDictionary;
   CacheAnalysisSerialization serialization;
-  String jsonCacheKey;
-  String seqCacheKey;
-  String cpdDataCacheKey;
-  String cpdStringTableCacheKey;
-  String metadataCacheKey;
+  String analysisCacheKey;
+  String blobCacheKeyPrefix;
+  byte[] cachedEntry;
 
   @TempDir
   Path baseDir;
@@ -103,6 +100,7 @@ class CacheStrategyTest {
   void setUp() throws Exception {
     // reset is required as this static value might be set by another test
     PluginInfo.setUcfgPluginVersion(null);
+    CacheStrategies.reset("test");
     workDir = baseDir.resolve(".scannerwork");
 
     fileSystem = mock(FileSystem.class);
@@ -115,39 +113,21 @@ class CacheStrategyTest {
     when(inputFile.key())
       .thenReturn(baseDir.relativize(testFile).toString().replace(File.separator, "/"));
     doReturn("Hello World!").when(inputFile).contents();
+    when(inputFile.inputStream()).thenAnswer(invocation -> inputStream("Hello World!"));
     when(inputFile.charset()).thenReturn(StandardCharsets.UTF_8);
 
     previousCache = mock(ReadCache.class);
     nextCache = mock(WriteCache.class);
     context = mock(SensorContext.class);
-    serialization =
-      new CacheAnalysisSerialization(context, CacheKey.forFile(inputFile, PLUGIN_VERSION));
 
-    jsonCacheKey =
-      CacheKey
-        .forFile(inputFile, PLUGIN_VERSION)
-        .forUcfg()
-        .withPrefix(UCFGFilesSerialization.JSON_PREFIX)
-        .toString();
-    seqCacheKey =
+    analysisCacheKey = CacheKey.forFile(inputFile, PLUGIN_VERSION).forAnalysis().toString();
+    blobCacheKeyPrefix =
       CacheKey
         .forFile(inputFile, PLUGIN_VERSION)
         .forUcfg()
-        .withPrefix(UCFGFilesSerialization.SEQ_PREFIX)
-        .toString();
-    cpdDataCacheKey =
-      CacheKey
-        .forFile(inputFile, PLUGIN_VERSION)
-        .forCpd()
-        .withPrefix(CpdSerialization.DATA_PREFIX)
-        .toString();
-    cpdStringTableCacheKey =
-      CacheKey
-        .forFile(inputFile, PLUGIN_VERSION)
-        .forCpd()
-        .withPrefix(CpdSerialization.STRING_TABLE_PREFIX)
+        .withPrefix(UCFGFilesSerialization.BLOB_PREFIX)
+        .forContent("")
         .toString();
-    metadataCacheKey = CacheKey.forFile(inputFile, PLUGIN_VERSION).forFileMetadata().toString();
 
     when(context.getSonarQubeVersion()).thenReturn(Version.create(9, 6));
     when(context.runtime())
@@ -162,25 +142,30 @@ class CacheStrategyTest {
     when(context.nextCache()).thenReturn(nextCache);
     when(context.fileSystem()).thenReturn(fileSystem);
 
-    when(previousCache.contains(metadataCacheKey)).thenReturn(true);
-    var metadata = inputStream(new Gson().toJson(FileMetadata.from(inputFile)));
-    when(previousCache.read(metadataCacheKey)).thenReturn(metadata);
+    // the dictionary of the sensor, which the cache entries of previous analyses also reference
+    cpdDictionary = CpdDictionaries.get(context, PLUGIN_VERSION);
+    serialization =
+      new CacheAnalysisSerialization(
+        context,
+        CacheKey.forFile(inputFile, PLUGIN_VERSION),
+        cpdDictionary
+      );
   }
 
   @Test
   void should_generate_cache_keys() {
+    assertThat(CacheKey.forFile(inputFile, null).forAnalysis())
+      .hasToString("js:analysis:src/test.js");
     assertThat(
-      CacheKey.forFile(inputFile, null).forUcfg().withPrefix(UCFGFilesSerialization.JSON_PREFIX)
-    )
-      .hasToString("jssecurity:ucfgs:JSON:src/test.js");
-    assertThat(
-      CacheKey.forFile(inputFile, null).forUcfg().withPrefix(UCFGFilesSerialization.SEQ_PREFIX)
+      CacheKey
+        .forFile(inputFile, null)
+        .forUcfg()
+        .withPrefix(UCFGFilesSerialization.BLOB_PREFIX)
+        .forContent("hash")
     )
-      .hasToString("jssecurity:ucfgs:SEQ:src/test.js");
-    assertThat(jsonCacheKey).isEqualTo("jssecurity:ucfgs:JSON:1.0.0:src/test.js");
-    assertThat(seqCacheKey).isEqualTo("jssecurity:ucfgs:SEQ:1.0.0:src/test.js");
-    assertThat(cpdDataCacheKey).isEqualTo("js:cpd:DATA:1.0.0:src/test.js");
-    assertThat(cpdStringTableCacheKey).isEqualTo("js:cpd:STRING_TABLE:1.0.0:src/test.js");
+      .hasToString("jssecurity:ucfgs:BLOB:hash");
+    assertThat(analysisCacheKey).isEqualTo("js:analysis:1.0.0:src/test.js");
+    assertThat(blobCacheKeyPrefix).isEqualTo("jssecurity:ucfgs:BLOB:1.0.0:");
   }
 
   @Test
@@ -222,7 +207,6 @@ class CacheStrategyTest {
       .map(Path::toAbsolutePath)
       .map(Path::toString)
       .toList();
-    long bytesRead;
 
     when(previousCache.contains(anyString())).thenReturn(false);
 
@@ -237,39 +221,31 @@ class CacheStrategyTest {
       inputFile
     );
 
-    var sequenceCaptor = ArgumentCaptor.forClass(InputStream.class);
-    verify(nextCache).write(eq(seqCacheKey), sequenceCaptor.capture());
-    try (var counting = new CountingInputStream(sequenceCaptor.getValue())) {
-      counting.transferTo(OutputStream.nullOutputStream());
-      bytesRead = counting.getBytesRead();
-    }
+    var entryCaptor = ArgumentCaptor.forClass(byte[].class);
+    verify(nextCache).write(eq(analysisCacheKey), entryCaptor.capture());
+    var entry = CacheEntry.fromBinary(entryCaptor.getValue());
+    assertThat(entry).isNotNull();
+    assertThat(entry.getMetadata().matches(FileMetadata.from(inputFile))).isTrue();
+    assertThat(entry.getUcfgVersion()).isEmpty();
 
-    var jsonCaptor = ArgumentCaptor.forClass(byte[].class);
-    verify(nextCache).write(eq(jsonCacheKey), jsonCaptor.capture());
-    var manifest = new Gson()
-      .fromJson(new String(jsonCaptor.getValue(), StandardCharsets.UTF_8), FilesManifest.class);
-    var totalSize = manifest
-      .getFileSizes()
-      .stream()
-      .reduce(0L, (n, size) -> n + size.getSize(), Long::sum);
-    assertThat(totalSize).isEqualTo(bytesRead);
+    var manifest = entry.getManifest();
     assertThat(manifest.getFileSizes())
       .hasSize(3)
       .extracting(FilesManifest.FileSize::getName)
       .containsExactly("ucfg/file_js_1.ucfg", "ucfg/file_js_2.ucfg", "ucfg/d/file_js_3.ucfg");
 
-    var cpdDataCaptor = ArgumentCaptor.forClass(byte[].class);
-    var cpdStringTableCaptor = ArgumentCaptor.forClass(byte[].class);
-    verify(nextCache).write(eq(cpdDataCacheKey), cpdDataCaptor.capture());
-    verify(nextCache).write(eq(cpdStringTableCacheKey), cpdStringTableCaptor.capture());
+    for (var fileSize : manifest.getFileSizes()) {
+      var content = Files.readAllBytes(workDir.resolve(fileSize.getName()));
+      assertThat(fileSize.getSize()).isEqualTo(content.length);
+      assertThat(fileSize.getHash()).isEqualTo(UCFGBlobs.hash(content));
+      verify(nextCache).write(blobCacheKeyPrefix + fileSize.getHash(), content);
+    }
 
-    var cpdData = CpdDeserializer.fromBinary(
-      cpdDataCaptor.getValue(),
-      cpdStringTableCaptor.getValue()
-    );
-    assertThat(cpdData.getCpdTokens())
+    assertThat(entry.getCpdDictionaryId()).isEqualTo(cpdDictionary.id());
+    var cpdData = CpdDeserializer.fromBinary(entry.getCpdData(), cpdDictionary);
+    assertThat(cpdData.getCpdTokens().toList())
       .usingRecursiveFieldByFieldElementComparator()
-      .containsExactlyElementsOf(CPD_TOKENS);
+      .containsExactlyElementsOf(CPD_TOKENS.toList());
   }
 
   @Test
@@ -290,36 +266,15 @@ class CacheStrategyTest {
     );
     assertThatThrownBy(() -> strategy.writeAnalysisToCache(cacheAnalysis, inputFile))
       .isInstanceOf(UncheckedIOException.class);
-    verify(nextCache, never()).write(eq(jsonCacheKey), any(byte[].class));
-    verify(nextCache, never()).write(eq(seqCacheKey), any(InputStream.class));
-    verify(nextCache, never()).write(eq(cpdDataCacheKey), any(byte[].class));
-    verify(nextCache, never()).write(eq(cpdStringTableCacheKey), any(byte[].class));
+    verify(nextCache, never()).write(eq(analysisCacheKey), any(byte[].class));
+    verify(nextCache, never()).write(startsWith(blobCacheKeyPrefix), any(byte[].class));
   }
 
   @Test
-  void should_write_an_empty_archive_in_cache() throws IOException {
+  void should_write_an_empty_manifest_in_cache() throws IOException {
     when(inputFile.status()).thenReturn(InputFile.Status.SAME);
 
     when(previousCache.contains(anyString())).thenReturn(false);
-
-    doAnswer(invocation -> {
-        var inputStream = invocation.getArgument(1, InputStream.class);
-        try (var counting = new CountingInputStream(inputStream)) {
-          counting.transferTo(OutputStream.nullOutputStream());
-          assertThat(counting.getBytesRead()).isZero();
-        }
-        return null;
-      })
-      .when(nextCache)
-      .write(eq(seqCacheKey), any(InputStream.class));
-    doAnswer(invocation -> {
-        var bytes = invocation.getArgument(1, byte[].class);
-        assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("{\"fileSizes\":[]}");
-        return null;
-      })
-      .when(nextCache)
-      .write(eq(jsonCacheKey), any(byte[].class));
-
     when(context.canSkipUnchangedFiles()).thenReturn(true);
 
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
@@ -330,10 +285,10 @@ class CacheStrategyTest {
       CacheAnalysis.fromResponse(null, CPD_TOKENS),
       inputFile
     );
-    verify(nextCache).write(eq(jsonCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(seqCacheKey), any(InputStream.class));
-    verify(nextCache).write(eq(cpdDataCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(cpdStringTableCacheKey), any(byte[].class));
+    var entryCaptor = ArgumentCaptor.forClass(byte[].class);
+    verify(nextCache).write(eq(analysisCacheKey), entryCaptor.capture());
+    assertThat(CacheEntry.fromBinary(entryCaptor.getValue()).getManifest().getFileSizes()).isEmpty();
+    verify(nextCache, never()).write(startsWith(blobCacheKeyPrefix), any(byte[].class));
   }
 
   @Test
@@ -346,15 +301,15 @@ class CacheStrategyTest {
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
     assertThat(strategy.getName()).isEqualTo(CacheStrategy.READ_AND_WRITE);
     assertThat(strategy.isAnalysisRequired()).isFalse();
+    assertThat(strategy.readAnalysisFromCache().getCpdTokens().toList())
+      .usingRecursiveFieldByFieldElementComparator()
+      .containsExactlyElementsOf(CPD_TOKENS.toList());
 
-    verify(previousCache).read(jsonCacheKey);
-    verify(nextCache).copyFromPrevious(jsonCacheKey);
-    verify(previousCache).read(seqCacheKey);
-    verify(nextCache).copyFromPrevious(seqCacheKey);
-    verify(previousCache).read(cpdDataCacheKey);
-    verify(nextCache).copyFromPrevious(cpdDataCacheKey);
-    verify(previousCache).read(cpdStringTableCacheKey);
-    verify(nextCache).copyFromPrevious(cpdStringTableCacheKey);
+    // a single read gives the metadata, the manifest and the CPD tokens
+    verify(previousCache).read(analysisCacheKey);
+    verify(nextCache).copyFromPrevious(analysisCacheKey);
+    verify(previousCache, times(3)).read(startsWith(blobCacheKeyPrefix));
+    verify(nextCache, times(3)).copyFromPrevious(startsWith(blobCacheKeyPrefix));
 
     for (var ucfgFileRelativePath : ucfgFileRelativePaths) {
       assertThat(workDir.resolve(ucfgFileRelativePath))
@@ -372,78 +327,101 @@ class CacheStrategyTest {
       new CacheAnalysis(ucfgPaths, CPD_TOKENS),
       inputFile
     );
-    verify(nextCache).write(eq(jsonCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(seqCacheKey), any(InputStream.class));
-    verify(nextCache).write(eq(cpdDataCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(cpdStringTableCacheKey), any(byte[].class));
+    verify(nextCache).write(eq(analysisCacheKey), any(byte[].class));
+    // the contents were already copied from the previous cache
+    verify(nextCache, never()).write(startsWith(blobCacheKeyPrefix), any(byte[].class));
   }
 
   @Test
-  void should_handle_null_ucfg_manifest_json() throws IOException {
+  void should_handle_invalid_cache_entry() throws IOException {
     createUcfgFilesInCache();
 
     when(inputFile.status()).thenReturn(InputFile.Status.SAME);
     when(context.canSkipUnchangedFiles()).thenReturn(true);
-    when(previousCache.read(jsonCacheKey)).thenReturn(InputStream.nullInputStream());
+    when(previousCache.read(analysisCacheKey)).thenReturn(inputStream("invalid-entry"));
 
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
     assertThat(strategy.getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
     assertThat(strategy.isAnalysisRequired()).isTrue();
+    assertThat(logTester.logs(Level.ERROR)).contains("Failure when reading cache entry");
 
-    verify(previousCache).read(jsonCacheKey);
-    verify(nextCache, never()).copyFromPrevious(jsonCacheKey);
-    verify(previousCache, never()).read(seqCacheKey);
-    verify(nextCache, never()).copyFromPrevious(seqCacheKey);
-    verify(previousCache, never()).read(cpdDataCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdDataCacheKey);
-    verify(previousCache, never()).read(cpdStringTableCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdStringTableCacheKey);
+    verify(previousCache).read(analysisCacheKey);
+    verify(previousCache, never()).read(startsWith(blobCacheKeyPrefix));
+    verify(nextCache, never()).copyFromPrevious(analysisCacheKey);
+    verify(nextCache, never()).copyFromPrevious(startsWith(blobCacheKeyPrefix));
   }
 
   @Test
-  void should_handle_invalid_ucfg_manifest_json() throws IOException {
+  void should_detect_corrupted_cache_entry() throws IOException {
     createUcfgFilesInCache();
+    var corrupted = cachedEntry.clone();
+    corrupted[corrupted.length - 1] ^= 1;
 
     when(inputFile.status()).thenReturn(InputFile.Status.SAME);
     when(context.canSkipUnchangedFiles()).thenReturn(true);
-    when(previousCache.read(jsonCacheKey)).thenReturn(inputStream("invalid-json"));
+    when(previousCache.read(analysisCacheKey)).thenReturn(inputStream(corrupted));
 
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
     assertThat(strategy.getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
-    assertThat(strategy.isAnalysisRequired()).isTrue();
+    assertThat(logTester.logs(Level.ERROR)).contains("Failure when reading cache entry");
+    verify(previousCache, never()).read(startsWith(blobCacheKeyPrefix));
+  }
 
-    verify(previousCache).read(jsonCacheKey);
-    verify(previousCache, never()).read(seqCacheKey);
-    verify(previousCache, never()).read(cpdDataCacheKey);
-    verify(previousCache, never()).read(cpdStringTableCacheKey);
-    verify(nextCache, never()).copyFromPrevious(jsonCacheKey);
-    verify(nextCache, never()).copyFromPrevious(seqCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdDataCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdStringTableCacheKey);
+  @Test
+  void should_ignore_cache_entry_of_other_format_version() throws IOException {
+    createUcfgFilesInCache();
+    var otherVersion = cachedEntry.clone();
+    otherVersion[4] = CacheEntry.VERSION + 1;
+
+    when(inputFile.status()).thenReturn(InputFile.Status.SAME);
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+    when(previousCache.read(analysisCacheKey)).thenReturn(inputStream(otherVersion));
+
+    var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
+    assertThat(strategy.getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
+    assertThat(logTester.logs(Level.ERROR)).isEmpty();
+    verify(previousCache, never()).read(startsWith(blobCacheKeyPrefix));
+  }
+
+  @Test
+  void should_ignore_cache_entry_of_other_ucfg_version() throws IOException {
+    createUcfgFilesInCache();
+    PluginInfo.setUcfgPluginVersion("2.0");
+
+    when(inputFile.status()).thenReturn(InputFile.Status.SAME);
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+
+    var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
+    assertThat(strategy.getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
+    verify(previousCache).read(analysisCacheKey);
+    verify(previousCache, never()).read(startsWith("jssecurity:ucfgs:"));
+    verify(nextCache, never()).copyFromPrevious(analysisCacheKey);
   }
 
   @Test
   void should_handle_invalid_cpd_tokens_serialization() throws IOException {
     createUcfgFilesInCache();
+    var entry = CacheEntry.fromBinary(cachedEntry);
+    var invalidEntry = new CacheEntry(
+      entry.getMetadata(),
+      entry.getUcfgVersion(),
+      entry.getManifest(),
+      "invalid-cpd-data".getBytes(StandardCharsets.UTF_8),
+      entry.getCpdDictionaryId()
+    );
 
     when(inputFile.status()).thenReturn(InputFile.Status.SAME);
     when(context.canSkipUnchangedFiles()).thenReturn(true);
-    when(previousCache.read(cpdDataCacheKey)).thenReturn(inputStream("invalid-cpd-data"));
-    when(previousCache.read(cpdStringTableCacheKey))
-      .thenReturn(inputStream("invalid-cpd-stringTable"));
+    when(previousCache.read(analysisCacheKey)).thenReturn(inputStream(invalidEntry.toBinary()));
 
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
     assertThat(strategy.getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
     assertThat(strategy.isAnalysisRequired()).isTrue();
 
-    verify(previousCache).read(jsonCacheKey);
-    verify(previousCache).read(seqCacheKey);
-    verify(previousCache).read(cpdDataCacheKey);
-    verify(previousCache).read(cpdStringTableCacheKey);
-    verify(nextCache, never()).copyFromPrevious(seqCacheKey);
-    verify(nextCache, never()).copyFromPrevious(jsonCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdDataCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdStringTableCacheKey);
+    verify(previousCache).read(analysisCacheKey);
+    verify(previousCache, times(3)).read(startsWith(blobCacheKeyPrefix));
+    verify(nextCache, never()).copyFromPrevious(analysisCacheKey);
+    verify(nextCache, never()).copyFromPrevious(startsWith(blobCacheKeyPrefix));
   }
 
   @Test
@@ -455,55 +433,17 @@ class CacheStrategyTest {
     when(inputFile.status()).thenReturn(InputFile.Status.SAME);
     when(context.canSkipUnchangedFiles()).thenReturn(true);
 
-    var serializationResult = CpdSerializer.toBinary(new CpdData(emptyList()));
-    when(previousCache.read(cpdDataCacheKey))
-      .thenReturn(inputStream(serializationResult.getData()));
-    when(previousCache.read(cpdStringTableCacheKey))
-      .thenReturn(inputStream(serializationResult.getStringTable()));
-
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, pluginVersion);
     assertThat(strategy.getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
     assertThat(strategy.isAnalysisRequired()).isTrue();
 
-    var metadataCacheKey = CacheKey.forFile(inputFile, pluginVersion).forFileMetadata().toString();
-    var jsonCacheKey = CacheKey
-      .forFile(inputFile, pluginVersion)
-      .forUcfg()
-      .withPrefix(UCFGFilesSerialization.JSON_PREFIX)
-      .toString();
-    var seqCacheKey = CacheKey
-      .forFile(inputFile, pluginVersion)
-      .forUcfg()
-      .withPrefix(UCFGFilesSerialization.SEQ_PREFIX)
-      .toString();
-    var cpdDataCacheKey = CacheKey
-      .forFile(inputFile, pluginVersion)
-      .forCpd()
-      .withPrefix(CpdSerialization.DATA_PREFIX)
-      .toString();
-    var cpdStringTableCacheKey = CacheKey
-      .forFile(inputFile, pluginVersion)
-      .forCpd()
-      .withPrefix(CpdSerialization.STRING_TABLE_PREFIX)
-      .toString();
-
-    verify(previousCache).contains(metadataCacheKey);
-    verify(previousCache, never()).contains(jsonCacheKey);
-    verify(previousCache, never()).contains(seqCacheKey);
-    verify(previousCache, never()).contains(cpdDataCacheKey);
-    verify(previousCache, never()).contains(cpdStringTableCacheKey);
-
-    verify(previousCache, never()).read(metadataCacheKey);
-    verify(previousCache, never()).read(jsonCacheKey);
-    verify(previousCache, never()).read(seqCacheKey);
-    verify(previousCache, never()).read(cpdDataCacheKey);
-    verify(previousCache, never()).read(cpdStringTableCacheKey);
-
-    verify(nextCache, never()).copyFromPrevious(metadataCacheKey);
-    verify(nextCache, never()).copyFromPrevious(seqCacheKey);
-    verify(nextCache, never()).copyFromPrevious(jsonCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdDataCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdStringTableCacheKey);
+    var analysisCacheKey = CacheKey.forFile(inputFile, pluginVersion).forAnalysis().toString();
+
+    verify(previousCache).contains(analysisCacheKey);
+    verify(previousCache, never()).read(analysisCacheKey);
+    verify(previousCache, never()).read(startsWith(blobCacheKeyPrefix));
+    verify(nextCache, never()).copyFromPrevious(analysisCacheKey);
+    verify(nextCache, never()).copyFromPrevious(startsWith(blobCacheKeyPrefix));
   }
 
   @Test
@@ -512,7 +452,8 @@ class CacheStrategyTest {
 
     when(inputFile.status()).thenReturn(InputFile.Status.SAME);
 
-    when(previousCache.read(seqCacheKey)).thenReturn(InputStream.nullInputStream());
+    when(previousCache.read(startsWith(blobCacheKeyPrefix)))
+      .thenAnswer(invocation -> InputStream.nullInputStream());
     when(context.canSkipUnchangedFiles()).thenReturn(true);
 
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
@@ -526,8 +467,8 @@ class CacheStrategyTest {
 
     when(inputFile.status()).thenReturn(InputFile.Status.SAME);
 
-    when(previousCache.read(seqCacheKey))
-      .thenReturn(new InfiniteCircularInputStream(new byte[] { 32 }));
+    when(previousCache.read(startsWith(blobCacheKeyPrefix)))
+      .thenAnswer(invocation -> new InfiniteCircularInputStream(new byte[] { 32 }));
     when(context.canSkipUnchangedFiles()).thenReturn(true);
 
     var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
@@ -540,6 +481,9 @@ class CacheStrategyTest {
     var ucfgFileRelativePaths = createUcfgFilesInCache();
 
     when(inputFile.contents()).thenReturn("Changed");
+    when(inputFile.inputStream()).thenAnswer(invocation -> inputStream("Changed"));
+    // the cache was written by a previous analysis, which fingerprinted the file before it changed
+    FileFingerprints.reset();
 
     when(context.canSkipUnchangedFiles()).thenReturn(true);
 
@@ -551,14 +495,10 @@ class CacheStrategyTest {
       createFile(workDir.resolve(ucfgFileRelativePath));
     }
 
-    verify(previousCache, never()).read(jsonCacheKey);
-    verify(nextCache, never()).copyFromPrevious(jsonCacheKey);
-    verify(previousCache, never()).read(seqCacheKey);
-    verify(nextCache, never()).copyFromPrevious(seqCacheKey);
-    verify(previousCache, never()).read(cpdDataCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdDataCacheKey);
-    verify(previousCache, never()).read(cpdStringTableCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdStringTableCacheKey);
+    verify(previousCache).read(analysisCacheKey);
+    verify(nextCache, never()).copyFromPrevious(analysisCacheKey);
+    verify(previousCache, never()).read(startsWith(blobCacheKeyPrefix));
+    verify(nextCache, never()).copyFromPrevious(startsWith(blobCacheKeyPrefix));
 
     var ucfgPaths = ucfgFileRelativePaths
       .stream()
@@ -569,10 +509,8 @@ class CacheStrategyTest {
       new CacheAnalysis(ucfgPaths, CPD_TOKENS),
       inputFile
     );
-    verify(nextCache).write(eq(jsonCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(seqCacheKey), any(InputStream.class));
-    verify(nextCache).write(eq(cpdDataCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(cpdStringTableCacheKey), any(byte[].class));
+    verify(nextCache).write(eq(analysisCacheKey), any(byte[].class));
+    verify(nextCache, times(3)).write(startsWith(blobCacheKeyPrefix), any(byte[].class));
   }
 
   @Test
@@ -591,14 +529,10 @@ class CacheStrategyTest {
       createFile(workDir.resolve(ucfgFileRelativePath));
     }
 
-    verify(previousCache, never()).read(jsonCacheKey);
-    verify(nextCache, never()).copyFromPrevious(jsonCacheKey);
-    verify(previousCache, never()).read(seqCacheKey);
-    verify(nextCache, never()).copyFromPrevious(seqCacheKey);
-    verify(previousCache, never()).read(cpdDataCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdDataCacheKey);
-    verify(previousCache, never()).read(cpdStringTableCacheKey);
-    verify(nextCache, never()).copyFromPrevious(cpdStringTableCacheKey);
+    verify(previousCache, never()).read(analysisCacheKey);
+    verify(nextCache, never()).copyFromPrevious(analysisCacheKey);
+    verify(previousCache, never()).read(startsWith(blobCacheKeyPrefix));
+    verify(nextCache, never()).copyFromPrevious(startsWith(blobCacheKeyPrefix));
 
     var ucfgPaths = ucfgFileRelativePaths
       .stream()
@@ -609,10 +543,8 @@ class CacheStrategyTest {
       new CacheAnalysis(ucfgPaths, CPD_TOKENS),
       inputFile
     );
-    verify(nextCache).write(eq(jsonCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(seqCacheKey), any(InputStream.class));
-    verify(nextCache).write(eq(cpdDataCacheKey), any(byte[].class));
-    verify(nextCache).write(eq(cpdStringTableCacheKey), any(byte[].class));
+    verify(nextCache).write(eq(analysisCacheKey), any(byte[].class));
+    verify(nextCache, times(3)).write(startsWith(blobCacheKeyPrefix), any(byte[].class));
   }
 
   @Test
@@ -620,7 +552,7 @@ class CacheStrategyTest {
     when(inputFile.toString()).thenReturn("test.js");
     assertThat(
       CacheStrategies.getLogMessage(
-        readAndWrite(CacheAnalysis.fromCache(List.of()), serialization),
+        readAndWrite(CacheAnalysis.fromCache(CpdTokenBlock.EMPTY), serialization),
         inputFile,
         "this is a test"
       )
@@ -631,16 +563,52 @@ class CacheStrategyTest {
   }
 
   @Test
-  void should_iterate_files() {
+  void should_store_identical_contents_once() throws IOException {
+    var ucfgFiles = createUcfgFiles(workDir).stream().map(workDir::resolve).toList();
+    for (var ucfgFile : ucfgFiles) {
+      Files.writeString(ucfgFile, "shared");
+    }
+    var otherFile = mock(InputFile.class);
+    when(otherFile.key()).thenReturn("src/other.js");
+    when(otherFile.inputStream()).thenAnswer(invocation -> inputStream("Other"));
+    when(otherFile.charset()).thenReturn(StandardCharsets.UTF_8);
+
+    var paths = ucfgFiles.stream().map(Path::toString).toList();
+    serialization.writeToCache(new CacheAnalysis(paths, CPD_TOKENS), inputFile);
+    // the other file is analyzed by another sensor, writing to the same cache
+    CacheStrategies.reset("other");
+    new CacheAnalysisSerialization(
+      context,
+      CacheKey.forFile(otherFile, PLUGIN_VERSION),
+      CpdDictionary.create()
+    )
+      .writeToCache(new CacheAnalysis(paths, CPD_TOKENS), otherFile);
+
+    var content = "shared".getBytes(StandardCharsets.UTF_8);
+    verify(nextCache).write(blobCacheKeyPrefix + UCFGBlobs.hash(content), content);
+    verify(nextCache, times(2)).write(startsWith("js:analysis:"), any(byte[].class));
+  }
+
+  @Test
+  void should_restore_identical_contents_once() throws IOException {
     var ucfgFiles = createUcfgFiles(tempDir).stream().map(tempDir::resolve).toList();
-    var iterator = new FileIterator(ucfgFiles);
-    IntStream
-      .range(0, ucfgFiles.size())
-      .forEach(i -> {
-        assertThat(iterator.hasNext()).isTrue();
-        assertThat(iterator.next()).isNotNull();
-      });
-    assertThatThrownBy(iterator::next).isInstanceOf(NoSuchElementException.class);
+    for (var ucfgFile : ucfgFiles) {
+      Files.writeString(ucfgFile, "shared");
+    }
+    createUcfgFilesInCache();
+
+    when(inputFile.status()).thenReturn(InputFile.Status.SAME);
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+
+    var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
+    assertThat(strategy.getName()).isEqualTo(CacheStrategy.READ_AND_WRITE);
+
+    var key = blobCacheKeyPrefix + UCFGBlobs.hash("shared".getBytes(StandardCharsets.UTF_8));
+    verify(previousCache).read(key);
+    verify(nextCache).copyFromPrevious(key);
+    for (var ucfgFile : ucfgFiles) {
+      assertThat(workDir.resolve(tempDir.relativize(ucfgFile))).hasContent("shared");
+    }
   }
 
   @Test
@@ -654,24 +622,167 @@ class CacheStrategyTest {
       .build();
     var pluginVersion = "1.0.0";
     var cacheKey = CacheKey.forFile(inputFile, pluginVersion);
-    var metadataKey = cacheKey.forFileMetadata().toString();
+    var analysisKey = cacheKey.forAnalysis().toString();
 
     var cacheStrategy = CacheStrategies.getStrategyFor(context, inputFile, pluginVersion);
     assertThat(cacheStrategy.getName()).isEqualTo("WRITE_ONLY");
-    verify(previousCache).contains(metadataKey);
-    verify(previousCache, never()).read(metadataKey);
-    verify(previousCache, never()).contains(cacheKey.forUcfg().toString());
+    verify(previousCache).contains(analysisKey);
+    verify(previousCache, never()).read(analysisKey);
 
     reset(previousCache);
-    when(previousCache.contains(metadataKey)).thenReturn(true);
-    when(previousCache.read(metadataKey))
-      .thenReturn(inputStream(new Gson().toJson(FileMetadata.from(inputFile))));
+    var entry = new CacheEntry(
+      FileMetadata.from(inputFile),
+      "",
+      new FilesManifest(List.of()),
+      new byte[0],
+      cpdDictionary.id()
+    );
+    when(previousCache.contains(analysisKey)).thenReturn(true);
+    when(previousCache.read(analysisKey)).thenReturn(inputStream(entry.toBinary()));
     CacheStrategies.getStrategyFor(context, inputFile, pluginVersion);
 
-    verify(previousCache).contains(metadataKey);
-    verify(previousCache).read(metadataKey);
-    verify(previousCache)
-      .contains(cacheKey.forUcfg().withPrefix(UCFGFilesSerialization.JSON_PREFIX).toString());
+    verify(previousCache).contains(analysisKey);
+    verify(previousCache).read(analysisKey);
+  }
+
+  @Test
+  void should_measure_cache_usage() throws IOException {
+    createUcfgFilesInCache();
+    when(inputFile.status()).thenReturn(InputFile.Status.SAME);
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+    // only measure the current analysis
+    FileFingerprints.reset();
+    CacheMetrics.reset();
+
+    var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
+    assertThat(strategy.getName()).isEqualTo(CacheStrategy.READ_AND_WRITE);
+
+    for (var phase : List.of(
+      CacheMetrics.Phase.FINGERPRINTING,
+      CacheMetrics.Phase.CACHE_READ,
+      CacheMetrics.Phase.UCFG_EXTRACTION,
+      CacheMetrics.Phase.CPD_DECODE,
+      CacheMetrics.Phase.CACHE_WRITE
+    )) {
+      assertThat(CacheMetrics.count(phase)).as(phase.name()).isEqualTo(1);
+    }
+    var ucfgBytes = CacheEntry
+      .fromBinary(cachedEntry)
+      .getManifest()
+      .getFileSizes()
+      .stream()
+      .mapToLong(FilesManifest.FileSize::getSize)
+      .sum();
+    assertThat(CacheMetrics.bytesRead(inputFile.key())).isEqualTo(cachedEntry.length + ucfgBytes);
+    assertThat(CacheMetrics.bytesWritten(inputFile.key())).isZero();
+  }
+
+  @Test
+  void should_prefetch_strategies() throws IOException {
+    createUcfgFilesInCache();
+    when(inputFile.status()).thenReturn(InputFile.Status.SAME);
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+
+    CacheStrategies.prefetch(context, List.of(inputFile), 2, PLUGIN_VERSION);
+    // the next cache is only written by the thread processing the files
+    verify(nextCache, never()).copyFromPrevious(anyString());
+
+    var strategy = CacheStrategies.getStrategyFor(context, inputFile);
+    assertThat(strategy.getName()).isEqualTo(CacheStrategy.READ_AND_WRITE);
+    assertThat(strategy.isAnalysisRequired()).isFalse();
+    verify(previousCache).read(analysisCacheKey);
+    verify(nextCache).copyFromPrevious(analysisCacheKey);
+    verify(nextCache, times(3)).copyFromPrevious(startsWith(blobCacheKeyPrefix));
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("Prefetching the cache strategies of 1 file(s) on 2 thread(s)");
+  }
+
+  @Test
+  void should_only_prefetch_a_few_strategies_ahead() throws IOException {
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+    var files = IntStream
+      .range(0, 10)
+      .mapToObj(i -> (InputFile) TestInputFileBuilder.create("module", "file" + i + ".js").build())
+      .toList();
+
+    CacheStrategies.prefetch(context, files, 1, PLUGIN_VERSION);
+    assertThat(CacheStrategies.prefetchedCount()).isEqualTo(4);
+
+    CacheStrategies.getStrategyFor(context, files.get(0));
+    assertThat(CacheStrategies.prefetchedCount()).isEqualTo(4);
+
+    // a file which was not submitted yet is resolved by the calling thread
+    assertThat(CacheStrategies.getStrategyFor(context, files.get(9)).getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
+    assertThat(CacheStrategies.prefetchedCount()).isEqualTo(4);
+
+    CacheStrategies.stopPrefetch();
+    assertThat(CacheStrategies.prefetchedCount()).isZero();
+  }
+
+  @Test
+  void should_not_prefetch_when_disabled() {
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+    CacheStrategies.prefetch(context, List.of(inputFile), 0, PLUGIN_VERSION);
+    verify(context, never()).previousCache();
+
+    when(context.canSkipUnchangedFiles()).thenReturn(false);
+    CacheStrategies.prefetch(context, List.of(inputFile), 2, PLUGIN_VERSION);
+    verify(context, never()).previousCache();
+  }
+
+  @Test
+  void should_miss_entry_referencing_other_cpd_dictionary() throws IOException {
+    createUcfgFilesInCache();
+    var entry = CacheEntry.fromBinary(cachedEntry);
+    var otherEntry = new CacheEntry(
+      entry.getMetadata(),
+      entry.getUcfgVersion(),
+      entry.getManifest(),
+      entry.getCpdData(),
+      cpdDictionary.id() + 1
+    );
+
+    when(inputFile.status()).thenReturn(InputFile.Status.SAME);
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+    when(previousCache.read(analysisCacheKey)).thenReturn(inputStream(otherEntry.toBinary()));
+
+    var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
+    assertThat(strategy.getName()).isEqualTo(CacheStrategy.WRITE_ONLY);
+    verify(previousCache, never()).read(startsWith(blobCacheKeyPrefix));
+  }
+
+  @Test
+  void should_write_cpd_dictionary_once() throws IOException {
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+    var strategy = CacheStrategies.getStrategyFor(context, inputFile, PLUGIN_VERSION);
+    strategy.writeAnalysisToCache(new CacheAnalysis(List.of(), CPD_TOKENS), inputFile);
+
+    CacheStrategies.writeSharedEntries(context);
+    CacheStrategies.writeSharedEntries(context);
+
+    var dictionaryCaptor = ArgumentCaptor.forClass(byte[].class);
+    verify(nextCache).write(eq("js:cpd:dictionary:1.0.0:test"), dictionaryCaptor.capture());
+    var dictionary = CpdDictionary.fromBinary(dictionaryCaptor.getValue());
+    assertThat(dictionary.id()).isEqualTo(cpdDictionary.id());
+    assertThat(dictionary.size()).isEqualTo(2);
+    assertThat(dictionary.image(0)).isEqualTo("LITERAL");
+    assertThat(dictionary.image(1)).isEqualTo("if");
+  }
+
+  @Test
+  void should_extend_previous_cpd_dictionary() throws IOException {
+    var previous = new CpdDictionary(7, List.of("if"));
+    var key = "js:cpd:dictionary:1.0.0:test";
+    when(previousCache.contains(key)).thenReturn(true);
+    when(previousCache.read(key)).thenReturn(inputStream(previous.toBinary()));
+    when(context.canSkipUnchangedFiles()).thenReturn(true);
+
+    CacheStrategies.reset("test");
+    var dictionary = CpdDictionaries.get(context, PLUGIN_VERSION);
+    assertThat(dictionary.id()).isEqualTo(7);
+    assertThat(dictionary.indexOf("if")).isZero();
+    assertThat(dictionary.indexOf("else")).isEqualTo(1);
+    assertThat(CpdDictionaries.get(context, PLUGIN_VERSION)).isSameAs(dictionary);
   }
 
   private String readFile(Path file) {
@@ -683,54 +794,50 @@ class CacheStrategyTest {
   }
 
   private List<String> createUcfgFilesInCache() throws IOException {
-    var ucfgFileRelativePaths = createUcfgFiles(tempDir);
+    var ucfgFileRelativePaths = List.of(
+      "ucfg/file_js_1.ucfg",
+      "ucfg/file_js_2.ucfg",
+      "ucfg/d/file_js_3.ucfg"
+    );
     var ucfgFiles = ucfgFileRelativePaths
       .stream()
       .map(tempDir::resolve)
-      .map(this::createFile)
+      .map(file -> Files.exists(file) ? file : createFile(file))
       .map(Path::toString)
       .toList();
-    var binFile = Files.createTempFile("ucfgs", ".bin");
-    var jsonFile = Files.createTempFile("ucfgs", ".json");
+    var blobs = new HashMap<String, byte[]>();
 
     var tempCache = mock(WriteCache.class);
     doAnswer(invocation -> {
-        var input = invocation.getArgument(1, InputStream.class);
-        Files.copy(input, binFile, StandardCopyOption.REPLACE_EXISTING);
+        blobs.put(invocation.getArgument(0, String.class), invocation.getArgument(1, byte[].class));
         return null;
       })
       .when(tempCache)
-      .write(eq(seqCacheKey), any(InputStream.class));
+      .write(startsWith(blobCacheKeyPrefix), any(byte[].class));
     doAnswer(invocation -> {
-        var bytes = invocation.getArgument(1, byte[].class);
-        Files.deleteIfExists(jsonFile);
-        Files.write(jsonFile, bytes);
+        cachedEntry = invocation.getArgument(1, byte[].class);
         return null;
       })
       .when(tempCache)
-      .write(eq(jsonCacheKey), any(byte[].class));
+      .write(eq(analysisCacheKey), any(byte[].class));
 
     when(fileSystem.workDir()).thenReturn(tempDir.toFile());
     when(context.nextCache()).thenReturn(tempCache);
     serialization.writeToCache(
-      CacheAnalysis.fromResponse(ucfgFiles, List.of()),
+      CacheAnalysis.fromResponse(ucfgFiles, CPD_TOKENS),
       inputFile
     );
     when(fileSystem.workDir()).thenReturn(workDir.toFile());
     when(context.nextCache()).thenReturn(nextCache);
-
-    when(previousCache.read(jsonCacheKey)).thenReturn(inputStream(jsonFile));
-    when(previousCache.read(seqCacheKey)).thenReturn(inputStream(binFile));
-
-    var serializationResult = CpdSerializer.toBinary(new CpdData(CPD_TOKENS));
-    when(previousCache.read(cpdDataCacheKey))
-      .thenReturn(inputStream(serializationResult.getData()));
-    when(previousCache.read(cpdStringTableCacheKey))
-      .thenReturn(inputStream(serializationResult.getStringTable()));
-    when(previousCache.contains(jsonCacheKey)).thenReturn(true);
-    when(previousCache.contains(seqCacheKey)).thenReturn(true);
-    when(previousCache.contains(cpdDataCacheKey)).thenReturn(true);
-    when(previousCache.contains(cpdStringTableCacheKey)).thenReturn(true);
+    // the cache was written by a previous analysis
+    UCFGBlobs.reset();
+
+    when(previousCache.contains(analysisCacheKey)).thenReturn(true);
+    when(previousCache.read(analysisCacheKey)).thenAnswer(invocation -> inputStream(cachedEntry));
+    blobs.forEach((key, content) -> {
+      when(previousCache.read(key)).thenAnswer(invocation -> inputStream(content));
+      when(previousCache.contains(key)).thenReturn(true);
+    });
 
     return ucfgFileRelativePaths;
   }
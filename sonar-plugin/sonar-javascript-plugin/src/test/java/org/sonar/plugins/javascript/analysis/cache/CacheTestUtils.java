@@ -19,6 +19,7 @@
  */
 package org.sonar.plugins.javascript.analysis.cache;
 
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -27,7 +28,6 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -39,22 +39,24 @@ import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.internal.SonarRuntimeImpl;
 import org.sonar.api.utils.Version;
-import org.sonar.plugins.javascript.bridge.BridgeServer.CpdToken;
+import org.sonar.plugins.javascript.bridge.BridgeServer.CpdTokenBlock;
+import org.sonar.plugins.javascript.bridge.PluginInfo;
 
 public class CacheTestUtils {
 
   public static final String CPD_TOKENS =
     "{ cpdTokens: [{\"location\": { \"startLine\":1,\"startCol\":0,\"endLine\":1,\"endCol\":4},\"image\":\"LITERAL\"},{\"location\": { \"startLine\":2,\"startCol\":1,\"endLine\":2,\"endCol\":5},\"image\":\"if\"}] }";
 
+  public static final long CPD_DICTIONARY_ID = 42;
+
   private CacheTestUtils() {}
 
-  public static CpdSerializer.SerializationResult getSerializedCpdTokens(
-    List<CpdToken> cpdTokens
-  ) throws IOException {
-    return CpdSerializer.toBinary(new CpdData(cpdTokens));
+  public static byte[] getSerializedCpdTokens(CpdTokenBlock cpdTokens, CpdDictionary dictionary)
+    throws IOException {
+    return CpdSerializer.toBinary(new CpdData(cpdTokens), dictionary);
   }
 
-  public static List<CpdToken> getCpdTokens() {
+  public static CpdTokenBlock getCpdTokens() {
     return new Gson().fromJson(CPD_TOKENS, CpdData.class).getCpdTokens();
   }
 
@@ -77,34 +79,25 @@ public class CacheTestUtils {
     context.setCanSkipUnchangedFiles(true);
 
     var cache = context.previousCache();
-    when(cache.contains("jssecurity:ucfgs:JSON:1.0:moduleKey:" + filePath)).thenReturn(true);
-    when(cache.read("jssecurity:ucfgs:JSON:1.0:moduleKey:" + filePath))
-      .thenReturn(new ByteArrayInputStream("{\"fileSizes\":[]}".getBytes(StandardCharsets.UTF_8)));
-    when(cache.contains("jssecurity:ucfgs:SEQ:1.0:moduleKey:" + filePath)).thenReturn(true);
-    when(cache.read("jssecurity:ucfgs:SEQ:1.0:moduleKey:" + filePath))
-      .thenReturn(new ByteArrayInputStream(new byte[0]));
-
-    when(cache.contains("js:cpd:DATA:1.0:moduleKey:" + filePath)).thenReturn(true);
-    when(cache.contains("js:cpd:STRING_TABLE:1.0:moduleKey:" + filePath)).thenReturn(true);
-
-    try {
-      var result = getSerializedCpdTokens(getCpdTokens());
-      when(cache.read("js:cpd:DATA:1.0:moduleKey:" + filePath))
-        .thenReturn(new ByteArrayInputStream(result.getData()));
-      when(cache.read("js:cpd:STRING_TABLE:1.0:moduleKey:" + filePath))
-        .thenReturn(new ByteArrayInputStream(result.getStringTable()));
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
-    }
-
-    when(cache.contains("js:filemetadata:1.0:moduleKey:" + filePath)).thenReturn(true);
-    when(cache.read("js:filemetadata:1.0:moduleKey:" + filePath))
-      .thenReturn(
-        inputStream(
-          "{\"size\":34,\"hash\":[-58,-66,77,-102,-13,-49,96,126,-125,-65,-111,109,-34,85,27,97,46,-58,-76,113," +
-          "-97,53,64,108,112,-2,104,-75,-23,-111,119,77]}"
-        )
-      );
+    var hash = new byte[] {
+      -58, -66, 77, -102, -13, -49, 96, 126, -125, -65, -111, 109, -34, 85, 27, 97, 46, -58, -76, 113, -97, 53, 64, 108,
+      112, -2, 104, -75, -23, -111, 119, 77,
+    };
+    var dictionary = new CpdDictionary(CPD_DICTIONARY_ID, List.of());
+    var entry = new CacheEntry(
+      new FileMetadata(34, hash),
+      PluginInfo.getUcfgPluginVersion().orElse(""),
+      new FilesManifest(List.of()),
+      getSerializedCpdTokens(getCpdTokens(), dictionary),
+      dictionary.id()
+    );
+    var dictionaryBinary = dictionary.toBinary();
+    when(cache.contains(startsWith("js:cpd:dictionary:"))).thenReturn(true);
+    when(cache.read(startsWith("js:cpd:dictionary:")))
+      .thenAnswer(invocation -> new ByteArrayInputStream(dictionaryBinary));
+    when(cache.contains("js:analysis:1.0:moduleKey:" + filePath)).thenReturn(true);
+    when(cache.read("js:analysis:1.0:moduleKey:" + filePath))
+      .thenReturn(new ByteArrayInputStream(entry.toBinary()));
 
     return context;
   }
@@ -0,0 +1,79 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CpdDictionaryTest {
+
+  @Test
+  void should_index_images_once() {
+    var dictionary = new CpdDictionary(1, List.of("if"));
+    assertThat(dictionary.indexOf("if")).isZero();
+    assertThat(dictionary.indexOf("LITERAL")).isEqualTo(1);
+    assertThat(dictionary.indexOf("LITERAL")).isEqualTo(1);
+    assertThat(dictionary.indexOf(null)).isEqualTo(2);
+    assertThat(dictionary.size()).isEqualTo(3);
+  }
+
+  @Test
+  void should_read_written_dictionary() throws IOException {
+    var dictionary = new CpdDictionary(42, List.of("if", "LITERAL", "é"));
+    var read = CpdDictionary.fromBinary(dictionary.toBinary());
+
+    assertThat(read.id()).isEqualTo(42);
+    assertThat(read.size()).isEqualTo(3);
+    assertThat(read.image(2)).isEqualTo("é");
+    assertThat(read.indexOf("LITERAL")).isEqualTo(1);
+  }
+
+  @Test
+  void should_share_images_between_files() throws IOException {
+    var dictionary = CpdDictionary.create();
+    var tokens = CacheTestUtils.getCpdTokens();
+    var first = CpdSerializer.toBinary(new CpdData(tokens), dictionary);
+    var second = CpdSerializer.toBinary(new CpdData(tokens), dictionary);
+
+    assertThat(dictionary.size()).isEqualTo(2);
+    assertThat(CpdDeserializer.fromBinary(first, dictionary).getCpdTokens().images()[0])
+      .isSameAs(CpdDeserializer.fromBinary(second, dictionary).getCpdTokens().images()[0]);
+  }
+
+  @Test
+  void should_fail_on_unknown_image() {
+    var dictionary = new CpdDictionary(1, List.of("if"));
+    assertThatThrownBy(() -> dictionary.image(1))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Can't read data from cache, unknown CPD image 1");
+  }
+
+  @Test
+  void should_fail_on_corrupted_dictionary() {
+    var binary = new byte[] { 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 9 };
+    assertThatThrownBy(() -> CpdDictionary.fromBinary(binary))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Can't read data from cache, format corrupted");
+  }
+}
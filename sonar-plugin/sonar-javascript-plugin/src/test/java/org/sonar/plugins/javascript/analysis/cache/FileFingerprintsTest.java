@@ -0,0 +1,56 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+
+class FileFingerprintsTest {
+
+  @AfterEach
+  void tearDown() {
+    FileFingerprints.reset();
+  }
+
+  @Test
+  void should_read_file_once() throws Exception {
+    var file = mock(InputFile.class);
+    when(file.inputStream())
+      .thenAnswer(invocation -> new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)));
+
+    var fingerprint = FileFingerprints.of(file);
+    assertThat(FileFingerprints.of(file)).isSameAs(fingerprint);
+    assertThat(fingerprint.compareTo(file)).isTrue();
+    verify(file, times(1)).inputStream();
+
+    FileFingerprints.reset();
+    assertThat(FileFingerprints.of(file)).isNotSameAs(fingerprint);
+    verify(file, times(2)).inputStream();
+  }
+}
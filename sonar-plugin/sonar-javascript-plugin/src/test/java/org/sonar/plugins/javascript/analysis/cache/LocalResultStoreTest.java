@@ -0,0 +1,91 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+class LocalResultStoreTest {
+
+  private static final byte[] FINGERPRINT = { 1, 2, 3 };
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void should_read_what_was_written() throws IOException {
+    var store = LocalResultStore.open(directory, Long.MAX_VALUE);
+    var file = file("a.js");
+    assertThat(store.read(file, FINGERPRINT)).isNull();
+
+    store.write(file, FINGERPRINT, new byte[] { 42 });
+    assertThat(store.read(file, FINGERPRINT)).containsExactly(42);
+    assertThat(store.read(file, new byte[] { 4 })).isNull();
+    assertThat(store.read(file("b.js"), FINGERPRINT)).isNull();
+
+    store.write(file, FINGERPRINT, new byte[] { 43 });
+    assertThat(LocalResultStore.open(directory, Long.MAX_VALUE).read(file, FINGERPRINT)).containsExactly(43);
+  }
+
+  @Test
+  void should_evict_least_recently_used_entries() throws IOException {
+    var store = LocalResultStore.open(directory, Long.MAX_VALUE);
+    var first = file("a.js");
+    var second = file("b.js");
+    var third = file("c.js");
+    store.write(first, FINGERPRINT, new byte[10]);
+    store.write(second, FINGERPRINT, new byte[10]);
+    store.write(third, FINGERPRINT, new byte[10]);
+    age(Instant.now().minusSeconds(60));
+    // reading refreshes the entry
+    store.read(first, FINGERPRINT);
+
+    store = LocalResultStore.open(directory, 15);
+    assertThat(store.read(first, FINGERPRINT)).hasSize(10);
+    assertThat(store.read(second, FINGERPRINT)).isNull();
+    assertThat(store.read(third, FINGERPRINT)).isNull();
+  }
+
+  private void age(Instant instant) throws IOException {
+    try (var files = Files.walk(directory)) {
+      for (var path : files.filter(Files::isRegularFile).toList()) {
+        Files.setLastModifiedTime(path, FileTime.from(instant));
+      }
+    }
+  }
+
+  private static InputFile file(String name) {
+    return TestInputFileBuilder
+      .create("module", name)
+      .setContents("a;")
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * SonarQube JavaScript Plugin
+ * Copyright (C) 2011-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.javascript.analysis.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.utils.Version;
+import org.sonar.plugins.javascript.bridge.BridgeServer.AnalysisResponse;
+import org.sonar.plugins.javascript.bridge.BridgeServer.Issue;
+import org.sonar.plugins.javascript.bridge.EslintRule;
+import org.sonar.plugins.javascript.bridge.PluginInfo;
+
+class ResultCacheTest {
+
+  private static final List<EslintRule> RULES = List.of(
+    new EslintRule("no-extra-semi", List.of(), List.of(InputFile.Type.MAIN), "js")
+  );
+  private static final AnalysisResponse RESPONSE = new AnalysisResponse(
+    null,
+    List.of(new Issue(1, 2, 1, 4, "message", "no-extra-semi", List.of(), null, List.of())),
+    null,
+    null,
+    null,
+    null,
+    List.of(),
+    null
+  );
+
+  @TempDir
+  Path baseDir;
+
+  private SensorContextTester context;
+  private InMemoryCache previousCache;
+  private InMemoryCache nextCache;
+  private Path tsConfig;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    context = SensorContextTester.create(baseDir);
+    previousCache = new InMemoryCache();
+    nextCache = new InMemoryCache();
+    context.setPreviousCache(previousCache);
+    context.setNextCache(nextCache);
+    tsConfig = Files.writeString(baseDir.resolve("tsconfig.json"), "{}");
+    FileFingerprints.reset();
+  }
+
+  @Test
+  void should_replay_results_for_same_fingerprint() throws IOException {
+    var file = file("a;;");
+    resultCache().write(file, "default", RESPONSE);
+    previousCache.entries.putAll(nextCache.entries);
+
+    var response = resultCache().read(file, "default");
+    assertThat(response).isPresent();
+    assertThat(response.get().issues()).containsExactlyElementsOf(RESPONSE.issues());
+    assertThat(nextCache.copied).containsExactly(CacheKey.forFile(file, PluginInfo.getVersion()).forResult().toString());
+
+    assertThat(resultCache().read(file, "unchanged")).isEmpty();
+    assertThat(resultCache().read(file("b;;"), "default")).isEmpty();
+  }
+
+  @Test
+  void should_not_replay_results_for_other_configuration() throws IOException {
+    var file = file("a;;");
+    resultCache().write(file, "default", RESPONSE);
+    previousCache.entries.putAll(nextCache.entries);
+
+    Files.writeString(tsConfig, "{\"compilerOptions\":{}}");
+    assertThat(resultCache().read(file, "default")).isEmpty();
+
+    var otherRules = ResultCache.create(context, null, 0, List.of(), List.of(), List.of(), List.of(tsConfig.toString()));
+    assertThat(otherRules.read(file, "default")).isEmpty();
+    assertThat(nextCache.copied).isEmpty();
+  }
+
+  @Test
+  void should_not_store_results_with_ucfg() throws IOException {
+    var response = new AnalysisResponse(null, null, null, null, null, null, List.of("ucfg"), null);
+    resultCache().write(file("a;;"), "default", response);
+    assertThat(nextCache.entries).isEmpty();
+  }
+
+  @Test
+  void should_not_be_created_in_sonarlint() throws IOException {
+    context.setRuntime(
+      SonarRuntimeImpl.forSonarLint(Version.create(10, 0))
+    );
+    assertThat(ResultCache.create(context, null, 0, RULES, List.of(), List.of(), List.of())).isNull();
+  }
+
+  @Test
+  void should_replay_results_from_local_directory_in_sonarlint() throws IOException {
+    context.setRuntime(
+      SonarRuntimeImpl.forSonarLint(Version.create(10, 0))
+    );
+    var directory = baseDir.resolve("results");
+    var file = file("a;;");
+    localResultCache(directory).write(file, "default", RESPONSE);
+
+    var response = localResultCache(directory).read(file, "default");
+    assertThat(response).isPresent();
+    assertThat(response.get().issues()).containsExactlyElementsOf(RESPONSE.issues());
+    assertThat(localResultCache(directory).read(file, "unchanged")).isEmpty();
+    assertThat(nextCache.entries).isEmpty();
+  }
+
+  @Test
+  void should_not_replay_results_of_other_plugin_version() throws IOException {
+    var version = PluginInfo.getVersion();
+    var directory = baseDir.resolve("results");
+    var file = file("a;;");
+    try {
+      PluginInfo.setVersion("1.0");
+      localResultCache(directory).write(file, "default", RESPONSE);
+      assertThat(localResultCache(directory).read(file, "default")).isPresent();
+
+      PluginInfo.setVersion("2.0");
+      assertThat(localResultCache(directory).read(file, "default")).isEmpty();
+    } finally {
+      PluginInfo.setVersion(version);
+    }
+  }
+
+  private ResultCache resultCache() throws IOException {
+    return ResultCache.create(context, null, 0, RULES, List.of("node"), List.of(), List.of(tsConfig.toString()));
+  }
+
+  private ResultCache localResultCache(Path directory) throws IOException {
+    return ResultCache.create(context, directory, Long.MAX_VALUE, RULES, List.of("node"), List.of(), List.of(tsConfig.toString()));
+  }
+
+  private static InputFile file(String contents) {
+    return TestInputFileBuilder
+      .create("module", "file.js")
+      .setContents(contents)
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+  }
+
+  private static class InMemoryCache implements ReadCache, WriteCache {
+
+    private final Map<String, byte[]> entries = new HashMap<>();
+    private final List<String> copied = new ArrayList<>();
+
+    @Override
+    public InputStream read(String key) {
+      return new ByteArrayInputStream(entries.get(key));
+    }
+
+    @Override
+    public boolean contains(String key) {
+      return entries.containsKey(key);
+    }
+
+    @Override
+    public void write(String key, InputStream data) {
+      try {
+        write(key, data.readAllBytes());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void write(String key, byte[] data) {
+      entries.put(key, data);
+    }
+
+    @Override
+    public void copyFromPrevious(String key) {
+      copied.add(key);
+    }
+  }
+}